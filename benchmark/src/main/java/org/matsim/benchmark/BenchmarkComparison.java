@@ -0,0 +1,122 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BenchmarkComparison.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Compares two result files in the csv format of JMH, as written by {@link BenchmarkSuite}, and prints the scores of
+ * every benchmark and parameter combination found in both files, together with the ratio of the contender's score
+ * to the baseline's. For the time based modes, a ratio below 1 means that the contender is faster; for the
+ * throughput mode, it means that the contender is slower.
+ * <p></p>
+ * Usage: <code>BenchmarkComparison baseline.csv contender.csv</code>
+ */
+public class BenchmarkComparison {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: BenchmarkComparison baseline.csv contender.csv");
+			System.exit(1);
+		}
+		Map<String, String[]> baseline = readResults(args[0]);
+		Map<String, String[]> contender = readResults(args[1]);
+
+		StringBuilder results = new StringBuilder("benchmark\tbaseline\tcontender\tunit\tratio\n");
+		for (Map.Entry<String, String[]> entry : baseline.entrySet()) {
+			String[] contenderScore = contender.get(entry.getKey());
+			if (contenderScore == null) {
+				continue;
+			}
+			double baselineValue = Double.parseDouble(entry.getValue()[0]);
+			double contenderValue = Double.parseDouble(contenderScore[0]);
+			results.append(entry.getKey()).append("\t").append(entry.getValue()[0]).append("\t").append(contenderScore[0])
+					.append("\t").append(entry.getValue()[1]).append("\t").append(String.format(Locale.ROOT, "%.3f", contenderValue / baselineValue)).append("\n");
+		}
+		System.out.println(results);
+	}
+
+	/**
+	 * @return the score and the unit of every benchmark, by the name of the benchmark with its mode and parameters
+	 */
+	private static Map<String, String[]> readResults(String filename) throws IOException {
+		Map<String, String[]> results = new LinkedHashMap<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			List<String> header = parseLine(reader.readLine());
+			int benchmarkColumn = header.indexOf("Benchmark");
+			int modeColumn = header.indexOf("Mode");
+			int scoreColumn = header.indexOf("Score");
+			int unitColumn = header.indexOf("Unit");
+			if (benchmarkColumn < 0 || modeColumn < 0 || scoreColumn < 0 || unitColumn < 0) {
+				throw new IllegalArgumentException(filename + " is not a JMH result file in the csv format.");
+			}
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				List<String> values = parseLine(line);
+				StringBuilder key = new StringBuilder(values.get(benchmarkColumn)).append(" (").append(values.get(modeColumn));
+				for (int i = 0; i < header.size() && i < values.size(); i++) {
+					if (header.get(i).startsWith("Param: ") && !values.get(i).isEmpty()) {
+						key.append(", ").append(header.get(i).substring("Param: ".length())).append("=").append(values.get(i));
+					}
+				}
+				key.append(")");
+				results.put(key.toString(), new String[] {values.get(scoreColumn), values.get(unitColumn)});
+			}
+		}
+		return results;
+	}
+
+	private static List<String> parseLine(String line) {
+		List<String> values = new ArrayList<>();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '"') {
+				if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					value.append('"');
+					i++;
+				} else {
+					quoted = !quoted;
+				}
+			} else if (c == ',' && !quoted) {
+				values.add(value.toString());
+				value.setLength(0);
+			} else {
+				value.append(c);
+			}
+		}
+		values.add(value.toString());
+		return values;
+	}
+
+}
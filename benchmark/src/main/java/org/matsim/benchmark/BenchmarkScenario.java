@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BenchmarkScenario.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Loads the "benchmark" scenario for the macro benchmarks, with a given number of threads and a population which is
+ * scaled to a given share of the original 1% sample.
+ */
+final class BenchmarkScenario {
+
+	private BenchmarkScenario() {
+	}
+
+	/**
+	 * @return the config of the "benchmark" scenario, with the number of threads of the replanning, the mobsim and
+	 * the events handling set to <code>numberOfThreads</code>
+	 */
+	static Config loadConfig(int numberOfThreads) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		config.global().setNumberOfThreads(numberOfThreads);
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.parallelEventHandling().setNumberOfThreads(numberOfThreads);
+		return config;
+	}
+
+	/**
+	 * Loads the scenario and scales its population to <code>populationShare</code>. Shares above 1 are reached with
+	 * copies of the persons. The flow and storage capacities are scaled by the same factor, so the congestion stays
+	 * about the same.
+	 */
+	static Scenario loadScenario(Config config, double populationShare) {
+		config.qsim().setFlowCapFactor(config.qsim().getFlowCapFactor() * populationShare);
+		config.qsim().setStorageCapFactor(config.qsim().getStorageCapFactor() * populationShare);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		Population population = scenario.getPopulation();
+		List<Person> persons = new ArrayList<>(population.getPersons().values());
+		for (Person person : persons) {
+			population.removePerson(person.getId());
+		}
+		Random random = new Random(4711);
+		for (int copy = 0; copy < populationShare; copy++) {
+			double share = Math.min(1.0, populationShare - copy);
+			for (Person person : persons) {
+				if (random.nextDouble() >= share) {
+					continue;
+				}
+				if (copy == 0) {
+					population.addPerson(person);
+				} else {
+					population.addPerson(copyPerson(population, person, Id.createPersonId(person.getId() + "_" + copy)));
+				}
+			}
+		}
+		return scenario;
+	}
+
+	private static Person copyPerson(Population population, Person person, Id<Person> id) {
+		Person copy = population.getFactory().createPerson(id);
+		for (Plan plan : person.getPlans()) {
+			Plan planCopy = population.getFactory().createPlan();
+			PopulationUtils.copyFromTo(plan, planCopy);
+			copy.addPlan(planCopy);
+			if (plan == person.getSelectedPlan()) {
+				copy.setSelectedPlan(planCopy);
+			}
+		}
+		return copy;
+	}
+
+}
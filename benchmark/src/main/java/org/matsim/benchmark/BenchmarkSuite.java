@@ -0,0 +1,84 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BenchmarkSuite.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+
+import org.matsim.core.gbl.Gbl;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of this module and writes their results to a machine-readable file, by default
+ * <code>benchmark-&lt;revision&gt;.csv</code>, where the revision is the one of the MATSim build. The results of two
+ * revisions can be compared with {@link BenchmarkComparison}.
+ * <p></p>
+ * All JMH command line options are supported, e.g. regular expressions to select the benchmarks, <code>-rf json</code>
+ * for another result format or <code>-rff</code> for another file. Without a selection, all benchmarks are run,
+ * including the macro benchmarks {@link MobsimBenchmark} and {@link ControlerBenchmark}, which take a while; they can
+ * be left out with <code>-e Mobsim -e Controler</code>.
+ * <p></p>
+ * Usage: <code>BenchmarkSuite [jmh options] [benchmark regexps]</code>
+ */
+public class BenchmarkSuite {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		ResultFormatType format = ResultFormatType.CSV;
+		if (commandLine.getResultFormat().hasValue()) {
+			format = commandLine.getResultFormat().get();
+		} else {
+			options.resultFormat(format);
+		}
+		if (!commandLine.getResult().hasValue()) {
+			options.result("benchmark-" + getRevision() + "." + format.name().toLowerCase());
+		}
+		new Runner(options.build()).run();
+	}
+
+	/**
+	 * @return the revision which the build number plugin wrote into the MATSim jar, or <code>unknown</code>
+	 */
+	private static String getRevision() {
+		URL url = Gbl.class.getResource("/revision.txt");
+		if (url != null) {
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream()))) {
+				String revision = reader.readLine();
+				if (revision != null && !revision.contains("$")) {
+					return revision;
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		return "unknown";
+	}
+
+}
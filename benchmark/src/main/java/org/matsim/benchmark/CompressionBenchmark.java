@@ -0,0 +1,101 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompressionBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.IOUtils.CompressionType;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Writes and reads the network and plans files of the "benchmark" scenario with every {@link CompressionType}
+ * supported by {@link IOUtils}, and prints the throughput and the size of the compressed files.  The files are
+ * written to the temporary directory and deleted afterwards.
+ * <p></p>
+ * Usage: <code>CompressionBenchmark [copies [repetitions]]</code>
+ */
+public class CompressionBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int copies = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		String[] names = { "network", "plans" };
+		byte[][] contents = { read(IOUtils.getInputStream(config.network().getInputFileURL(config.getContext()))),
+				read(IOUtils.getInputStream(config.plans().getInputFileURL(config.getContext()))) };
+
+		StringBuilder results = new StringBuilder("file\tcompression\twrite[ms]\twrite[MB/s]\tread[ms]\tread[MB/s]\tsize[MB]\tratio\n");
+		byte[] buffer = new byte[64 * 1024];
+		for (int f = 0; f < names.length; f++) {
+			byte[] data = contents[f];
+			double megabytes = (double) data.length * copies / 1024 / 1024;
+			for (CompressionType compression : CompressionType.values()) {
+				File file = File.createTempFile("matsim-" + names[f], ".xml" + compression.getFileEnding());
+				try {
+					long bestWrite = Long.MAX_VALUE;
+					long bestRead = Long.MAX_VALUE;
+					for (int i = 0; i < repetitions; i++) {
+						long start = System.currentTimeMillis();
+						try (OutputStream out = IOUtils.getOutputStream(file.getPath())) {
+							for (int c = 0; c < copies; c++) {
+								out.write(data);
+							}
+						}
+						bestWrite = Math.min(bestWrite, System.currentTimeMillis() - start);
+
+						start = System.currentTimeMillis();
+						try (InputStream in = IOUtils.getInputStream(file.getPath())) {
+							while (in.read(buffer) >= 0) {
+								// only measure the decompression
+							}
+						}
+						bestRead = Math.min(bestRead, System.currentTimeMillis() - start);
+					}
+					double size = file.length() / 1024.0 / 1024.0;
+					results.append(names[f]).append("\t").append(compression)
+							.append("\t").append(bestWrite).append("\t").append(String.format("%.1f", megabytes / Math.max(bestWrite, 1) * 1000))
+							.append("\t").append(bestRead).append("\t").append(String.format("%.1f", megabytes / Math.max(bestRead, 1) * 1000))
+							.append("\t").append(String.format("%.1f", size)).append("\t").append(String.format("%.3f", size / megabytes)).append("\n");
+				} finally {
+					file.delete();
+				}
+			}
+		}
+		System.out.println(results);
+	}
+
+	private static byte[] read(final InputStream in) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream stream = in) {
+			IOUtils.copyStream(stream, bytes);
+		}
+		return bytes.toByteArray();
+	}
+
+}
@@ -0,0 +1,106 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ControlerBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.utils.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH macro benchmark of a whole {@link Controler} run of the "benchmark" scenario, like
+ * {@link org.matsim.benchmark.Benchmark}, but for different population sizes and numbers of threads and with fewer
+ * iterations. The population size is given as share of the original 1% sample, see
+ * {@link BenchmarkScenario#loadScenario}. The scenario is loaded before every run and is not part of the measured time.
+ * <p></p>
+ * Usage: <code>ControlerBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ControlerBenchmark {
+
+	@Param({"0.25", "1", "4"})
+	public double populationShare;
+
+	@Param({"1", "2", "4"})
+	public int numberOfThreads;
+
+	@Param({"2"})
+	public int lastIteration;
+
+	private Path outputDirectory;
+	private Controler controler;
+
+	@Setup
+	public void setup() throws IOException {
+		this.outputDirectory = Files.createTempDirectory("controler");
+	}
+
+	@Setup(Level.Invocation)
+	public void createControler() {
+		Config config = BenchmarkScenario.loadConfig(this.numberOfThreads);
+		config.controler().setLastIteration(this.lastIteration);
+		config.controler().setOutputDirectory(this.outputDirectory.toString());
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setCreateGraphs(false);
+		this.controler = new Controler(BenchmarkScenario.loadScenario(config, this.populationShare));
+	}
+
+	@TearDown
+	public void tearDown() {
+		IOUtils.deleteDirectoryRecursively(this.outputDirectory);
+	}
+
+	@Benchmark
+	public void runControler() {
+		this.controler.run();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ControlerBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsFileBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of writing and reading the events of the "equil" example, once as gzipped xml file and once in
+ * the binary format of {@link EventWriterBinary}.
+ * <p></p>
+ * Usage: <code>EventsFileBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EventsFileBenchmark {
+
+	public enum Format {xml, binary}
+
+	@Param({"xml", "binary"})
+	public Format format;
+
+	private final List<Event> events = new ArrayList<>();
+	private File file;
+	private EventsManager eventsManager;
+	private long count = 0;
+
+	@Setup
+	public void setup() throws IOException {
+		EventsManager reader = new EventsManagerImpl();
+		reader.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				EventsFileBenchmark.this.events.add(event);
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		new MatsimEventsReader(reader).readStream(IOUtils.getInputStream(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "output_events.xml.gz")));
+
+		this.file = File.createTempFile("events", this.format == Format.xml ? ".xml.gz" : ".bin");
+		write();
+
+		this.eventsManager = new EventsManagerImpl();
+		this.eventsManager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				EventsFileBenchmark.this.count++;
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (!this.file.delete()) {
+			throw new UncheckedIOException(new IOException("Could not delete " + this.file));
+		}
+	}
+
+	@Benchmark
+	public void write() {
+		String filename = this.file.getPath();
+		EventWriter writer = this.format == Format.xml ? new EventWriterXML(filename) : new EventWriterBinary(filename);
+		BasicEventHandler handler = (BasicEventHandler) writer;
+		for (Event event : this.events) {
+			handler.handleEvent(event);
+		}
+		writer.closeFile();
+	}
+
+	@Benchmark
+	public long read() {
+		new MatsimEventsReader(this.eventsManager).readFile(this.file.getPath());
+		return this.count;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventsFileBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,130 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsManagerBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventHandlerDispatch;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the cost of passing one event to the registered handlers of an {@link EventsManagerImpl},
+ * for the different {@link EventHandlerDispatch} modes. The events alternate between types with a
+ * hard-coded cast in the reflection mode (link enter and leave) and one without (vehicle leaves traffic).
+ * <p></p>
+ * Usage: <code>EventsManagerBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class EventsManagerBenchmark {
+
+	@Param({"reflection", "generated"})
+	public EventHandlerDispatch dispatch;
+
+	@Param({"1", "10", "50"})
+	public int numberOfHandlers;
+
+	private EventsManager eventsManager;
+	private Event[] events;
+	private int event = 0;
+
+	@Setup
+	public void setup() {
+		this.eventsManager = new EventsManagerImpl(this.dispatch);
+		for (int i = 0; i < this.numberOfHandlers; i++) {
+			this.eventsManager.addHandler(new CountingHandler());
+		}
+		Id<Vehicle> vehicleId = Id.create("1", Vehicle.class);
+		Id<Link> linkId = Id.create("1", Link.class);
+		this.events = new Event[] {
+				new LinkEnterEvent(0, vehicleId, linkId),
+				new LinkLeaveEvent(0, vehicleId, linkId),
+				new VehicleLeavesTrafficEvent(0, Id.create("1", Person.class), linkId, vehicleId, "car", 1.0) };
+	}
+
+	@Benchmark
+	public void processEvent() {
+		int i = this.event;
+		this.event = (i + 1) % this.events.length;
+		this.eventsManager.processEvent(this.events[i]);
+	}
+
+	private static class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler, VehicleLeavesTrafficEventHandler {
+
+		private long count = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void handleEvent(VehicleLeavesTrafficEvent event) {
+			this.count++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.count = 0;
+		}
+
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventsManagerBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,93 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * GZIPOutputBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.ParallelGZIPOutputStream;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Compares the throughput of {@link GZIPOutputStream} and {@link ParallelGZIPOutputStream} with an increasing
+ * number of threads, when compressing the plans file of the "benchmark" scenario several times. The compressed
+ * data is discarded, so only the compression is measured.
+ * <p></p>
+ * Usage: <code>GZIPOutputBenchmark [copies [maxNumberOfThreads [repetitions]]]</code>
+ */
+public class GZIPOutputBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int copies = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		ByteArrayOutputStream plans = new ByteArrayOutputStream();
+		try (InputStream in = IOUtils.getInputStream(config.plans().getInputFileURL(config.getContext()))) {
+			IOUtils.copyStream(in, plans);
+		}
+		byte[] data = plans.toByteArray();
+		double megabytes = (double) data.length * copies / 1024 / 1024;
+
+		StringBuilder results = new StringBuilder("writer\tthreads\ttime[ms]\tMB/s\tcompressed[MB]\n");
+		for (int threads = 0; threads <= maxThreads; threads = (threads == 0 ? 1 : threads * 2)) {
+			long best = Long.MAX_VALUE;
+			long compressed = 0;
+			for (int i = 0; i < repetitions; i++) {
+				CountingOutputStream counter = new CountingOutputStream();
+				long start = System.currentTimeMillis();
+				try (OutputStream out = threads == 0 ? new GZIPOutputStream(counter) : new ParallelGZIPOutputStream(counter, threads)) {
+					for (int c = 0; c < copies; c++) {
+						out.write(data);
+					}
+				}
+				best = Math.min(best, System.currentTimeMillis() - start);
+				compressed = counter.count;
+			}
+			results.append(threads == 0 ? "GZIPOutputStream\t1" : "ParallelGZIPOutputStream\t" + threads).append("\t").append(best)
+					.append("\t").append(String.format("%.1f", megabytes / best * 1000))
+					.append("\t").append(String.format("%.1f", compressed / 1024.0 / 1024.0)).append("\n");
+		}
+		System.out.println(results);
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		long count = 0;
+
+		@Override
+		public void write(int b) {
+			this.count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			this.count += len;
+		}
+	}
+
+}
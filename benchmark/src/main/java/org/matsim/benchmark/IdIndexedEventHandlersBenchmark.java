@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdIndexedEventHandlersBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.analysis.VolumesAnalyzer;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.EventsToScore;
+import org.matsim.core.scoring.ScoringFunctionsForPopulation;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the event throughput of the core event handlers that look up their state by {@link org.matsim.api.core.v01.IdMap}:
+ * the {@link VolumesAnalyzer}, the {@link ScoringFunctionsForPopulation} behind {@link EventsToScore} and the
+ * concurrent {@link TravelTimeCalculator}. The events are recorded once from a mobsim run of the "benchmark" scenario
+ * and then replayed, one event per operation; after the last event, the handlers are reset for the next iteration.
+ * <p></p>
+ * The benchmark only uses API that also exists before the handlers were migrated, so it can be run with
+ * {@link BenchmarkSuite} on both revisions and the results compared with {@link BenchmarkComparison}.
+ * <p></p>
+ * Usage: <code>IdIndexedEventHandlersBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IdIndexedEventHandlersBenchmark {
+
+	@Param({"volumesAnalyzer", "scoring", "travelTimeCalculator"})
+	public String handler;
+
+	private Event[] events;
+	private EventsManager eventsManager;
+	private EventsToScore eventsToScore;
+	private int event = 0;
+	private int iteration = 0;
+
+	@Setup
+	public void setup() {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		config.travelTimeCalculator().setTravelTimeCalculatorType(TravelTimeCalculatorType.TravelTimeCalculatorConcurrent.name());
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		final List<Event> events = new ArrayList<>();
+		EventsManager recorder = EventsUtils.createEventsManager();
+		recorder.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event);
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		QSimUtils.createDefaultQSim(scenario, recorder).run();
+		this.events = events.toArray(new Event[events.size()]);
+
+		this.eventsManager = EventsUtils.createEventsManager();
+		switch (this.handler) {
+		case "volumesAnalyzer":
+			this.eventsManager.addHandler(new VolumesAnalyzer(3600, 30 * 3600 - 1, scenario.getNetwork()));
+			break;
+		case "scoring":
+			this.eventsToScore = EventsToScore.createWithoutScoreUpdating(scenario, new CharyparNagelScoringFunctionFactory(scenario), this.eventsManager);
+			this.eventsToScore.beginIteration(this.iteration);
+			break;
+		case "travelTimeCalculator":
+			this.eventsManager.addHandler(TravelTimeCalculator.create(scenario.getNetwork(), config.travelTimeCalculator()));
+			break;
+		default:
+			throw new IllegalArgumentException("unknown handler " + this.handler);
+		}
+	}
+
+	@Benchmark
+	public void handleEvent() {
+		int i = this.event;
+		this.eventsManager.processEvent(this.events[i]);
+		if (++i == this.events.length) {
+			i = 0;
+			nextIteration();
+		}
+		this.event = i;
+	}
+
+	private void nextIteration() {
+		if (this.eventsToScore != null) {
+			this.eventsToScore.finish();
+		}
+		this.iteration++;
+		this.eventsManager.resetHandlers(this.iteration);
+		if (this.eventsToScore != null) {
+			this.eventsToScore.beginIteration(this.iteration);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(IdIndexedEventHandlersBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
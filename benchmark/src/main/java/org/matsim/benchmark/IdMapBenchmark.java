@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMapBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.analysis.VolumesAnalyzer;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of {@link IdMap} compared to {@link HashMap}, counting link leave events per link like the
+ * {@link VolumesAnalyzer}, and of the {@link VolumesAnalyzer} itself. {@link #main(String[])} additionally prints
+ * the heap retained by both maps when containing all links.
+ * <p></p>
+ * Usage: <code>IdMapBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IdMapBenchmark {
+
+	private static final int NUMBER_OF_EVENTS = 1 << 16;
+
+	@Param({"hashMap", "idMap"})
+	public String map;
+
+	@Param({"1000", "100000"})
+	public int numberOfLinks;
+
+	private Map<Id<Link>, int[]> volumes;
+	private VolumesAnalyzer volumesAnalyzer;
+	private LinkLeaveEvent[] events;
+	private int event = 0;
+
+	@Setup
+	public void setup() {
+		Network network = createNetwork(this.numberOfLinks);
+		this.volumes = "idMap".equals(this.map) ? new IdMap<Link, int[]>(Link.class) : new HashMap<Id<Link>, int[]>();
+		this.volumesAnalyzer = new VolumesAnalyzer(3600, 24 * 3600 - 1, network, false);
+		Link[] links = network.getLinks().values().toArray(new Link[this.numberOfLinks]);
+		Random random = new Random(4711);
+		this.events = new LinkLeaveEvent[NUMBER_OF_EVENTS];
+		for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+			Link link = links[random.nextInt(links.length)];
+			this.events[i] = new LinkLeaveEvent(random.nextInt(24 * 3600), Id.create(i, Vehicle.class), link.getId());
+		}
+	}
+
+	@Benchmark
+	public int countVolumes() {
+		LinkLeaveEvent e = nextEvent();
+		int[] linkVolumes = this.volumes.get(e.getLinkId());
+		if (linkVolumes == null) {
+			linkVolumes = new int[25];
+			this.volumes.put(e.getLinkId(), linkVolumes);
+		}
+		return ++linkVolumes[(int) e.getTime() / 3600];
+	}
+
+	@Benchmark
+	public void volumesAnalyzer() {
+		this.volumesAnalyzer.handleEvent(nextEvent());
+	}
+
+	private LinkLeaveEvent nextEvent() {
+		int i = this.event;
+		this.event = (i + 1) & (NUMBER_OF_EVENTS - 1);
+		return this.events[i];
+	}
+
+	private static Network createNetwork(int numberOfLinks) {
+		Network network = NetworkUtils.createNetwork();
+		Node previous = NetworkUtils.createAndAddNode(network, Id.create("n0", Node.class), new Coord(0, 0));
+		for (int i = 0; i < numberOfLinks; i++) {
+			Node node = NetworkUtils.createAndAddNode(network, Id.create("n" + (i + 1), Node.class), new Coord(i + 1, 0));
+			NetworkUtils.createAndAddLink(network, Id.create(i, Link.class), previous, node, 100, 10, 1000, 1);
+			previous = node;
+		}
+		return network;
+	}
+
+	private static void printMemory(int numberOfLinks) {
+		Network network = createNetwork(numberOfLinks);
+		Object value = new Object();
+		StringBuilder results = new StringBuilder("map\tlinks\theap[kB]\n");
+		for (String map : new String[] { "hashMap", "idMap" }) {
+			long before = usedMemory();
+			Map<Id<Link>, Object> links = "idMap".equals(map) ? new IdMap<Link, Object>(Link.class) : new HashMap<Id<Link>, Object>();
+			for (Id<Link> linkId : network.getLinks().keySet()) {
+				links.put(linkId, value);
+			}
+			long used = usedMemory() - before;
+			results.append(map).append("\t").append(links.size()).append("\t").append(used / 1024).append("\n");
+		}
+		System.out.println(results);
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		printMemory(100000);
+		new Runner(new OptionsBuilder().include(IdMapBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,148 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * LeastCostPathCalculatorBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ControlerConfigGroup.RoutingAlgorithmType;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.AStarLandmarksFactory;
+import org.matsim.core.router.CompactAStarEuclideanFactory;
+import org.matsim.core.router.CompactAStarLandmarksFactory;
+import org.matsim.core.router.CompactDijkstraFactory;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.FastAStarLandmarksFactory;
+import org.matsim.core.router.FastDijkstraFactory;
+import org.matsim.core.router.ch.ContractionHierarchiesFactory;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of single route queries with the different least cost path calculators.
+ * By default, random queries on the network of the "berlin" example scenario are calculated;
+ * another network can be given with <code>-p networkFile=...</code>.
+ * <p></p>
+ * Usage: <code>LeastCostPathCalculatorBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LeastCostPathCalculatorBenchmark {
+
+	private static final int QUERIES = 1000;
+
+	@Param({"FastDijkstra", "CompactDijkstra", "FastAStarLandmarks", "CompactAStarLandmarks", "ContractionHierarchies"})
+	public RoutingAlgorithmType routingAlgorithm;
+
+	@Param({""})
+	public String networkFile;
+
+	private LeastCostPathCalculator router;
+	private Node[] fromNodes;
+	private Node[] toNodes;
+	private int query = 0;
+
+	@Setup
+	public void setup() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		if (this.networkFile.isEmpty()) {
+			new MatsimNetworkReader(scenario.getNetwork()).parse(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("berlin"), "network.xml.gz"));
+		} else {
+			new MatsimNetworkReader(scenario.getNetwork()).readFile(this.networkFile);
+		}
+		Network network = scenario.getNetwork();
+
+		FreespeedTravelTimeAndDisutility travelTime = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		this.router = createFactory(this.routingAlgorithm).createPathCalculator(network, travelTime, travelTime);
+
+		Node[] nodes = network.getNodes().values().toArray(new Node[network.getNodes().size()]);
+		Random random = new Random(4711);
+		this.fromNodes = new Node[QUERIES];
+		this.toNodes = new Node[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.fromNodes[i] = nodes[random.nextInt(nodes.length)];
+			this.toNodes[i] = nodes[random.nextInt(nodes.length)];
+		}
+	}
+
+	@Benchmark
+	public Path calcLeastCostPath() {
+		int i = this.query;
+		this.query = (i + 1) % QUERIES;
+		return this.router.calcLeastCostPath(this.fromNodes[i], this.toNodes[i], 8 * 3600, null, null);
+	}
+
+	private static LeastCostPathCalculatorFactory createFactory(RoutingAlgorithmType routingAlgorithm) {
+		switch (routingAlgorithm) {
+		case Dijkstra:
+			return new DijkstraFactory();
+		case AStarLandmarks:
+			return new AStarLandmarksFactory();
+		case FastDijkstra:
+			return new FastDijkstraFactory();
+		case FastAStarLandmarks:
+			return new FastAStarLandmarksFactory();
+		case CompactDijkstra:
+			return new CompactDijkstraFactory();
+		case CompactAStarEuclidean:
+			return new CompactAStarEuclideanFactory();
+		case CompactAStarLandmarks:
+			return new CompactAStarLandmarksFactory();
+		case ContractionHierarchies:
+			return new ContractionHierarchiesFactory(3600, 30 * 3600, Runtime.getRuntime().availableProcessors());
+		default:
+			throw new IllegalArgumentException("Unsupported routing algorithm: " + routingAlgorithm);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(LeastCostPathCalculatorBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
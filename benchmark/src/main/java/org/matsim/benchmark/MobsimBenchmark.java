@@ -0,0 +1,84 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MobsimBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH macro benchmark of one mobsim run of the "benchmark" scenario, with the events manager of the config, for different
+ * population sizes and numbers of threads. The population size is given as share of the original 1% sample, see
+ * {@link BenchmarkScenario#loadScenario}.
+ * <p></p>
+ * Usage: <code>MobsimBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MobsimBenchmark {
+
+	@Param({"0.25", "1", "4"})
+	public double populationShare;
+
+	@Param({"1", "2", "4"})
+	public int numberOfThreads;
+
+	private Scenario scenario;
+
+	@Setup
+	public void setup() {
+		Config config = BenchmarkScenario.loadConfig(this.numberOfThreads);
+		this.scenario = BenchmarkScenario.loadScenario(config, this.populationShare);
+		PrepareForSimUtils.createDefaultPrepareForSim(this.scenario).run();
+	}
+
+	@Benchmark
+	public void runMobsim() {
+		QSimUtils.createDefaultQSim(this.scenario, EventsUtils.createEventsManager(this.scenario.getConfig())).run();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(MobsimBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,108 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationMemoryBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup.PlansStorage;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Compares the time to load the plans of the "benchmark" scenario and the heap retained by the population for
+ * every {@link PlansStorage}. To simulate larger scenarios, the persons are copied several times after loading.
+ * <p></p>
+ * Usage: <code>PopulationMemoryBenchmark [copies [repetitions]]</code>
+ */
+public class PopulationMemoryBenchmark {
+
+	public static void main(String[] args) {
+		int copies = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+		StringBuilder results = new StringBuilder("storage\tload[ms]\tpersons\theap[MB]\n");
+		for (PlansStorage storage : PlansStorage.values()) {
+			long bestLoad = Long.MAX_VALUE;
+			for (int i = 0; i < repetitions; i++) {
+				long start = System.currentTimeMillis();
+				loadPopulation(storage);
+				bestLoad = Math.min(bestLoad, System.currentTimeMillis() - start);
+			}
+
+			long before = usedMemory();
+			Population population = loadPopulation(storage);
+			Population copied = copy(population, storage, copies);
+			long used = usedMemory() - before;
+			results.append(storage).append("\t").append(bestLoad).append("\t")
+					.append(population.getPersons().size() + copied.getPersons().size()).append("\t")
+					.append(used / 1024 / 1024).append("\n");
+		}
+		System.out.println(results);
+	}
+
+	private static Population loadPopulation(PlansStorage storage) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		config.plans().setPlansStorage(storage);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).parse(config.network().getInputFileURL(config.getContext()));
+		new PopulationReader(scenario).parse(config.plans().getInputFileURL(config.getContext()));
+		return scenario.getPopulation();
+	}
+
+	/**
+	 * @return a population containing <code>copies - 1</code> further copies of every person
+	 */
+	private static Population copy(Population population, PlansStorage storage, int copies) {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setPlansStorage(storage);
+		Population copied = PopulationUtils.createPopulation(config.plans(), null);
+		for (int c = 1; c < copies; c++) {
+			for (Person person : population.getPersons().values()) {
+				Person copy = copied.getFactory().createPerson(Id.createPersonId(person.getId() + "_" + c));
+				for (Plan plan : person.getPlans()) {
+					Plan planCopy = copied.getFactory().createPlan();
+					PopulationUtils.copyFromTo(plan, planCopy);
+					copy.addPlan(planCopy);
+				}
+				copied.addPerson(copy);
+			}
+		}
+		return copied;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
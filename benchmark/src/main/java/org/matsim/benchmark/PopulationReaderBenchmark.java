@@ -0,0 +1,105 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PopulationReaderBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.population.io.StreamingPopulationReader;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Compares the time to read a population_v6 file with an increasing number of threads, once into a population and
+ * once streaming. With one thread, the sequential reader is used. To simulate larger files, the persons of the
+ * "benchmark" scenario are copied several times before the file is written.
+ * <p></p>
+ * Usage: <code>PopulationReaderBenchmark [copies [maxNumberOfThreads [repetitions]]]</code>
+ */
+public class PopulationReaderBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int copies = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+		File file = File.createTempFile("population", ".xml.gz");
+		file.deleteOnExit();
+		writePopulation(file.getAbsolutePath(), copies);
+
+		StringBuilder results = new StringBuilder("threads\tread[ms]\tstreaming[ms]\n");
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			long bestRead = Long.MAX_VALUE;
+			long bestStreaming = Long.MAX_VALUE;
+			for (int i = 0; i < repetitions; i++) {
+				long start = System.currentTimeMillis();
+				new PopulationReader(createScenario(threads)).readFile(file.getAbsolutePath());
+				bestRead = Math.min(bestRead, System.currentTimeMillis() - start);
+
+				start = System.currentTimeMillis();
+				new StreamingPopulationReader(createScenario(threads)).readFile(file.getAbsolutePath());
+				bestStreaming = Math.min(bestStreaming, System.currentTimeMillis() - start);
+			}
+			results.append(threads).append("\t").append(bestRead).append("\t").append(bestStreaming).append("\n");
+		}
+		System.out.println(results);
+	}
+
+	private static Scenario createScenario(int threads) {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setNumberOfReaderThreads(threads);
+		return ScenarioUtils.createScenario(config);
+	}
+
+	private static void writePopulation(String filename, int copies) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).parse(config.network().getInputFileURL(config.getContext()));
+		new PopulationReader(scenario).parse(config.plans().getInputFileURL(config.getContext()));
+		Population population = scenario.getPopulation();
+		Population copied = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		for (int c = 0; c < copies; c++) {
+			for (Person person : population.getPersons().values()) {
+				Person copy = copied.getFactory().createPerson(Id.createPersonId(person.getId() + "_" + c));
+				for (Plan plan : person.getPlans()) {
+					Plan planCopy = copied.getFactory().createPlan();
+					PopulationUtils.copyFromTo(plan, planCopy);
+					copy.addPlan(planCopy);
+				}
+				copied.addPerson(copy);
+			}
+		}
+		new PopulationWriter(copied).writeV6(filename);
+	}
+
+}
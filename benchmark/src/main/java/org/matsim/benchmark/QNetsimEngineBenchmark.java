@@ -0,0 +1,148 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetsimEngineBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the vehicle moves over links and nodes of the QNetsimEngine. The queues of the links and the
+ * nodes are package-private and only driven by the engine, so a whole mobsim is run on a synthetic grid network
+ * in which every agent has a single car trip between two random links. As there are no other modes and no events
+ * handlers, the run time is dominated by the link and node moves.
+ * <p></p>
+ * Usage: <code>QNetsimEngineBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class QNetsimEngineBenchmark {
+
+	private static final int GRID_SIZE = 30;
+
+	@Param({"1000", "10000", "50000"})
+	public int numberOfAgents;
+
+	@Param({"1"})
+	public int numberOfThreads;
+
+	private Scenario scenario;
+
+	@Setup
+	public void setup() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setNumberOfThreads(this.numberOfThreads);
+		this.scenario = ScenarioUtils.createScenario(config);
+		Link[] links = createGrid(this.scenario.getNetwork());
+
+		PopulationFactory factory = this.scenario.getPopulation().getFactory();
+		Random random = new Random(4711);
+		for (int i = 0; i < this.numberOfAgents; i++) {
+			Person person = factory.createPerson(Id.createPersonId(i));
+			Plan plan = factory.createPlan();
+			Activity home = createActivity(factory, "home", links[random.nextInt(links.length)]);
+			home.setEndTime(6 * 3600 + random.nextInt(2 * 3600));
+			plan.addActivity(home);
+			plan.addLeg(factory.createLeg(TransportMode.car));
+			plan.addActivity(createActivity(factory, "work", links[random.nextInt(links.length)]));
+			person.addPlan(plan);
+			this.scenario.getPopulation().addPerson(person);
+		}
+		PrepareForSimUtils.createDefaultPrepareForSim(this.scenario).run();
+	}
+
+	private static Link[] createGrid(Network network) {
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * 500, y * 500));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					createLinks(network, nodes[x][y], nodes[x + 1][y]);
+				}
+				if (y + 1 < GRID_SIZE) {
+					createLinks(network, nodes[x][y], nodes[x][y + 1]);
+				}
+			}
+		}
+		return network.getLinks().values().toArray(new Link[network.getLinks().size()]);
+	}
+
+	private static void createLinks(Network network, Node a, Node b) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(a.getId() + "-" + b.getId()), a, b, 500, 13.9, 900, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(b.getId() + "-" + a.getId()), b, a, 500, 13.9, 900, 1);
+	}
+
+	private static Activity createActivity(PopulationFactory factory, String type, Link link) {
+		Activity activity = factory.createActivityFromLinkId(type, link.getId());
+		activity.setCoord(link.getCoord());
+		return activity;
+	}
+
+	@Benchmark
+	public void runMobsim() {
+		QSimUtils.createDefaultQSim(this.scenario, EventsUtils.createEventsManager()).run();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(QNetsimEngineBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,73 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QSimScalingBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.RunnerSynchronization;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Runs the mobsim of the "benchmark" scenario with an increasing number of QSim threads, once for
+ * every {@link RunnerSynchronization}, and prints the wall clock times.
+ * <p></p>
+ * Usage: <code>QSimScalingBenchmark [maxNumberOfThreads [repetitions]]</code>
+ */
+public class QSimScalingBenchmark {
+
+	public static void main(String[] args) {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		StringBuilder results = new StringBuilder("threads");
+		for (RunnerSynchronization sync : RunnerSynchronization.values()) {
+			results.append("\t").append(sync).append("[ms]");
+		}
+		results.append("\n");
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			results.append(threads);
+			for (RunnerSynchronization sync : RunnerSynchronization.values()) {
+				config.qsim().setNumberOfThreads(threads);
+				config.qsim().setRunnerSynchronization(sync);
+				long best = Long.MAX_VALUE;
+				for (int i = 0; i < repetitions; i++) {
+					long start = System.currentTimeMillis();
+					QSimUtils.createDefaultQSim(scenario, EventsUtils.createEventsManager()).run();
+					best = Math.min(best, System.currentTimeMillis() - start);
+				}
+				results.append("\t").append(best);
+			}
+			results.append("\n");
+		}
+		System.out.println(results);
+	}
+
+}
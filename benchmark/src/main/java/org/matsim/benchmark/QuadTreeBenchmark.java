@@ -0,0 +1,127 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QuadTreeBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.core.utils.collections.QuadTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the typical {@link QuadTree} queries (closest object, disk and ellipse around random
+ * locations) and of inserting and removing one object, for trees of different sizes. The objects are
+ * distributed uniformly over a square of 50km by 50km.
+ * <p></p>
+ * Usage: <code>QuadTreeBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class QuadTreeBenchmark {
+
+	private static final double EXTENT = 50000;
+	private static final int QUERIES = 1024;
+
+	@Param({"1000", "100000", "1000000"})
+	public int size;
+
+	@Param({"500"})
+	public double distance;
+
+	private QuadTree<Integer> quadTree;
+	private double[] xs;
+	private double[] ys;
+	private int query = 0;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(4711);
+		this.quadTree = new QuadTree<>(0, 0, EXTENT, EXTENT);
+		for (int i = 0; i < this.size; i++) {
+			this.quadTree.put(random.nextDouble() * EXTENT, random.nextDouble() * EXTENT, i);
+		}
+		this.xs = new double[QUERIES];
+		this.ys = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.xs[i] = random.nextDouble() * EXTENT;
+			this.ys[i] = random.nextDouble() * EXTENT;
+		}
+	}
+
+	private int nextQuery() {
+		int i = this.query;
+		this.query = (i + 1) % QUERIES;
+		return i;
+	}
+
+	@Benchmark
+	public Integer getClosest() {
+		int i = nextQuery();
+		return this.quadTree.getClosest(this.xs[i], this.ys[i]);
+	}
+
+	@Benchmark
+	public Collection<Integer> getDisk() {
+		int i = nextQuery();
+		return this.quadTree.getDisk(this.xs[i], this.ys[i], this.distance);
+	}
+
+	/**
+	 * Queries the ellipse with the foci at two successive query locations which is as wide as the disk.
+	 */
+	@Benchmark
+	public Collection<Integer> getElliptical() {
+		int i = nextQuery();
+		int j = (i + 1) % QUERIES;
+		double fociDistance = Math.hypot(this.xs[i] - this.xs[j], this.ys[i] - this.ys[j]);
+		return this.quadTree.getElliptical(this.xs[i], this.ys[i], this.xs[j], this.ys[j], fociDistance + 2 * this.distance);
+	}
+
+	@Benchmark
+	public boolean putAndRemove() {
+		int i = nextQuery();
+		this.quadTree.put(this.xs[i], this.ys[i], -1);
+		return this.quadTree.remove(this.xs[i], this.ys[i], -1);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(QuadTreeBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
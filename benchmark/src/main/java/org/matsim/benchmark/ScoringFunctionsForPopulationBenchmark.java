@@ -0,0 +1,120 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ScoringFunctionsForPopulationBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.EventsToScore;
+import org.matsim.core.scoring.ScoringFunctionsForPopulation;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of scoring one iteration with the {@link ScoringFunctionsForPopulation} behind {@link EventsToScore},
+ * for different numbers of scoring threads. The events are recorded once from a mobsim run of the "benchmark"
+ * scenario and then replayed for every iteration, together with the experienced legs and activities they result in.
+ * <p></p>
+ * Usage: <code>ScoringFunctionsForPopulationBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScoringFunctionsForPopulationBenchmark {
+
+	@Param({"0", "2", "4"})
+	public int numberOfScoringThreads;
+
+	private final List<Event> events = new ArrayList<>();
+	private EventsManager eventsManager;
+	private EventsToScore eventsToScore;
+	private int iteration = 0;
+
+	@Setup
+	public void setup() {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		config.planCalcScore().setNumberOfScoringThreads(this.numberOfScoringThreads);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsManager recorder = EventsUtils.createEventsManager();
+		recorder.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				ScoringFunctionsForPopulationBenchmark.this.events.add(event);
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		QSimUtils.createDefaultQSim(scenario, recorder).run();
+
+		this.eventsManager = EventsUtils.createEventsManager();
+		this.eventsToScore = EventsToScore.createWithoutScoreUpdating(scenario, new CharyparNagelScoringFunctionFactory(scenario), this.eventsManager);
+	}
+
+	@Benchmark
+	public EventsToScore scoreIteration() {
+		int iteration = this.iteration++;
+		this.eventsManager.resetHandlers(iteration);
+		this.eventsToScore.beginIteration(iteration);
+		for (Event event : this.events) {
+			this.eventsManager.processEvent(event);
+		}
+		this.eventsToScore.finish();
+		return this.eventsToScore;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ScoringFunctionsForPopulationBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
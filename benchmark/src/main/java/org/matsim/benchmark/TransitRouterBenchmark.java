@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TransitRouterBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.pt.config.TransitRouterConfigGroup.TransitRoutingAlgorithmType;
+import org.matsim.pt.router.FakeFacility;
+import org.matsim.pt.router.RaptorTransitRouterFactory;
+import org.matsim.pt.router.TransitRouter;
+import org.matsim.pt.router.TransitRouterConfig;
+import org.matsim.pt.router.TransitRouterImplFactory;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleReader;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of single transit route queries with the different transit routers.
+ * By default, random queries between the stops of the "siouxfalls-2014" example scenario are calculated;
+ * another schedule can be given with <code>-p transitScheduleFile=...</code>.
+ * <p></p>
+ * Usage: <code>TransitRouterBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TransitRouterBenchmark {
+
+	private static final int QUERIES = 1000;
+
+	@Param({"Dijkstra", "Raptor"})
+	public TransitRoutingAlgorithmType routingAlgorithm;
+
+	@Param({""})
+	public String transitScheduleFile;
+
+	private TransitRouter router;
+	private FakeFacility[] fromFacilities;
+	private FakeFacility[] toFacilities;
+	private double[] departureTimes;
+	private int query = 0;
+
+	@Setup
+	public void setup() {
+		Config config = ConfigUtils.createConfig();
+		config.transit().setUseTransit(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		if (this.transitScheduleFile.isEmpty()) {
+			new TransitScheduleReader(scenario).readURL(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("siouxfalls-2014"), "Siouxfalls_transitSchedule.xml"));
+		} else {
+			new TransitScheduleReader(scenario).readFile(this.transitScheduleFile);
+		}
+		TransitSchedule schedule = scenario.getTransitSchedule();
+
+		TransitRouterConfig trConfig = new TransitRouterConfig(config);
+		switch (this.routingAlgorithm) {
+		case Dijkstra:
+			this.router = new TransitRouterImplFactory(schedule, trConfig).get();
+			break;
+		case Raptor:
+			this.router = new RaptorTransitRouterFactory(schedule, trConfig).get();
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported routing algorithm: " + this.routingAlgorithm);
+		}
+
+		TransitStopFacility[] stops = schedule.getFacilities().values().toArray(new TransitStopFacility[schedule.getFacilities().size()]);
+		Random random = new Random(4711);
+		this.fromFacilities = new FakeFacility[QUERIES];
+		this.toFacilities = new FakeFacility[QUERIES];
+		this.departureTimes = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.fromFacilities[i] = new FakeFacility(randomCoordNear(stops[random.nextInt(stops.length)], random));
+			this.toFacilities[i] = new FakeFacility(randomCoordNear(stops[random.nextInt(stops.length)], random));
+			this.departureTimes[i] = 6 * 3600 + random.nextInt(14 * 3600);
+		}
+	}
+
+	private static Coord randomCoordNear(TransitStopFacility stop, Random random) {
+		return new Coord(stop.getCoord().getX() + random.nextInt(1000) - 500, stop.getCoord().getY() + random.nextInt(1000) - 500);
+	}
+
+	@Benchmark
+	public List<Leg> calcRoute() {
+		int i = this.query;
+		this.query = (i + 1) % QUERIES;
+		return this.router.calcRoute(this.fromFacilities[i], this.toFacilities[i], this.departureTimes[i], null);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TransitRouterBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,189 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeCalculatorBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of the different {@link TravelTimeCalculatorType}s: the time to ingest one link enter or leave
+ * event, and the time to look up one link travel time afterwards. The events are those of vehicles driving
+ * over random successive links of the "berlin" example network between 06:00 and 17:00; another network can be
+ * given with <code>-p networkFile=...</code>.
+ * <p></p>
+ * Usage: <code>TravelTimeCalculatorBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TravelTimeCalculatorBenchmark {
+
+	private static final int NUMBER_OF_VEHICLES = 10000;
+	private static final int STEPS = 200000;
+	private static final int QUERIES = 1000;
+
+	@Param({"TravelTimeCalculatorArray", "TravelTimeCalculatorHashMap", "TravelTimeCalculatorConcurrent"})
+	public TravelTimeCalculatorType travelTimeCalculator;
+
+	@Param({""})
+	public String networkFile;
+
+	private Network network;
+	private LinkEnterEvent[] firstEnters;
+	private LinkLeaveEvent[] leaves;
+	private LinkEnterEvent[] enters;
+
+	private TravelTime travelTimes;
+	private Link[] queryLinks;
+	private double[] queryTimes;
+	private int query = 0;
+
+	@Setup
+	public void setup() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		if (this.networkFile.isEmpty()) {
+			new MatsimNetworkReader(scenario.getNetwork()).parse(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("berlin"), "network.xml.gz"));
+		} else {
+			new MatsimNetworkReader(scenario.getNetwork()).readFile(this.networkFile);
+		}
+		this.network = scenario.getNetwork();
+		Link[] links = this.network.getLinks().values().toArray(new Link[this.network.getLinks().size()]);
+
+		Random random = new Random(4711);
+		Link[] currentLinks = new Link[NUMBER_OF_VEHICLES];
+		this.firstEnters = new LinkEnterEvent[NUMBER_OF_VEHICLES];
+		for (int v = 0; v < NUMBER_OF_VEHICLES; v++) {
+			currentLinks[v] = links[random.nextInt(links.length)];
+			this.firstEnters[v] = new LinkEnterEvent(6 * 3600, Id.create(v, Vehicle.class), currentLinks[v].getId());
+		}
+		this.leaves = new LinkLeaveEvent[STEPS];
+		this.enters = new LinkEnterEvent[STEPS];
+		double timeStep = 11 * 3600.0 / STEPS;
+		for (int i = 0; i < STEPS; i++) {
+			int v = random.nextInt(NUMBER_OF_VEHICLES);
+			double time = 6 * 3600 + (i + 1) * timeStep;
+			List<Link> nextLinks = new ArrayList<>(currentLinks[v].getToNode().getOutLinks().values());
+			Link next = nextLinks.isEmpty() ? links[random.nextInt(links.length)] : nextLinks.get(random.nextInt(nextLinks.size()));
+			this.leaves[i] = new LinkLeaveEvent(time, Id.create(v, Vehicle.class), currentLinks[v].getId());
+			this.enters[i] = new LinkEnterEvent(time, Id.create(v, Vehicle.class), next.getId());
+			currentLinks[v] = next;
+		}
+
+		this.travelTimes = ingest(createCalculator()).getLinkTravelTimes();
+		this.queryLinks = new Link[QUERIES];
+		this.queryTimes = new double[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			this.queryLinks[i] = links[random.nextInt(links.length)];
+			this.queryTimes[i] = 6 * 3600 + random.nextInt(11 * 3600);
+		}
+	}
+
+	/**
+	 * A fresh calculator for every run of {@link TravelTimeCalculatorBenchmark#ingestEvents}.
+	 */
+	@State(Scope.Thread)
+	public static class EmptyCalculator {
+
+		private TravelTimeCalculator calculator;
+
+		@Setup(Level.Invocation)
+		public void setup(TravelTimeCalculatorBenchmark benchmark) {
+			this.calculator = benchmark.createCalculator();
+		}
+
+	}
+
+	private TravelTimeCalculator createCalculator() {
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		config.setTravelTimeCalculatorType(this.travelTimeCalculator.name());
+		return TravelTimeCalculator.create(this.network, config);
+	}
+
+	/**
+	 * Ingests all events into an empty calculator. The result is reported per event.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_VEHICLES + 2 * STEPS)
+	public TravelTimeCalculator ingestEvents(EmptyCalculator state) {
+		return ingest(state.calculator);
+	}
+
+	private TravelTimeCalculator ingest(TravelTimeCalculator calculator) {
+		for (LinkEnterEvent event : this.firstEnters) {
+			calculator.handleEvent(event);
+		}
+		for (int i = 0; i < STEPS; i++) {
+			calculator.handleEvent(this.leaves[i]);
+			calculator.handleEvent(this.enters[i]);
+		}
+		return calculator;
+	}
+
+	@Benchmark
+	public double getLinkTravelTime() {
+		int i = this.query;
+		this.query = (i + 1) % QUERIES;
+		return this.travelTimes.getLinkTravelTime(this.queryLinks[i], this.queryTimes[i], null, null);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(TravelTimeCalculatorBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,126 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * XmlIOBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.network.io.NetworkWriter;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.examples.ExamplesUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of writing and reading the network and the population of the "benchmark" scenario as xml files.
+ * The files are not compressed, so that only the xml handling is measured; see {@link CompressionBenchmark} for
+ * the cost of the compression.
+ * <p></p>
+ * Usage: <code>XmlIOBenchmark [jmh options]</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class XmlIOBenchmark {
+
+	public enum Content {network, population}
+
+	@Param({"network", "population"})
+	public Content content;
+
+	private Scenario scenario;
+	private File file;
+
+	@Setup
+	public void setup() throws IOException {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("benchmark"), "config.xml"));
+		this.scenario = ScenarioUtils.loadScenario(config);
+		this.file = File.createTempFile(this.content.name(), ".xml");
+		write();
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (!this.file.delete()) {
+			throw new UncheckedIOException(new IOException("Could not delete " + this.file));
+		}
+	}
+
+	@Benchmark
+	public void write() {
+		switch (this.content) {
+		case network:
+			new NetworkWriter(this.scenario.getNetwork()).write(this.file.getPath());
+			break;
+		case population:
+			new PopulationWriter(this.scenario.getPopulation(), this.scenario.getNetwork()).write(this.file.getPath());
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported content: " + this.content);
+		}
+	}
+
+	@Benchmark
+	public Scenario read() {
+		Scenario read = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		switch (this.content) {
+		case network:
+			new MatsimNetworkReader(read.getNetwork()).readFile(this.file.getPath());
+			break;
+		case population:
+			new PopulationReader(read).readFile(this.file.getPath());
+			break;
+		default:
+			throw new IllegalArgumentException("Unsupported content: " + this.content);
+		}
+		return read;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(XmlIOBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
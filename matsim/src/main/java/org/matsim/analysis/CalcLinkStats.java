@@ -86,6 +86,32 @@ public class CalcLinkStats {
 		this.volScaleFactor = vol_scale_factor;
 	}
 
+	private CalcLinkStats(final CalcLinkStats original) {
+		this.network = original.network;
+		this.nofHours = original.nofHours;
+		this.volScaleFactor = original.volScaleFactor;
+		this.count = original.count;
+		this.linkData = new TreeMap<>();
+		for (Map.Entry<Id<Link>, LinkData> e : original.linkData.entrySet()) {
+			this.linkData.put(e.getKey(), new LinkData(copyOf(e.getValue().volumes), copyOf(e.getValue().ttimes)));
+		}
+	}
+
+	/**
+	 * @return a copy of the data collected so far, which does not change when more data is added or the data is reset.
+	 */
+	/*package*/ CalcLinkStats copy() {
+		return new CalcLinkStats(this);
+	}
+
+	private static double[][] copyOf(final double[][] array) {
+		double[][] copy = new double[array.length][];
+		for (int i = 0; i < array.length; i++) {
+			copy[i] = array[i].clone();
+		}
+		return copy;
+	}
+
 	public void addData(final VolumesAnalyzer analyzer, final TravelTime ttimes) {
 		this.count++;
 		// TODO verify ttimes has hourly timeBin-Settings
@@ -22,6 +22,7 @@ package org.matsim.analysis;
 
 import org.jfree.chart.axis.CategoryLabelPositions;
 import org.matsim.core.controler.AbstractController;
+import org.matsim.core.metrics.MetricsRegistry;
 import org.matsim.core.utils.charts.StackedBarChart;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.misc.Time;
@@ -76,6 +77,12 @@ public class IterationStopWatch {
 	private Stack<String> currentMeasuredOperations;
 	private Map<String, List<String>> currentIterationChildren;
 	private Map<Integer, Map<String, List<String>>> children;
+
+	/** The durations of single listeners in milliseconds, per iteration. They may be added from other threads. */
+	private final Map<Integer, Map<String, Long>> listenerDurations = new LinkedHashMap<Integer, Map<String, Long>>();
+
+	/** A list of the listeners with durations, in the order they were first added. */
+	private final List<String> listeners = new ArrayList<String>();
 	
 	/** Creates a new IterationStopWatch. */
 	public IterationStopWatch() {
@@ -100,6 +107,10 @@ public class IterationStopWatch {
 		this.currentMeasuredOperations.clear();
 		this.currentIterationChildren.clear();
 		this.children.clear();
+		synchronized (this.listenerDurations) {
+			this.listenerDurations.clear();
+			this.listeners.clear();
+		}
 	}
 
 	/**
@@ -160,7 +171,15 @@ public class IterationStopWatch {
 		String ident = "END " + identifier;
 		ensureIdentifier(ident);
 		ensureOperation(identifier);
-		this.currentIterationValues.put(ident, Long.valueOf(System.currentTimeMillis()));
+		long end = System.currentTimeMillis();
+		this.currentIterationValues.put(ident, Long.valueOf(end));
+		MetricsRegistry metrics = MetricsRegistry.getCurrent();
+		if (metrics != null) {
+			Long begin = this.currentIterationValues.get("BEGIN " + identifier);
+			if (begin != null) {
+				metrics.histogram("controler." + identifier).record((end - begin.longValue()) * 1000000);
+			}
+		}
 		
 		
 		this.currentMeasuredOperations.pop();
@@ -170,6 +189,45 @@ public class IterationStopWatch {
         this.endOperation(AbstractController.OPERATION_ITERATION);
     }
 
+	/**
+	 * Adds the time a listener needed in the specified iteration.  Unlike the other methods, this method may be
+	 * called from any thread and after the iteration ended, e.g. by listeners working in the background.  Several
+	 * durations of the same listener in the same iteration are summed up.
+	 *
+	 * @param iteration The iteration the listener worked for.
+	 * @param listener The name of the listener.
+	 * @param millis The time the listener needed, in milliseconds.
+	 */
+	public void addListenerDuration(final int iteration, final String listener, final long millis) {
+		synchronized (this.listenerDurations) {
+			Map<String, Long> durations = this.listenerDurations.get(iteration);
+			if (durations == null) {
+				durations = new HashMap<String, Long>();
+				this.listenerDurations.put(iteration, durations);
+			}
+			Long sum = durations.get(listener);
+			durations.put(listener, Long.valueOf(sum == null ? millis : sum.longValue() + millis));
+			if (!this.listeners.contains(listener)) {
+				this.listeners.add(listener);
+			}
+		}
+		MetricsRegistry metrics = MetricsRegistry.getCurrent();
+		if (metrics != null) {
+			metrics.histogram("controler.listener." + listener).record(millis * 1000000);
+		}
+	}
+
+	/**
+	 * @return the time in milliseconds the listener needed in the specified iteration, or <code>null</code> if
+	 * none was added.
+	 */
+	public Long getListenerDuration(final int iteration, final String listener) {
+		synchronized (this.listenerDurations) {
+			Map<String, Long> durations = this.listenerDurations.get(iteration);
+			return durations == null ? null : durations.get(listener);
+		}
+	}
+
 	/**
 	 * Tells the stop watch that a special event happened, for which the time should be remembered.
 	 *
@@ -186,55 +244,75 @@ public class IterationStopWatch {
 	 * @param filename The name of a file where to write the gathered data.
 	 */
 	public void writeTextFile(final String filename) {
+		synchronized (this.listenerDurations) {
+			try {
+				BufferedWriter writer = IOUtils.getBufferedWriter(filename + ".txt");
 
-		try {
-			BufferedWriter writer = IOUtils.getBufferedWriter(filename + ".txt");
-
-			// print header
-			writer.write("Iteration");
-			for (String identifier : this.identifiers) {
-				writer.write('\t');
-				writer.write(identifier);
-			}
-			writer.write('\t');
-			for (String identifier : this.operations) {
-				writer.write('\t');
-				writer.write(identifier);
-			}
-			writer.newLine();
-
-			// print data
-			for (Map.Entry<Integer, Map<String, Long>> entry : this.iterations.entrySet()) {
-				Integer iteration = entry.getKey();
-				Map<String, Long> data = entry.getValue();
-				// iteration
-				writer.write(iteration.toString());
-				// identifiers
+				// print header
+				writer.write("Iteration");
 				for (String identifier : this.identifiers) {
-					Long time = data.get(identifier);
 					writer.write('\t');
-					writer.write(formatMilliTime(time));
+					writer.write(identifier);
 				}
-				// blank separator
 				writer.write('\t');
-				// durations of operations
-				for (String identifier: this.operations) {
-					Long startTime = data.get("BEGIN " + identifier);
-					Long endTime = data.get("END " + identifier);
+				for (String identifier : this.operations) {
+					writer.write('\t');
+					writer.write(identifier);
+				}
+				if (!this.listeners.isEmpty()) {
 					writer.write('\t');
-					if (startTime != null && endTime != null) {
-						double diff = (endTime.longValue() - startTime.longValue()) / 1000.0;
-						writer.write(Time.writeTime(diff));
+					for (String listener : this.listeners) {
+						writer.write('\t');
+						writer.write(listener);
 					}
 				}
-
-				// finish
 				writer.newLine();
+
+				// print data
+				for (Map.Entry<Integer, Map<String, Long>> entry : this.iterations.entrySet()) {
+					Integer iteration = entry.getKey();
+					Map<String, Long> data = entry.getValue();
+					// iteration
+					writer.write(iteration.toString());
+					// identifiers
+					for (String identifier : this.identifiers) {
+						Long time = data.get(identifier);
+						writer.write('\t');
+						writer.write(formatMilliTime(time));
+					}
+					// blank separator
+					writer.write('\t');
+					// durations of operations
+					for (String identifier: this.operations) {
+						Long startTime = data.get("BEGIN " + identifier);
+						Long endTime = data.get("END " + identifier);
+						writer.write('\t');
+						if (startTime != null && endTime != null) {
+							double diff = (endTime.longValue() - startTime.longValue()) / 1000.0;
+							writer.write(Time.writeTime(diff));
+						}
+					}
+					// durations of listeners
+					if (!this.listeners.isEmpty()) {
+						writer.write('\t');
+						Map<String, Long> durations = this.listenerDurations.get(iteration);
+						for (String listener : this.listeners) {
+							writer.write('\t');
+							Long millis = durations == null ? null : durations.get(listener);
+							if (millis != null) {
+								writer.write(Time.writeTime(millis.longValue() / 1000.0));
+							}
+						}
+					}
+
+					// finish
+					writer.newLine();
+				}
+				writer.flush();
+				writer.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
 			}
-			writer.flush();
-			writer.close();
-		} catch (IOException e) {
-			throw new RuntimeException(e);
 		}
 	}
 
@@ -26,7 +26,7 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
-import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.AsyncIterationEndsListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
 
 import javax.inject.Inject;
@@ -34,11 +34,12 @@ import javax.inject.Inject;
 /**
  * Integrates the {@link org.matsim.analysis.LegHistogram} into the
  * {@link org.matsim.core.controler.Controler}, so the leg histogram is
- * automatically created every iteration.
+ * automatically created every iteration.  The files are written in the
+ * background, from a copy of the histogram.
  *
  * @author mrieser
  */
-final class LegHistogramListener implements IterationEndsListener, IterationStartsListener {
+final class LegHistogramListener implements AsyncIterationEndsListener, IterationStartsListener {
 
 	@Inject private LegHistogram histogram;
 	@Inject private ControlerConfigGroup controlerConfigGroup;
@@ -52,27 +53,34 @@ final class LegHistogramListener implements IterationEndsListener, IterationStar
 	}
 
 	@Override
-	public void notifyIterationEnds(final IterationEndsEvent event) {
-		this.histogram.write(controlerIO.getIterationFilename(event.getIteration(), "legHistogram.txt"));
-		this.printStats();
-		if (controlerConfigGroup.isCreateGraphs()) {
-			LegHistogramChart.writeGraphic(this.histogram, controlerIO.getIterationFilename(event.getIteration(), "legHistogram_all.png"));
-			for (String legMode : this.histogram.getLegModes()) {
-				LegHistogramChart.writeGraphic(this.histogram, controlerIO.getIterationFilename(event.getIteration(), "legHistogram_" + legMode + ".png"), legMode);
+	public Runnable notifyIterationEnds(final IterationEndsEvent event) {
+		final LegHistogram histogram = this.histogram.copy();
+		final int iteration = event.getIteration();
+		final boolean createGraphs = controlerConfigGroup.isCreateGraphs();
+		return new Runnable() {
+			@Override
+			public void run() {
+				histogram.write(controlerIO.getIterationFilename(iteration, "legHistogram.txt"));
+				printStats(histogram);
+				if (createGraphs) {
+					LegHistogramChart.writeGraphic(histogram, controlerIO.getIterationFilename(iteration, "legHistogram_all.png"));
+					for (String legMode : histogram.getLegModes()) {
+						LegHistogramChart.writeGraphic(histogram, controlerIO.getIterationFilename(iteration, "legHistogram_" + legMode + ".png"), legMode);
+					}
+				}
 			}
-		}
-
+		};
 	}
 
-	private void printStats() {
+	private static void printStats(final LegHistogram histogram) {
 		int nofLegs = 0;
-		for (int nofDepartures : this.histogram.getDepartures()) {
+		for (int nofDepartures : histogram.getDepartures()) {
 			nofLegs += nofDepartures;
 		}
 		log.info("number of legs:\t"  + nofLegs + "\t100%");
-		for (String legMode : this.histogram.getLegModes()) {
+		for (String legMode : histogram.getLegModes()) {
 			int nofModeLegs = 0;
-			for (int nofDepartures : this.histogram.getDepartures(legMode)) {
+			for (int nofDepartures : histogram.getDepartures(legMode)) {
 				nofModeLegs += nofDepartures;
 			}
 			if (nofModeLegs != 0) {
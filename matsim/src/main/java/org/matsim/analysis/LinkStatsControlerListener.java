@@ -26,7 +26,7 @@ import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
-import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.AsyncIterationEndsListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.router.util.TravelTime;
 
@@ -35,9 +35,12 @@ import javax.inject.Provider;
 import java.util.Map;
 
 /**
+ * Adds the volumes and travel times of the configured iterations to the {@link CalcLinkStats}, and writes
+ * them in the background from a copy of the link stats.
+ *
  * @author mrieser
  */
-final class LinkStatsControlerListener implements IterationEndsListener, IterationStartsListener {
+final class LinkStatsControlerListener implements AsyncIterationEndsListener, IterationStartsListener {
 
 	@Inject private LinkStatsConfigGroup linkStatsConfigGroup;
 	@Inject private ControlerConfigGroup controlerConfigGroup;
@@ -49,7 +52,7 @@ final class LinkStatsControlerListener implements IterationEndsListener, Iterati
 	private boolean doReset = false;
 
     @Override
-	public void notifyIterationEnds(IterationEndsEvent event) {
+	public Runnable notifyIterationEnds(IterationEndsEvent event) {
 		int iteration = event.getIteration();
 		
 		if (useVolumesOfIteration(iteration, controlerConfigGroup.getFirstIteration())) {
@@ -58,9 +61,17 @@ final class LinkStatsControlerListener implements IterationEndsListener, Iterati
 		}
 
 		if (createLinkStatsInIteration(iteration)) {
-			linkStats.writeFile(this.controlerIO.getIterationFilename(iteration, Controler.FILENAME_LINKSTATS));
+			final CalcLinkStats linkStats = this.linkStats.copy();
+			final String filename = this.controlerIO.getIterationFilename(iteration, Controler.FILENAME_LINKSTATS);
 			this.doReset = true;
+			return new Runnable() {
+				@Override
+				public void run() {
+					linkStats.writeFile(filename);
+				}
+			};
 		}
+		return null;
 	}
 
 	@Override
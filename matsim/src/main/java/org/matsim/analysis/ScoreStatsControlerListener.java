@@ -45,7 +45,7 @@ import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.events.StartupEvent;
-import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.AsyncIterationEndsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.controler.listener.StartupListener;
 import org.matsim.core.population.PersonUtils;
@@ -69,11 +69,11 @@ import org.matsim.core.utils.io.UncheckedIOException;
  * </ul>
  * Plans with undefined scores
  * are not included in the statistics. The calculated values are written to a file, each iteration on
- * a separate line.
+ * a separate line.  The chart is drawn in the background, from a copy of the score history.
  *
  * @author mrieser
  */
-public class ScoreStatsControlerListener implements StartupListener, IterationEndsListener, ShutdownListener, ScoreStats {
+public class ScoreStatsControlerListener implements StartupListener, AsyncIterationEndsListener, ShutdownListener, ScoreStats {
 
 	public static final String FILENAME_SCORESTATS = "scorestats";
 
@@ -118,11 +118,11 @@ public class ScoreStatsControlerListener implements StartupListener, IterationEn
 	}
 
 	@Override
-	public void notifyIterationEnds(final IterationEndsEvent event) {
-		collectScoreInfo(event);
+	public Runnable notifyIterationEnds(final IterationEndsEvent event) {
+		return collectScoreInfo(event);
 	}
 
-	private void collectScoreInfo(final IterationEndsEvent event) {
+	private Runnable collectScoreInfo(final IterationEndsEvent event) {
 		double sumScoreWorst = 0.0;
 		double sumScoreBest = 0.0;
 		double sumAvgScores = 0.0;
@@ -210,18 +210,28 @@ public class ScoreStatsControlerListener implements StartupListener, IterationEn
 
 		if (this.createPNG && event.getIteration() > this.minIteration) {
 			// create chart when data of more than one iteration is available.
-			XYLineChart chart = new XYLineChart("Score Statistics", "iteration", "score");
-//			double[] iterations = new double[index + 1];
-//			for (int i = 0; i <= index; i++) {
-//				iterations[i] = i + this.minIteration;
-//			}
-			chart.addSeries("avg. worst score", this.scoreHistory.get( ScoreItem.worst ) ) ;
-			chart.addSeries("avg. best score", this.scoreHistory.get( ScoreItem.best) );
-			chart.addSeries("avg. of plans' average score", this.scoreHistory.get( ScoreItem.average) );
-			chart.addSeries("avg. executed score", this.scoreHistory.get( ScoreItem.executed ) );
-			chart.addMatsimLogo();
-			chart.saveAsPng(this.fileName + ".png", 800, 600);
+			final Map<ScoreItem, Map<Integer, Double>> history = new HashMap<>();
+			for (Entry<ScoreItem, Map<Integer, Double>> e : this.scoreHistory.entrySet()) {
+				history.put(e.getKey(), new TreeMap<>(e.getValue()));
+			}
+			return new Runnable() {
+				@Override
+				public void run() {
+					XYLineChart chart = new XYLineChart("Score Statistics", "iteration", "score");
+//					double[] iterations = new double[index + 1];
+//					for (int i = 0; i <= index; i++) {
+//						iterations[i] = i + this.minIteration;
+//					}
+					chart.addSeries("avg. worst score", history.get( ScoreItem.worst ) ) ;
+					chart.addSeries("avg. best score", history.get( ScoreItem.best) );
+					chart.addSeries("avg. of plans' average score", history.get( ScoreItem.average) );
+					chart.addSeries("avg. executed score", history.get( ScoreItem.executed ) );
+					chart.addMatsimLogo();
+					chart.saveAsPng(fileName + ".png", 800, 600);
+				}
+			};
 		}
+		return null;
 	}
 
 	@Override
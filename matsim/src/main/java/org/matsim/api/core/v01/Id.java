@@ -20,6 +20,7 @@
 
 package org.matsim.api.core.v01;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -39,7 +40,7 @@ import org.matsim.vehicles.Vehicle;
  */
 public abstract class Id<T> implements Comparable<Id<T>> {
 
-	private final static Map<Class<?>, Map<String, Id<?>>> cache = new ConcurrentHashMap<Class<?>, Map<String, Id<?>>>();
+	private final static Map<Class<?>, IdCache<?>> cache = new ConcurrentHashMap<Class<?>, IdCache<?>>();
 	
 	
 	public static <T> Id<T> create(final long key, final Class<T> type) {
@@ -54,23 +55,68 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	}
 	
 	/**
-	 * This method supports a cache where ids are stored and re-used per type.   
+	 * This method supports a cache where ids are stored and re-used per type.
+	 * Every id gets an {@link #index()} when it is created, which is unique among the ids of the same type.
 	 */
 	public static <T> Id<T> create(final String key, final Class<T> type) {
-		Map<String, Id<?>> map = cache.get(type);
-		if (map == null) {
-			map = new ConcurrentHashMap<String, Id<?>>();
-			cache.put(type, map);
-		}
-		Id<?> id = map.get(key);
+		IdCache<T> idCache = getCache(type);
+		Id<T> id = idCache.byKey.get(key);
 		if (id == null) {
-			id = new IdImpl<T>(key);
-			map.put(key, id);
+			id = idCache.add(key);
 		}
-		
-		return (Id<T>) id;
+		return id;
+	}
+	
+	/**
+	 * @return the id of the given type with the given {@link #index()}, or <code>null</code> if there is none
+	 */
+	public static <T> Id<T> get(final int index, final Class<T> type) {
+		return getCache(type).get(index);
+	}
+	
+	/**
+	 * @return the id of the given type with the given key, or <code>null</code> if there is none. Unlike
+	 * {@link #create(String, Class)}, no id is created.
+	 */
+	/*package*/ static <T> Id<T> find(final String key, final Class<T> type) {
+		return getCache(type).find(key);
 	}
 	
+	/**
+	 * @return the number of ids of the given type created so far. All of them have an {@link #index()} smaller
+	 * than this number, so it can be used to size arrays indexed by ids.
+	 */
+	public static <T> int getNumberOfIds(final Class<T> type) {
+		return getCache(type).size();
+	}
+	
+	/**
+	 * @return the ids of the given type. The cache of a type never changes, so collections indexed by ids can keep it
+	 * instead of looking it up for every access.
+	 */
+	@SuppressWarnings("unchecked")
+	/*package*/ static <T> IdCache<T> getCache(final Class<T> type) {
+		IdCache<?> idCache = cache.get(type);
+		if (idCache == null) {
+			idCache = new IdCache<T>();
+			IdCache<?> existing = cache.putIfAbsent(type, idCache);
+			if (existing != null) {
+				// another thread was faster
+				idCache = existing;
+			}
+		}
+		return (IdCache<T>) idCache;
+	}
+	
+	/**
+	 * @return a dense index of this id, starting at 0 for the first id created of its type. The index of an id never
+	 * changes, but it may be different in the next run, depending on the order in which the ids are created.
+	 * 
+	 * @see IdMap
+	 * @see IdSet
+	 */
+	public abstract int index();
+	
 	/**
 	 * @return <code>0</code> when the two objects being compared are the same objects, other values according to their ids being compared to each other.
 	 * 
@@ -111,9 +157,16 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 	private static class IdImpl<T> extends Id<T> {
 
 		private final String id; 
+		private final int index;
 		
-		/*package*/ IdImpl(final String id) {
+		/*package*/ IdImpl(final String id, final int index) {
 			this.id = id;
+			this.index = index;
+		}
+
+		@Override
+		public int index() {
+			return this.index;
 		}
 
 		@Override
@@ -127,6 +180,58 @@ public abstract class Id<T> implements Comparable<Id<T>> {
 		}
 	}
 
+	/**
+	 * The ids of one type, by key and by index. Ids are only added while holding the lock of the cache, so their
+	 * indices are dense. The ids are looked up by key without locking.
+	 */
+	/*package*/ static final class IdCache<T> {
+
+		final Map<String, Id<T>> byKey = new ConcurrentHashMap<String, Id<T>>();
+		@SuppressWarnings("unchecked")
+		volatile Id<T>[] byIndex = (Id<T>[]) new Id<?>[16];
+		volatile int size = 0;
+
+		synchronized Id<T> add(final String key) {
+			Id<T> id = this.byKey.get(key);
+			if (id == null) {
+				// Ids must be unique objects, also when they are created concurrently
+				int index = this.size;
+				id = new IdImpl<T>(key, index);
+				Id<T>[] ids = this.byIndex;
+				if (index == ids.length) {
+					ids = Arrays.copyOf(ids, ids.length * 2);
+				}
+				ids[index] = id;
+				this.byIndex = ids;
+				this.size = index + 1;
+				this.byKey.put(key, id);
+			}
+			return id;
+		}
+
+		/**
+		 * @see Id#get(int, Class)
+		 */
+		Id<T> get(final int index) {
+			Id<T>[] ids = this.byIndex;
+			if (index < 0 || index >= ids.length) {
+				return null;
+			}
+			return ids[index];
+		}
+
+		/**
+		 * @see Id#find(String, Class)
+		 */
+		Id<T> find(final String key) {
+			return this.byKey.get(key);
+		}
+
+		int size() {
+			return this.size;
+		}
+	}
+
 	// helper classes for some common cases:
 	public static Id<Person> createPersonId( final long key ) {
 		return create( key, Person.class ) ;
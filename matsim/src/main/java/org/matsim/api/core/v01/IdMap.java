@@ -0,0 +1,273 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdMap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map with {@link Id}s as keys, backed by an array indexed by {@link Id#index()}. Lookups are thus a simple
+ * array access instead of hashing, and no entry objects are created. The memory needed is proportional to the
+ * number of ids of the key type, so the map is best suited for keys like links, nodes, persons or vehicles
+ * where most ids of the type are contained.
+ * <p></p>
+ * The map is iterated in the order of the index, i.e. in the order the ids were created. Like {@link java.util.HashMap}, the map is not thread-safe.
+ *
+ * @param <T> the type of the ids
+ * @param <V> the type of the values
+ */
+public class IdMap<T, V> extends AbstractMap<Id<T>, V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	/** stands for <code>null</code> values in {@link #data}, where <code>null</code> means that there is no entry */
+	private static final Object NULL = new Object();
+
+	private final Class<T> idClass;
+	/** the ids of the type, kept to avoid looking them up by type for every access */
+	private final Id.IdCache<T> ids;
+	private Object[] data;
+	private int size = 0;
+	private Set<Map.Entry<Id<T>, V>> entrySet = null;
+
+	public IdMap(final Class<T> idClass) {
+		this(idClass, Math.max(DEFAULT_CAPACITY, Id.getNumberOfIds(idClass)));
+	}
+
+	public IdMap(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.ids = Id.getCache(idClass);
+		this.data = new Object[Math.max(1, initialCapacity)];
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean containsKey(final Object key) {
+		int index = indexOf(key);
+		return index >= 0 && index < this.data.length && this.data[index] != null;
+	}
+
+	@Override
+	public boolean containsValue(final Object value) {
+		Object masked = value == null ? NULL : value;
+		for (Object o : this.data) {
+			if (masked.equals(o)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(final Object key) {
+		int index = indexOf(key);
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		return unmask(this.data[index]);
+	}
+
+	@Override
+	public V put(final Id<T> key, final V value) {
+		int index = indexOf(key);
+		if (index < 0) {
+			throw new IllegalArgumentException("Id " + key + " is not of type " + this.idClass.getName());
+		}
+		if (index >= this.data.length) {
+			this.data = Arrays.copyOf(this.data, Math.max(index + 1, Math.max(this.data.length * 2, this.ids.size())));
+		}
+		Object previous = this.data[index];
+		this.data[index] = value == null ? NULL : value;
+		if (previous == null) {
+			this.size++;
+		}
+		return unmask(previous);
+	}
+
+	@Override
+	public V remove(final Object key) {
+		int index = indexOf(key);
+		if (index < 0 || index >= this.data.length) {
+			return null;
+		}
+		return removeIndex(index);
+	}
+
+	private V removeIndex(final int index) {
+		Object previous = this.data[index];
+		if (previous != null) {
+			this.data[index] = null;
+			this.size--;
+		}
+		return unmask(previous);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> V unmask(final Object value) {
+		return value == NULL ? null : (V) value;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.data, null);
+		this.size = 0;
+	}
+
+	/**
+	 * @return the index of the key in the map, or <code>-1</code> if the key cannot be contained.
+	 */
+	private int indexOf(final Object key) {
+		if (!(key instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) key;
+		int index = id.index();
+		if (this.ids.get(index) == id) {
+			return index;
+		}
+		// an id of another type, which is still equal to the id of the same key (see Id#equals)
+		Id<T> sameKey = this.ids.find(id.toString());
+		return sameKey == null ? -1 : sameKey.index();
+	}
+
+	@Override
+	public Set<Map.Entry<Id<T>, V>> entrySet() {
+		if (this.entrySet == null) {
+			this.entrySet = new EntrySet();
+		}
+		return this.entrySet;
+	}
+
+	private class EntrySet extends AbstractSet<Map.Entry<Id<T>, V>> {
+		@Override
+		public Iterator<Map.Entry<Id<T>, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size() {
+			return IdMap.this.size;
+		}
+
+		@Override
+		public void clear() {
+			IdMap.this.clear();
+		}
+	}
+
+	private class EntryIterator implements Iterator<Map.Entry<Id<T>, V>> {
+		private int next = -1;
+		private int current = -1;
+
+		EntryIterator() {
+			findNext();
+		}
+
+		private void findNext() {
+			Object[] data = IdMap.this.data;
+			do {
+				this.next++;
+			} while (this.next < data.length && data[this.next] == null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next < IdMap.this.data.length;
+		}
+
+		@Override
+		public Map.Entry<Id<T>, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			this.current = this.next;
+			findNext();
+			return new Entry(this.current);
+		}
+
+		@Override
+		public void remove() {
+			if (this.current < 0) {
+				throw new IllegalStateException();
+			}
+			removeIndex(this.current);
+			this.current = -1;
+		}
+	}
+
+	private class Entry implements Map.Entry<Id<T>, V> {
+		private final int index;
+
+		Entry(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Id<T> getKey() {
+			return IdMap.this.ids.get(this.index);
+		}
+
+		@Override
+		public V getValue() {
+			return unmask(IdMap.this.data[this.index]);
+		}
+
+		@Override
+		public V setValue(final V value) {
+			return put(getKey(), value);
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+			V value = getValue();
+			return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			V value = getValue();
+			return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+
+}
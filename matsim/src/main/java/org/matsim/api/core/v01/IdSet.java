@@ -0,0 +1,145 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IdSet.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of {@link Id}s, backed by a {@link BitSet} indexed by {@link Id#index()}. See {@link IdMap} for details.
+ *
+ * @param <T> the type of the ids
+ */
+public class IdSet<T> extends AbstractSet<Id<T>> {
+
+	private final Class<T> idClass;
+	/** the ids of the type, kept to avoid looking them up by type for every access */
+	private final Id.IdCache<T> ids;
+	private final BitSet data;
+	private int size = 0;
+
+	public IdSet(final Class<T> idClass) {
+		this(idClass, Id.getNumberOfIds(idClass));
+	}
+
+	public IdSet(final Class<T> idClass, final int initialCapacity) {
+		this.idClass = idClass;
+		this.ids = Id.getCache(idClass);
+		this.data = new BitSet(initialCapacity);
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		int index = indexOf(o);
+		return index >= 0 && this.data.get(index);
+	}
+
+	@Override
+	public boolean add(final Id<T> id) {
+		int index = indexOf(id);
+		if (index < 0) {
+			throw new IllegalArgumentException("Id " + id + " is not of type " + this.idClass.getName());
+		}
+		if (this.data.get(index)) {
+			return false;
+		}
+		this.data.set(index);
+		this.size++;
+		return true;
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		int index = indexOf(o);
+		if (index < 0 || !this.data.get(index)) {
+			return false;
+		}
+		this.data.clear(index);
+		this.size--;
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		this.data.clear();
+		this.size = 0;
+	}
+
+	private int indexOf(final Object o) {
+		if (!(o instanceof Id)) {
+			return -1;
+		}
+		Id<?> id = (Id<?>) o;
+		int index = id.index();
+		if (this.ids.get(index) == id) {
+			return index;
+		}
+		// an id of another type, which is still equal to the id of the same key (see Id#equals)
+		Id<T> sameKey = this.ids.find(id.toString());
+		return sameKey == null ? -1 : sameKey.index();
+	}
+
+	@Override
+	public Iterator<Id<T>> iterator() {
+		return new Iterator<Id<T>>() {
+			private int next = IdSet.this.data.nextSetBit(0);
+			private int current = -1;
+
+			@Override
+			public boolean hasNext() {
+				return this.next >= 0;
+			}
+
+			@Override
+			public Id<T> next() {
+				if (this.next < 0) {
+					throw new NoSuchElementException();
+				}
+				this.current = this.next;
+				this.next = IdSet.this.data.nextSetBit(this.next + 1);
+				return IdSet.this.ids.get(this.current);
+			}
+
+			@Override
+			public void remove() {
+				if (this.current < 0) {
+					throw new IllegalStateException();
+				}
+				IdSet.this.data.clear(this.current);
+				IdSet.this.size--;
+				this.current = -1;
+			}
+		};
+	}
+
+}
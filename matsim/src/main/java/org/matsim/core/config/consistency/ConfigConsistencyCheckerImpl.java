@@ -140,6 +140,12 @@ public final class ConfigConsistencyCheckerImpl implements ConfigConsistencyChec
 				config.controler().getRoutingAlgorithmType() != RoutingAlgorithmType.Dijkstra ) {
 			log.warn("We don't know if non-Dijkstra routing works together with LinkToLink routing.");
 		}
+
+		if ( config.controler().getRoutingAlgorithmType() == RoutingAlgorithmType.ContractionHierarchies &&
+				config.plansCalcRoute().getRoutingRandomness() != 0. ) {
+			log.warn("Contraction hierarchies evaluate the travel disutility without person, so planscalcroute.routingRandomness is ignored "
+					+ "when computing the routes. Travel disutilities that require a person are not supported.");
+		}
 		
 	}
 
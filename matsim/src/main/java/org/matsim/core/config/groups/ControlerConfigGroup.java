@@ -31,13 +31,14 @@ import org.apache.log4j.Logger;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.metrics.MetricsMBean;
 import org.matsim.core.utils.io.IOUtils;
 import org.matsim.core.utils.misc.StringUtils;
 
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, CompactDijkstra, CompactAStarEuclidean, CompactAStarLandmarks, ContractionHierarchies}
 
 	public enum EventsFileFormat {xml}
 
@@ -56,6 +57,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
+	private static final String COLLECT_METRICS = "collectMetrics";
 
 	/*package*/ static final String MOBSIM = "mobsim";
 	public enum MobsimType {qsim, JDEQSim}
@@ -81,6 +83,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int writeSnapshotsInterval = 1;
 	private boolean createGraphs = true;
 	private boolean dumpDataAtEnd = true;
+	private boolean collectMetrics = false;
 	private OverwriteFileSetting overwriteFileSetting = OverwriteFileSetting.failIfDirectoryExists;
 
 	public ControlerConfigGroup() {
@@ -91,7 +94,13 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks + ", " +
+				RoutingAlgorithmType.CompactDijkstra + ", " + RoutingAlgorithmType.CompactAStarEuclidean + ", " + RoutingAlgorithmType.CompactAStarLandmarks +
+				" or " + RoutingAlgorithmType.ContractionHierarchies +
+				". The Compact* variants work on primitive arrays and return the same routes as their counterparts, but need less memory and time per query. " +
+				RoutingAlgorithmType.ContractionHierarchies + " preprocesses the network once and answers queries much faster, using the travel disutilities " +
+				"of the query's time bin (see planscalcroute.contractionHierarchiesTimeBinSize). Its routes do not depend on the person, " +
+				"so planscalcroute.routingRandomness is ignored.");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
 		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: xml."+IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
@@ -120,6 +129,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		map.put(WRITE_SNAPSHOTS_INTERVAL, "iterationNumber % " + WRITE_SNAPSHOTS_INTERVAL + " == 0 defines in which iterations snapshots are written " +
 				"to a file. `0' disables snapshots writing completely");
 		map.put(DUMP_DATA_AT_END, "true if at the end of a run, plans, network, config etc should be dumped to a file");
+		map.put(COLLECT_METRICS, "Default=false. If enabled, the run times of the mobsim engines, the QSim threads, the events handlers, the replanning " +
+				"threads and the controler operations are collected (in nanoseconds) and written to ITERS/it.*/*.metrics.csv and *.metrics.json " +
+				"after every iteration. While the controler runs, they are also available via JMX as " + MetricsMBean.OBJECT_NAME + ".");
 		return map;
 	}
 
@@ -343,6 +355,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public void setDumpDataAtEnd(boolean dumpDataAtEnd) {
 		this.dumpDataAtEnd = dumpDataAtEnd;
 	}
+
+	@StringGetter(COLLECT_METRICS)
+	public boolean isCollectMetrics() {
+		return collectMetrics;
+	}
+
+	@StringSetter(COLLECT_METRICS)
+	public void setCollectMetrics(boolean collectMetrics) {
+		this.collectMetrics = collectMetrics;
+	}
 	// ---
 	int writePlansUntilIteration = 1 ;
 	public int getWritePlansUntilIteration() {
@@ -30,6 +30,8 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 
 	public static final String GROUP_NAME = "global";
 
+	public enum ReplanningScheduling { roundRobin, workStealing }
+
 	public GlobalConfigGroup() {
 		super(GROUP_NAME);
 	}
@@ -37,17 +39,24 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	private static final String RANDOM_SEED = "randomSeed";
 	private static final String NUMBER_OF_THREADS = "numberOfThreads";
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
+	private static final String REPLANNING_SCHEDULING = "replanningScheduling";
 
 	private long randomSeed = 4711L;
 	private int numberOfThreads = 2;
 	private String coordinateSystem = "Atlantis";
+	private ReplanningScheduling replanningScheduling = ReplanningScheduling.roundRobin;
 	
 	@Override
 	public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, "\"global\" number of threads.  "
-				+ "This number is used, e.g., for replanning, but NOT in the mobsim.  "
+				+ "This number is used, e.g., for replanning and for compressing output files, but NOT in the mobsim.  "
 				+ "This can typically be set to as many cores as you have available, or possibly even slightly more.") ;
+		map.put(REPLANNING_SCHEDULING, "How multi-threaded replanning modules distribute the plans to their threads.  "
+				+ ReplanningScheduling.roundRobin + " hands every thread the same number of plans and gives reproducible results.  "
+				+ ReplanningScheduling.workStealing + " lets idle threads take over plans from busy ones, which is faster when "
+				+ "some plans take much longer to replan than others, but results depend on which thread handles which plan.  "
+				+ "Default is " + ReplanningScheduling.roundRobin + ".") ;
 		return map ;
 	}
 
@@ -72,6 +81,15 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 
+	@StringGetter( REPLANNING_SCHEDULING )
+	public ReplanningScheduling getReplanningScheduling() {
+		return this.replanningScheduling;
+	}
+	@StringSetter( REPLANNING_SCHEDULING )
+	public void setReplanningScheduling(final ReplanningScheduling replanningScheduling) {
+		this.replanningScheduling = replanningScheduling;
+	}
+
 	@StringGetter( COORDINATE_SYSTEM )
 	public String getCoordinateSystem() {
 		return this.coordinateSystem;
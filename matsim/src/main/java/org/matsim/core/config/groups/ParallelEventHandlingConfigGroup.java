@@ -20,6 +20,7 @@
 
 package org.matsim.core.config.groups;
 
+import java.util.Arrays;
 import java.util.Map;
 
 import org.matsim.core.config.ReflectiveConfigGroup;
@@ -44,6 +45,13 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
+
+	private final static String USE_RING_BUFFER = "useRingBuffer";
+	private Boolean useRingBuffer = false;
+
+	private final static String EVENT_HANDLER_DISPATCH = "eventHandlerDispatch";
+	public enum EventHandlerDispatch { reflection, generated }
+	private EventHandlerDispatch eventHandlerDispatch = EventHandlerDispatch.reflection;
 	
 	private boolean locked = false;
 
@@ -60,6 +68,13 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(USE_RING_BUFFER, "If enabled, the events are handed to " + NUMBER_OF_THREADS + " (default 1) handler threads through a pre-allocated ring buffer "
+				+ "instead of queues. Each event handler is processed by one of the threads. " + SYNCHRONIZE_ON_SIMSTEPS + " is respected, " + ONE_THREAD_PER_HANDLER + " is ignored. "
+				+ "This feature is still experimental!");
+		comments.put(EVENT_HANDLER_DISPATCH, "How events are passed to the handleEvent methods of the event handlers. " + EventHandlerDispatch.reflection + ": "
+				+ "hard-coded casts for the standard events, reflection for all others. " + EventHandlerDispatch.generated + ": a class calling the handler "
+				+ "method directly is generated at runtime for every handler and event type. Falls back to reflection for handler interfaces which are not "
+				+ "accessible. Possible values: " + Arrays.toString(EventHandlerDispatch.values()));
 		return comments;
 	}
 
@@ -127,6 +142,34 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( USE_RING_BUFFER )
+	public Boolean getUseRingBuffer() {
+		return this.useRingBuffer;
+	}
+
+	@StringSetter( USE_RING_BUFFER )
+	public void setUseRingBuffer(Boolean useRingBuffer) {
+		if ( !this.locked ) {
+			this.useRingBuffer = useRingBuffer;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
+	@StringGetter( EVENT_HANDLER_DISPATCH )
+	public EventHandlerDispatch getEventHandlerDispatch() {
+		return this.eventHandlerDispatch;
+	}
+
+	@StringSetter( EVENT_HANDLER_DISPATCH )
+	public void setEventHandlerDispatch(EventHandlerDispatch eventHandlerDispatch) {
+		if ( !this.locked ) {
+			this.eventHandlerDispatch = eventHandlerDispatch;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
@@ -60,6 +60,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 	private static final String WRITE_EXPERIENCED_PLANS = "writeExperiencedPlans";
 
+	private static final String NUMBER_OF_SCORING_THREADS = "numberOfScoringThreads";
+
 	private static final String MARGINAL_UTL_OF_MONEY = "marginalUtilityOfMoney" ;
 
 	private static final String UTL_OF_LINE_SWITCH = "utilityOfLineSwitch" ;
@@ -329,6 +331,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		map.put(UTL_OF_LINE_SWITCH, "[utils] utility of switching a line (= transfer penalty).  Normally negative") ;
 		map.put(MARGINAL_UTL_OF_MONEY, "[utils/unit_of_money] conversion of money (e.g. toll, distance cost) into utils. Normall positive (i.e. toll/cost/fare are processed as negative amounts of money)." ) ;
 		map.put(WRITE_EXPERIENCED_PLANS, "write a plans file in each iteration directory which contains what each agent actually did, and the score it received.");
+		map.put(NUMBER_OF_SCORING_THREADS, "number of threads the persons are split over for scoring. 0 (default) scores in the event handling " +
+				"threads, all persons behind one lock. The scores do not depend on the number of threads.");
 
 		return map;
 	}
@@ -563,6 +567,14 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 		delegate.setWriteExperiencedPlans(writeExperiencedPlans);
 	}
 
+	public int getNumberOfScoringThreads() {
+		return delegate.getNumberOfScoringThreads();
+	}
+
+	public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+		delegate.setNumberOfScoringThreads(numberOfScoringThreads);
+	}
+
 	public double getMarginalUtlOfWaiting_utils_hr() {
 		return getScoringParameters( null ).getMarginalUtlOfWaiting_utils_hr();
 	}
@@ -1250,6 +1262,8 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 
 		private boolean writeExperiencedPlans = false;
 
+		private int numberOfScoringThreads = 0;
+
 		private Double fractionOfIterationsToStartScoreMSA = null ;
 
 		private boolean usingOldScoringBelowZeroUtilityDuration = false;
@@ -1323,6 +1337,17 @@ public final class PlanCalcScoreConfigGroup extends ConfigGroup {
 			this.writeExperiencedPlans = writeExperiencedPlans;
 		}
 
+		@StringGetter( NUMBER_OF_SCORING_THREADS )
+		public int getNumberOfScoringThreads() {
+			return numberOfScoringThreads;
+		}
+
+		@StringSetter( NUMBER_OF_SCORING_THREADS )
+		public void setNumberOfScoringThreads(int numberOfScoringThreads) {
+			testForLocked() ;
+			this.numberOfScoringThreads = numberOfScoringThreads;
+		}
+
 	}
 
 }
@@ -31,6 +31,7 @@ import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.core.config.ReflectiveConfigGroup.StringGetter;
 import org.matsim.core.config.ReflectiveConfigGroup.StringSetter;
+import org.matsim.core.config.groups.ControlerConfigGroup.RoutingAlgorithmType;
 import org.matsim.core.utils.collections.CollectionUtils;
 
 /**
@@ -76,6 +77,15 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	private static final String RANDOMNESS = "routingRandomness" ;
 	private double routingRandomness = 3. ;
 
+	private static final String CONTRACTION_HIERARCHIES_TIME_BIN_SIZE = "contractionHierarchiesTimeBinSize" ;
+	private double contractionHierarchiesTimeBinSize = 3600. ;
+
+	private static final String USING_INCREMENTAL_REROUTE = "usingIncrementalReRoute" ;
+	private boolean usingIncrementalReRoute = false ;
+
+	private static final String INCREMENTAL_REROUTE_TOLERANCE = "incrementalReRouteTolerance" ;
+	private double incrementalReRouteTolerance = 0.01 ;
+
 	// ---
 
 	public static class ModeRoutingParams extends ReflectiveConfigGroup implements MatsimParameters {
@@ -379,6 +389,12 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 			setTeleportedModeSpeed(key.substring(TELEPORTED_MODE_SPEEDS.length()), Double.parseDouble(value));
 		} else if (key.startsWith(TELEPORTED_MODE_FREESPEED_FACTORS)) {
 			setTeleportedModeFreespeedFactor(key.substring(TELEPORTED_MODE_FREESPEED_FACTORS.length()), Double.parseDouble(value));
+		} else if (CONTRACTION_HIERARCHIES_TIME_BIN_SIZE.equals(key)) {
+			setContractionHierarchiesTimeBinSize(Double.parseDouble(value));
+		} else if (USING_INCREMENTAL_REROUTE.equals(key)) {
+			setUsingIncrementalReRoute(Boolean.parseBoolean(value));
+		} else if (INCREMENTAL_REROUTE_TOLERANCE.equals(key)) {
+			setIncrementalReRouteTolerance(Double.parseDouble(value));
 		} else {
 			throw new IllegalArgumentException(key);
 		}
@@ -413,6 +429,15 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	        map.put(RANDOMNESS, "strength of the randomness for the utility of money in routing under toll.  "
 	          		+ "Leads to Pareto-optimal route with randomly drawn money-vs-other-attributes tradeoff. "
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
+		map.put(CONTRACTION_HIERARCHIES_TIME_BIN_SIZE, "only used with routingAlgorithmType " + RoutingAlgorithmType.ContractionHierarchies
+				+ ": the duration (in seconds) for which the contraction hierarchy uses the same link disutilities. After each iteration, "
+				+ "the hierarchy is customized for every time bin up to travelTimeCalculator.maxTime. Smaller bins follow the "
+				+ "travel times more closely, but need more memory and customization time.");
+		map.put(USING_INCREMENTAL_REROUTE, "if true, the ReRoute strategy only recomputes trips whose network routes may have become worse than "
+				+ "the best alternative by more than " + INCREMENTAL_REROUTE_TOLERANCE + ", based on the changes of the hourly link travel times "
+				+ "since they were last found changed.  The other trips keep their routes.  Default is false.");
+		map.put(INCREMENTAL_REROUTE_TOLERANCE, "only used with " + USING_INCREMENTAL_REROUTE + ": the relative change of the travel time of "
+				+ "a route, or of the links branching off from it, up to which the route is kept.");
 		return map;
 	}
 
@@ -512,4 +537,34 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.routingRandomness = routingRandomness;
 	}
 
+	@StringGetter(CONTRACTION_HIERARCHIES_TIME_BIN_SIZE)
+	public double getContractionHierarchiesTimeBinSize() {
+		return this.contractionHierarchiesTimeBinSize;
+	}
+	@StringSetter(CONTRACTION_HIERARCHIES_TIME_BIN_SIZE)
+	public void setContractionHierarchiesTimeBinSize(double contractionHierarchiesTimeBinSize) {
+		testForLocked() ;
+		this.contractionHierarchiesTimeBinSize = contractionHierarchiesTimeBinSize;
+	}
+
+	@StringGetter(USING_INCREMENTAL_REROUTE)
+	public boolean isUsingIncrementalReRoute() {
+		return this.usingIncrementalReRoute;
+	}
+	@StringSetter(USING_INCREMENTAL_REROUTE)
+	public void setUsingIncrementalReRoute(boolean usingIncrementalReRoute) {
+		testForLocked() ;
+		this.usingIncrementalReRoute = usingIncrementalReRoute;
+	}
+
+	@StringGetter(INCREMENTAL_REROUTE_TOLERANCE)
+	public double getIncrementalReRouteTolerance() {
+		return this.incrementalReRouteTolerance;
+	}
+	@StringSetter(INCREMENTAL_REROUTE_TOLERANCE)
+	public void setIncrementalReRouteTolerance(double incrementalReRouteTolerance) {
+		testForLocked() ;
+		this.incrementalReRouteTolerance = incrementalReRouteTolerance;
+	}
+
 }
@@ -37,6 +37,7 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	}
 
 	public static enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
+	public static enum PlansStorage { objects, compact }
 	private static final String INPUT_FILE = "inputPlansFile";
 	private static final String INPUT_PERSON_ATTRIBUTES_FILE = "inputPersonAttributesFile";
 	private static final String NETWORK_ROUTE_TYPE = "networkRouteType";
@@ -91,6 +92,15 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
 
+		comments.put( PLANS_STORAGE, "Defines how the plan elements are stored in memory. Possible values: " +
+				PlansStorage.objects + " (one java object per activity, leg and route), " +
+				PlansStorage.compact + " (plan elements without attributes are packed into int arrays, times are stored " +
+				"with float precision; reduces memory consumption and garbage collection times of large populations)." );
+
+		comments.put( NUMBER_OF_READER_THREADS, "The number of threads that create the persons when reading a population_v6 file. " +
+				"1 (default) reads the file on a single thread; larger values use a parallel reader, which adds the persons " +
+				"in the order of the file, also when streaming. Other file versions are always read on a single thread." );
+
 		return comments;
 	}
 
@@ -188,5 +198,30 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.inputCRS = inputCRS;
 	}
 
+	// ---
+
+	private static final String PLANS_STORAGE = "plansStorage";
+	private PlansStorage plansStorage = PlansStorage.objects;
+	@StringGetter( PLANS_STORAGE )
+	public PlansStorage getPlansStorage() {
+		return this.plansStorage;
+	}
+	@StringSetter( PLANS_STORAGE )
+	public void setPlansStorage(final PlansStorage plansStorage) {
+		this.plansStorage = plansStorage;
+	}
+
+	// ---
+
+	private static final String NUMBER_OF_READER_THREADS = "numberOfReaderThreads";
+	private int numberOfReaderThreads = 1;
+	@StringGetter( NUMBER_OF_READER_THREADS )
+	public int getNumberOfReaderThreads() {
+		return this.numberOfReaderThreads;
+	}
+	@StringSetter( NUMBER_OF_READER_THREADS )
+	public void setNumberOfReaderThreads(final int numberOfReaderThreads) {
+		this.numberOfReaderThreads = numberOfReaderThreads;
+	}
 
 }
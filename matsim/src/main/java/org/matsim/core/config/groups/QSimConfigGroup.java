@@ -124,6 +124,14 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private float linkWidth = 30;
 	private boolean usingThreadpool = true;
 
+	// ---
+	private static final String RUNNER_SYNCHRONIZATION = "runnerSynchronization";
+	public static enum RunnerSynchronization { globalBarriers, localClocks }
+	private RunnerSynchronization runnerSynchronization = RunnerSynchronization.globalBarriers;
+	private static final String NETWORK_PARTITIONING = "networkPartitioning";
+	public static enum NetworkPartitioning { automatic, roundRobin, coordinateBisection, multilevelBisection, activityWeightedMultilevelBisection }
+	private NetworkPartitioning networkPartitioning = NetworkPartitioning.automatic;
+
 	public static final String LINK_WIDTH = "linkWidth";
 
 	// ---
@@ -258,10 +266,35 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		{
+			StringBuilder stb = new StringBuilder() ;
+			for ( RunnerSynchronization rs : RunnerSynchronization.values() ) {
+				stb.append(" ").append( rs.toString() ) ;
+			}
+			map.put(RUNNER_SYNCHRONIZATION, "How the QNetsimEngine runners are synchronized within a time step.  " + RunnerSynchronization.globalBarriers
+					+ ": all runners wait for each other after moving the nodes.  " + RunnerSynchronization.localClocks
+					+ ": the network is partitioned spatially and a runner only waits for the runners owning the downstream nodes "
+					+ "of its links.  " + RunnerSynchronization.localClocks + " always uses dedicated runner threads, i.e. it ignores "
+					+ USING_THREADPOOL + ".  Options:" + stb ) ;
+		}
+		{
+			StringBuilder stb = new StringBuilder() ;
+			for ( NetworkPartitioning np : NetworkPartitioning.values() ) {
+				stb.append(" ").append( np.toString() ) ;
+			}
+			map.put(NETWORK_PARTITIONING, "How the nodes (and their out-links) are assigned to the QNetsimEngine runners.  " + NetworkPartitioning.automatic
+					+ " uses " + NetworkPartitioning.roundRobin + " with " + RunnerSynchronization.globalBarriers + " and "
+					+ NetworkPartitioning.coordinateBisection + " with " + RunnerSynchronization.localClocks + ".  "
+					+ NetworkPartitioning.activityWeightedMultilevelBisection + " rebalances the runners after every iteration, "
+					+ "based on the observed activity (and the run times if QSim.analyzeRunTimes is set).  Options:" + stb ) ;
+		}
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
 		map.put(USE_LANES, "Set this parameter to true if lanes should be used, false if not.");
+		map.put(SKIPPING_IDLE_TIME_STEPS, "If true, the qsim jumps over time steps in which none of the mobsim engines has anything to do, "
+				+ "e.g. at night.  This only happens if all mobsim engines and all sim step listeners tell the qsim when they need the "
+				+ "next time step (see NextStepTimeAware); otherwise, every time step is simulated.  Default is false.");
 		{	
 			StringBuilder stb = new StringBuilder() ;
 			for ( VehiclesSource src : VehiclesSource.values() ) {
@@ -507,6 +540,24 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	@StringGetter(RUNNER_SYNCHRONIZATION)
+	public RunnerSynchronization getRunnerSynchronization() {
+		return this.runnerSynchronization ;
+	}
+	@StringSetter(RUNNER_SYNCHRONIZATION)
+	public void setRunnerSynchronization( RunnerSynchronization val ) {
+		this.runnerSynchronization = val ;
+	}
+
+	@StringGetter(NETWORK_PARTITIONING)
+	public NetworkPartitioning getNetworkPartitioning() {
+		return this.networkPartitioning ;
+	}
+	@StringSetter(NETWORK_PARTITIONING)
+	public void setNetworkPartitioning( NetworkPartitioning val ) {
+		this.networkPartitioning = val ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
@@ -556,6 +607,17 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.isRestrictingSeepage = isRestrictingSeepage;
 	}
 	// ---
+	private static final String SKIPPING_IDLE_TIME_STEPS = "skippingIdleTimeSteps";
+	private boolean skippingIdleTimeSteps = false;
+	@StringGetter(SKIPPING_IDLE_TIME_STEPS)
+	public boolean isSkippingIdleTimeSteps() {
+		return this.skippingIdleTimeSteps;
+	}
+	@StringSetter(SKIPPING_IDLE_TIME_STEPS)
+	public void setSkippingIdleTimeSteps(boolean skippingIdleTimeSteps) {
+		this.skippingIdleTimeSteps = skippingIdleTimeSteps;
+	}
+	// ---
 	private boolean usingTravelTimeCheckInTeleportation = false ;
 	public boolean isUsingTravelTimeCheckInTeleportation() {
 		// yyyyyy this should better become a threshold number!  kai, aug'16
@@ -274,6 +274,11 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TMP_FILE_ROOT_DIR, "root directory for temporary files generated by the external executable. Provided as a service; "
 				+ "I don't think this is used by MATSim.") ;
 		map.put(ReflectiveDelegate.EXTERNAL_EXE_TIME_OUT, "time out value (in seconds) after which matsim will consider the external strategy as failed") ;
+		map.put(ReflectiveDelegate.PIPELINED_REPLANNING, "if true, the qsim already starts while the innovative strategies are still working on their plans. "
+				+ "Agents are inserted into the running mobsim as soon as the plans of their strategy are final, and the mobsim only waits "
+				+ "for a strategy when it reaches the earliest possible departure of one of its agents.  The final plans are the same as without "
+				+ "pipelining.  Needs the qsim and, if link travel times are calculated, travelTimeCalculator=TravelTimeCalculatorConcurrent; "
+				+ "otherwise the replanning runs as usual.  Not compatible with within-day replanning.  Default: false") ;
 		return map ;
 	}
 
@@ -386,6 +391,14 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		delegate.setFractionOfIterationsToDisableInnovation(fraction);
 	}
 
+	public boolean isPipelinedReplanning() {
+		return delegate.isPipelinedReplanning();
+	}
+
+	public void setPipelinedReplanning(boolean pipelinedReplanning) {
+		delegate.setPipelinedReplanning(pipelinedReplanning);
+	}
+
 	@Override
 	public final Map<String, String> getParams() {
 		return delegate.getParams();
@@ -398,6 +411,7 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		 static final String EXTERNAL_EXE_TIME_OUT = "ExternalExeTimeOut";
 		 static final String ITERATION_FRACTION_TO_DISABLE_INNOVATION = "fractionOfIterationsToDisableInnovation" ;
 		 static final String PLAN_SELECTOR_FOR_REMOVAL = "planSelectorForRemoval" ;
+		 static final String PIPELINED_REPLANNING = "pipelinedReplanning" ;
 
 		private int maxAgentPlanMemorySize = 5;
 		private String externalExeConfigTemplate = null;
@@ -409,6 +423,7 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		//---
 		private double fraction = Double.POSITIVE_INFINITY ;
 		//---
+		private boolean pipelinedReplanning = false ;
 
 		public ReflectiveDelegate() {
 			super( StrategyConfigGroup.GROUP_NAME );
@@ -474,6 +489,16 @@ public final class StrategyConfigGroup extends ConfigGroup {
 		public void setFractionOfIterationsToDisableInnovation(double fraction) {
 			this.fraction = fraction;
 		}
+
+		@StringGetter( PIPELINED_REPLANNING )
+		public boolean isPipelinedReplanning() {
+			return pipelinedReplanning;
+		}
+
+		@StringSetter( PIPELINED_REPLANNING )
+		public void setPipelinedReplanning(boolean pipelinedReplanning) {
+			this.pipelinedReplanning = pipelinedReplanning;
+		}
 	}
 }
 
@@ -32,7 +32,7 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 
 	public static final String GROUPNAME = "travelTimeCalculator";
 
-	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap}
+	public enum TravelTimeCalculatorType {TravelTimeCalculatorArray,TravelTimeCalculatorHashMap,TravelTimeCalculatorConcurrent}
 
 	private static final String TRAVEL_TIME_CALCULATOR = "travelTimeCalculator";
 	private static final String TRAVEL_TIME_BIN_SIZE = "travelTimeBinSize";
@@ -84,7 +84,8 @@ public final class TravelTimeCalculatorConfigGroup extends ReflectiveConfigGroup
 		for ( TravelTimeCalculatorType type : TravelTimeCalculatorType.values() ) {
 			str += type.toString() + " " ;
 		}
-		map.put( TRAVEL_TIME_CALCULATOR, "possible values: " + str ) ;
+		map.put( TRAVEL_TIME_CALCULATOR, "possible values: " + str + ". " + TravelTimeCalculatorType.TravelTimeCalculatorConcurrent
+				+ " may be fed with events from several threads at the same time, e.g. by a parallel events manager." ) ;
 		return map;
 	}
 
@@ -19,12 +19,17 @@
 
 package org.matsim.core.controler;
 
+import javax.management.ObjectName;
+
 import org.apache.log4j.Logger;
 import org.matsim.analysis.IterationStopWatch;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
 import org.matsim.core.controler.listener.ControlerListener;
 import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.metrics.MetricsMBean;
+import org.matsim.core.metrics.MetricsRegistry;
+import org.matsim.core.utils.io.IOUtils;
 
 public abstract class AbstractController {
 
@@ -58,6 +63,7 @@ public abstract class AbstractController {
         log.info("Used Controler-Class: " + this.getClass().getCanonicalName());
         this.controlerListenerManagerImpl = controlerListenerManager;
         this.controlerListenerManagerImpl.setControler(matsimServices);
+        this.controlerListenerManagerImpl.setStopwatch(stopWatch);
         this.stopwatch = stopWatch;
     }
 
@@ -81,6 +87,7 @@ public abstract class AbstractController {
     }
 
     protected final void run(final Config config) {
+        IOUtils.setNumberOfCompressionThreads(config.global().getNumberOfThreads());
         MatsimRuntimeModifications.MyRunnable runnable = new MatsimRuntimeModifications.MyRunnable() {
             @Override
             public void run() throws MatsimRuntimeModifications.UnexpectedShutdownException {
@@ -94,9 +101,24 @@ public abstract class AbstractController {
             @Override
             public void shutdown(boolean unexpected) {
                 controlerListenerManagerImpl.fireControlerShutdownEvent(unexpected);
+                if (!unexpected) {
+                    // again, with the durations of the listeners which were still working in the background
+                    getStopwatch().writeTextFile(getControlerIO().getOutputFilename("stopwatch"));
+                }
             }
         };
-        MatsimRuntimeModifications.run(runnable);
+        ObjectName metricsBean = null;
+        if (config.controler().isCollectMetrics()) {
+            MetricsRegistry metrics = new MetricsRegistry();
+            MetricsRegistry.setCurrent(metrics);
+            metricsBean = MetricsMBean.register(metrics);
+        }
+        try {
+            MatsimRuntimeModifications.run(runnable);
+        } finally {
+            MetricsMBean.unregister(metricsBean);
+            MetricsRegistry.setCurrent(null);
+        }
         OutputDirectoryLogging.closeOutputDirLogging();
     }
 
@@ -171,6 +193,12 @@ public abstract class AbstractController {
 
         this.getStopwatch().endIteration();
         this.getStopwatch().writeTextFile(this.getControlerIO().getOutputFilename("stopwatch"));
+        MetricsRegistry metrics = MetricsRegistry.getCurrent();
+        if (metrics != null) {
+            metrics.writeCsv(this.getControlerIO().getIterationFilename(iteration, "metrics.csv"));
+            metrics.writeJson(this.getControlerIO().getIterationFilename(iteration, "metrics.json"));
+            metrics.reset();
+        }
         if (config.controler().isCreateGraphs()) {
             this.getStopwatch().writeGraphFile(this.getControlerIO().getOutputFilename("stopwatch"));
         }
@@ -21,11 +21,19 @@
 package org.matsim.core.controler;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationStopWatch;
 import org.matsim.core.controler.events.*;
 import org.matsim.core.controler.listener.*;
 import org.matsim.core.utils.misc.ClassUtils;
 
 import javax.swing.event.EventListenerList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Class encapsulating all behavior concerning the ControlerEvents/Listeners
@@ -42,6 +50,18 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
         this.controler = controler;
     }
 
+	private IterationStopWatch stopwatch = null;
+
+	void setStopwatch(IterationStopWatch stopwatch) {
+		this.stopwatch = stopwatch;
+	}
+
+	/** Runs the work returned by {@link AsyncIterationEndsListener}s, one after the other. Created when first needed. */
+	private ExecutorService asyncExecutor = null;
+
+	/** The work of {@link AsyncIterationEndsListener}s which was submitted, but not yet waited for. */
+	private final List<Future<?>> asyncTasks = new ArrayList<>();
+
 	/** The swing event listener list to manage ControlerListeners efficiently. First list manages core listeners
 	 * which are called first when a ControlerEvent is thrown. I.e. this list contains the listeners that are
 	 * always running in a predefined order to ensure correctness.
@@ -115,6 +135,19 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	 * @param unexpected Whether the shutdown is unexpected or not.
 	 */
 	public void fireControlerShutdownEvent(final boolean unexpected) {
+		if (unexpected) {
+			try {
+				finishAsyncIterationEndsListeners();
+			} catch (RuntimeException e) {
+				log.error("an AsyncIterationEndsListener failed while shutting down.", e);
+			}
+		} else {
+			finishAsyncIterationEndsListeners();
+		}
+		if (this.asyncExecutor != null) {
+			this.asyncExecutor.shutdown();
+			this.asyncExecutor = null;
+		}
 		ShutdownEvent event = new ShutdownEvent(this.controler, unexpected);
         ShutdownListener[] listener = this.coreListenerList.getListeners(ShutdownListener.class);
         for (ShutdownListener aListener : listener) {
@@ -153,24 +186,93 @@ public final class ControlerListenerManagerImpl implements ControlerListenerMana
 	 *
 	 */
 	public void fireControlerIterationEndsEvent(final int iteration) {
+		// the work of the last iteration must be done before new snapshots are taken, so at most one iteration is pending
+		finishAsyncIterationEndsListeners();
 		IterationEndsEvent event = new IterationEndsEvent(this.controler, iteration);
-		{
-			IterationEndsListener[] listener = this.coreListenerList.getListeners(IterationEndsListener.class);
-            for (IterationEndsListener aListener : listener) {
-                log.info("calling notifyIterationEnds on " + aListener.getClass().getName());
-                aListener.notifyIterationEnds(event);
-            }
-		}
-		{
-			IterationEndsListener[] listener = this.listenerList.getListeners(IterationEndsListener.class);
-            for (IterationEndsListener aListener : listener) {
-                log.info("calling notifyIterationEnds on " + aListener.getClass().getName());
-                aListener.notifyIterationEnds(event);
-            }
+		for (EventListenerList list : new EventListenerList[] { this.coreListenerList, this.listenerList }) {
+			// both kinds of listeners are called in the order they were added, as later ones may read the results of earlier ones
+			Object[] listeners = list.getListenerList();
+			for (int i = 0; i < listeners.length; i += 2) {
+				if (listeners[i] == IterationEndsListener.class) {
+					IterationEndsListener aListener = (IterationEndsListener) listeners[i + 1];
+					log.info("calling notifyIterationEnds on " + aListener.getClass().getName());
+					long start = System.currentTimeMillis();
+					aListener.notifyIterationEnds(event);
+					addListenerDuration(iteration, aListener, "", System.currentTimeMillis() - start);
+				} else if (listeners[i] == AsyncIterationEndsListener.class) {
+					AsyncIterationEndsListener aListener = (AsyncIterationEndsListener) listeners[i + 1];
+					log.info("calling notifyIterationEnds on " + aListener.getClass().getName());
+					long start = System.currentTimeMillis();
+					Runnable work = aListener.notifyIterationEnds(event);
+					addListenerDuration(iteration, aListener, "", System.currentTimeMillis() - start);
+					if (work != null) {
+						submitAsync(iteration, aListener, work);
+					}
+				}
+			}
 		}
 		log.info("[it." + iteration + "] all ControlerIterationEndsListeners called.");
 	}
 
+	private void submitAsync(final int iteration, final AsyncIterationEndsListener listener, final Runnable work) {
+		if (this.asyncExecutor == null) {
+			this.asyncExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, AsyncIterationEndsListener.class.getSimpleName());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		this.asyncTasks.add(this.asyncExecutor.submit(new Runnable() {
+			@Override
+			public void run() {
+				long start = System.currentTimeMillis();
+				work.run();
+				addListenerDuration(iteration, listener, " (async)", System.currentTimeMillis() - start);
+			}
+		}));
+	}
+
+	/**
+	 * Waits until the work returned by all {@link AsyncIterationEndsListener}s so far is done.  This is called
+	 * before the next iteration's listeners and before the shutdown listeners, but may also be called by listeners
+	 * which read the output of other listeners.
+	 *
+	 * @throws RuntimeException if the work of a listener failed.  The other work is still waited for.
+	 */
+	public void finishAsyncIterationEndsListeners() {
+		RuntimeException failure = null;
+		for (Future<?> task : this.asyncTasks) {
+			try {
+				task.get();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = new RuntimeException("an AsyncIterationEndsListener failed.", e.getCause());
+				}
+			} catch (InterruptedException e) {
+				if (failure == null) {
+					failure = new RuntimeException(e);
+				}
+			}
+		}
+		this.asyncTasks.clear();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void addListenerDuration(int iteration, ControlerListener listener, String suffix, long millis) {
+		if (this.stopwatch != null) {
+			String name = listener.getClass().getSimpleName();
+			if (name.isEmpty()) {
+				name = listener.getClass().getName();
+			}
+			this.stopwatch.addListenerDuration(iteration, name + suffix, millis);
+		}
+	}
+
 	/**
 	 * Notifies all ControlerScoringListeners
 	 *
@@ -26,7 +26,7 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.events.*;
 import org.matsim.core.controler.listener.*;
-import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.EventsUtils;
 
 import javax.inject.Inject;
 import java.util.Set;
@@ -66,7 +66,7 @@ public final class ReplayEvents {
                     }
                 });
         ReplayEvents instance = injector.getInstance(ReplayEvents.class);
-        instance.playEventsFile(eventsFilename, 1);
+        instance.playEventsFile(eventsFilename, 1, config.global().getNumberOfThreads());
 
         return new Results() {
             @Override
@@ -77,6 +77,13 @@ public final class ReplayEvents {
     }
 
     public void playEventsFile(String eventsFilename, int iterationNumber) {
+        playEventsFile(eventsFilename, iterationNumber, 1);
+    }
+
+    /**
+     * @param numberOfReaderThreads the number of threads reading the events file, see {@link EventsUtils#readEvents}
+     */
+    public void playEventsFile(String eventsFilename, int iterationNumber, int numberOfReaderThreads) {
         ((ControlerListenerManagerImpl) controlerListenerManager).fireControlerStartupEvent();
         for (ControlerListener controlerListener : controlerListenersDeclaredByModules) {
             if (controlerListener instanceof StartupListener) {
@@ -95,7 +102,7 @@ public final class ReplayEvents {
                 ((BeforeMobsimListener) controlerListener).notifyBeforeMobsim(new BeforeMobsimEvent(null, iterationNumber));
             }
         }
-        new MatsimEventsReader(eventsManager).readFile(eventsFilename);
+        EventsUtils.readEvents(eventsManager, eventsFilename, numberOfReaderThreads);
         ((ControlerListenerManagerImpl) controlerListenerManager).fireControlerAfterMobsimEvent(iterationNumber);
         for (ControlerListener controlerListener : controlerListenersDeclaredByModules) {
             if (controlerListener instanceof AfterMobsimListener) {
@@ -32,6 +32,7 @@ import org.matsim.core.config.ConfigWriter;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.VspExperimentalConfigGroup;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.ControlerListenerManagerImpl;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.listener.ShutdownListener;
@@ -109,6 +110,9 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 	@Inject
 	private OutputDirectoryHierarchy controlerIO;
 
+	@Inject(optional = true)
+	private ControlerListenerManagerImpl controlerListenerManager = null;
+
 	@Inject
 	private Map<Class<?>,AttributeConverter<?>> attributeConverters = Collections.emptyMap();
 
@@ -117,6 +121,10 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		if ( event.isUnexpected() ) {
 			return ;
 		}
+		if (controlerListenerManager != null) {
+			// the outputs of the last iteration must be complete before the final outputs are written
+			controlerListenerManager.finishAsyncIterationEndsListeners();
+		}
 		dumpPlans();
 		dumpNetwork();
 		dumpConfig();
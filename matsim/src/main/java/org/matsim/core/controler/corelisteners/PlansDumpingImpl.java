@@ -30,6 +30,7 @@ import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.replanning.PipelinedReplanning;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -55,6 +56,7 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	@Inject private Population population;
 	@Inject private IterationStopWatch stopwatch;
 	@Inject private OutputDirectoryHierarchy controlerIO;
+	@Inject(optional = true) private PipelinedReplanning pipelinedReplanning;
 	private int writePlansInterval ;
 
 	private int writeMoreUntilIteration;
@@ -71,6 +73,9 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 		final boolean regularWritePlans = writingPlansAtAll && (event.getIteration()>0 && event.getIteration() % writePlansInterval== 0);
 		final boolean earlyIteration = event.getIteration() <= writeMoreUntilIteration ;
 		if ( writingPlansAtAll && (regularWritePlans || earlyIteration) ) {
+			if ( pipelinedReplanning != null ) {
+				pipelinedReplanning.awaitFinalPlans();
+			}
 			stopwatch.beginOperation("dump all plans");
 			log.info("dumping plans...");
 			final String inputCRS = config.plans().getInputCRS();
@@ -20,14 +20,29 @@
 
 package org.matsim.core.controler.corelisteners;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.events.ReplanningEvent;
+import org.matsim.core.controler.listener.AfterMobsimListener;
 import org.matsim.core.controler.listener.ReplanningListener;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.replanning.PipelinedReplanning;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.replanning.StrategyManager;
+import org.matsim.core.trafficmonitoring.ConcurrentTravelTimeCalculator;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
 
+import com.google.inject.Binding;
 import com.google.inject.Inject;
+import com.google.inject.Injector;
 import com.google.inject.Singleton;
+import com.google.inject.TypeLiteral;
 
 import javax.inject.Provider;
 
@@ -36,15 +51,25 @@ import javax.inject.Provider;
  * replanning of plans in every iteration. Basically it integrates the
  * {@link org.matsim.core.replanning.StrategyManager} with the
  * {@link org.matsim.core.controler.Controler}.
+ * <p></p>
+ * With {@link PipelinedReplanning}, the replanning is only complete after the mobsim.  The observed link travel
+ * times are frozen until then, so the routers see the travel times of the last iteration as usual.
  *
  * @author mrieser
  */
 @Singleton
-final class PlansReplanningImpl implements PlansReplanning, ReplanningListener {
+final class PlansReplanningImpl implements PlansReplanning, ReplanningListener, AfterMobsimListener {
+
+	private static final Logger log = Logger.getLogger(PlansReplanningImpl.class);
 
 	private final Provider<ReplanningContext> replanningContextProvider;
 	private Population population;
 	private StrategyManager strategyManager;
+	@Inject(optional = true) private PipelinedReplanning pipelinedReplanning;
+	@Inject private Config config;
+	@Inject private Injector injector;
+	private final List<ConcurrentTravelTimeCalculator> frozenCalculators = new ArrayList<>();
+	private boolean pipelined = false;
 	
 	@Inject
 	PlansReplanningImpl(StrategyManager strategyManager, Population pop, Provider<ReplanningContext> replanningContextProvider) {
@@ -55,7 +80,62 @@ final class PlansReplanningImpl implements PlansReplanning, ReplanningListener {
 
 	@Override
 	public void notifyReplanning(final ReplanningEvent event) {
+		if (this.pipelinedReplanning != null && freezeTravelTimesForPipelining()) {
+			this.pipelined = true;
+			this.pipelinedReplanning.run(strategyManager, population, event.getIteration(), replanningContextProvider.get());
+			return;
+		}
 		strategyManager.run(population, event.getIteration(), replanningContextProvider.get());
+		// packs the new and modified plans if the population stores its plans compactly
+		PopulationUtils.compactPlans(population);
+	}
+
+	@Override
+	public void notifyAfterMobsim(final AfterMobsimEvent event) {
+		if (this.pipelined) {
+			this.pipelined = false;
+			try {
+				this.pipelinedReplanning.awaitFinalPlans();
+			} finally {
+				for (ConcurrentTravelTimeCalculator calculator : this.frozenCalculators) {
+					calculator.unfreezeLinkTravelTimes();
+				}
+				this.frozenCalculators.clear();
+			}
+			PopulationUtils.compactPlans(population);
+		}
+	}
+
+	private boolean freezeTravelTimesForPipelining() {
+		if (this.strategyManager.getClass() != StrategyManager.class) {
+			log.warn("pipelined replanning is switched off since the strategy manager is a " + this.strategyManager.getClass().getName());
+			return false;
+		}
+		if (!ControlerConfigGroup.MobsimType.qsim.toString().equals(this.config.controler().getMobsim())) {
+			log.warn("pipelined replanning is switched off since it needs the qsim.");
+			return false;
+		}
+		if (this.config.travelTimeCalculator().isCalculateLinkToLinkTravelTimes()) {
+			log.warn("pipelined replanning is switched off since it cannot freeze link to link travel times.");
+			return false;
+		}
+		List<ConcurrentTravelTimeCalculator> calculators = new ArrayList<>();
+		if (this.config.travelTimeCalculator().isCalculateLinkTravelTimes()) {
+			for (Binding<TravelTimeCalculator> binding : this.injector.findBindingsByType(TypeLiteral.get(TravelTimeCalculator.class))) {
+				TravelTimeCalculator calculator = binding.getProvider().get();
+				if (!(calculator instanceof ConcurrentTravelTimeCalculator)) {
+					log.warn("pipelined replanning is switched off since it needs travelTimeCalculator=TravelTimeCalculatorConcurrent "
+							+ "to keep the travel times of the last iteration while the mobsim runs.");
+					return false;
+				}
+				calculators.add((ConcurrentTravelTimeCalculator) calculator);
+			}
+		}
+		for (ConcurrentTravelTimeCalculator calculator : calculators) {
+			calculator.freezeLinkTravelTimes();
+		}
+		this.frozenCalculators.addAll(calculators);
+		return true;
 	}
 
 }
@@ -0,0 +1,43 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AsyncIterationEndsListener.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.listener;
+
+import org.matsim.core.controler.events.IterationEndsEvent;
+
+/**
+ * An alternative to the {@link IterationEndsListener} for work that the next iterations do not depend on, e.g.
+ * writing analyses or charts.  The listener is called on the controler thread at the end of the iteration, like
+ * the {@link IterationEndsListener}s, and returns the work that may be done in the background while the next
+ * iteration already does replanning and mobsim.  The background work must only use data copied in
+ * {@link #notifyIterationEnds(IterationEndsEvent)}, as the population, event handlers etc. change in the next
+ * iteration.
+ * <p></p>
+ * The background work of all listeners is done on one thread, in the order the listeners were called.  It is
+ * finished before the next iteration ends, and before the shutdown listeners are called.
+ */
+public interface AsyncIterationEndsListener extends ControlerListener {
+	/**
+	 * Notifies the observer that an iteration is finished.
+	 *
+	 * @return the work to be done in the background, or <code>null</code> if there is none
+	 */
+	public Runnable notifyIterationEnds(IterationEndsEvent event);
+}
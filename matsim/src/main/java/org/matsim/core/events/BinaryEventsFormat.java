@@ -0,0 +1,298 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BinaryEventsFormat.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.TeleportationArrivalEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Describes the binary events format written by {@link org.matsim.core.events.algorithms.EventWriterBinary}
+ * and read by {@link EventsReaderBinary}.
+ * <p></p>
+ * A file starts with {@link #MAGIC} and {@link #VERSION} (an int), followed by blocks of events. Every block is
+ * stored as <code>int uncompressedLength, int compressedLength, byte[compressedLength]</code> and compressed with
+ * {@link java.util.zip.Deflater}; a block with <code>uncompressedLength == 0</code> ends the file. An uncompressed
+ * block contains, all integers stored as variable-length ints:
+ * <ol>
+ * <li>the strings added to the dictionary in this block (count, then per string the length and the UTF-8 bytes),</li>
+ * <li>the schemas first used in this block (count, then per schema the event type, the number of columns and per
+ * column the attribute key and the column kind),</li>
+ * <li>the number of events, followed by the schema column and the time column (each prefixed by its length in bytes),</li>
+ * <li>the number of schemas used in this block, followed by the schema index and the attribute columns (each prefixed
+ * by its length in bytes) of every such schema.</li>
+ * </ol>
+ * The dictionary and the schemas are shared by all blocks of a file. Strings (Ids, modes, activity types, but also
+ * event types and attribute keys) are stored as their dictionary index + 1, with 0 standing for <code>null</code>.
+ * Numbers with an integer value are stored as zig-zag encoded <code>value &lt;&lt; 1</code>, all others as
+ * <code>1</code> followed by the 8 bytes of the double. Times use the same encoding, but store the difference to the
+ * previous integer time in the same block.
+ * <p></p>
+ * The standard event types use the columns defined by {@link #getStandardEventTypes()}, other events are written
+ * with one string column per attribute as returned by {@link Event#getAttributes()}.
+ */
+public final class BinaryEventsFormat {
+
+	public static final byte[] MAGIC = {'M', 'A', 'T', 'S', 'I', 'M', 'E', 'B'};
+	public static final int VERSION = 1;
+
+	/** the default number of events per block */
+	public static final int BLOCK_SIZE = 32 * 1024;
+
+	public static final byte KIND_STRING = 0;
+	public static final byte KIND_NUMBER = 1;
+
+	public interface ColumnSink {
+		/**
+		 * @param value an {@link Id}, a String or <code>null</code>
+		 */
+		void string(int column, Object value);
+
+		void number(int column, double value);
+	}
+
+	public interface ColumnSource {
+		<T> Id<T> id(int column, Class<T> idType);
+
+		String string(int column);
+
+		double number(int column);
+	}
+
+	public interface Encoder<T extends Event> {
+		void write(T event, ColumnSink sink);
+	}
+
+	public interface Decoder {
+		Event create(double time, ColumnSource source);
+	}
+
+	/**
+	 * The columns of one of the standard event types, together with the code converting between the columns and
+	 * the event.
+	 */
+	public static final class EventColumns<T extends Event> {
+		private final Class<T> eventClass;
+		private final String eventType;
+		private final String[] keys;
+		private final byte[] kinds;
+		private final Encoder<T> encoder;
+		private final Decoder decoder;
+
+		EventColumns(Class<T> eventClass, String eventType, String[] keys, byte[] kinds, Encoder<T> encoder, Decoder decoder) {
+			this.eventClass = eventClass;
+			this.eventType = eventType;
+			this.keys = keys;
+			this.kinds = kinds;
+			this.encoder = encoder;
+			this.decoder = decoder;
+		}
+
+		public Class<T> getEventClass() {
+			return this.eventClass;
+		}
+
+		public String getEventType() {
+			return this.eventType;
+		}
+
+		public int getColumnCount() {
+			return this.keys.length;
+		}
+
+		public String getKey(int column) {
+			return this.keys[column];
+		}
+
+		public byte getKind(int column) {
+			return this.kinds[column];
+		}
+
+		public void write(Event event, ColumnSink sink) {
+			this.encoder.write(this.eventClass.cast(event), sink);
+		}
+
+		public Event create(double time, ColumnSource source) {
+			return this.decoder.create(time, source);
+		}
+	}
+
+	private static final byte S = KIND_STRING;
+	private static final byte N = KIND_NUMBER;
+
+	private static final List<EventColumns<?>> STANDARD_EVENT_TYPES;
+
+	static {
+		List<EventColumns<?>> types = new ArrayList<>();
+		types.add(new EventColumns<>(LinkEnterEvent.class, LinkEnterEvent.EVENT_TYPE,
+				new String[] {LinkEnterEvent.ATTRIBUTE_VEHICLE, LinkEnterEvent.ATTRIBUTE_LINK}, new byte[] {S, S},
+				(e, s) -> { s.string(0, e.getVehicleId()); s.string(1, e.getLinkId()); },
+				(t, s) -> new LinkEnterEvent(t, s.id(0, Vehicle.class), s.id(1, Link.class))));
+		types.add(new EventColumns<>(LinkLeaveEvent.class, LinkLeaveEvent.EVENT_TYPE,
+				new String[] {LinkLeaveEvent.ATTRIBUTE_VEHICLE, LinkLeaveEvent.ATTRIBUTE_LINK}, new byte[] {S, S},
+				(e, s) -> { s.string(0, e.getVehicleId()); s.string(1, e.getLinkId()); },
+				(t, s) -> new LinkLeaveEvent(t, s.id(0, Vehicle.class), s.id(1, Link.class))));
+		types.add(new EventColumns<>(VehicleEntersTrafficEvent.class, VehicleEntersTrafficEvent.EVENT_TYPE,
+				new String[] {VehicleEntersTrafficEvent.ATTRIBUTE_DRIVER, VehicleEntersTrafficEvent.ATTRIBUTE_LINK,
+						VehicleEntersTrafficEvent.ATTRIBUTE_VEHICLE, VehicleEntersTrafficEvent.ATTRIBUTE_NETWORKMODE,
+						VehicleEntersTrafficEvent.ATTRIBUTE_POSITION}, new byte[] {S, S, S, S, N},
+				(e, s) -> {
+					s.string(0, e.getPersonId()); s.string(1, e.getLinkId()); s.string(2, e.getVehicleId());
+					s.string(3, e.getNetworkMode()); s.number(4, e.getRelativePositionOnLink());
+				},
+				(t, s) -> new VehicleEntersTrafficEvent(t, s.id(0, Person.class), s.id(1, Link.class), s.id(2, Vehicle.class),
+						s.string(3), s.number(4))));
+		types.add(new EventColumns<>(VehicleLeavesTrafficEvent.class, VehicleLeavesTrafficEvent.EVENT_TYPE,
+				new String[] {VehicleLeavesTrafficEvent.ATTRIBUTE_DRIVER, VehicleLeavesTrafficEvent.ATTRIBUTE_LINK,
+						VehicleLeavesTrafficEvent.ATTRIBUTE_VEHICLE, VehicleLeavesTrafficEvent.ATTRIBUTE_NETWORKMODE,
+						VehicleLeavesTrafficEvent.ATTRIBUTE_POSITION}, new byte[] {S, S, S, S, N},
+				(e, s) -> {
+					s.string(0, e.getPersonId()); s.string(1, e.getLinkId()); s.string(2, e.getVehicleId());
+					s.string(3, e.getNetworkMode()); s.number(4, e.getRelativePositionOnLink());
+				},
+				(t, s) -> new VehicleLeavesTrafficEvent(t, s.id(0, Person.class), s.id(1, Link.class), s.id(2, Vehicle.class),
+						s.string(3), s.number(4))));
+		types.add(new EventColumns<>(ActivityEndEvent.class, ActivityEndEvent.EVENT_TYPE,
+				new String[] {ActivityEndEvent.ATTRIBUTE_PERSON, ActivityEndEvent.ATTRIBUTE_LINK,
+						ActivityEndEvent.ATTRIBUTE_FACILITY, ActivityEndEvent.ATTRIBUTE_ACTTYPE}, new byte[] {S, S, S, S},
+				(e, s) -> { s.string(0, e.getPersonId()); s.string(1, e.getLinkId()); s.string(2, e.getFacilityId()); s.string(3, e.getActType()); },
+				(t, s) -> new ActivityEndEvent(t, s.id(0, Person.class), s.id(1, Link.class), s.id(2, ActivityFacility.class), s.string(3))));
+		types.add(new EventColumns<>(ActivityStartEvent.class, ActivityStartEvent.EVENT_TYPE,
+				new String[] {ActivityStartEvent.ATTRIBUTE_PERSON, ActivityStartEvent.ATTRIBUTE_LINK,
+						ActivityStartEvent.ATTRIBUTE_FACILITY, ActivityStartEvent.ATTRIBUTE_ACTTYPE}, new byte[] {S, S, S, S},
+				(e, s) -> { s.string(0, e.getPersonId()); s.string(1, e.getLinkId()); s.string(2, e.getFacilityId()); s.string(3, e.getActType()); },
+				(t, s) -> new ActivityStartEvent(t, s.id(0, Person.class), s.id(1, Link.class), s.id(2, ActivityFacility.class), s.string(3))));
+		types.add(new EventColumns<>(PersonDepartureEvent.class, PersonDepartureEvent.EVENT_TYPE,
+				new String[] {PersonDepartureEvent.ATTRIBUTE_PERSON, PersonDepartureEvent.ATTRIBUTE_LINK,
+						PersonDepartureEvent.ATTRIBUTE_LEGMODE}, new byte[] {S, S, S},
+				(e, s) -> { s.string(0, e.getPersonId()); s.string(1, e.getLinkId()); s.string(2, e.getLegMode()); },
+				(t, s) -> new PersonDepartureEvent(t, s.id(0, Person.class), s.id(1, Link.class), s.string(2))));
+		types.add(new EventColumns<>(PersonArrivalEvent.class, PersonArrivalEvent.EVENT_TYPE,
+				new String[] {PersonArrivalEvent.ATTRIBUTE_PERSON, PersonArrivalEvent.ATTRIBUTE_LINK,
+						PersonArrivalEvent.ATTRIBUTE_LEGMODE}, new byte[] {S, S, S},
+				(e, s) -> { s.string(0, e.getPersonId()); s.string(1, e.getLinkId()); s.string(2, e.getLegMode()); },
+				(t, s) -> new PersonArrivalEvent(t, s.id(0, Person.class), s.id(1, Link.class), s.string(2))));
+		types.add(new EventColumns<>(PersonStuckEvent.class, PersonStuckEvent.EVENT_TYPE,
+				new String[] {PersonStuckEvent.ATTRIBUTE_PERSON, PersonStuckEvent.ATTRIBUTE_LINK,
+						PersonStuckEvent.ATTRIBUTE_LEGMODE}, new byte[] {S, S, S},
+				(e, s) -> { s.string(0, e.getPersonId()); s.string(1, e.getLinkId()); s.string(2, e.getLegMode()); },
+				(t, s) -> new PersonStuckEvent(t, s.id(0, Person.class), s.id(1, Link.class), s.string(2))));
+		types.add(new EventColumns<>(PersonEntersVehicleEvent.class, PersonEntersVehicleEvent.EVENT_TYPE,
+				new String[] {PersonEntersVehicleEvent.ATTRIBUTE_PERSON, PersonEntersVehicleEvent.ATTRIBUTE_VEHICLE}, new byte[] {S, S},
+				(e, s) -> { s.string(0, e.getPersonId()); s.string(1, e.getVehicleId()); },
+				(t, s) -> new PersonEntersVehicleEvent(t, s.id(0, Person.class), s.id(1, Vehicle.class))));
+		types.add(new EventColumns<>(PersonLeavesVehicleEvent.class, PersonLeavesVehicleEvent.EVENT_TYPE,
+				new String[] {PersonLeavesVehicleEvent.ATTRIBUTE_PERSON, PersonLeavesVehicleEvent.ATTRIBUTE_VEHICLE}, new byte[] {S, S},
+				(e, s) -> { s.string(0, e.getPersonId()); s.string(1, e.getVehicleId()); },
+				(t, s) -> new PersonLeavesVehicleEvent(t, s.id(0, Person.class), s.id(1, Vehicle.class))));
+		types.add(new EventColumns<>(PersonMoneyEvent.class, PersonMoneyEvent.EVENT_TYPE,
+				new String[] {PersonMoneyEvent.ATTRIBUTE_PERSON, PersonMoneyEvent.ATTRIBUTE_AMOUNT}, new byte[] {S, N},
+				(e, s) -> { s.string(0, e.getPersonId()); s.number(1, e.getAmount()); },
+				(t, s) -> new PersonMoneyEvent(t, s.id(0, Person.class), s.number(1))));
+		types.add(new EventColumns<>(TeleportationArrivalEvent.class, TeleportationArrivalEvent.EVENT_TYPE,
+				new String[] {TeleportationArrivalEvent.ATTRIBUTE_PERSON, TeleportationArrivalEvent.ATTRIBUTE_DISTANCE}, new byte[] {S, N},
+				(e, s) -> { s.string(0, e.getPersonId()); s.number(1, e.getDistance()); },
+				(t, s) -> new TeleportationArrivalEvent(t, s.id(0, Person.class), s.number(1))));
+		types.add(new EventColumns<>(VehicleAbortsEvent.class, VehicleAbortsEvent.EVENT_TYPE,
+				new String[] {VehicleAbortsEvent.ATTRIBUTE_VEHICLE, VehicleAbortsEvent.ATTRIBUTE_LINK}, new byte[] {S, S},
+				(e, s) -> { s.string(0, e.getVehicleId()); s.string(1, e.getLinkId()); },
+				(t, s) -> new VehicleAbortsEvent(t, s.id(0, Vehicle.class), s.id(1, Link.class))));
+		types.add(new EventColumns<>(VehicleArrivesAtFacilityEvent.class, VehicleArrivesAtFacilityEvent.EVENT_TYPE,
+				new String[] {VehicleArrivesAtFacilityEvent.ATTRIBUTE_VEHICLE, VehicleArrivesAtFacilityEvent.ATTRIBUTE_FACILITY,
+						VehicleArrivesAtFacilityEvent.ATTRIBUTE_DELAY}, new byte[] {S, S, N},
+				(e, s) -> { s.string(0, e.getVehicleId()); s.string(1, e.getFacilityId()); s.number(2, getDelay(e)); },
+				(t, s) -> new VehicleArrivesAtFacilityEvent(t, s.id(0, Vehicle.class), s.id(1, TransitStopFacility.class), s.number(2))));
+		types.add(new EventColumns<>(VehicleDepartsAtFacilityEvent.class, VehicleDepartsAtFacilityEvent.EVENT_TYPE,
+				new String[] {VehicleDepartsAtFacilityEvent.ATTRIBUTE_VEHICLE, VehicleDepartsAtFacilityEvent.ATTRIBUTE_FACILITY,
+						VehicleDepartsAtFacilityEvent.ATTRIBUTE_DELAY}, new byte[] {S, S, N},
+				(e, s) -> { s.string(0, e.getVehicleId()); s.string(1, e.getFacilityId()); s.number(2, getDelay(e)); },
+				(t, s) -> new VehicleDepartsAtFacilityEvent(t, s.id(0, Vehicle.class), s.id(1, TransitStopFacility.class), s.number(2))));
+		types.add(new EventColumns<>(TransitDriverStartsEvent.class, TransitDriverStartsEvent.EVENT_TYPE,
+				new String[] {TransitDriverStartsEvent.ATTRIBUTE_DRIVER_ID, TransitDriverStartsEvent.ATTRIBUTE_VEHICLE_ID,
+						TransitDriverStartsEvent.ATTRIBUTE_TRANSIT_LINE_ID, TransitDriverStartsEvent.ATTRIBUTE_TRANSIT_ROUTE_ID,
+						TransitDriverStartsEvent.ATTRIBUTE_DEPARTURE_ID}, new byte[] {S, S, S, S, S},
+				(e, s) -> {
+					s.string(0, e.getDriverId()); s.string(1, e.getVehicleId()); s.string(2, e.getTransitLineId());
+					s.string(3, e.getTransitRouteId()); s.string(4, e.getDepartureId());
+				},
+				(t, s) -> new TransitDriverStartsEvent(t, s.id(0, Person.class), s.id(1, Vehicle.class), s.id(2, TransitLine.class),
+						s.id(3, TransitRoute.class), s.id(4, Departure.class))));
+		STANDARD_EVENT_TYPES = Collections.unmodifiableList(types);
+	}
+
+	private BinaryEventsFormat() {
+	}
+
+	// the delay is deprecated, but still an attribute of the event, so it is written to read the event back unchanged
+	@SuppressWarnings("deprecation")
+	private static double getDelay(final VehicleArrivesAtFacilityEvent event) {
+		return event.getDelay();
+	}
+
+	@SuppressWarnings("deprecation")
+	private static double getDelay(final VehicleDepartsAtFacilityEvent event) {
+		return event.getDelay();
+	}
+
+	/**
+	 * @return the event types that are stored with typed columns. Events of these exact classes are written and
+	 * read without going through their attribute map.
+	 */
+	public static List<EventColumns<?>> getStandardEventTypes() {
+		return STANDARD_EVENT_TYPES;
+	}
+
+	/**
+	 * @return <code>true</code> if the number is stored as integer by the format, i.e. without loss and in a few bytes.
+	 */
+	public static boolean isInteger(double value) {
+		return value == (long) value && Math.abs(value) < (1L << 52) && (value != 0.0 || Double.doubleToRawLongBits(value) == 0L);
+	}
+
+}
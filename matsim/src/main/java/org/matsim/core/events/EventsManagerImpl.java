@@ -20,6 +20,12 @@
 
 package org.matsim.core.events;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -28,6 +34,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
@@ -62,8 +69,12 @@ import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventHandlerDispatch;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.metrics.Counter;
+import org.matsim.core.metrics.Histogram;
+import org.matsim.core.metrics.MetricsRegistry;
 
 /**
  * EventHandling
@@ -76,6 +87,9 @@ import org.matsim.core.events.handler.EventHandler;
  * <li>(optional) add an appropriate line in callHandlerFast() for speeding
  * up execution!</li>
  * </ol>
+ * With {@link EventHandlerDispatch#generated}, the handlers are not called by reflection, but through
+ * classes generated at runtime with the {@link LambdaMetafactory}, one per handler method, which call the
+ * handleEvent method directly.
  *
  * @author dstrippgen
  * @author mrieser
@@ -89,6 +103,9 @@ public class EventsManagerImpl implements EventsManager {
 		protected Class<?> eventklass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
 		protected Method method;
+		/* creates the generated invoker for a handler, null if not (yet) available */
+		protected MethodHandle invokerFactory = null;
+		protected boolean invokerFactoryFailed = false;
 		protected HandlerData(final Class<?> eventklass, final Method method) {
 			this.eventklass = eventklass;
 			this.method = method;
@@ -102,11 +119,18 @@ public class EventsManagerImpl implements EventsManager {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
 		protected final Method method;
+		/* calls the handler method directly, null if the handler has to be called by reflection */
+		protected final Consumer<Event> invoker;
+		/* the time spent in the handler, null if no metrics are collected */
+		protected final Histogram metrics;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method, final Consumer<Event> invoker,
+				final Histogram metrics) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
 			this.method = method;
+			this.invoker = invoker;
+			this.metrics = metrics;
 		}
 	}
 
@@ -114,9 +138,27 @@ public class EventsManagerImpl implements EventsManager {
 
 	private final Map<Class<?>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<Class<?>, HandlerInfo[]>(15);
 
+	private final EventHandlerDispatch dispatch;
+
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	// hot path metrics, see controler.collectMetrics; null if they are not collected
+	private MetricsRegistry metrics = null;
+	private Counter processedMetrics = null;
+
+	public EventsManagerImpl() {
+		this(EventHandlerDispatch.reflection);
+	}
+
+	/**
+	 * @param dispatch how the events are passed to the handlers
+	 */
+	public EventsManagerImpl(final EventHandlerDispatch dispatch) {
+		this.dispatch = dispatch;
+		updateMetrics();
+	}
+
 	private HandlerData findHandler(final Class<?> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventklass == evklass) {
@@ -129,6 +171,7 @@ public class EventsManagerImpl implements EventsManager {
 	@Override
 	public void processEvent(final Event event) {
 		this.counter++;
+		if (this.processedMetrics != null) this.processedMetrics.increment();
 		if (this.counter == this.nextCounterMsg) {
 			this.nextCounterMsg *= 2;
 			log.info(" event # " + this.counter);
@@ -170,6 +213,7 @@ public class EventsManagerImpl implements EventsManager {
 		log.info("resetting Event-Handlers");
 		this.counter = 0;
 		this.nextCounterMsg = 1;
+		updateMetrics();
 		Set<EventHandler> resetHandlers = new HashSet<EventHandler>();
 		for (HandlerData handlerdata : this.handlerData) {
 			for (EventHandler handler : handlerdata.handlerList) {
@@ -184,7 +228,20 @@ public class EventsManagerImpl implements EventsManager {
 
 	@Override
 	public void initProcessing() {
-		// nothing to do in this implementation
+		updateMetrics();
+	}
+
+	/**
+	 * Picks up the metrics registry of the running controler; the handlers are looked up again when it has changed, so
+	 * that their timers are recorded in the current registry.
+	 */
+	private void updateMetrics() {
+		MetricsRegistry current = MetricsRegistry.getCurrent();
+		if (current != this.metrics) {
+			this.metrics = current;
+			this.processedMetrics = current == null ? null : current.counter("events.processed");
+			this.cacheHandlers.clear();
+		}
 	}
 
 	@Override
@@ -218,17 +275,35 @@ public class EventsManagerImpl implements EventsManager {
 
 	private void computeEvent(final Event event) {
 		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
-			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
-					continue;
-				}
+			if (info.metrics == null) {
+				callHandler(info, event);
+			} else {
+				long startNanos = System.nanoTime();
+				callHandler(info, event);
+				info.metrics.recordSince(startNanos);
+			}
+		}
+	}
+
+	private void callHandler(final HandlerInfo info, final Event event) {
+		synchronized(info.eventHandler) {
+			if (info.invoker != null) {
 				try {
-					info.method.invoke(info.eventHandler, event);
-				} catch (IllegalArgumentException | IllegalAccessException e) {
+					info.invoker.accept(event);
+				} catch (RuntimeException e) {
 					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
 				}
+				return;
+			}
+			if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
+				return;
+			}
+			try {
+				info.method.invoke(info.eventHandler, event);
+			} catch (IllegalArgumentException | IllegalAccessException e) {
+				throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+			} catch (InvocationTargetException e) {
+				throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
 			}
 		}
 	}
@@ -246,7 +321,7 @@ public class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
+					info.add(new HandlerInfo(klass, handler, dat.method, createInvoker(dat, handler), getHandlerMetrics(handler)));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -256,7 +331,7 @@ public class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
+					info.add(new HandlerInfo(intfc, handler, dat.method, createInvoker(dat, handler), getHandlerMetrics(handler)));
 				}
 			}
 		}
@@ -266,6 +341,63 @@ public class EventsManagerImpl implements EventsManager {
 		return cache;
 	}
 
+	private Histogram getHandlerMetrics(final EventHandler handler) {
+		return this.metrics == null ? null : this.metrics.histogram("events.handler." + handler.getClass().getName());
+	}
+
+	@SuppressWarnings("unchecked")
+	private Consumer<Event> createInvoker(final HandlerData dat, final EventHandler handler) {
+		if (this.dispatch != EventHandlerDispatch.generated) {
+			return null;
+		}
+		if (dat.invokerFactory == null && !dat.invokerFactoryFailed) {
+			dat.invokerFactory = createInvokerFactory(dat.method);
+			dat.invokerFactoryFailed = dat.invokerFactory == null;
+		}
+		if (dat.invokerFactory == null) {
+			return null;
+		}
+		try {
+			return (Consumer<Event>) dat.invokerFactory.invoke(handler);
+		} catch (Throwable e) {
+			throw new RuntimeException("problem creating invoker for EventHandler " + handler.getClass().getCanonicalName() + " for event-class " + dat.eventklass.getCanonicalName(), e);
+		}
+	}
+
+	/**
+	 * @return a method handle which creates, for a given handler, a Consumer calling the given handler method
+	 * directly, or <code>null</code> if the handler interface or event class cannot be accessed from here
+	 */
+	private static MethodHandle createInvokerFactory(final Method method) {
+		Class<?> handlerInterface = method.getDeclaringClass();
+		Class<?> eventClass = method.getParameterTypes()[0];
+		// the generated class is defined in the class loader of this class, it has to see both classes
+		if (!isVisible(handlerInterface) || !isVisible(eventClass)) {
+			log.warn("cannot generate invoker for " + handlerInterface.getName() + ", falling back to reflection.");
+			return null;
+		}
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+					MethodType.methodType(Consumer.class, handlerInterface),
+					MethodType.methodType(void.class, Object.class),
+					lookup.unreflect(method),
+					MethodType.methodType(void.class, eventClass));
+			return site.getTarget();
+		} catch (ReflectiveOperationException | RuntimeException | LambdaConversionException e) {
+			log.warn("cannot generate invoker for " + handlerInterface.getName() + ", falling back to reflection: " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static boolean isVisible(final Class<?> klass) {
+		try {
+			return Class.forName(klass.getName(), false, EventsManagerImpl.class.getClassLoader()) == klass;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
 	private Set<Class<?>> getAllInterfaces(final Class<?> klass) {
 		Set<Class<?>> intfs = new HashSet<Class<?>>();
 		for (Class<?> intf : klass.getInterfaces()) {
@@ -11,7 +11,9 @@ public class EventsManagerModule extends AbstractModule {
 
 	@Override
 	public void install() {
-		if (getConfig().parallelEventHandling().getOneThreadPerHandler() != null && getConfig().parallelEventHandling().getOneThreadPerHandler()) {
+		if (getConfig().parallelEventHandling().getUseRingBuffer() != null && getConfig().parallelEventHandling().getUseRingBuffer()) {
+			bindEventsManager().to(RingBufferEventsManager.class).asEagerSingleton();
+		} else if (getConfig().parallelEventHandling().getOneThreadPerHandler() != null && getConfig().parallelEventHandling().getOneThreadPerHandler()) {
 			bindEventsManager().to(ParallelEventsManager.class).asEagerSingleton();
 		} else if (getConfig().parallelEventHandling().getNumberOfThreads() != null) {
 			if (getConfig().parallelEventHandling().getSynchronizeOnSimSteps() != null && getConfig().parallelEventHandling().getSynchronizeOnSimSteps()) {
@@ -0,0 +1,385 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.BinaryEventsFormat.ColumnSource;
+import org.matsim.core.events.BinaryEventsFormat.EventColumns;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads events files written by {@link org.matsim.core.events.algorithms.EventWriterBinary}, see
+ * {@link BinaryEventsFormat} for the file format.
+ * <p></p>
+ * Events of the standard types are created directly from their columns, with every Id created only once per file.
+ * All other events are handed as attributes to an {@link EventsReaderXMLv1}, so they are created exactly as when
+ * reading an xml events file, including the registered {@link CustomEventMapper}s.
+ */
+public class EventsReaderBinary implements MatsimReader {
+
+	private final EventsManager events;
+	private final EventsReaderXMLv1 attributesReader;
+	private final Stack<String> context = new Stack<>();
+
+	private final List<String> dictionary = new ArrayList<>();
+	private final List<Schema> schemas = new ArrayList<>();
+	private final Map<Class<?>, IdCache<?>> idCaches = new HashMap<>();
+	private final Source source = new Source();
+
+	private byte[] compressed = new byte[64 * 1024];
+	private byte[] block = new byte[256 * 1024];
+	/** read positions in the current block: the block header, the schema column and the time column */
+	private final int[] cursors = new int[3];
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.events = events;
+		this.attributesReader = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(final String eventType, final CustomEventMapper<?> cem) {
+		this.attributesReader.addCustomEventMapper(eventType, cem);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		try (InputStream stream = IOUtils.getInputStream(filename)) {
+			readStream(stream);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void readStream(final InputStream stream) {
+		reset();
+		Inflater inflater = new Inflater();
+		try {
+			DataInputStream in = new DataInputStream(stream);
+			byte[] magic = new byte[BinaryEventsFormat.MAGIC.length];
+			in.readFully(magic);
+			checkHeader(magic, in.readInt());
+			while (true) {
+				int length = in.readInt();
+				if (length == 0) {
+					break;
+				}
+				int compressedLength = in.readInt();
+				if (this.compressed.length < compressedLength) {
+					this.compressed = new byte[compressedLength];
+				}
+				if (this.block.length < length) {
+					this.block = new byte[length];
+				}
+				in.readFully(this.compressed, 0, compressedLength);
+				inflate(inflater, this.compressed, compressedLength, this.block, length);
+				readBlock();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	static void checkHeader(final byte[] magic, final int version) {
+		if (!Arrays.equals(magic, BinaryEventsFormat.MAGIC)) {
+			throw new IllegalArgumentException("The stream does not contain binary events.");
+		}
+		if (version != BinaryEventsFormat.VERSION) {
+			throw new IllegalArgumentException("Binary events version " + version + " is not supported.");
+		}
+	}
+
+	static void inflate(final Inflater inflater, final byte[] compressed, final int compressedLength, final byte[] block, final int length) throws IOException {
+		inflater.reset();
+		inflater.setInput(compressed, 0, compressedLength);
+		int inflated = 0;
+		try {
+			while (inflated < length) {
+				int count = inflater.inflate(block, inflated, length - inflated);
+				if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+					throw new EOFException("Truncated block in binary events.");
+				}
+				inflated += count;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Forgets the dictionary and schemas of the previously read file.
+	 */
+	void reset() {
+		this.dictionary.clear();
+		this.schemas.clear();
+		this.idCaches.clear();
+	}
+
+	/**
+	 * Creates the events of an uncompressed block. The blocks of a file must be passed in their order in the file,
+	 * after a call to {@link #reset()}.
+	 */
+	void processBlock(final byte[] block) {
+		this.block = block;
+		readBlock();
+	}
+
+	private void readBlock() {
+		int[] header = this.cursors;
+		header[0] = 0;
+		int newStrings = (int) readVarLong(header, 0);
+		for (int i = 0; i < newStrings; i++) {
+			int length = (int) readVarLong(header, 0);
+			this.dictionary.add(new String(this.block, header[0], length, StandardCharsets.UTF_8).intern());
+			header[0] += length;
+		}
+		int newSchemas = (int) readVarLong(header, 0);
+		for (int i = 0; i < newSchemas; i++) {
+			String eventType = this.dictionary.get((int) readVarLong(header, 0));
+			int columnCount = (int) readVarLong(header, 0);
+			String[] keys = new String[columnCount];
+			byte[] kinds = new byte[columnCount];
+			for (int c = 0; c < columnCount; c++) {
+				keys[c] = this.dictionary.get((int) readVarLong(header, 0));
+				kinds[c] = this.block[header[0]++];
+			}
+			this.schemas.add(new Schema(eventType, keys, kinds));
+		}
+		int eventCount = (int) readVarLong(header, 0);
+		header[1] = skipColumn(header);
+		header[2] = skipColumn(header);
+		int usedSchemas = (int) readVarLong(header, 0);
+		for (int i = 0; i < usedSchemas; i++) {
+			Schema schema = this.schemas.get((int) readVarLong(header, 0));
+			for (int c = 0; c < schema.keys.length; c++) {
+				schema.cursors[c] = skipColumn(header);
+			}
+		}
+
+		long lastTime = 0;
+		for (int i = 0; i < eventCount; i++) {
+			Schema schema = this.schemas.get((int) readVarLong(header, 1));
+			double time;
+			long encodedTime = readVarLong(header, 2);
+			if (encodedTime == 1) {
+				time = readDouble(header, 2);
+			} else {
+				lastTime += unZigZag(encodedTime >>> 1);
+				time = lastTime;
+			}
+			if (schema.standard != null) {
+				this.source.schema = schema;
+				this.events.processEvent(schema.standard.create(time, this.source));
+			} else {
+				processWithAttributes(schema, time);
+			}
+		}
+	}
+
+	private void processWithAttributes(final Schema schema, final double time) {
+		AttributesImpl atts = new AttributesImpl();
+		addAttribute(atts, Event.ATTRIBUTE_TIME, Double.toString(time));
+		addAttribute(atts, Event.ATTRIBUTE_TYPE, schema.eventType);
+		for (int c = 0; c < schema.keys.length; c++) {
+			String value;
+			if (schema.kinds[c] == BinaryEventsFormat.KIND_NUMBER) {
+				value = Double.toString(readNumber(schema.cursors, c));
+			} else {
+				value = readString(schema.cursors, c);
+			}
+			if (value != null) {
+				addAttribute(atts, schema.keys[c], value);
+			}
+		}
+		this.attributesReader.startTag(EventsReaderXMLv1.EVENT, atts, this.context);
+	}
+
+	private static void addAttribute(final AttributesImpl atts, final String key, final String value) {
+		atts.addAttribute("", key, key, "CDATA", value);
+	}
+
+	/**
+	 * Skips the length-prefixed column at the header position and returns the position of its first byte.
+	 */
+	private int skipColumn(final int[] header) {
+		int length = (int) readVarLong(header, 0);
+		int start = header[0];
+		header[0] += length;
+		return start;
+	}
+
+	private long readVarLong(final int[] positions, final int index) {
+		byte[] bytes = this.block;
+		int pos = positions[index];
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[pos++];
+			value |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		positions[index] = pos;
+		return value;
+	}
+
+	private double readDouble(final int[] positions, final int index) {
+		byte[] bytes = this.block;
+		int pos = positions[index];
+		long bits = 0;
+		for (int i = 0; i < 8; i++) {
+			bits = (bits << 8) | (bytes[pos++] & 0xFF);
+		}
+		positions[index] = pos;
+		return Double.longBitsToDouble(bits);
+	}
+
+	private double readNumber(final int[] positions, final int index) {
+		long encoded = readVarLong(positions, index);
+		if (encoded == 1) {
+			return readDouble(positions, index);
+		}
+		return unZigZag(encoded >>> 1);
+	}
+
+	private String readString(final int[] positions, final int index) {
+		int encoded = (int) readVarLong(positions, index);
+		return encoded == 0 ? null : this.dictionary.get(encoded - 1);
+	}
+
+	private static long unZigZag(final long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private final class Source implements ColumnSource {
+		Schema schema;
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> Id<T> id(final int column, final Class<T> idType) {
+			int encoded = (int) readVarLong(this.schema.cursors, column);
+			if (encoded == 0) {
+				return null;
+			}
+			IdCache<?> cache = this.schema.idCaches[column];
+			if (cache == null || cache.type != idType) {
+				cache = EventsReaderBinary.this.idCaches.get(idType);
+				if (cache == null) {
+					cache = new IdCache<>(idType);
+					EventsReaderBinary.this.idCaches.put(idType, cache);
+				}
+				this.schema.idCaches[column] = cache;
+			}
+			return ((IdCache<T>) cache).get(encoded - 1);
+		}
+
+		@Override
+		public String string(final int column) {
+			return readString(this.schema.cursors, column);
+		}
+
+		@Override
+		public double number(final int column) {
+			return readNumber(this.schema.cursors, column);
+		}
+	}
+
+	/**
+	 * The Ids of one type, by dictionary index.
+	 */
+	private final class IdCache<T> {
+		final Class<T> type;
+		private Id<T>[] ids;
+
+		@SuppressWarnings("unchecked")
+		IdCache(final Class<T> type) {
+			this.type = type;
+			this.ids = (Id<T>[]) new Id<?>[Math.max(16, EventsReaderBinary.this.dictionary.size())];
+		}
+
+		Id<T> get(final int index) {
+			if (index >= this.ids.length) {
+				this.ids = Arrays.copyOf(this.ids, Math.max(index + 1, EventsReaderBinary.this.dictionary.size()));
+			}
+			Id<T> id = this.ids[index];
+			if (id == null) {
+				id = Id.create(EventsReaderBinary.this.dictionary.get(index), this.type);
+				this.ids[index] = id;
+			}
+			return id;
+		}
+	}
+
+	private static final class Schema {
+		final String eventType;
+		final String[] keys;
+		final byte[] kinds;
+		/** the columns of the standard event type if the schema uses them, <code>null</code> otherwise */
+		final EventColumns<?> standard;
+		final int[] cursors;
+		final IdCache<?>[] idCaches;
+
+		Schema(final String eventType, final String[] keys, final byte[] kinds) {
+			this.eventType = eventType;
+			this.keys = keys;
+			this.kinds = kinds;
+			this.standard = findStandardColumns(eventType, keys, kinds);
+			this.cursors = new int[keys.length];
+			this.idCaches = new IdCache<?>[keys.length];
+		}
+
+		private static EventColumns<?> findStandardColumns(final String eventType, final String[] keys, final byte[] kinds) {
+			for (EventColumns<?> columns : BinaryEventsFormat.getStandardEventTypes()) {
+				if (columns.getEventType().equals(eventType) && columns.getColumnCount() == keys.length) {
+					boolean matches = true;
+					for (int c = 0; c < keys.length; c++) {
+						matches &= columns.getKey(c).equals(keys[c]) && columns.getKind(c) == kinds[c];
+					}
+					if (matches) {
+						return columns;
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+}
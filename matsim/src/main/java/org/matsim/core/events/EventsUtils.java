@@ -16,6 +16,18 @@ public class EventsUtils {
                 .getInstance(EventsManager.class);
     }
 
+    /**
+     * Reads the events file and passes its events in their original order to the events manager. With more than one
+     * thread, uncompressed xml and binary events files are read in parallel, see {@link ParallelEventsReader}.
+     */
+    public static void readEvents(EventsManager events, String filename, int numberOfThreads) {
+        if (numberOfThreads > 1) {
+            new ParallelEventsReader(events, numberOfThreads).readFile(filename);
+        } else {
+            new MatsimEventsReader(events).readFile(filename);
+        }
+    }
+
     /**
      * The SimStepParallelEventsManagerImpl can handle events from multiple threads.
      * The (Parallel)EventsMangerImpl cannot, therefore it has to be wrapped into a
@@ -52,7 +52,8 @@ public class MatsimEventsReader implements MatsimReader {
 	}
 
 	/**
-	 * Parses the specified events file.
+	 * Parses the specified events file. Files ending with ".bin" are read as binary events, see
+	 * {@link BinaryEventsFormat}.
 	 *
 	 * @param filename The name of the file to parse.
 	 */
@@ -61,6 +62,8 @@ public class MatsimEventsReader implements MatsimReader {
 		String lcFilename = filename.toLowerCase(Locale.ROOT);
 		if (lcFilename.endsWith(".xml") || lcFilename.endsWith(".xml.gz")) {
 			new XmlEventsReader(this.events).readFile(filename);
+		} else if (lcFilename.endsWith(".bin")) {
+			new EventsReaderBinary(this.events).readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -34,6 +34,7 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventHandlerDispatch;
 import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.utils.misc.Time;
@@ -62,6 +63,7 @@ public class ParallelEventsManager implements EventsManager {
 	private final boolean syncOnTimeSteps;
 	private final boolean oneThreadPerHandler;
 	private final int numOfThreads;
+	private final EventHandlerDispatch eventHandlerDispatch;
 	
 	private boolean parallelMode = false;
 		
@@ -92,21 +94,24 @@ public class ParallelEventsManager implements EventsManager {
 
 	@Inject
 	ParallelEventsManager(Config config) {
-		this(config.parallelEventHandling().getSynchronizeOnSimSteps() != null ? config.parallelEventHandling().getSynchronizeOnSimSteps() : true);
+		this(config.parallelEventHandling().getSynchronizeOnSimSteps() != null ? config.parallelEventHandling().getSynchronizeOnSimSteps() : true,
+				true, -1, config.parallelEventHandling().getEventHandlerDispatch());
 	}
 
 	public ParallelEventsManager(final boolean syncOnTimeSteps) {
-		this(syncOnTimeSteps, true, -1);
+		this(syncOnTimeSteps, true, -1, EventHandlerDispatch.reflection);
 	}
 	
 	public ParallelEventsManager(final boolean syncOnTimeSteps, final int numOfThreads) {
-		this(syncOnTimeSteps, false, numOfThreads);
+		this(syncOnTimeSteps, false, numOfThreads, EventHandlerDispatch.reflection);
 	}
 	
-	/*package*/ ParallelEventsManager(final boolean syncOnTimeSteps, final boolean oneThreadPerHandler, final int numOfThreads) {
+	/*package*/ ParallelEventsManager(final boolean syncOnTimeSteps, final boolean oneThreadPerHandler, final int numOfThreads,
+			final EventHandlerDispatch eventHandlerDispatch) {
 		this.syncOnTimeSteps = syncOnTimeSteps;
 		this.oneThreadPerHandler = oneThreadPerHandler;
 		this.numOfThreads = numOfThreads;
+		this.eventHandlerDispatch = eventHandlerDispatch;
 		
 		this.hadException = new AtomicBoolean(false);
 		
@@ -114,7 +119,7 @@ public class ParallelEventsManager implements EventsManager {
 		this.iterationEndBarrier = new Phaser(1);
 		
 		this.eventsHandlers = new ArrayList<EventHandler>();
-		this.singleThreadEventsHandler = new EventsManagerImpl();
+		this.singleThreadEventsHandler = new EventsManagerImpl(eventHandlerDispatch);
 		
 		if (syncOnTimeSteps) this.eventsArraySize = 512;
 		else this.eventsArraySize = 32768;
@@ -172,7 +177,7 @@ public class ParallelEventsManager implements EventsManager {
 		if (this.oneThreadPerHandler) {
 			for (int i = 0; i < this.eventsHandlers.size(); i++) this.eventsManagers[i] = new SingleHandlerEventsManager(this.eventsHandlers.get(i));
 		} else {
-			for (int i = 0; i < this.numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+			for (int i = 0; i < this.numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl(this.eventHandlerDispatch);
 			for (int i = 0; i < this.eventsHandlers.size(); i++) this.eventsManagers[this.eventsHandlers.size() % numOfThreads].addHandler(this.eventsHandlers.get(i));
 		}
 		
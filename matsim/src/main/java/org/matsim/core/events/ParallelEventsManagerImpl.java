@@ -27,7 +27,10 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventHandlerDispatch;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.metrics.Histogram;
+import org.matsim.core.metrics.MetricsRegistry;
 
 import javax.inject.Inject;
 
@@ -64,12 +67,16 @@ public class ParallelEventsManagerImpl implements EventsManager {
 	private boolean parallelMode = true;
 	private int numberOfThreads;
 	private EventsManagerImpl[] events = null;
+	private EventHandlerDispatch eventHandlerDispatch = EventHandlerDispatch.reflection;
 	private ProcessEventThread[] eventsProcessThread = null;
 	private Thread[] threads = null;
 	private int numberOfAddedEventsHandler = 0;
 	private final AtomicBoolean hadException = new AtomicBoolean(false);
 	private final ExceptionHandler uncaughtExceptionHandler = new ExceptionHandler(hadException);
 
+	// null if no metrics are collected, see controler.collectMetrics
+	private Histogram finishProcessingMetrics = null;
+
 	private final static Logger log = Logger.getLogger(ParallelEventsManagerImpl.class);
 
 	// this number should be set in the following way:
@@ -86,6 +93,7 @@ public class ParallelEventsManagerImpl implements EventsManager {
 		if (config.parallelEventHandling().getEstimatedNumberOfEvents() != null) {
 			preInputBufferMaxLength = (int) (config.parallelEventHandling().getEstimatedNumberOfEvents() / 10);
 		}
+		this.eventHandlerDispatch = config.parallelEventHandling().getEventHandlerDispatch();
 		init(config.parallelEventHandling().getNumberOfThreads());
 	}
 
@@ -165,7 +173,7 @@ public class ParallelEventsManagerImpl implements EventsManager {
 		this.threads = new Thread[numberOfThreads];
 		// the additional 1 is for the simulation barrier
 		for (int i = 0; i < numberOfThreads; i++) {
-			events[i] = (EventsManagerImpl) EventsUtils.createEventsManager();
+			events[i] = new EventsManagerImpl(this.eventHandlerDispatch);
 		}
 	}
 
@@ -177,6 +185,7 @@ public class ParallelEventsManagerImpl implements EventsManager {
 	// anymore
 	@Override
 	public void finishProcessing() {
+		long startNanos = System.nanoTime();
 		for (int i = 0; i < eventsProcessThread.length; i++) {
 			eventsProcessThread[i].close();
 		}
@@ -188,6 +197,7 @@ public class ParallelEventsManagerImpl implements EventsManager {
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
+		if (this.finishProcessingMetrics != null) this.finishProcessingMetrics.recordSince(startNanos);
 		
 		// list which threads had which handlers to debug performance issues
 		printEventHandlers();
@@ -210,8 +220,12 @@ public class ParallelEventsManagerImpl implements EventsManager {
 	// prepare for next iteration
 	@Override
 	public void initProcessing() {
+		MetricsRegistry metrics = MetricsRegistry.getCurrent();
+		this.finishProcessingMetrics = metrics == null ? null : metrics.histogram("events.finishProcessing");
+
 		// reset this class, so that it can be reused for the next iteration
 		for (int i = 0; i < numberOfThreads; i++) {
+			this.events[i].initProcessing();
 			this.eventsProcessThread[i] = new ProcessEventThread(events[i], preInputBufferMaxLength);
 			this.threads[i] = new Thread(eventsProcessThread[i], "Events-" + i);
 			this.threads[i].setUncaughtExceptionHandler(this.uncaughtExceptionHandler);
@@ -0,0 +1,473 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelEventsReader.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.Inflater;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.internal.MatsimReader;
+import org.matsim.core.events.EventsReaderXMLv1.CustomEventMapper;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Reads an events file with several threads and passes the events in their original order to an
+ * {@link EventsManager}.
+ * <p></p>
+ * The file is memory-mapped and split into chunks. For uncompressed xml files, every chunk ends after a tag and is
+ * parsed by one of the threads, creating the events as {@link EventsReaderXMLv1} does. For binary events files (see
+ * {@link BinaryEventsFormat}), the threads decompress the blocks, while the events are created by the calling thread
+ * as the dictionary of a block depends on the previous blocks. Compressed xml files cannot be split and are read
+ * with a single thread, as are all files if only one thread is requested.
+ * <p></p>
+ * The xml parser only understands the flat structure of events files as written by
+ * {@link org.matsim.core.events.algorithms.EventWriterXML}: comments and character data are skipped, DTDs are not
+ * evaluated.
+ */
+public final class ParallelEventsReader implements MatsimReader {
+
+	private final static Logger log = Logger.getLogger(ParallelEventsReader.class);
+
+	static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+	private final EventsManager events;
+	private final int numberOfThreads;
+	private final int chunkSize;
+	private final Map<String, CustomEventMapper<?>> customEventMappers = new HashMap<>();
+
+	public ParallelEventsReader(final EventsManager events, final int numberOfThreads) {
+		this(events, numberOfThreads, DEFAULT_CHUNK_SIZE);
+	}
+
+	ParallelEventsReader(final EventsManager events, final int numberOfThreads, final int chunkSize) {
+		this.events = events;
+		this.numberOfThreads = numberOfThreads;
+		this.chunkSize = chunkSize;
+	}
+
+	public void addCustomEventMapper(final String eventType, final CustomEventMapper<?> cem) {
+		this.customEventMappers.put(eventType, cem);
+	}
+
+	@Override
+	public void readFile(final String filename) {
+		String lcFilename = filename.toLowerCase(Locale.ROOT);
+		boolean binary = lcFilename.endsWith(".bin");
+		boolean xml = lcFilename.endsWith(".xml");
+		if (this.numberOfThreads <= 1 || !(binary || xml) || !new File(filename).isFile()) {
+			if (this.numberOfThreads > 1 && !binary) {
+				log.info("reading " + filename + " with one thread, as only uncompressed xml or binary events files can be split.");
+			}
+			if (binary) {
+				createBinaryReader(this.events).readFile(filename);
+			} else {
+				createXmlReader(this.events).readFile(filename);
+			}
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberOfThreads, new NamedThreadFactory());
+		try (FileChannel channel = FileChannel.open(new File(filename).toPath(), StandardOpenOption.READ)) {
+			MappedFile file = new MappedFile(channel);
+			if (binary) {
+				readBinary(file, executor);
+			} else {
+				readXml(file, executor);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void readXml(final MappedFile file, final ExecutorService executor) throws IOException {
+		Deque<Future<List<Event>>> pending = new ArrayDeque<>();
+		long start = 0;
+		while (start < file.size || !pending.isEmpty()) {
+			while (start < file.size && pending.size() < 2 * this.numberOfThreads) {
+				long end = findChunkEnd(file, start);
+				pending.add(executor.submit(new XmlChunk(file, start, (int) (end - start))));
+				start = end;
+			}
+			for (Event event : take(pending)) {
+				this.events.processEvent(event);
+			}
+		}
+	}
+
+	private long findChunkEnd(final MappedFile file, final long start) {
+		long end = start + this.chunkSize;
+		if (end >= file.size) {
+			return file.size;
+		}
+		// the characters '<' and '>' are escaped in attribute values, so every '>' ends a tag
+		while (end < file.size && file.get(end - 1) != '>') {
+			end++;
+		}
+		return end;
+	}
+
+	private void readBinary(final MappedFile file, final ExecutorService executor) throws IOException {
+		byte[] magic = file.read(0, BinaryEventsFormat.MAGIC.length);
+		EventsReaderBinary.checkHeader(magic, file.getInt(magic.length));
+		EventsReaderBinary reader = createBinaryReader(this.events);
+		reader.reset();
+		Deque<Future<byte[]>> pending = new ArrayDeque<>();
+		long position = magic.length + 4;
+		boolean endOfFile = false;
+		while (!endOfFile || !pending.isEmpty()) {
+			while (!endOfFile && pending.size() < 2 * this.numberOfThreads) {
+				int length = file.getInt(position);
+				if (length == 0) {
+					endOfFile = true;
+				} else {
+					int compressedLength = file.getInt(position + 4);
+					pending.add(executor.submit(new BinaryBlock(file, position + 8, compressedLength, length)));
+					position += 8 + compressedLength;
+				}
+			}
+			if (!pending.isEmpty()) {
+				reader.processBlock(take(pending));
+			}
+		}
+	}
+
+	private static <T> T take(final Deque<Future<T>> pending) {
+		try {
+			return pending.poll().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw new UncheckedIOException((IOException) cause);
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private EventsReaderXMLv1 createXmlReader(final EventsManager eventsManager) {
+		EventsReaderXMLv1 reader = new EventsReaderXMLv1(eventsManager);
+		for (Map.Entry<String, CustomEventMapper<?>> e : this.customEventMappers.entrySet()) {
+			reader.addCustomEventMapper(e.getKey(), e.getValue());
+		}
+		return reader;
+	}
+
+	private EventsReaderBinary createBinaryReader(final EventsManager eventsManager) {
+		EventsReaderBinary reader = new EventsReaderBinary(eventsManager);
+		for (Map.Entry<String, CustomEventMapper<?>> e : this.customEventMappers.entrySet()) {
+			reader.addCustomEventMapper(e.getKey(), e.getValue());
+		}
+		return reader;
+	}
+
+	private final class XmlChunk implements Callable<List<Event>> {
+		private final MappedFile file;
+		private final long start;
+		private final int length;
+
+		XmlChunk(final MappedFile file, final long start, final int length) {
+			this.file = file;
+			this.start = start;
+			this.length = length;
+		}
+
+		@Override
+		public List<Event> call() {
+			byte[] bytes = this.file.read(this.start, this.length);
+			CollectingEventsManager collector = new CollectingEventsManager();
+			EventsReaderXMLv1 reader = createXmlReader(collector);
+			Stack<String> context = new Stack<>();
+			AttributesImpl atts = new AttributesImpl();
+			int pos = 0;
+			while ((pos = indexOf(bytes, (byte) '<', pos, bytes.length)) >= 0) {
+				if (startsWith(bytes, pos, "<!--")) {
+					pos = indexOf(bytes, "-->", pos + 4);
+				} else if (startsWith(bytes, pos, "<event") && pos + 6 < bytes.length && isWhitespace(bytes[pos + 6])) {
+					atts.clear();
+					pos = parseAttributes(bytes, pos + 6, atts);
+					reader.startTag(EventsReaderXMLv1.EVENT, atts, context);
+				} else {
+					pos = indexOf(bytes, (byte) '>', pos, bytes.length);
+				}
+				if (pos < 0) {
+					break;
+				}
+			}
+			return collector.events;
+		}
+	}
+
+	/**
+	 * Parses the attributes up to the end of the tag and returns the position after the tag.
+	 */
+	private static int parseAttributes(final byte[] bytes, int pos, final AttributesImpl atts) {
+		while (pos < bytes.length) {
+			byte b = bytes[pos];
+			if (b == '/' || b == '>') {
+				return indexOf(bytes, (byte) '>', pos, bytes.length) + 1;
+			}
+			if (isWhitespace(b)) {
+				pos++;
+				continue;
+			}
+			int nameStart = pos;
+			while (bytes[pos] != '=' && !isWhitespace(bytes[pos])) {
+				pos++;
+			}
+			String name = new String(bytes, nameStart, pos - nameStart, StandardCharsets.UTF_8);
+			while (bytes[pos] != '"' && bytes[pos] != '\'') {
+				pos++;
+			}
+			byte quote = bytes[pos];
+			int valueStart = pos + 1;
+			int valueEnd = indexOf(bytes, quote, valueStart, bytes.length);
+			if (valueEnd < 0) {
+				throw new IllegalArgumentException("Unterminated attribute value in events file: " + name);
+			}
+			String value = new String(bytes, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+			if (value.indexOf('&') >= 0) {
+				value = decodeEntities(value);
+			}
+			atts.addAttribute("", name, name, "CDATA", value);
+			pos = valueEnd + 1;
+		}
+		return pos;
+	}
+
+	private static String decodeEntities(final String value) {
+		StringBuilder str = new StringBuilder(value.length());
+		int pos = 0;
+		while (pos < value.length()) {
+			char ch = value.charAt(pos);
+			int end = ch == '&' ? value.indexOf(';', pos) : -1;
+			if (end < 0) {
+				str.append(ch);
+				pos++;
+				continue;
+			}
+			String entity = value.substring(pos + 1, end);
+			if (entity.equals("lt")) {
+				str.append('<');
+			} else if (entity.equals("gt")) {
+				str.append('>');
+			} else if (entity.equals("amp")) {
+				str.append('&');
+			} else if (entity.equals("quot")) {
+				str.append('"');
+			} else if (entity.equals("apos")) {
+				str.append('\'');
+			} else if (entity.startsWith("#x")) {
+				str.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+			} else if (entity.startsWith("#")) {
+				str.appendCodePoint(Integer.parseInt(entity.substring(1)));
+			} else {
+				throw new IllegalArgumentException("Unknown entity &" + entity + "; in events file.");
+			}
+			pos = end + 1;
+		}
+		return str.toString();
+	}
+
+	private static boolean isWhitespace(final byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+	}
+
+	private static boolean startsWith(final byte[] bytes, final int pos, final String prefix) {
+		if (pos + prefix.length() > bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (bytes[pos + i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(final byte[] bytes, final byte b, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int indexOf(final byte[] bytes, final String str, final int from) {
+		for (int i = from; i <= bytes.length - str.length(); i++) {
+			if (startsWith(bytes, i, str)) {
+				return i + str.length() - 1;
+			}
+		}
+		return -1;
+	}
+
+	private static final class BinaryBlock implements Callable<byte[]> {
+		private final MappedFile file;
+		private final long start;
+		private final int compressedLength;
+		private final int length;
+
+		BinaryBlock(final MappedFile file, final long start, final int compressedLength, final int length) {
+			this.file = file;
+			this.start = start;
+			this.compressedLength = compressedLength;
+			this.length = length;
+		}
+
+		@Override
+		public byte[] call() throws IOException {
+			byte[] compressed = this.file.read(this.start, this.compressedLength);
+			byte[] block = new byte[this.length];
+			Inflater inflater = new Inflater();
+			try {
+				EventsReaderBinary.inflate(inflater, compressed, this.compressedLength, block, this.length);
+			} finally {
+				inflater.end();
+			}
+			return block;
+		}
+	}
+
+	/**
+	 * A read-only memory mapping of a file, split into regions as a single mapping is limited to 2 GB.
+	 */
+	private static final class MappedFile {
+		private static final int REGION_BITS = 30;
+		private static final long REGION_MASK = (1L << REGION_BITS) - 1;
+
+		final long size;
+		private final MappedByteBuffer[] regions;
+
+		MappedFile(final FileChannel channel) throws IOException {
+			this.size = channel.size();
+			this.regions = new MappedByteBuffer[(int) ((this.size + REGION_MASK) >>> REGION_BITS)];
+			for (int i = 0; i < this.regions.length; i++) {
+				long start = (long) i << REGION_BITS;
+				this.regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_MASK + 1, this.size - start));
+			}
+		}
+
+		byte get(final long position) {
+			return this.regions[(int) (position >>> REGION_BITS)].get((int) (position & REGION_MASK));
+		}
+
+		int getInt(final long position) {
+			return ((get(position) & 0xFF) << 24) | ((get(position + 1) & 0xFF) << 16) | ((get(position + 2) & 0xFF) << 8) | (get(position + 3) & 0xFF);
+		}
+
+		byte[] read(long position, final int length) {
+			byte[] bytes = new byte[length];
+			int offset = 0;
+			while (offset < length) {
+				// the buffers are shared by the threads, so each read uses its own view with its own position
+				ByteBuffer region = this.regions[(int) (position >>> REGION_BITS)].duplicate();
+				int regionPosition = (int) (position & REGION_MASK);
+				int count = Math.min(length - offset, region.limit() - regionPosition);
+				region.position(regionPosition);
+				region.get(bytes, offset, count);
+				offset += count;
+				position += count;
+			}
+			return bytes;
+		}
+	}
+
+	/**
+	 * Collects the events created by the {@link EventsReaderXMLv1} of one chunk.
+	 */
+	private static final class CollectingEventsManager implements EventsManager {
+		final List<Event> events = new ArrayList<>();
+
+		@Override
+		public void processEvent(final Event event) {
+			this.events.add(event);
+		}
+
+		@Override
+		public void addHandler(final EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void removeHandler(final EventHandler handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void resetHandlers(final int iteration) {
+		}
+
+		@Override
+		public void initProcessing() {
+		}
+
+		@Override
+		public void afterSimStep(final double time) {
+		}
+
+		@Override
+		public void finishProcessing() {
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private int count = 0;
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "ParallelEventsReader_" + this.count++);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -0,0 +1,400 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManager.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.inject.Inject;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventHandlerDispatch;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.metrics.Histogram;
+import org.matsim.core.metrics.MetricsRegistry;
+
+/**
+ * An EventsManager that hands the events to its handler threads through a pre-allocated ring buffer,
+ * without locks and without allocating queue entries.
+ * <p></p>
+ * During the mobsim (between {@link #initProcessing()} and {@link #finishProcessing()}), the events are
+ * written into the ring buffer by a single producer; if several threads create events, they have to be
+ * serialized, e.g. with {@link EventsUtils#getParallelFeedableInstance(EventsManager)}. Every consumer
+ * thread reads all events, in batches up to the latest published sequence number, and passes them to its
+ * own {@link EventsManagerImpl}. The event handlers are distributed among the consumers and stay with their
+ * consumer for the whole iteration, so every handler sees the events in the order they were created.
+ * <p></p>
+ * If the events are synchronized on sim steps, {@link #afterSimStep(double)} waits until the sequence
+ * numbers of all consumers have reached the one of the producer. Events created by event handlers
+ * while processing are collected and published by the producer before the sim step ends.
+ * <p></p>
+ * Outside of the mobsim, all events are processed directly in the calling thread.
+ */
+public final class RingBufferEventsManager implements EventsManager {
+
+	private final static Logger log = Logger.getLogger(RingBufferEventsManager.class);
+
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	// number of busy spins and yields before a waiting thread is parked
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 100;
+	private static final long PARK_NANOS = 50000;
+
+	private final int numberOfThreads;
+	private final boolean syncOnSimSteps;
+	private final EventHandlerDispatch eventHandlerDispatch;
+
+	private final Event[] buffer;
+	private final int mask;
+	// consumers publish their sequence after at most this many events, so that the producer can continue
+	private final int maxBatchSize;
+
+	private final List<EventHandler> eventHandlers = new ArrayList<>();
+	private final EventsManagerImpl delegate;
+
+	/* number of events published to the consumers */
+	private final Sequence cursor = new Sequence();
+	/* only accessed by the producer */
+	private long nextSequence = 0;
+	private long cachedMinConsumerSequence = 0;
+
+	private ConsumerThread[] consumers = null;
+	private volatile boolean running = false;
+	private boolean parallelMode = false;
+
+	private final Queue<Event> eventsFromHandlers = new ConcurrentLinkedQueue<>();
+	private final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+	// null if no metrics are collected, see controler.collectMetrics
+	private Histogram afterSimStepMetrics = null;
+	private Histogram finishProcessingMetrics = null;
+
+	@Inject
+	RingBufferEventsManager(ParallelEventHandlingConfigGroup config) {
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1,
+				config.getSynchronizeOnSimSteps() != null ? config.getSynchronizeOnSimSteps() : true,
+				DEFAULT_BUFFER_SIZE, config.getEventHandlerDispatch());
+	}
+
+	public RingBufferEventsManager(final int numberOfThreads, final boolean syncOnSimSteps) {
+		this(numberOfThreads, syncOnSimSteps, DEFAULT_BUFFER_SIZE, EventHandlerDispatch.reflection);
+	}
+
+	/**
+	 * @param bufferSize number of events in the ring buffer, must be a power of two
+	 */
+	public RingBufferEventsManager(final int numberOfThreads, final boolean syncOnSimSteps, final int bufferSize,
+			final EventHandlerDispatch eventHandlerDispatch) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("number of threads must be at least 1, but is " + numberOfThreads);
+		}
+		if (bufferSize < 2 || Integer.bitCount(bufferSize) != 1) {
+			throw new IllegalArgumentException("buffer size must be a power of two, but is " + bufferSize);
+		}
+		this.numberOfThreads = numberOfThreads;
+		this.syncOnSimSteps = syncOnSimSteps;
+		this.eventHandlerDispatch = eventHandlerDispatch;
+		this.buffer = new Event[bufferSize];
+		this.mask = bufferSize - 1;
+		this.maxBatchSize = Math.max(1, bufferSize / 4);
+		this.delegate = new EventsManagerImpl(eventHandlerDispatch);
+	}
+
+	@Override
+	public void processEvent(final Event event) {
+		if (!this.parallelMode) {
+			this.delegate.processEvent(event);
+			return;
+		}
+		Thread thread = Thread.currentThread();
+		if (thread instanceof ConsumerThread && ((ConsumerThread) thread).getEventsManager() == this) {
+			// created by an event handler; a consumer must never wait for free space in the buffer
+			this.eventsFromHandlers.add(event);
+			return;
+		}
+		if (!this.eventsFromHandlers.isEmpty()) {
+			publishEventsFromHandlers();
+		}
+		publish(event);
+	}
+
+	private void publish(final Event event) {
+		long sequence = this.nextSequence;
+		if (sequence - this.buffer.length >= this.cachedMinConsumerSequence) {
+			// the slot might not yet have been processed by all consumers
+			this.cachedMinConsumerSequence = awaitConsumers(sequence - this.buffer.length + 1);
+		}
+		this.buffer[(int) sequence & this.mask] = event;
+		this.nextSequence = sequence + 1;
+		this.cursor.setOrdered(sequence + 1);
+	}
+
+	private void publishEventsFromHandlers() {
+		Event event;
+		while ((event = this.eventsFromHandlers.poll()) != null) {
+			publish(event);
+		}
+	}
+
+	/**
+	 * Waits until all consumers have processed the given number of events.
+	 *
+	 * @return the minimal number of events processed by a consumer
+	 */
+	private long awaitConsumers(final long sequence) {
+		int tries = 0;
+		while (true) {
+			long min = Long.MAX_VALUE;
+			for (ConsumerThread consumer : this.consumers) {
+				min = Math.min(min, consumer.sequence.get());
+			}
+			if (min >= sequence) {
+				return min;
+			}
+			Throwable t = this.exception.get();
+			if (t != null) {
+				throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", t);
+			}
+			tries = backOff(tries);
+		}
+	}
+
+	private void awaitAllEventsProcessed() {
+		while (true) {
+			this.cachedMinConsumerSequence = awaitConsumers(this.nextSequence);
+			if (this.eventsFromHandlers.isEmpty()) {
+				return;
+			}
+			publishEventsFromHandlers();
+		}
+	}
+
+	private static int backOff(final int tries) {
+		if (tries < SPIN_TRIES) {
+			// busy spin
+		} else if (tries < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		return tries + 1;
+	}
+
+	@Override
+	public void addHandler(final EventHandler handler) {
+		if (this.parallelMode) {
+			throw new RuntimeException("Cannot add an event handler while the events are processed in parallel.");
+		}
+		this.eventHandlers.add(handler);
+		this.delegate.addHandler(handler);
+	}
+
+	@Override
+	public void removeHandler(final EventHandler handler) {
+		if (this.parallelMode) {
+			log.warn("Removing EventHandler while the events are processed in parallel. This is not expected to happen.");
+			for (ConsumerThread consumer : this.consumers) {
+				consumer.eventsManager.removeHandler(handler);
+			}
+		}
+		this.eventHandlers.remove(handler);
+		this.delegate.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(final int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		MetricsRegistry metrics = MetricsRegistry.getCurrent();
+		this.afterSimStepMetrics = metrics == null ? null : metrics.histogram("events.afterSimStep");
+		this.finishProcessingMetrics = metrics == null ? null : metrics.histogram("events.finishProcessing");
+
+		this.delegate.initProcessing();
+		int numberOfConsumers = Math.min(this.numberOfThreads, this.eventHandlers.size());
+		if (numberOfConsumers == 0) {
+			// nothing to distribute, process events directly
+			return;
+		}
+
+		this.consumers = new ConsumerThread[numberOfConsumers];
+		for (int i = 0; i < numberOfConsumers; i++) {
+			this.consumers[i] = new ConsumerThread(i, new EventsManagerImpl(this.eventHandlerDispatch));
+		}
+		for (int i = 0; i < this.eventHandlers.size(); i++) {
+			this.consumers[i % numberOfConsumers].eventsManager.addHandler(this.eventHandlers.get(i));
+		}
+
+		this.nextSequence = 0;
+		this.cachedMinConsumerSequence = 0;
+		this.cursor.set(0);
+		this.exception.set(null);
+		this.running = true;
+		for (ConsumerThread consumer : this.consumers) {
+			consumer.eventsManager.initProcessing();
+			consumer.start();
+		}
+		this.parallelMode = true;
+	}
+
+	@Override
+	public void afterSimStep(final double time) {
+		if (!this.parallelMode) {
+			return;
+		}
+		if (this.syncOnSimSteps) {
+			long startNanos = this.afterSimStepMetrics != null ? System.nanoTime() : 0;
+			awaitAllEventsProcessed();
+			if (this.afterSimStepMetrics != null) this.afterSimStepMetrics.recordSince(startNanos);
+		} else if (!this.eventsFromHandlers.isEmpty()) {
+			publishEventsFromHandlers();
+		}
+	}
+
+	@Override
+	public void finishProcessing() {
+		if (this.parallelMode) {
+			try {
+				long startNanos = System.nanoTime();
+				awaitAllEventsProcessed();
+				if (this.finishProcessingMetrics != null) this.finishProcessingMetrics.recordSince(startNanos);
+			} finally {
+				stopConsumers();
+			}
+		}
+		this.delegate.finishProcessing();
+	}
+
+	private void stopConsumers() {
+		this.running = false;
+		for (ConsumerThread consumer : this.consumers) {
+			try {
+				consumer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			consumer.eventsManager.finishProcessing();
+		}
+		this.consumers = null;
+		this.parallelMode = false;
+		Arrays.fill(this.buffer, null);
+
+		/*
+		 * Events which were still created by the handlers after the last sim step are processed
+		 * directly from now on, like all events outside of the mobsim.
+		 */
+		Event event;
+		while ((event = this.eventsFromHandlers.poll()) != null) {
+			this.delegate.processEvent(event);
+		}
+
+		Throwable t = this.exception.getAndSet(null);
+		if (t != null) {
+			throw new RuntimeException("Exception while processing events. Cannot guarantee that all events have been fully processed.", t);
+		}
+	}
+
+	private final class ConsumerThread extends Thread {
+
+		/* number of events processed by this consumer */
+		private final Sequence sequence = new Sequence();
+		private final EventsManagerImpl eventsManager;
+
+		ConsumerThread(final int index, final EventsManagerImpl eventsManager) {
+			super("RingBufferEventsManager-" + index);
+			this.eventsManager = eventsManager;
+			setDaemon(true);
+		}
+
+		RingBufferEventsManager getEventsManager() {
+			return RingBufferEventsManager.this;
+		}
+
+		@Override
+		public void run() {
+			try {
+				long next = 0;
+				int tries = 0;
+				while (true) {
+					long available = RingBufferEventsManager.this.cursor.get();
+					if (available == next) {
+						if (!RingBufferEventsManager.this.running && available == RingBufferEventsManager.this.cursor.get()) {
+							return;
+						}
+						tries = backOff(tries);
+						continue;
+					}
+					tries = 0;
+					long end = Math.min(available, next + RingBufferEventsManager.this.maxBatchSize);
+					for (long s = next; s < end; s++) {
+						this.eventsManager.processEvent(RingBufferEventsManager.this.buffer[(int) s & RingBufferEventsManager.this.mask]);
+					}
+					next = end;
+					this.sequence.setOrdered(next);
+				}
+			} catch (Throwable t) {
+				RingBufferEventsManager.this.exception.compareAndSet(null, t);
+			}
+		}
+	}
+
+	/**
+	 * A sequence number, padded to avoid false sharing between the producer and the consumers.
+	 */
+	@SuppressWarnings("unused")
+	private static final class Sequence {
+
+		private static final AtomicLongFieldUpdater<Sequence> UPDATER = AtomicLongFieldUpdater.newUpdater(Sequence.class, "value");
+
+		private long p1, p2, p3, p4, p5, p6, p7;
+		private volatile long value = 0;
+		private long q1, q2, q3, q4, q5, q6, q7;
+
+		long get() {
+			return this.value;
+		}
+
+		void set(final long value) {
+			this.value = value;
+		}
+
+		/**
+		 * Sets the value without a full memory barrier; all writes before are still visible to a thread reading the new value.
+		 */
+		void setOrdered(final long value) {
+			UPDATER.lazySet(this, value);
+		}
+	}
+
+}
@@ -24,8 +24,11 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventHandlerDispatch;
 import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.metrics.Histogram;
+import org.matsim.core.metrics.MetricsRegistry;
 
 import javax.inject.Inject;
 import java.lang.Thread.UncaughtExceptionHandler;
@@ -52,6 +55,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	private final static Logger log = Logger.getLogger(SimStepParallelEventsManagerImpl.class);
 	
 	private final int numOfThreads;
+	private final EventHandlerDispatch eventHandlerDispatch;
 	private CyclicBarrier simStepEndBarrier;
 	private CyclicBarrier iterationEndBarrier;
     private ProcessEventsRunnable[] runnables;
@@ -65,9 +69,13 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	private AtomicLong counter;
 	private AtomicReference<Throwable> hadException = new AtomicReference<>();
 
+	// null if no metrics are collected, see controler.collectMetrics
+	private Histogram afterSimStepMetrics = null;
+	private Histogram finishProcessingMetrics = null;
+
 	@Inject
 	SimStepParallelEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
-		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1);
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, config.getEventHandlerDispatch());
 	}
 
     public SimStepParallelEventsManagerImpl() {
@@ -75,7 +83,12 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	}
 	
 	public SimStepParallelEventsManagerImpl(int numOfThreads) {
+		this(numOfThreads, EventHandlerDispatch.reflection);
+	}
+
+	private SimStepParallelEventsManagerImpl(int numOfThreads, EventHandlerDispatch eventHandlerDispatch) {
 		this.numOfThreads = numOfThreads;
+		this.eventHandlerDispatch = eventHandlerDispatch;
 		init();
 	}
 	
@@ -85,10 +98,10 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		this.simStepEndBarrier = new CyclicBarrier(this.numOfThreads + 1);
 		this.iterationEndBarrier = new CyclicBarrier(this.numOfThreads + 1);
 		
-		this.delegate = new EventsManagerImpl();
+		this.delegate = new EventsManagerImpl(this.eventHandlerDispatch);
 
 		this.eventsManagers = new EventsManagerImpl[this.numOfThreads];
-		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+		for (int i = 0; i < numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl(this.eventHandlerDispatch);
 	}
 
 	@Override
@@ -123,6 +136,10 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 
 	@Override
 	public void initProcessing() {
+		MetricsRegistry metrics = MetricsRegistry.getCurrent();
+		this.afterSimStepMetrics = metrics == null ? null : metrics.histogram("events.afterSimStep");
+		this.finishProcessingMetrics = metrics == null ? null : metrics.histogram("events.finishProcessing");
+
 		delegate.initProcessing();
 		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
 
@@ -190,12 +207,14 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		 */
 		Throwable throwable = this.hadException.get();
 		if (throwable == null) {
+			long startNanos = System.nanoTime();
 			try {
 				this.processEvent(new LastEventOfIteration(Double.POSITIVE_INFINITY));
 				iterationEndBarrier.await();
 			} catch (InterruptedException | BrokenBarrierException e) {
 				this.hadException.set(e);
 			}
+			if (this.finishProcessingMetrics != null) this.finishProcessingMetrics.recordSince(startNanos);
         }
 		
 		delegate.finishProcessing();
@@ -224,6 +243,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 			return;
 		}
 		
+		long startNanos = this.afterSimStepMetrics != null ? System.nanoTime() : 0;
 		try {
 			Gbl.assertNotNull( this.processedEventsChecker );
 			this.processedEventsChecker.setTime(time);
@@ -232,6 +252,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		} catch (InterruptedException | BrokenBarrierException e) {
 			throw new RuntimeException(e);
 		}
+		if (this.afterSimStepMetrics != null) this.afterSimStepMetrics.recordSince(startNanos);
     }
 	
 	private static class ProcessEventsRunnable implements Runnable {
@@ -0,0 +1,395 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.BinaryEventsFormat;
+import org.matsim.core.events.BinaryEventsFormat.ColumnSink;
+import org.matsim.core.events.BinaryEventsFormat.EventColumns;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes events in the binary format described in {@link BinaryEventsFormat}. The files are considerably smaller
+ * and faster to write and read than xml events files, and can be read with
+ * {@link org.matsim.core.events.MatsimEventsReader} if their name ends with ".bin".
+ */
+public class EventWriterBinary implements EventWriter, BasicEventHandler, ColumnSink {
+
+	private final DataOutputStream out;
+	private final int blockSize;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] compressed = new byte[64 * 1024];
+
+	private final Map<Object, Integer> dictionaryByObject = new IdentityHashMap<>();
+	private final Map<String, Integer> dictionary = new HashMap<>();
+	private final List<String> newStrings = new ArrayList<>();
+
+	private final Map<Class<?>, Schema> standardSchemas = new HashMap<>();
+	private final Map<List<String>, Schema> genericSchemas = new HashMap<>();
+	private final List<Schema> schemas = new ArrayList<>();
+	private int firstNewSchema = 0;
+
+	private final ByteColumn schemaColumn = new ByteColumn();
+	private final ByteColumn timeColumn = new ByteColumn();
+	private final ByteColumn block = new ByteColumn();
+	private long lastTime = 0;
+	private int eventCount = 0;
+	private Schema current = null;
+
+	public EventWriterBinary(final String filename) {
+		this(IOUtils.getOutputStream(filename), BinaryEventsFormat.BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream, final int blockSize) {
+		this.out = new DataOutputStream(stream);
+		this.blockSize = blockSize;
+		try {
+			this.out.write(BinaryEventsFormat.MAGIC);
+			this.out.writeInt(BinaryEventsFormat.VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		Schema schema = this.standardSchemas.get(event.getClass());
+		Map<String, String> attributes = null;
+		if (schema == null) {
+			EventColumns<?> standard = findStandardColumns(event);
+			if (standard != null) {
+				schema = new Schema(this.schemas.size(), standard.getEventType(), standard);
+				this.schemas.add(schema);
+				this.standardSchemas.put(event.getClass(), schema);
+			} else {
+				attributes = event.getAttributes();
+				schema = getGenericSchema(event.getEventType(), attributes);
+			}
+		}
+		this.eventCount++;
+		this.schemaColumn.writeVarInt(schema.index);
+		double time = event.getTime();
+		if (BinaryEventsFormat.isInteger(time)) {
+			this.timeColumn.writeVarLong(zigZag((long) time - this.lastTime) << 1);
+			this.lastTime = (long) time;
+		} else {
+			this.timeColumn.writeVarLong(1);
+			this.timeColumn.writeDouble(time);
+		}
+		this.current = schema;
+		schema.rows++;
+		if (attributes == null) {
+			schema.standard.write(event, this);
+		} else {
+			int column = 0;
+			for (Map.Entry<String, String> e : attributes.entrySet()) {
+				if (!isTimeOrType(e.getKey())) {
+					string(column++, e.getValue());
+				}
+			}
+		}
+		if (this.eventCount >= this.blockSize) {
+			writeBlock();
+		}
+	}
+
+	@Override
+	public void string(final int column, final Object value) {
+		ByteColumn bytes = this.current.columns[column];
+		if (value == null) {
+			bytes.writeVarInt(0);
+		} else {
+			bytes.writeVarInt(lookup(value) + 1);
+		}
+	}
+
+	@Override
+	public void number(final int column, final double value) {
+		ByteColumn bytes = this.current.columns[column];
+		if (BinaryEventsFormat.isInteger(value)) {
+			bytes.writeVarLong(zigZag((long) value) << 1);
+		} else {
+			bytes.writeVarLong(1);
+			bytes.writeDouble(value);
+		}
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			if (this.eventCount > 0) {
+				writeBlock();
+			}
+			this.out.writeInt(0);
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.deflater.end();
+		}
+	}
+
+	private Schema getGenericSchema(final String eventType, final Map<String, String> attributes) {
+		List<String> key = new ArrayList<>(attributes.size());
+		key.add(eventType);
+		for (String attribute : attributes.keySet()) {
+			if (!isTimeOrType(attribute)) {
+				key.add(attribute);
+			}
+		}
+		Schema schema = this.genericSchemas.get(key);
+		if (schema == null) {
+			schema = new Schema(this.schemas.size(), eventType, key.subList(1, key.size()).toArray(new String[key.size() - 1]));
+			this.genericSchemas.put(key, schema);
+			this.schemas.add(schema);
+		}
+		return schema;
+	}
+
+	private static EventColumns<?> findStandardColumns(final Event event) {
+		for (EventColumns<?> columns : BinaryEventsFormat.getStandardEventTypes()) {
+			// subclasses may have additional attributes, so they are written like any other event
+			if (columns.getEventClass() == event.getClass()) {
+				return columns;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isTimeOrType(final String attribute) {
+		return Event.ATTRIBUTE_TIME.equals(attribute) || Event.ATTRIBUTE_TYPE.equals(attribute);
+	}
+
+	private int lookup(final Object value) {
+		if (value instanceof String) {
+			return lookup((String) value);
+		}
+		// Ids are unique objects, so looking them up by identity saves comparing their strings
+		Integer index = this.dictionaryByObject.get(value);
+		if (index == null) {
+			index = lookup(value.toString());
+			this.dictionaryByObject.put(value, index);
+		}
+		return index;
+	}
+
+	private int lookup(final String value) {
+		Integer index = this.dictionary.get(value);
+		if (index == null) {
+			index = this.dictionary.size();
+			this.dictionary.put(value, index);
+			this.newStrings.add(value);
+		}
+		return index;
+	}
+
+	private void writeBlock() {
+		// the dictionary entries for the event types and keys of new schemas must be known before they are written
+		for (int i = this.firstNewSchema; i < this.schemas.size(); i++) {
+			Schema schema = this.schemas.get(i);
+			lookup(schema.eventType);
+			for (String key : schema.keys) {
+				lookup(key);
+			}
+		}
+		ByteColumn data = this.block;
+		data.reset();
+		data.writeVarInt(this.newStrings.size());
+		for (String string : this.newStrings) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			data.writeVarInt(bytes.length);
+			data.write(bytes, 0, bytes.length);
+		}
+		this.newStrings.clear();
+		data.writeVarInt(this.schemas.size() - this.firstNewSchema);
+		for (int i = this.firstNewSchema; i < this.schemas.size(); i++) {
+			Schema schema = this.schemas.get(i);
+			data.writeVarInt(lookup(schema.eventType));
+			data.writeVarInt(schema.keys.length);
+			for (int c = 0; c < schema.keys.length; c++) {
+				data.writeVarInt(lookup(schema.keys[c]));
+				data.writeByte(schema.kinds[c]);
+			}
+		}
+		this.firstNewSchema = this.schemas.size();
+		data.writeVarInt(this.eventCount);
+		data.writeColumn(this.schemaColumn);
+		data.writeColumn(this.timeColumn);
+		int usedSchemas = 0;
+		for (Schema schema : this.schemas) {
+			if (schema.rows > 0) {
+				usedSchemas++;
+			}
+		}
+		data.writeVarInt(usedSchemas);
+		for (Schema schema : this.schemas) {
+			if (schema.rows > 0) {
+				data.writeVarInt(schema.index);
+				for (ByteColumn column : schema.columns) {
+					data.writeColumn(column);
+					column.reset();
+				}
+				schema.rows = 0;
+			}
+		}
+		this.schemaColumn.reset();
+		this.timeColumn.reset();
+		this.lastTime = 0;
+		this.eventCount = 0;
+
+		this.deflater.reset();
+		this.deflater.setInput(data.bytes, 0, data.length);
+		this.deflater.finish();
+		int compressedLength = 0;
+		while (!this.deflater.finished()) {
+			if (compressedLength == this.compressed.length) {
+				this.compressed = Arrays.copyOf(this.compressed, this.compressed.length * 2);
+			}
+			compressedLength += this.deflater.deflate(this.compressed, compressedLength, this.compressed.length - compressedLength);
+		}
+		try {
+			this.out.writeInt(data.length);
+			this.out.writeInt(compressedLength);
+			this.out.write(this.compressed, 0, compressedLength);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static long zigZag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static final class Schema {
+		final int index;
+		final String eventType;
+		final String[] keys;
+		final byte[] kinds;
+		final EventColumns<?> standard;
+		final ByteColumn[] columns;
+		int rows = 0;
+
+		Schema(final int index, final String eventType, final EventColumns<?> standard) {
+			this.index = index;
+			this.eventType = eventType;
+			this.standard = standard;
+			this.keys = new String[standard.getColumnCount()];
+			this.kinds = new byte[this.keys.length];
+			for (int c = 0; c < this.keys.length; c++) {
+				this.keys[c] = standard.getKey(c);
+				this.kinds[c] = standard.getKind(c);
+			}
+			this.columns = createColumns(this.keys.length);
+		}
+
+		Schema(final int index, final String eventType, final String[] keys) {
+			this.index = index;
+			this.eventType = eventType;
+			this.standard = null;
+			this.keys = keys;
+			this.kinds = new byte[keys.length];
+			Arrays.fill(this.kinds, BinaryEventsFormat.KIND_STRING);
+			this.columns = createColumns(keys.length);
+		}
+
+		private static ByteColumn[] createColumns(final int count) {
+			ByteColumn[] columns = new ByteColumn[count];
+			for (int c = 0; c < count; c++) {
+				columns[c] = new ByteColumn();
+			}
+			return columns;
+		}
+	}
+
+	/**
+	 * A growable byte array with the variable-length encodings of the format.
+	 */
+	private static final class ByteColumn {
+		byte[] bytes = new byte[1024];
+		int length = 0;
+
+		void reset() {
+			this.length = 0;
+		}
+
+		private void ensureCapacity(final int additional) {
+			if (this.length + additional > this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + additional));
+			}
+		}
+
+		void writeByte(final int value) {
+			ensureCapacity(1);
+			this.bytes[this.length++] = (byte) value;
+		}
+
+		void write(final byte[] source, final int offset, final int count) {
+			ensureCapacity(count);
+			System.arraycopy(source, offset, this.bytes, this.length, count);
+			this.length += count;
+		}
+
+		void writeVarInt(final int value) {
+			writeVarLong(value & 0xFFFFFFFFL);
+		}
+
+		void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				this.bytes[this.length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.bytes[this.length++] = (byte) value;
+		}
+
+		void writeDouble(final double value) {
+			ensureCapacity(8);
+			long bits = Double.doubleToRawLongBits(value);
+			for (int i = 0; i < 8; i++) {
+				this.bytes[this.length++] = (byte) (bits >>> (56 - 8 * i));
+			}
+		}
+
+		void writeColumn(final ByteColumn column) {
+			writeVarInt(column.length);
+			write(column.bytes, 0, column.length);
+		}
+	}
+
+}
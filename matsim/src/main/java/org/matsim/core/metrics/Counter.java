@@ -0,0 +1,51 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Counter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter of a {@link MetricsRegistry}, which can be incremented concurrently from several threads.
+ */
+public final class Counter {
+
+	private final LongAdder count = new LongAdder();
+
+	Counter() {
+	}
+
+	public void increment() {
+		this.count.increment();
+	}
+
+	public void add(final long value) {
+		this.count.add(value);
+	}
+
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	void reset() {
+		this.count.reset();
+	}
+
+}
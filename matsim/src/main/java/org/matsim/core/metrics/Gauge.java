@@ -1,10 +1,10 @@
 /* *********************************************************************** *
  * project: org.matsim.*
- * TravelTimeInfoProvider.java
+ * Gauge.java
  *                                                                         *
  * *********************************************************************** *
  *                                                                         *
- * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
  *                   LICENSE and WARRANTY file.                            *
  * email           : info at matsim dot org                                *
  *                                                                         *
@@ -18,15 +18,14 @@
  *                                                                         *
  * *********************************************************************** */
 
-package org.matsim.withinday.trafficmonitoring;
+package org.matsim.core.metrics;
 
-import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.withinday.trafficmonitoring.TravelTimeCollector.TravelTimeInfo;
+/**
+ * A value of a {@link MetricsRegistry} which is not recorded, but read whenever the metrics are exported, e.g. the
+ * number of agents in the mobsim.
+ */
+public interface Gauge {
+
+	double getValue();
 
-public interface TravelTimeInfoProvider {
-	
-	/*package*/ TravelTimeInfo getTravelTimeData(final Id<Link> linkId);
-	
-	/*package*/ TravelTimeInfo getTravelTimeData(final Link link);
 }
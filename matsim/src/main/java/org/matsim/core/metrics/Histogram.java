@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Histogram.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of a {@link MetricsRegistry}, usually of durations in nanoseconds. Like in an HdrHistogram, the
+ * buckets are log-linear: values below 32 are counted exactly, and every power of two above is split into 32
+ * buckets, so the percentiles are accurate to about 3%. Values can be recorded concurrently from several threads.
+ */
+public final class Histogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	Histogram() {
+	}
+
+	/**
+	 * @param value the value to record; negative values are recorded as 0
+	 */
+	public void record(final long value) {
+		long v = Math.max(value, 0);
+		this.buckets.incrementAndGet(getBucket(v));
+		this.count.incrementAndGet();
+		this.sum.addAndGet(v);
+		long current;
+		while (v < (current = this.min.get()) && !this.min.compareAndSet(current, v)) {
+			// try again
+		}
+		while (v > (current = this.max.get()) && !this.max.compareAndSet(current, v)) {
+			// try again
+		}
+	}
+
+	/**
+	 * Records the nanoseconds since <code>startNanos</code>, which was taken from {@link System#nanoTime()}.
+	 */
+	public void recordSince(final long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	public long getCount() {
+		return this.count.get();
+	}
+
+	public long getSum() {
+		return this.sum.get();
+	}
+
+	/**
+	 * @return the smallest recorded value, or 0 if nothing was recorded
+	 */
+	public long getMin() {
+		return getCount() == 0 ? 0 : this.min.get();
+	}
+
+	/**
+	 * @return the largest recorded value, or 0 if nothing was recorded
+	 */
+	public long getMax() {
+		return getCount() == 0 ? 0 : this.max.get();
+	}
+
+	public double getMean() {
+		long n = getCount();
+		return n == 0 ? 0.0 : (double) getSum() / n;
+	}
+
+	/**
+	 * @param fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+	 * @return the largest value of the bucket which contains the percentile, but at most the largest recorded
+	 * value; 0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(final double fraction) {
+		long n = getCount();
+		if (n == 0) {
+			return 0;
+		}
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += this.buckets.get(i);
+			if (seen >= fraction * n) {
+				return Math.min(getHighestValueOfBucket(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.buckets.set(i, 0);
+		}
+		this.count.set(0);
+		this.sum.set(0);
+		this.min.set(Long.MAX_VALUE);
+		this.max.set(Long.MIN_VALUE);
+	}
+
+	/*package (for tests)*/ static int getBucket(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	/*package (for tests)*/ static long getHighestValueOfBucket(final int bucket) {
+		if (bucket < 2 * SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long top = bucket - shift * SUB_BUCKETS;
+		return ((top + 1) << shift) - 1;
+	}
+
+}
@@ -0,0 +1,165 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MetricsMBean.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Exports the live values of a {@link MetricsRegistry} via JMX, e.g. for jconsole or VisualVM. Every counter and gauge
+ * is one attribute, every histogram gives the attributes <code>name.count</code>, <code>name.mean</code>,
+ * <code>name.p50</code>, <code>name.p99</code> and <code>name.max</code>. The attributes are read-only.
+ */
+public final class MetricsMBean implements DynamicMBean {
+
+	private static final Logger log = Logger.getLogger(MetricsMBean.class);
+
+	public static final String OBJECT_NAME = "org.matsim:type=Metrics";
+
+	private final MetricsRegistry registry;
+
+	/*package*/ MetricsMBean(final MetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Registers the registry with the platform MBean server.
+	 *
+	 * @return the name of the registered bean, or <code>null</code> if it could not be registered, e.g. because another
+	 * controler in the same VM already did so.
+	 */
+	public static ObjectName register(final MetricsRegistry registry) {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(name)) {
+				log.warn("there is already a bean named " + OBJECT_NAME + ", the metrics are not exported via JMX.");
+				return null;
+			}
+			server.registerMBean(new MetricsMBean(registry), name);
+			return name;
+		} catch (JMException e) {
+			log.warn("could not export the metrics via JMX.", e);
+			return null;
+		}
+	}
+
+	public static void unregister(final ObjectName name) {
+		if (name == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		} catch (JMException e) {
+			log.warn("could not unregister " + name, e);
+		}
+	}
+
+	@Override
+	public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+		Counter counter = this.registry.getCounters().get(attribute);
+		if (counter != null) {
+			return counter.getCount();
+		}
+		Gauge gauge = this.registry.getGauges().get(attribute);
+		if (gauge != null) {
+			return gauge.getValue();
+		}
+		int dot = attribute.lastIndexOf('.');
+		if (dot > 0) {
+			Histogram histogram = this.registry.getHistograms().get(attribute.substring(0, dot));
+			if (histogram != null) {
+				switch (attribute.substring(dot + 1)) {
+					case "count": return histogram.getCount();
+					case "mean": return histogram.getMean();
+					case "p50": return histogram.getValueAtPercentile(0.5);
+					case "p99": return histogram.getValueAtPercentile(0.99);
+					case "max": return histogram.getMax();
+					default: break;
+				}
+			}
+		}
+		throw new AttributeNotFoundException(attribute);
+	}
+
+	@Override
+	public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+		throw new AttributeNotFoundException("the metrics are read-only: " + attribute.getName());
+	}
+
+	@Override
+	public AttributeList getAttributes(final String[] attributes) {
+		AttributeList list = new AttributeList();
+		for (String attribute : attributes) {
+			try {
+				list.add(new Attribute(attribute, getAttribute(attribute)));
+			} catch (AttributeNotFoundException e) {
+				// as specified by DynamicMBean, unknown attributes are left out
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public AttributeList setAttributes(final AttributeList attributes) {
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(final String actionName, final Object[] params, final String[] signature) {
+		throw new UnsupportedOperationException(actionName);
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		List<MBeanAttributeInfo> attributes = new ArrayList<>();
+		for (String name : this.registry.getCounters().keySet()) {
+			attributes.add(new MBeanAttributeInfo(name, "long", "counter", true, false, false));
+		}
+		for (Map.Entry<String, Histogram> e : this.registry.getHistograms().entrySet()) {
+			attributes.add(new MBeanAttributeInfo(e.getKey() + ".count", "long", "number of values", true, false, false));
+			attributes.add(new MBeanAttributeInfo(e.getKey() + ".mean", "double", "mean [ns]", true, false, false));
+			attributes.add(new MBeanAttributeInfo(e.getKey() + ".p50", "long", "median [ns]", true, false, false));
+			attributes.add(new MBeanAttributeInfo(e.getKey() + ".p99", "long", "99th percentile [ns]", true, false, false));
+			attributes.add(new MBeanAttributeInfo(e.getKey() + ".max", "long", "maximum [ns]", true, false, false));
+		}
+		for (String name : this.registry.getGauges().keySet()) {
+			attributes.add(new MBeanAttributeInfo(name, "double", "gauge", true, false, false));
+		}
+		return new MBeanInfo(MetricsMBean.class.getName(), "MATSim hot path metrics",
+				attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+	}
+
+}
@@ -0,0 +1,212 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MetricsRegistry.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Named {@link Counter}s, {@link Histogram}s and {@link Gauge}s of the hot paths of a run: the mobsim engines, the
+ * QNetsimEngine runners, the events handlers, the multi-threaded replanning modules and the operations of the
+ * controler's {@link org.matsim.analysis.IterationStopWatch}. Durations are recorded in nanoseconds.
+ * <p></p>
+ * The registry of the running controler is available through {@link #getCurrent()}, also in classes which are not
+ * created by injection. It is <code>null</code> unless metrics are switched on in the config (controler.collectMetrics),
+ * so the instrumented classes look it up once, when they are created or prepared for an iteration, and then only
+ * check their metrics for <code>null</code>. The controler exports the metrics after every iteration and then
+ * resets the counters and histograms; while it runs, they are also available via JMX, see {@link MetricsMBean}.
+ */
+public final class MetricsRegistry {
+
+	private static volatile MetricsRegistry current = null;
+
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+	/**
+	 * @return the registry of the running controler, or <code>null</code> if no metrics are collected
+	 */
+	public static MetricsRegistry getCurrent() {
+		return current;
+	}
+
+	public static void setCurrent(final MetricsRegistry registry) {
+		current = registry;
+	}
+
+	/**
+	 * @return the counter with this name, which is created if necessary
+	 */
+	public Counter counter(final String name) {
+		Counter counter = this.counters.get(name);
+		if (counter == null) {
+			counter = this.counters.computeIfAbsent(name, n -> new Counter());
+		}
+		return counter;
+	}
+
+	/**
+	 * @return the histogram with this name, which is created if necessary
+	 */
+	public Histogram histogram(final String name) {
+		Histogram histogram = this.histograms.get(name);
+		if (histogram == null) {
+			histogram = this.histograms.computeIfAbsent(name, n -> new Histogram());
+		}
+		return histogram;
+	}
+
+	/**
+	 * Registers a gauge, replacing an earlier one with the same name, e.g. the one of the mobsim of the last iteration.
+	 */
+	public void gauge(final String name, final Gauge gauge) {
+		this.gauges.put(name, gauge);
+	}
+
+	/*package*/ SortedMap<String, Counter> getCounters() {
+		return new TreeMap<>(this.counters);
+	}
+
+	/*package*/ SortedMap<String, Histogram> getHistograms() {
+		return new TreeMap<>(this.histograms);
+	}
+
+	/*package*/ SortedMap<String, Gauge> getGauges() {
+		return new TreeMap<>(this.gauges);
+	}
+
+	/**
+	 * Sets all counters and histograms back to zero. The gauges are kept.
+	 */
+	public void reset() {
+		for (Counter counter : this.counters.values()) {
+			counter.reset();
+		}
+		for (Histogram histogram : this.histograms.values()) {
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * Writes one line per metric, sorted by name, with the columns
+	 * <code>metric,type,count,sum,min,mean,p50,p90,p99,max,value</code>. Counters only have a count, gauges only a value.
+	 */
+	public void writeCsv(final String filename) {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("metric,type,count,sum,min,mean,p50,p90,p99,max,value");
+			writer.newLine();
+			for (Map.Entry<String, Counter> e : getCounters().entrySet()) {
+				writer.write(csvName(e.getKey()) + ",counter," + e.getValue().getCount() + ",,,,,,,,");
+				writer.newLine();
+			}
+			for (Map.Entry<String, Histogram> e : getHistograms().entrySet()) {
+				Histogram h = e.getValue();
+				writer.write(csvName(e.getKey()) + ",histogram," + h.getCount() + "," + h.getSum() + "," + h.getMin() + "," + h.getMean()
+						+ "," + h.getValueAtPercentile(0.5) + "," + h.getValueAtPercentile(0.9) + "," + h.getValueAtPercentile(0.99) + "," + h.getMax() + ",");
+				writer.newLine();
+			}
+			for (Map.Entry<String, Gauge> e : getGauges().entrySet()) {
+				writer.write(csvName(e.getKey()) + ",gauge,,,,,,,,," + e.getValue().getValue());
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the metrics as one json object with the members <code>counters</code>, <code>histograms</code> and
+	 * <code>gauges</code>, each of them an object with the metrics by name.
+	 */
+	public void writeJson(final String filename) {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("{");
+			writer.newLine();
+			writer.write("  \"counters\": {");
+			String separator = "";
+			for (Map.Entry<String, Counter> e : getCounters().entrySet()) {
+				writer.write(separator + "\n    " + jsonString(e.getKey()) + ": " + e.getValue().getCount());
+				separator = ",";
+			}
+			writer.write("\n  },");
+			writer.newLine();
+			writer.write("  \"histograms\": {");
+			separator = "";
+			for (Map.Entry<String, Histogram> e : getHistograms().entrySet()) {
+				Histogram h = e.getValue();
+				writer.write(separator + "\n    " + jsonString(e.getKey()) + ": {\"count\": " + h.getCount() + ", \"sum\": " + h.getSum()
+						+ ", \"min\": " + h.getMin() + ", \"mean\": " + jsonNumber(h.getMean()) + ", \"p50\": " + h.getValueAtPercentile(0.5)
+						+ ", \"p90\": " + h.getValueAtPercentile(0.9) + ", \"p99\": " + h.getValueAtPercentile(0.99) + ", \"max\": " + h.getMax() + "}");
+				separator = ",";
+			}
+			writer.write("\n  },");
+			writer.newLine();
+			writer.write("  \"gauges\": {");
+			separator = "";
+			for (Map.Entry<String, Gauge> e : getGauges().entrySet()) {
+				writer.write(separator + "\n    " + jsonString(e.getKey()) + ": " + jsonNumber(e.getValue().getValue()));
+				separator = ",";
+			}
+			writer.write("\n  }");
+			writer.newLine();
+			writer.write("}");
+			writer.newLine();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static String csvName(final String name) {
+		if (name.indexOf(',') < 0 && name.indexOf('"') < 0) {
+			return name;
+		}
+		return "\"" + name.replace("\"", "\"\"") + "\"";
+	}
+
+	private static String jsonString(final String s) {
+		StringBuilder b = new StringBuilder("\"");
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				b.append('\\').append(c);
+			} else if (c < 0x20) {
+				b.append(String.format("\\u%04x", (int) c));
+			} else {
+				b.append(c);
+			}
+		}
+		return b.append('"').toString();
+	}
+
+	private static String jsonNumber(final double value) {
+		return Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value);
+	}
+
+}
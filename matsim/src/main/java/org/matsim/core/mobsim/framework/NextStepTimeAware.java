@@ -0,0 +1,40 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NextStepTimeAware.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.framework;
+
+import org.matsim.core.config.groups.QSimConfigGroup;
+
+/**
+ * Implemented by mobsim engines and sim step listeners that can tell the mobsim when they need the next simulation
+ * step.  If all of them do, the qsim can jump over the time steps in between (see
+ * {@link QSimConfigGroup#isSkippingIdleTimeSteps()}).  Engines and sim step listeners that do not implement this
+ * interface are assumed to need every time step.
+ */
+public interface NextStepTimeAware {
+
+	/**
+	 * @return the earliest time at which a simulation step is needed, assuming that nothing is handed to the
+	 * implementation in the meantime; {@link Double#POSITIVE_INFINITY} if nothing is scheduled.  Any time not after
+	 * the next regular time step means that the next time step cannot be skipped.
+	 */
+	double getNextStepTime();
+
+}
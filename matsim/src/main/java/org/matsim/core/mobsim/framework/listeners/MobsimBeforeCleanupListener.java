@@ -30,6 +30,6 @@ import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 public interface MobsimBeforeCleanupListener extends
 		MobsimListener {
 
-	public void notifyMobsimBeforeCleanup(final MobsimBeforeCleanupEvent e);
+	public void notifyMobsimBeforeCleanup(final MobsimBeforeCleanupEvent<?> e);
 
 }
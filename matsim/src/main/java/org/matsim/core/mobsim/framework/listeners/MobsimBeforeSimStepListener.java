@@ -29,6 +29,6 @@ import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
  */
 public interface MobsimBeforeSimStepListener extends MobsimListener {
 
-	public void notifyMobsimBeforeSimStep(final MobsimBeforeSimStepEvent e);
+	public void notifyMobsimBeforeSimStep(final MobsimBeforeSimStepEvent<?> e);
 
 }
@@ -19,17 +19,13 @@
 
 package org.matsim.core.mobsim.qsim;
 
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
-
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.NextStepTimeAware;
 import org.matsim.core.mobsim.qsim.interfaces.ActivityHandler;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
@@ -37,7 +33,7 @@ import org.matsim.core.utils.misc.Time;
 
 import javax.inject.Inject;
 
-public class ActivityEngine implements MobsimEngine, ActivityHandler {
+public class ActivityEngine implements MobsimEngine, ActivityHandler, NextStepTimeAware {
 
 	private EventsManager eventsManager;
 	private AgentCounter agentCounter;
@@ -52,51 +48,19 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 		this.agentCounter = agentCounter;
 	}
 
-	/**
-	 * Agents cannot be added directly to the activityEndsList since that would
-	 * not be thread-safe when within-day replanning is used. There, an agent's
-	 * activity end time can be modified. As a result, the agent is located at
-	 * the wrong position in the activityEndsList until it is updated by using
-	 * rescheduleActivityEnd(...). However, if another agent is added to the list
-	 * in the mean time, it might be inserted at the wrong position.
-	 * cdobler, apr'12
-	 */
-	private static class AgentEntry {
-		public AgentEntry(MobsimAgent agent, double activityEndTime) {
-			this.agent = agent;
-			this.activityEndTime = activityEndTime;
-		}
-		final MobsimAgent agent;
-		final double activityEndTime;
-	}
-
 	private InternalInterface internalInterface;
 	
 	/**
-	 * This list needs to be a "blocking" queue since this is needed for
-	 * thread-safety in the parallel qsim. cdobler, oct'10
+	 * Agents are kept with the activity end time they had when they were added.  Within-day replanning may modify
+	 * an agent's activity end time; the agent then keeps its old position until it is updated by using
+	 * rescheduleActivityEnd(...).  cdobler, apr'12
+	 * <p></p>
+	 * The calendar is synchronized since this is needed for thread-safety in the parallel qsim. cdobler, oct'10
+	 * <p></p>
+	 * Agents with the same activity end time leave in the order of descending ids, see {@link WakeUpCalendar}.
+	 * It is unclear why this convention is supposed to be helpful.  kai & dominik, jul'12
 	 */
-	private final Queue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, new Comparator<AgentEntry>() {
-
-		@Override
-		public int compare(AgentEntry arg0, AgentEntry arg1) {
-			int cmp = Double.compare(arg0.activityEndTime, arg1.activityEndTime);
-			if (cmp == 0) {
-				// Both depart at the same time -> let the one with the larger id be first (=smaller)
-				//
-				// yy We are not sure what the above comment line is supposed to say.  Presumably, it is supposed
-				// to say that the agent with the larger ID should be "smaller" one in the comparison.
-				// In practice, it seems
-				// that something like "emob_9" is before "emob_8", and something like "emob_10" before "emob_1".
-				// It is unclear why this convention is supposed to be helpful.
-				// kai & dominik, jul'12
-				//
-				return arg1.agent.getId().compareTo(arg0.agent.getId());
-			}
-			return cmp;
-		}
-
-	});
+	private final WakeUpCalendar activityEndsList = new WakeUpCalendar();
 	
 	// See handleActivity for the reason for this.
 	private boolean beforeFirstSimStep = true;
@@ -109,26 +73,28 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 	@Override
 	public void doSimStep(double time) {
 		beforeFirstSimStep = false;
-		while (activityEndsList.peek() != null) {
-			if (activityEndsList.peek().activityEndTime <= time) {
-				MobsimAgent agent = activityEndsList.poll().agent;
-				unregisterAgentAtActivityLocation(agent);
-				agent.endActivityAndComputeNextState(time);
-				internalInterface.arrangeNextAgentState(agent);
-			} else {
-				return;
-			}
+		WakeUpCalendar.Entry entry;
+		while ((entry = activityEndsList.poll(time)) != null) {
+			MobsimAgent agent = entry.getAgent();
+			unregisterAgentAtActivityLocation(agent);
+			agent.endActivityAndComputeNextState(time);
+			internalInterface.arrangeNextAgentState(agent);
 		}
 	}
 
+	@Override
+	public double getNextStepTime() {
+		return activityEndsList.getNextTime();
+	}
+
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
-		for (AgentEntry entry : activityEndsList) {
-			if (entry.activityEndTime!=Double.POSITIVE_INFINITY && entry.activityEndTime!=Time.UNDEFINED_TIME) {
+		for (WakeUpCalendar.Entry entry : activityEndsList) {
+			if (entry.getTime()!=Double.POSITIVE_INFINITY && entry.getTime()!=Time.UNDEFINED_TIME) {
 				// since we are at an activity, it is not plausible to assume that the agents know mode or destination
 				// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
-				eventsManager.processEvent(new PersonStuckEvent(now, entry.agent.getId(), null, null));
+				eventsManager.processEvent(new PersonStuckEvent(now, entry.getAgent().getId(), null, null));
 			}
 		}
 		activityEndsList.clear();
@@ -163,7 +129,7 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 			internalInterface.arrangeNextAgentState(agent) ;
 		} else {
 			// The agent commences an activity on this link.
-			activityEndsList.add(new AgentEntry(agent, agent.getActivityEndTime()));
+			activityEndsList.add(agent, agent.getActivityEndTime());
 			internalInterface.registerAdditionalAgentOnLink(agent);
 		}
 		// Why beforeFirstSimStep matters:
@@ -190,7 +156,7 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 	@Override
 	public void rescheduleActivityEnd(final MobsimAgent agent) {
 		double newActivityEndTime = agent.getActivityEndTime();
-		AgentEntry oldEntry = removeAgentFromQueue(agent);
+		WakeUpCalendar.Entry oldEntry = activityEndsList.remove(agent);
 
 		// The intention in the following is that an agent that is no longer alive has an activity end time of infinity.  The number of
 		// alive agents is only modified when an activity end time is changed between a finite time and infinite.  kai, jun'11
@@ -199,7 +165,7 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 				// agent was de-activated and still should be de-activated - nothing to do here
 			} else {
 				// re-activate the agent
-				activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
+				activityEndsList.add(agent, newActivityEndTime);
 				internalInterface.registerAdditionalAgentOnLink(agent);
 				((org.matsim.core.mobsim.qsim.AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
 			}
@@ -214,20 +180,8 @@ public class ActivityEngine implements MobsimEngine, ActivityHandler {
 			/*
 			 *  The activity is just rescheduled during the day, so we keep the agent active. cdobler, oct'11
 			 */
-			activityEndsList.add(new AgentEntry(agent, newActivityEndTime));
-		}
-	}
-
-	private AgentEntry removeAgentFromQueue(MobsimAgent agent) {
-		Iterator<AgentEntry> iterator = activityEndsList.iterator();
-		while (iterator.hasNext()) {
-			AgentEntry entry = iterator.next();
-			if (entry.agent == agent) {
-				iterator.remove();
-				return entry;
-			}
+			activityEndsList.add(agent, newActivityEndTime);
 		}
-		return null;
 	}
 
 	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
@@ -23,6 +23,7 @@ package org.matsim.core.mobsim.qsim;
 import org.apache.log4j.Logger;
 import org.matsim.core.api.internal.MatsimManager;
 import org.matsim.core.mobsim.framework.Mobsim;
+import org.matsim.core.mobsim.framework.NextStepTimeAware;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
@@ -107,4 +108,26 @@ class MobsimListenerManager implements MatsimManager {
         }
 	}
 
+	/**
+	 * @return the earliest time at which one of the sim step listeners needs a sim step.  Listeners that are not
+	 * {@link NextStepTimeAware} need every sim step.
+	 */
+	double getNextStepTime() {
+		double next = Double.POSITIVE_INFINITY;
+		for (MobsimListener listener : this.listenerList.getListeners(MobsimBeforeSimStepListener.class)) {
+			next = Math.min(next, getNextStepTime(listener));
+		}
+		for (MobsimListener listener : this.listenerList.getListeners(MobsimAfterSimStepListener.class)) {
+			next = Math.min(next, getNextStepTime(listener));
+		}
+		return next;
+	}
+
+	private static double getNextStepTime(MobsimListener listener) {
+		if (listener instanceof NextStepTimeAware) {
+			return ((NextStepTimeAware) listener).getNextStepTime();
+		}
+		return Double.NEGATIVE_INFINITY;
+	}
+
 }
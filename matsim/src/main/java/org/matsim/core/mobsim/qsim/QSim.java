@@ -32,9 +32,13 @@ import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.EndtimeInterpretation;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.metrics.Counter;
+import org.matsim.core.metrics.Histogram;
+import org.matsim.core.metrics.MetricsRegistry;
 import org.matsim.core.mobsim.framework.AgentSource;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.NextStepTimeAware;
 import org.matsim.core.mobsim.framework.listeners.MobsimListener;
 import org.matsim.core.mobsim.qsim.interfaces.*;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
@@ -127,6 +131,23 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		else this.mobsimEngineRunTimes = null;
 	}
 
+	// hot path metrics, see controler.collectMetrics; null if they are not collected
+	private final MetricsRegistry metrics = MetricsRegistry.getCurrent();
+	private final Map<MobsimEngine, Histogram> mobsimEngineMetrics;
+	private final Histogram simStepMetrics;
+	private final Counter simStepsMetrics;
+	{
+		if (this.metrics != null) {
+			this.mobsimEngineMetrics = new HashMap<>();
+			this.simStepMetrics = this.metrics.histogram("qsim.simStep");
+			this.simStepsMetrics = this.metrics.counter("qsim.simSteps");
+		} else {
+			this.mobsimEngineMetrics = null;
+			this.simStepMetrics = null;
+			this.simStepsMetrics = null;
+		}
+	}
+
 	/*package (for tests)*/ final InternalInterface internalInterface = new InternalInterface() {
 
 		// These methods must be synchronized, because they are called back
@@ -195,6 +216,10 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		this.listenerManager = new MobsimListenerManager(this);
 		this.agentCounter = new org.matsim.core.mobsim.qsim.AgentCounter();
 		this.simTimer = new MobsimTimer(sc.getConfig().qsim().getTimeStepSize());
+		if (this.metrics != null) {
+			this.metrics.gauge("qsim.livingAgents", () -> this.agentCounter.getLiving());
+			this.metrics.gauge("qsim.time", () -> this.simTimer.getTimeOfDay());
+		}
 	}
 
 	// ============================================================================================================================
@@ -326,6 +351,7 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	 */
 	/*package*/ boolean doSimStep() {
 		if (analyzeRunTimes) this.startTime = System.nanoTime();
+		final long stepStartNanos = this.metrics != null ? System.nanoTime() : 0;
 
 		final double now = this.getSimTimer().getTimeOfDay();
 
@@ -339,8 +365,10 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		 */
 		if (this.withindayEngine != null) {
 			if (analyzeRunTimes) startTime = System.nanoTime();
+			long engineStartNanos = this.metrics != null ? System.nanoTime() : 0;
 			this.withindayEngine.doSimStep(now);
 			if (analyzeRunTimes) this.mobsimEngineRunTimes.get(this.withindayEngine).addAndGet(System.nanoTime() - this.startTime);
+			if (this.metrics != null) this.mobsimEngineMetrics.get(this.withindayEngine).recordSince(engineStartNanos);
 		}
 
 		// "added" engines
@@ -350,9 +378,11 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 			// withindayEngine.doSimStep(time) has already been called
 			if (mobsimEngine == this.withindayEngine) continue;
 
+			long engineStartNanos = this.metrics != null ? System.nanoTime() : 0;
 			mobsimEngine.doSimStep(now);
 			
 			if (analyzeRunTimes) this.mobsimEngineRunTimes.get(mobsimEngine).addAndGet(System.nanoTime() - this.startTime);
+			if (this.metrics != null) this.mobsimEngineMetrics.get(mobsimEngine).recordSince(engineStartNanos);
 		}
 
 		if (analyzeRunTimes) this.startTime = System.nanoTime();
@@ -374,13 +404,44 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 		if (doContinue) {
 			this.simTimer.incrementTime();
+			if (qsimConfigGroup.isSkippingIdleTimeSteps()) {
+				this.skipIdleTimeSteps();
+			}
 		}
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
+		if (this.metrics != null) {
+			this.simStepMetrics.recordSince(stepStartNanos);
+			this.simStepsMetrics.increment();
+		}
 
 		return doContinue;
 	}
 
+	/**
+	 * Moves the sim timer forward to the first time step in which one of the engines or sim step listeners has something
+	 * to do, but not beyond the stop time.  Nothing is skipped as long as there is an engine or a sim step listener that
+	 * is not {@link NextStepTimeAware}.
+	 */
+	private void skipIdleTimeSteps() {
+		final double now = this.simTimer.getTimeOfDay();
+		double next = this.listenerManager.getNextStepTime();
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			if (next <= now) {
+				return;
+			}
+			if (!(mobsimEngine instanceof NextStepTimeAware)) {
+				return;
+			}
+			next = Math.min(next, ((NextStepTimeAware) mobsimEngine).getNextStepTime());
+		}
+		next = Math.min(next, this.stopTime);
+		if (next > now) {
+			final double stepSize = this.simTimer.getSimTimestepSize();
+			this.simTimer.setTime(now + Math.ceil((next - now) / stepSize) * stepSize);
+		}
+	}
+
 	public void insertAgentIntoMobsim(final MobsimAgent agent) {
 		if (this.agents.containsKey(agent.getId())) {
 			throw new RuntimeException("Agent with same Id (" + agent.getId().toString() + ") already in mobsim; aborting ... ") ;
@@ -389,6 +450,27 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		this.agentCounter.incLiving();
 	}
 
+	/**
+	 * Keeps the simulation running for agents which are not yet known, but will be inserted later by
+	 * {@link #insertAgentIntoRunningMobsim(MobsimAgent)}.
+	 */
+	public void announceAgents(final int count) {
+		for (int i = 0; i < count; i++) {
+			this.agentCounter.incLiving();
+		}
+	}
+
+	/**
+	 * Inserts one of the {@link #announceAgents(int) announced} agents while the simulation is running and hands it
+	 * to the engines for its first action.  Must be called between sim steps, e.g. by a
+	 * {@link org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener}.
+	 */
+	public void insertAgentIntoRunningMobsim(final MobsimAgent agent) {
+		insertAgentIntoMobsim(agent);
+		this.agentCounter.decLiving();
+		arrangeNextAgentAction(agent);
+	}
+
 	private void arrangeNextAgentAction(final MobsimAgent agent) {
 		switch( agent.getState() ) {
 		case ACTIVITY:
@@ -558,6 +640,11 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		this.mobsimEngines.add(mobsimEngine);
 		
 		if (analyzeRunTimes) this.mobsimEngineRunTimes.put(mobsimEngine, new AtomicLong());
+		if (this.metrics != null) {
+			String name = mobsimEngine.getClass().getSimpleName();
+			if (name.isEmpty()) name = mobsimEngine.getClass().getName();
+			this.mobsimEngineMetrics.put(mobsimEngine, this.metrics.histogram("qsim.engine." + name));
+		}
 	}
 
 	@Override
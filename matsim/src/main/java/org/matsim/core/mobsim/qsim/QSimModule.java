@@ -17,8 +17,11 @@ import org.matsim.core.mobsim.qsim.qnetsimengine.DefaultQNetworkFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QLanesNetworkFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEnginePlugin;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkFactory;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkPartitioner;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkPartitionerProvider;
 
 import com.google.inject.Provides;
+import com.google.inject.Singleton;
 
 public class QSimModule extends com.google.inject.AbstractModule {
 	@Inject Config config ;
@@ -35,6 +38,8 @@ public class QSimModule extends com.google.inject.AbstractModule {
 			bind( TransitStopHandlerFactory.class ).to( ComplexTransitStopHandlerFactory.class ) ;
 		}
 		// yy see MATSIM-756
+		// (a singleton across iterations, so that it can rebalance based on the previous mobsim)
+		bind(QNetworkPartitioner.class).toProvider(QNetworkPartitionerProvider.class).in(Singleton.class);
 	}
 
 	@SuppressWarnings("static-method")
@@ -0,0 +1,364 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * WakeUpCalendar.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.matsim.api.core.v01.IdMap;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+/**
+ * Keeps agents that want to be woken up at a certain time, e.g. at the end of their activity or at the end of
+ * a teleported leg.
+ * <p></p>
+ * This is a timing wheel with one bucket per simulated second, covering {@link #WHEEL_SIZE} seconds ahead of the
+ * current time; entries further in the future wait in an overflow queue until the wheel reaches them. Adding an
+ * agent, removing it and thus rescheduling it are O(1), since the calendar keeps a handle per agent. Entries that
+ * are added before the calendar is polled for the first time are only placed into the wheel on the first poll,
+ * so the wheel starts at the earliest of them.
+ * <p></p>
+ * Agents are returned in the same order as by the priority queues this calendar replaces: by time, and agents
+ * with the same time by <em>descending</em> id. Every agent may be in a calendar at most once.
+ * <p></p>
+ * All methods are synchronized since agents are added from the threads of the parallel qsim.
+ */
+public final class WakeUpCalendar implements Iterable<WakeUpCalendar.Entry> {
+
+	/*package*/ static final int WHEEL_SIZE = 1 << 16; // a bit more than 18 hours
+
+	private static final long MIN_SECOND = -(1L << 53);
+	private static final long MAX_SECOND = 1L << 53;
+
+	/*package*/ static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry o1, Entry o2) {
+			int cmp = Double.compare(o1.time, o2.time);
+			if (cmp == 0) {
+				// same time -> the one with the larger id comes first, as it always used to be in the activity engine
+				return o2.agent.getId().compareTo(o1.agent.getId());
+			}
+			return cmp;
+		}
+	};
+
+	private static final Comparator<Entry> REVERSE_ORDER = Collections.reverseOrder(ORDER);
+
+	public static final class Entry {
+		private final MobsimAgent agent;
+		private final double time;
+		private Bucket bucket;
+		private int index;
+
+		private Entry(MobsimAgent agent, double time) {
+			this.agent = agent;
+			this.time = time;
+		}
+
+		public MobsimAgent getAgent() {
+			return this.agent;
+		}
+
+		public double getTime() {
+			return this.time;
+		}
+	}
+
+	/**
+	 * Unordered while entries are added; sorted in {@link #REVERSE_ORDER} when it is drained, so that the next
+	 * entry can be taken from the end.
+	 */
+	private static final class Bucket {
+		private final int slot;
+		private Entry[] entries = new Entry[4];
+		private int size = 0;
+		private boolean sorted = true;
+
+		Bucket(int slot) {
+			this.slot = slot;
+		}
+
+		void add(Entry entry) {
+			if (this.size == this.entries.length) {
+				this.entries = Arrays.copyOf(this.entries, this.size * 2);
+			}
+			entry.bucket = this;
+			entry.index = this.size;
+			this.entries[this.size++] = entry;
+			this.sorted = this.size == 1;
+		}
+
+		void remove(Entry entry) {
+			Entry last = this.entries[--this.size];
+			if (entry.index != this.size) {
+				this.entries[entry.index] = last;
+				last.index = entry.index;
+				this.sorted = false;
+			}
+			this.entries[this.size] = null;
+			entry.bucket = null;
+		}
+
+		Entry first() {
+			if (!this.sorted) {
+				Arrays.sort(this.entries, 0, this.size, REVERSE_ORDER);
+				for (int i = 0; i < this.size; i++) {
+					this.entries[i].index = i;
+				}
+				this.sorted = true;
+			}
+			return this.entries[this.size - 1];
+		}
+	}
+
+	private final IdMap<Person, Entry> handles = new IdMap<>(Person.class);
+	private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+	private final BitSet occupiedSlots = new BitSet(WHEEL_SIZE);
+	private final PriorityQueue<Entry> overflow = new PriorityQueue<>(16, ORDER);
+	private final Bucket pending = new Bucket(-1);
+	private boolean started = false;
+	private long cursor = 0;
+
+	/**
+	 * @throws IllegalStateException if the agent is already in this calendar.
+	 */
+	public synchronized Entry add(MobsimAgent agent, double time) {
+		Entry entry = new Entry(agent, time);
+		if (this.handles.containsKey(agent.getId())) {
+			throw new IllegalStateException("agent " + agent.getId() + " is already in the calendar.");
+		}
+		this.handles.put(agent.getId(), entry);
+		if (this.started) {
+			place(entry);
+		} else {
+			this.pending.add(entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * @return the removed entry, or <code>null</code> if the agent was not in this calendar.
+	 */
+	public synchronized Entry remove(MobsimAgent agent) {
+		Entry entry = this.handles.get(agent.getId());
+		if (entry == null || entry.agent != agent) {
+			return null;
+		}
+		this.handles.remove(agent.getId());
+		Bucket bucket = entry.bucket;
+		if (bucket == null) {
+			this.overflow.remove(entry);
+		} else {
+			bucket.remove(entry);
+			if (bucket.size == 0 && bucket != this.pending) {
+				this.occupiedSlots.clear(bucket.slot);
+			}
+		}
+		if (this.handles.isEmpty()) {
+			this.started = false;
+		}
+		return entry;
+	}
+
+	/**
+	 * Removes the agent if it is in the calendar and adds it again with the new time.
+	 */
+	public synchronized Entry reschedule(MobsimAgent agent, double time) {
+		remove(agent);
+		return add(agent, time);
+	}
+
+	public synchronized boolean contains(MobsimAgent agent) {
+		Entry entry = this.handles.get(agent.getId());
+		return entry != null && entry.agent == agent;
+	}
+
+	/**
+	 * Removes and returns the next entry if its time is not after <code>now</code>. Call this repeatedly to
+	 * get all agents that are due.
+	 */
+	public synchronized Entry poll(double now) {
+		if (!start()) {
+			return null;
+		}
+		advance(second(now));
+		Bucket bucket = this.wheel[slot(this.cursor)];
+		if (bucket == null || bucket.size == 0) {
+			return null;
+		}
+		Entry entry = bucket.first();
+		if (entry.time > now) {
+			return null;
+		}
+		remove(entry.agent);
+		return entry;
+	}
+
+	/**
+	 * @return the time of the next entry, or {@link Double#POSITIVE_INFINITY} if this calendar is empty.
+	 */
+	public synchronized double getNextTime() {
+		if (!start()) {
+			return Double.POSITIVE_INFINITY;
+		}
+		long next = nextOccupiedSecond();
+		if (next == Long.MAX_VALUE) {
+			return this.overflow.peek().time;
+		}
+		return this.wheel[slot(next)].first().time;
+	}
+
+	public synchronized int size() {
+		return this.handles.size();
+	}
+
+	public synchronized boolean isEmpty() {
+		return this.handles.isEmpty();
+	}
+
+	public synchronized void clear() {
+		for (Entry entry : this.handles.values()) {
+			entry.bucket = null;
+		}
+		this.handles.clear();
+		for (int slot = this.occupiedSlots.nextSetBit(0); slot >= 0; slot = this.occupiedSlots.nextSetBit(slot + 1)) {
+			Bucket bucket = this.wheel[slot];
+			Arrays.fill(bucket.entries, 0, bucket.size, null);
+			bucket.size = 0;
+			bucket.sorted = true;
+		}
+		this.occupiedSlots.clear();
+		Arrays.fill(this.pending.entries, 0, this.pending.size, null);
+		this.pending.size = 0;
+		this.overflow.clear();
+		this.started = false;
+	}
+
+	/**
+	 * Iterates over a snapshot of all entries, in the order in which they would be polled.
+	 */
+	@Override
+	public synchronized Iterator<Entry> iterator() {
+		List<Entry> entries = new ArrayList<>(this.handles.values());
+		Collections.sort(entries, ORDER);
+		return Collections.unmodifiableList(entries).iterator();
+	}
+
+	/**
+	 * Places the pending entries into the wheel, starting it at the earliest finite one.
+	 *
+	 * @return <code>false</code> if the calendar is empty.
+	 */
+	private boolean start() {
+		if (this.started) {
+			return true;
+		}
+		if (this.pending.size == 0) {
+			return false;
+		}
+		long first = Long.MAX_VALUE;
+		for (int i = 0; i < this.pending.size; i++) {
+			double time = this.pending.entries[i].time;
+			if (time > Double.NEGATIVE_INFINITY && time < Double.POSITIVE_INFINITY) {
+				first = Math.min(first, second(time));
+			}
+		}
+		this.cursor = first == Long.MAX_VALUE ? 0 : first;
+		this.started = true;
+		for (int i = 0; i < this.pending.size; i++) {
+			Entry entry = this.pending.entries[i];
+			this.pending.entries[i] = null;
+			entry.bucket = null;
+			place(entry);
+		}
+		this.pending.size = 0;
+		return true;
+	}
+
+	/**
+	 * Moves the cursor forward to <code>target</code>, but not beyond the first occupied bucket, which still
+	 * needs to be drained.
+	 */
+	private void advance(long target) {
+		if (target <= this.cursor) {
+			return;
+		}
+		this.cursor = Math.min(target, nextOccupiedSecond());
+		while (!this.overflow.isEmpty() && second(this.overflow.peek().time) - this.cursor < WHEEL_SIZE) {
+			place(this.overflow.poll());
+		}
+	}
+
+	private long nextOccupiedSecond() {
+		int current = slot(this.cursor);
+		int next = this.occupiedSlots.nextSetBit(current);
+		if (next < 0) {
+			next = this.occupiedSlots.nextSetBit(0);
+			if (next < 0) {
+				return Long.MAX_VALUE;
+			}
+			next += WHEEL_SIZE;
+		}
+		return this.cursor + (next - current);
+	}
+
+	/**
+	 * Entries before the cursor go into the cursor's bucket, where they are sorted before the others.
+	 */
+	private void place(Entry entry) {
+		long second = Math.max(second(entry.time), this.cursor);
+		if (second - this.cursor >= WHEEL_SIZE) {
+			entry.bucket = null;
+			this.overflow.add(entry);
+			return;
+		}
+		int slot = slot(second);
+		Bucket bucket = this.wheel[slot];
+		if (bucket == null) {
+			bucket = new Bucket(slot);
+			this.wheel[slot] = bucket;
+		}
+		bucket.add(entry);
+		this.occupiedSlots.set(slot);
+	}
+
+	private static long second(double time) {
+		if (!(time > MIN_SECOND)) {
+			return MIN_SECOND;
+		}
+		if (!(time < MAX_SECOND)) {
+			return MAX_SECOND;
+		}
+		return (long) Math.floor(time);
+	}
+
+	private static int slot(long second) {
+		return (int) (second & (WHEEL_SIZE - 1));
+	}
+
+}
@@ -20,26 +20,35 @@
 package org.matsim.core.mobsim.qsim.agents;
 
 import java.util.*;
-import javax.inject.Inject;
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.*;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.PlansConfigGroup.ActivityDurationInterpretation;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.AgentSource;
 import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.NextStepTimeAware;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.replanning.PipelinedReplanning;
+import org.matsim.core.utils.misc.Time;
 import org.matsim.facilities.ActivityFacilities;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vehicles.VehicleType;
 import org.matsim.vehicles.VehicleUtils;
 import org.matsim.vehicles.Vehicles;
 
+import com.google.inject.Inject;
+
 public final class PopulationAgentSource implements AgentSource {
 	private static final Logger log = Logger.getLogger( PopulationAgentSource.class );
 
@@ -48,6 +57,7 @@ public final class PopulationAgentSource implements AgentSource {
 	private final QSim qsim;
 	private final Collection<String> mainModes;
 	private Map<Id<Vehicle>,Id<Link>> seenVehicleIds = new HashMap<>() ;
+	@Inject(optional = true) private PipelinedReplanning pipelinedReplanning;
 
 	@Inject
 	public PopulationAgentSource(Population population, AgentFactory agentFactory, QSim qsim ) {
@@ -62,6 +72,13 @@ public final class PopulationAgentSource implements AgentSource {
 
 	@Override
 	public void insertAgentsIntoMobsim() {
+		if (this.pipelinedReplanning != null) {
+			List<PipelinedReplanning.Batch> pendingBatches = this.pipelinedReplanning.getPendingBatches();
+			if (!pendingBatches.isEmpty()) {
+				insertAgentsWhilePlansArePending(pendingBatches);
+				return;
+			}
+		}
 		for (Person p : population.getPersons().values()) {
 			MobsimAgent agent = this.agentFactory.createMobsimAgentFromPerson(p);
 			qsim.insertAgentIntoMobsim(agent);
@@ -71,6 +88,153 @@ public final class PopulationAgentSource implements AgentSource {
 		}
 	}
 
+	/**
+	 * Inserts the agents whose plans are final, and all agents which may depart before the simulation starts.  The
+	 * others are inserted by a {@link PendingAgentsInserter} while the simulation is running.
+	 */
+	private void insertAgentsWhilePlansArePending(List<PipelinedReplanning.Batch> pendingBatches) {
+		Set<Id<Person>> pendingPersons = new HashSet<>();
+		for (PipelinedReplanning.Batch batch : pendingBatches) {
+			for (Person p : batch.getPersons()) {
+				pendingPersons.add(p.getId());
+			}
+		}
+		List<Person> persons = new ArrayList<>();
+		double firstDeparture = Double.POSITIVE_INFINITY;
+		for (Person p : population.getPersons().values()) {
+			if (!pendingPersons.contains(p.getId())) {
+				MobsimAgent agent = this.agentFactory.createMobsimAgentFromPerson(p);
+				qsim.insertAgentIntoMobsim(agent);
+				firstDeparture = Math.min(firstDeparture, agent.getActivityEndTime());
+				persons.add(p);
+			}
+		}
+
+		// adding agents can only make the simulation start earlier, so repeat until no pending agent may depart before:
+		List<PipelinedReplanning.Batch> batches = new LinkedList<>(pendingBatches);
+		while (true) {
+			PipelinedReplanning.Batch earliest = null;
+			for (PipelinedReplanning.Batch batch : batches) {
+				if (earliest == null || batch.getEarliestDeparture() < earliest.getEarliestDeparture()) {
+					earliest = batch;
+				}
+			}
+			if (earliest == null || earliest.getEarliestDeparture() > estimateSimStartTime(firstDeparture)) {
+				break;
+			}
+			earliest.awaitFinal();
+			batches.remove(earliest);
+			for (Person p : earliest.getPersons()) {
+				MobsimAgent agent = this.agentFactory.createMobsimAgentFromPerson(p);
+				qsim.insertAgentIntoMobsim(agent);
+				firstDeparture = Math.min(firstDeparture, agent.getActivityEndTime());
+				persons.add(p);
+			}
+		}
+		for (Person p : persons) {
+			insertVehicles(p);
+		}
+
+		if (!batches.isEmpty()) {
+			PendingAgentsInserter inserter = new PendingAgentsInserter(batches);
+			log.info("starting the mobsim while the plans of " + inserter.announced + " agents are still replanned.");
+			qsim.announceAgents(inserter.announced);
+			qsim.addQueueSimulationListeners(inserter);
+		}
+	}
+
+	/**
+	 * @return the start time the qsim will choose if no agent departs before <code>firstDeparture</code>
+	 */
+	private double estimateSimStartTime(double firstDeparture) {
+		QSimConfigGroup qsimConfig = this.qsim.getScenario().getConfig().qsim();
+		double startTime = qsimConfig.getStartTime() == Time.UNDEFINED_TIME ? 0.0 : qsimConfig.getStartTime();
+		if (QSimConfigGroup.StarttimeInterpretation.maxOfStarttimeAndEarliestActivityEnd.equals(qsimConfig.getSimStarttimeInterpretation())) {
+			startTime = Math.floor(Math.max(startTime, firstDeparture));
+		}
+		return startTime;
+	}
+
+	/**
+	 * Inserts the agents of a batch as soon as its plans are final, and waits for the plans when the simulation
+	 * reaches the earliest departure of the batch or would otherwise end.  The agents are inserted before the sim
+	 * step of their first departure, so the simulation does not differ from the one with all agents inserted up front.
+	 */
+	private final class PendingAgentsInserter implements MobsimBeforeSimStepListener, MobsimBeforeCleanupListener, NextStepTimeAware {
+
+		private final List<PipelinedReplanning.Batch> batches;
+		private final ActivityDurationInterpretation activityDurationInterpretation;
+		private int announced = 0;
+
+		PendingAgentsInserter(List<PipelinedReplanning.Batch> batches) {
+			this.batches = batches;
+			this.activityDurationInterpretation = qsim.getScenario().getConfig().plans().getActivityDurationInterpretation();
+			for (PipelinedReplanning.Batch batch : batches) {
+				this.announced += batch.getPersons().size();
+			}
+		}
+
+		@Override
+		public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent<?> e) {
+			final double now = e.getSimulationTime();
+			final double nextStep = now + qsim.getSimTimer().getSimTimestepSize();
+			Iterator<PipelinedReplanning.Batch> iterator = this.batches.iterator();
+			while (iterator.hasNext()) {
+				PipelinedReplanning.Batch batch = iterator.next();
+				boolean onlyAnnouncedAgentsLiving = qsim.getAgentCounter().getLiving() <= this.announced;
+				if (batch.isFinal() || batch.getEarliestDeparture() <= nextStep || onlyAnnouncedAgentsLiving) {
+					batch.awaitFinal();
+					insert(batch, now);
+					iterator.remove();
+				}
+			}
+		}
+
+		@Override
+		public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent<?> e) {
+			final double now = qsim.getSimTimer().getTimeOfDay();
+			for (PipelinedReplanning.Batch batch : this.batches) {
+				batch.awaitFinal();
+				insert(batch, now);
+			}
+			this.batches.clear();
+		}
+
+		@Override
+		public double getNextStepTime() {
+			if (qsim.getAgentCounter().getLiving() <= this.announced) {
+				return Double.NEGATIVE_INFINITY;
+			}
+			double next = Double.POSITIVE_INFINITY;
+			for (PipelinedReplanning.Batch batch : this.batches) {
+				if (batch.isFinal()) {
+					return Double.NEGATIVE_INFINITY;
+				}
+				next = Math.min(next, batch.getEarliestDeparture() - qsim.getSimTimer().getSimTimestepSize());
+			}
+			return next;
+		}
+
+		private void insert(PipelinedReplanning.Batch batch, double now) {
+			for (Person p : batch.getPersons()) {
+				double departure = PipelinedReplanning.getFirstDepartureTime(p.getSelectedPlan(), this.activityDurationInterpretation);
+				if (departure <= now) {
+					throw new RuntimeException("the replanned plan of person " + p.getId() + " does not depart after "
+							+ Time.writeTime(now) + ", where the mobsim already is.  The strategies change the first departures by more "
+							+ "than the mutation range of the time allocation mutator, or to activity durations; switch off the "
+							+ "pipelined replanning.");
+				}
+			}
+			for (Person p : batch.getPersons()) {
+				insertVehicles(p);
+			}
+			for (Person p : batch.getPersons()) {
+				qsim.insertAgentIntoRunningMobsim(agentFactory.createMobsimAgentFromPerson(p));
+				this.announced--;
+			}
+		}
+	}
+
 	private void insertVehicles(Person p) {
 		Plan plan = p.getSelectedPlan();
 		Map<String,Id<Vehicle>> seenModes = new HashMap<>();
@@ -22,6 +22,7 @@ package org.matsim.core.mobsim.qsim.changeeventsengine;
 
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.mobsim.framework.NextStepTimeAware;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
@@ -37,7 +38,7 @@ import java.util.PriorityQueue;
 /**
  * @author dgrether
  */
-public class NetworkChangeEventsEngine implements MobsimEngine {
+public class NetworkChangeEventsEngine implements MobsimEngine, NextStepTimeAware {
 	
 	private PriorityQueue<NetworkChangeEvent> networkChangeEventsQueue = null;
 	private Netsim mobsim;
@@ -68,6 +69,14 @@ public class NetworkChangeEventsEngine implements MobsimEngine {
 		}
 	}
 
+	@Override
+	public double getNextStepTime() {
+		if ((this.networkChangeEventsQueue != null) && (this.networkChangeEventsQueue.size() > 0)) {
+			return this.networkChangeEventsQueue.peek().getStartTime();
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	private void handleNetworkChangeEvents(final double time) {
 		while ((this.networkChangeEventsQueue.size() > 0) && (this.networkChangeEventsQueue.peek().getStartTime() <= time)) {
 			NetworkChangeEvent event = this.networkChangeEventsQueue.poll();
@@ -0,0 +1,96 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityWeightedQNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * A {@link MultilevelBisectionQNetworkPartitioner} that weights every node by how often it and its out-links were moved
+ * in the previous mobsim.  In the first mobsim, it falls back to the static weights.
+ * <p></p>
+ * If the run times of the runners were measured ({@link org.matsim.core.mobsim.qsim.QSim#analyzeRunTimes}), the
+ * activity of every node is additionally scaled by the run time per move of the runner that moved it.  This way,
+ * regions which are expensive to simulate for other reasons (e.g. long queues, many arrivals) get fewer nodes.
+ */
+public class ActivityWeightedQNetworkPartitioner extends MultilevelBisectionQNetworkPartitioner {
+
+	private static final Logger log = Logger.getLogger(ActivityWeightedQNetworkPartitioner.class);
+
+	private Map<Id<Node>, Integer> lastPartition = null;
+	private Map<Id<Node>, Long> nodeWeights = null;
+
+	@Override
+	public Map<Id<Node>, Integer> partition(Network network, int numberOfParts) {
+		if (this.nodeWeights == null) {
+			log.info("No observed activity yet, partitioning with static node weights.");
+		}
+		this.lastPartition = super.partition(network, numberOfParts);
+		return this.lastPartition;
+	}
+
+	@Override
+	protected long getNodeWeight(Node node) {
+		if (this.nodeWeights == null) {
+			return super.getNodeWeight(node);
+		}
+		Long weight = this.nodeWeights.get(node.getId());
+		// nodes which were never moved still cost something when they become active:
+		return weight == null ? 1 : 1 + weight;
+	}
+
+	@Override
+	public boolean isObservingNodeActivity() {
+		return true;
+	}
+
+	@Override
+	public void handleObservedLoad(List<RunnerLoad> runnerLoads, Map<Id<Node>, Long> nodeActivity) {
+		if (this.lastPartition == null || nodeActivity.isEmpty()) {
+			return;
+		}
+		boolean haveRunTimes = !Double.isNaN(RunnerLoad.getRunTimeImbalance(runnerLoads));
+		double[] costPerMove = new double[runnerLoads.size()];
+		double meanCostPerMove = 0;
+		for (RunnerLoad load : runnerLoads) {
+			long moves = load.getNodeMoves() + load.getLinkMoves();
+			costPerMove[load.getRunnerIndex()] = haveRunTimes && moves > 0 ? (double) load.getRunTime() / moves : 1.0;
+			meanCostPerMove += costPerMove[load.getRunnerIndex()] / runnerLoads.size();
+		}
+
+		Map<Id<Node>, Long> weights = new HashMap<>(nodeActivity.size() * 2);
+		for (Map.Entry<Id<Node>, Long> e : nodeActivity.entrySet()) {
+			Integer runner = this.lastPartition.get(e.getKey());
+			double relativeCost = runner == null || runner >= costPerMove.length || meanCostPerMove <= 0 ? 1.0 : costPerMove[runner] / meanCostPerMove;
+			weights.put(e.getKey(), Math.round(e.getValue() * relativeCost));
+		}
+		this.nodeWeights = weights;
+		log.info("Next partitioning will use the observed activity of " + weights.size() + " nodes"
+				+ (haveRunTimes ? ", scaled by the measured run times of the runners." : "."));
+	}
+
+}
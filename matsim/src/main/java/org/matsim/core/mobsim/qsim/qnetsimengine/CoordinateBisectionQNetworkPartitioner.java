@@ -0,0 +1,111 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CoordinateBisectionQNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Splits the nodes of a network into spatially contiguous parts by recursive coordinate bisection:
+ * the nodes are sorted along the longer side of their bounding box and cut such that both halves
+ * carry a share of the load proportional to the number of parts they will be split into.  The load
+ * of a node is approximated by the number of its out-links (which are handled by the same runner), plus one.
+ * <p></p>
+ * Compared to round robin, this leaves each runner with few neighbouring runners, which is what the
+ * {@link org.matsim.core.config.groups.QSimConfigGroup.RunnerSynchronization#localClocks} mode needs.
+ */
+public final class CoordinateBisectionQNetworkPartitioner implements QNetworkPartitioner {
+
+	@Override
+	public Map<Id<Node>, Integer> partition(final Network network, final int numberOfParts) {
+		Map<Id<Node>, Integer> partition = new HashMap<>(network.getNodes().size() * 2);
+		List<Node> sortedNodes = new ArrayList<>(network.getNodes().values());
+		// start from a defined order so that the result does not depend on the iteration order of the network's node map:
+		Collections.sort(sortedNodes, new Comparator<Node>() {
+			@Override
+			public int compare(Node n1, Node n2) {
+				return n1.getId().compareTo(n2.getId());
+			}
+		});
+		bisect(sortedNodes, 0, numberOfParts, partition);
+		return partition;
+	}
+
+	private static void bisect(final List<Node> nodes, final int firstPart, final int numberOfParts, final Map<Id<Node>, Integer> partition) {
+		if (numberOfParts == 1 || nodes.size() <= 1) {
+			for (Node node : nodes) {
+				partition.put(node.getId(), firstPart);
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		long totalLoad = 0;
+		for (Node node : nodes) {
+			Coord coord = node.getCoord();
+			minX = Math.min(minX, coord.getX());
+			maxX = Math.max(maxX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxY = Math.max(maxY, coord.getY());
+			totalLoad += getLoad(node);
+		}
+		final boolean alongX = (maxX - minX) >= (maxY - minY);
+		Collections.sort(nodes, new Comparator<Node>() {
+			@Override
+			public int compare(Node n1, Node n2) {
+				if (alongX) {
+					return Double.compare(n1.getCoord().getX(), n2.getCoord().getX());
+				}
+				return Double.compare(n1.getCoord().getY(), n2.getCoord().getY());
+			}
+		});
+
+		int lowerParts = numberOfParts / 2;
+		double lowerLoad = (double) totalLoad * lowerParts / numberOfParts;
+		long load = 0;
+		int cut = 0;
+		while (cut < nodes.size() - 1 && load + getLoad(nodes.get(cut)) <= lowerLoad) {
+			load += getLoad(nodes.get(cut));
+			cut++;
+		}
+		cut = Math.max(cut, 1);
+
+		bisect(new ArrayList<>(nodes.subList(0, cut)), firstPart, lowerParts, partition);
+		bisect(new ArrayList<>(nodes.subList(cut, nodes.size())), firstPart + lowerParts, numberOfParts - lowerParts, partition);
+	}
+
+	private static int getLoad(final Node node) {
+		return 1 + node.getOutLinks().size();
+	}
+
+}
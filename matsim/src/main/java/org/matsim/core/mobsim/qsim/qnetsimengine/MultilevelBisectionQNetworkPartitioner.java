@@ -0,0 +1,480 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MultilevelBisectionQNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Multilevel recursive bisection in the spirit of METIS (Karypis and Kumar, 1998).  Every bisection
+ * <ol>
+ * <li> coarsens the graph by repeatedly collapsing heavy-edge matchings,
+ * <li> bisects the coarsest graph by greedy graph growing from a few random seeds,
+ * <li> projects the bisection back level by level, improving it by greedy boundary refinement on each level.
+ * </ol>
+ * The graph is the undirected version of the network, with one unit of edge weight per link.  The cut is thus the number
+ * of links connecting two runners, which are the links the runners have to synchronize on.  The vertex weights are taken
+ * from {@link #getNodeWeight(Node)}, which approximates the load by the number of out-links unless overridden.
+ * <p></p>
+ * The random seeds are drawn from a generator of its own with a fixed seed, so the partition of a network is reproducible
+ * and partitioning does not change the random numbers that the rest of the run sees.
+ */
+public class MultilevelBisectionQNetworkPartitioner implements QNetworkPartitioner {
+
+	private static final int COARSEST_GRAPH_SIZE = 64;
+	private static final double MIN_COARSENING_RATIO = 0.95;
+	private static final int INITIAL_BISECTION_TRIALS = 4;
+	private static final int REFINEMENT_PASSES = 8;
+	private static final double MAX_IMBALANCE = 1.03;
+	private static final long RANDOM_SEED = 4711;
+
+	private Random random;
+
+	@Override
+	public Map<Id<Node>, Integer> partition(Network network, int numberOfParts) {
+		this.random = new Random(RANDOM_SEED);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Collections.sort(nodes, new Comparator<Node>() {
+			@Override
+			public int compare(Node n1, Node n2) {
+				return n1.getId().compareTo(n2.getId());
+			}
+		});
+		Map<Id<Node>, Integer> nodeIndices = new HashMap<>(nodes.size() * 2);
+		for (int i = 0; i < nodes.size(); i++) {
+			nodeIndices.put(nodes.get(i).getId(), i);
+		}
+
+		long[] vertexWeights = new long[nodes.size()];
+		List<Map<Integer, Integer>> adjacency = new ArrayList<>(nodes.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			vertexWeights[i] = Math.max(1, getNodeWeight(nodes.get(i)));
+			adjacency.add(new HashMap<Integer, Integer>());
+		}
+		for (Link link : network.getLinks().values()) {
+			int from = nodeIndices.get(link.getFromNode().getId());
+			int to = nodeIndices.get(link.getToNode().getId());
+			if (from != to) {
+				addEdgeWeight(adjacency.get(from), to);
+				addEdgeWeight(adjacency.get(to), from);
+			}
+		}
+		Graph graph = new Graph(vertexWeights, adjacency);
+
+		int[] vertices = new int[nodes.size()];
+		for (int i = 0; i < vertices.length; i++) {
+			vertices[i] = i;
+		}
+		int[] parts = new int[nodes.size()];
+		recursiveBisection(graph, vertices, 0, numberOfParts, parts);
+
+		Map<Id<Node>, Integer> partition = new HashMap<>(nodes.size() * 2);
+		for (int i = 0; i < nodes.size(); i++) {
+			partition.put(nodes.get(i).getId(), parts[i]);
+		}
+		return partition;
+	}
+
+	/**
+	 * @return the (positive) load the node and its out-links are expected to cause
+	 */
+	protected long getNodeWeight(Node node) {
+		return 1 + node.getOutLinks().size();
+	}
+
+	private static void addEdgeWeight(Map<Integer, Integer> neighbours, int neighbour) {
+		Integer weight = neighbours.get(neighbour);
+		neighbours.put(neighbour, weight == null ? 1 : weight + 1);
+	}
+
+	/**
+	 * @param vertices the original index of every vertex of the graph
+	 */
+	private void recursiveBisection(Graph graph, int[] vertices, int firstPart, int numberOfParts, int[] parts) {
+		if (numberOfParts == 1 || graph.size() <= 1) {
+			for (int v : vertices) {
+				parts[v] = firstPart;
+			}
+			return;
+		}
+		int lowerParts = numberOfParts / 2;
+		int[] side = bisect(graph, (double) lowerParts / numberOfParts);
+
+		for (int s = 0; s < 2; s++) {
+			int[] subVertices = new int[graph.size()];
+			Graph subGraph = graph.extractSide(side, s, vertices, subVertices);
+			subVertices = Arrays.copyOf(subVertices, subGraph.size());
+			if (s == 0) {
+				recursiveBisection(subGraph, subVertices, firstPart, lowerParts, parts);
+			} else {
+				recursiveBisection(subGraph, subVertices, firstPart + lowerParts, numberOfParts - lowerParts, parts);
+			}
+		}
+	}
+
+	/**
+	 * @param fraction the share of the total vertex weight that should end up on side 0
+	 * @return the side (0 or 1) of every vertex
+	 */
+	private int[] bisect(Graph graph, double fraction) {
+		List<Graph> finerGraphs = new ArrayList<>();
+		List<int[]> coarseMaps = new ArrayList<>();
+		Graph coarsest = graph;
+		while (coarsest.size() > COARSEST_GRAPH_SIZE) {
+			int[] coarseMap = new int[coarsest.size()];
+			Graph coarser = coarsen(coarsest, coarseMap);
+			if (coarser.size() > MIN_COARSENING_RATIO * coarsest.size()) {
+				break; // hardly any matching edges left, e.g. many isolated vertices
+			}
+			finerGraphs.add(coarsest);
+			coarseMaps.add(coarseMap);
+			coarsest = coarser;
+		}
+
+		int[] side = initialBisection(coarsest, fraction);
+
+		for (int level = finerGraphs.size() - 1; level >= 0; level--) {
+			Graph finer = finerGraphs.get(level);
+			int[] coarseMap = coarseMaps.get(level);
+			int[] finerSide = new int[finer.size()];
+			for (int v = 0; v < finer.size(); v++) {
+				finerSide[v] = side[coarseMap[v]];
+			}
+			side = finerSide;
+			refine(finer, side, fraction);
+		}
+		return side;
+	}
+
+	/**
+	 * Collapses a heavy-edge matching, visiting the vertices in random order.
+	 */
+	private Graph coarsen(Graph graph, int[] coarseMap) {
+		int n = graph.size();
+		int[] match = new int[n];
+		Arrays.fill(match, -1);
+		for (int v : randomPermutation(n)) {
+			if (match[v] != -1) {
+				continue;
+			}
+			int best = v;
+			int bestWeight = 0;
+			for (int e = graph.xadj[v]; e < graph.xadj[v + 1]; e++) {
+				int u = graph.adjncy[e];
+				if (match[u] == -1 && u != v && graph.adjwgt[e] > bestWeight) {
+					best = u;
+					bestWeight = graph.adjwgt[e];
+				}
+			}
+			match[v] = best;
+			match[best] = v;
+		}
+
+		int coarseSize = 0;
+		int[] members = new int[n];
+		for (int v = 0; v < n; v++) {
+			if (match[v] >= v) {
+				coarseMap[v] = coarseSize;
+				coarseMap[match[v]] = coarseSize;
+				members[coarseSize] = v;
+				coarseSize++;
+			}
+		}
+
+		long[] vwgt = new long[coarseSize];
+		int[] xadj = new int[coarseSize + 1];
+		int[] adjncy = new int[graph.adjncy.length];
+		int[] adjwgt = new int[graph.adjncy.length];
+		int[] position = new int[coarseSize];
+		Arrays.fill(position, -1);
+		int m = 0;
+		for (int c = 0; c < coarseSize; c++) {
+			xadj[c] = m;
+			int rowStart = m;
+			int v = members[c];
+			int[] fineVertices = match[v] == v ? new int[] { v } : new int[] { v, match[v] };
+			for (int fine : fineVertices) {
+				vwgt[c] += graph.vwgt[fine];
+				for (int e = graph.xadj[fine]; e < graph.xadj[fine + 1]; e++) {
+					int cu = coarseMap[graph.adjncy[e]];
+					if (cu == c) {
+						continue;
+					}
+					if (position[cu] >= rowStart) {
+						adjwgt[position[cu]] += graph.adjwgt[e];
+					} else {
+						position[cu] = m;
+						adjncy[m] = cu;
+						adjwgt[m] = graph.adjwgt[e];
+						m++;
+					}
+				}
+			}
+		}
+		xadj[coarseSize] = m;
+		return new Graph(vwgt, xadj, Arrays.copyOf(adjncy, m), Arrays.copyOf(adjwgt, m));
+	}
+
+	/**
+	 * Greedy graph growing: starting from a random seed, side 0 is grown in breadth-first order until it holds its share
+	 * of the weight.  Each side gets at least one vertex, also if the share rounds to zero or a single vertex outweighs
+	 * it.  The best of a few trials (after refinement) is kept.
+	 */
+	private int[] initialBisection(Graph graph, double fraction) {
+		int n = graph.size();
+		long target = (long) (fraction * graph.totalWeight());
+		int[] best = null;
+		long bestCut = Long.MAX_VALUE;
+		for (int trial = 0; trial < INITIAL_BISECTION_TRIALS; trial++) {
+			int[] side = new int[n];
+			Arrays.fill(side, 1);
+			boolean[] queued = new boolean[n];
+			int[] queue = new int[n];
+			int head = 0;
+			int tail = 0;
+			long weight = 0;
+			int[] seeds = randomPermutation(n);
+			int nextSeed = 0;
+			// a side must not be empty, or a runner would be left without nodes
+			while ((weight < target || head == 0) && head < n - 1) {
+				if (head == tail) {
+					// component exhausted, continue with an unvisited vertex
+					while (queued[seeds[nextSeed]]) {
+						nextSeed++;
+					}
+					queued[seeds[nextSeed]] = true;
+					queue[tail++] = seeds[nextSeed];
+				}
+				int v = queue[head++];
+				side[v] = 0;
+				weight += graph.vwgt[v];
+				for (int e = graph.xadj[v]; e < graph.xadj[v + 1]; e++) {
+					int u = graph.adjncy[e];
+					if (!queued[u]) {
+						queued[u] = true;
+						queue[tail++] = u;
+					}
+				}
+			}
+			refine(graph, side, fraction);
+			long cut = graph.cut(side);
+			if (cut < bestCut) {
+				bestCut = cut;
+				best = side;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Greedy boundary refinement: boundary vertices are moved to the other side if this reduces the cut (or keeps it but
+	 * improves the balance) without violating the balance constraint, or if their side is overweight.
+	 */
+	private void refine(Graph graph, int[] side, double fraction) {
+		long total = graph.totalWeight();
+		long maxVertexWeight = 0;
+		long[] sideWeights = new long[2];
+		int[] sideSizes = new int[2];
+		for (int v = 0; v < graph.size(); v++) {
+			sideWeights[side[v]] += graph.vwgt[v];
+			sideSizes[side[v]]++;
+			maxVertexWeight = Math.max(maxVertexWeight, graph.vwgt[v]);
+		}
+		double[] targets = new double[] { fraction * total, (1.0 - fraction) * total };
+		// allowing one vertex more than the imbalance tolerance keeps coarse levels with heavy vertices feasible:
+		long[] maxWeights = new long[] {
+				(long) (targets[0] * MAX_IMBALANCE) + maxVertexWeight,
+				(long) (targets[1] * MAX_IMBALANCE) + maxVertexWeight };
+		for (int s = 0; s < 2; s++) {
+			maxWeights[s] = Math.max(maxWeights[s], (long) Math.ceil(targets[s] * MAX_IMBALANCE));
+		}
+
+		for (int pass = 0; pass < REFINEMENT_PASSES; pass++) {
+			boolean moved = false;
+			for (int v : randomPermutation(graph.size())) {
+				int from = side[v];
+				int to = 1 - from;
+				if (sideSizes[from] == 1) {
+					continue; // a side must not become empty, or a runner would be left without nodes
+				}
+				int internal = 0;
+				int external = 0;
+				for (int e = graph.xadj[v]; e < graph.xadj[v + 1]; e++) {
+					if (side[graph.adjncy[e]] == from) {
+						internal += graph.adjwgt[e];
+					} else {
+						external += graph.adjwgt[e];
+					}
+				}
+				long newFromWeight = sideWeights[from] - graph.vwgt[v];
+				long newToWeight = sideWeights[to] + graph.vwgt[v];
+				boolean overweight = sideWeights[from] > maxWeights[from] && newToWeight <= Math.max(maxWeights[to], sideWeights[from]);
+				boolean feasible = newToWeight <= maxWeights[to];
+				int gain = external - internal;
+				boolean improvesBalance = Math.abs(newFromWeight - targets[from]) < Math.abs(sideWeights[from] - targets[from]);
+				if ((external > 0 && feasible && (gain > 0 || (gain == 0 && improvesBalance))) || overweight) {
+					side[v] = to;
+					sideWeights[from] = newFromWeight;
+					sideWeights[to] = newToWeight;
+					sideSizes[from]--;
+					sideSizes[to]++;
+					moved = true;
+				}
+			}
+			if (!moved) {
+				break;
+			}
+		}
+	}
+
+	private int[] randomPermutation(int n) {
+		int[] permutation = new int[n];
+		for (int i = 0; i < n; i++) {
+			permutation[i] = i;
+		}
+		for (int i = n - 1; i > 0; i--) {
+			int j = this.random.nextInt(i + 1);
+			int tmp = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = tmp;
+		}
+		return permutation;
+	}
+
+	/**
+	 * Undirected graph in compressed sparse row format, with vertex and edge weights.
+	 */
+	private static final class Graph {
+		final long[] vwgt;
+		final int[] xadj;
+		final int[] adjncy;
+		final int[] adjwgt;
+
+		Graph(long[] vwgt, int[] xadj, int[] adjncy, int[] adjwgt) {
+			this.vwgt = vwgt;
+			this.xadj = xadj;
+			this.adjncy = adjncy;
+			this.adjwgt = adjwgt;
+		}
+
+		Graph(long[] vwgt, List<Map<Integer, Integer>> adjacency) {
+			this.vwgt = vwgt;
+			this.xadj = new int[vwgt.length + 1];
+			int m = 0;
+			for (Map<Integer, Integer> neighbours : adjacency) {
+				m += neighbours.size();
+			}
+			this.adjncy = new int[m];
+			this.adjwgt = new int[m];
+			int e = 0;
+			for (int v = 0; v < vwgt.length; v++) {
+				this.xadj[v] = e;
+				List<Integer> neighbours = new ArrayList<>(adjacency.get(v).keySet());
+				Collections.sort(neighbours);
+				for (Integer u : neighbours) {
+					this.adjncy[e] = u;
+					this.adjwgt[e] = adjacency.get(v).get(u);
+					e++;
+				}
+			}
+			this.xadj[vwgt.length] = e;
+		}
+
+		int size() {
+			return this.vwgt.length;
+		}
+
+		long totalWeight() {
+			long total = 0;
+			for (long w : this.vwgt) {
+				total += w;
+			}
+			return total;
+		}
+
+		long cut(int[] side) {
+			long cut = 0;
+			for (int v = 0; v < size(); v++) {
+				for (int e = this.xadj[v]; e < this.xadj[v + 1]; e++) {
+					if (side[v] != side[this.adjncy[e]]) {
+						cut += this.adjwgt[e];
+					}
+				}
+			}
+			return cut / 2;
+		}
+
+		/**
+		 * @param vertices the original index of every vertex of this graph
+		 * @param subVertices filled with the original index of every vertex of the returned graph
+		 * @return the subgraph induced by the vertices on the given side
+		 */
+		Graph extractSide(int[] side, int s, int[] vertices, int[] subVertices) {
+			int[] newIndex = new int[size()];
+			int n = 0;
+			for (int v = 0; v < size(); v++) {
+				if (side[v] == s) {
+					newIndex[v] = n;
+					subVertices[n] = vertices[v];
+					n++;
+				} else {
+					newIndex[v] = -1;
+				}
+			}
+			long[] subVwgt = new long[n];
+			int[] subXadj = new int[n + 1];
+			int[] subAdjncy = new int[this.adjncy.length];
+			int[] subAdjwgt = new int[this.adjncy.length];
+			int m = 0;
+			for (int v = 0; v < size(); v++) {
+				int nv = newIndex[v];
+				if (nv == -1) {
+					continue;
+				}
+				subVwgt[nv] = this.vwgt[v];
+				subXadj[nv] = m;
+				for (int e = this.xadj[v]; e < this.xadj[v + 1]; e++) {
+					int nu = newIndex[this.adjncy[e]];
+					if (nu != -1) {
+						subAdjncy[m] = nu;
+						subAdjwgt[m] = this.adjwgt[e];
+						m++;
+					}
+				}
+			}
+			subXadj[n] = m;
+			return new Graph(subVwgt, subXadj, Arrays.copyOf(subAdjncy, m), Arrays.copyOf(subAdjwgt, m));
+		}
+	}
+
+}
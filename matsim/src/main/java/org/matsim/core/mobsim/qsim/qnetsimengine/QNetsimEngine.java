@@ -38,22 +38,27 @@ import javax.inject.Inject;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.RunnerSynchronization;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.metrics.MetricsRegistry;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.NextStepTimeAware;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
@@ -71,7 +76,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
  * @author dgrether
  * @author dstrippgen
  */
-public class QNetsimEngine implements MobsimEngine, NetsimEngine {
+public class QNetsimEngine implements MobsimEngine, NetsimEngine, NextStepTimeAware {
 
 	public interface NetsimInternalInterface {
 		QNetwork getNetsimNetwork();
@@ -97,7 +102,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 	private QNetwork network;
 
-	private final Map<Id<Vehicle>, QVehicle> vehicles = new HashMap<>();
+	private final Map<Id<Vehicle>, QVehicle> vehicles = new IdMap<>(Vehicle.class);
 
 	private final QSim qsim;
 
@@ -121,6 +126,15 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private ExecutorService pool;
 
 	private final boolean usingThreadpool;
+
+	private final boolean usingLocalClocks;
+
+	private final QNetworkPartitioner partitioner;
+
+	private int[] numberOfNodesPerRunner;
+	private int[] numberOfLinksPerRunner;
+
+	private List<RunnerLoad> runnerLoads = Collections.emptyList();
 	
 	// for detailed run time analysis - used in combination with QSim.analyzeRunTimes
 	public static int numObservedTimeSteps = 24*3600;
@@ -135,13 +149,22 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		this(sim, null);
 	}
 
-	@Inject
 	public QNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+		this(sim, netsimNetworkFactory, null);
+	}
+
+	@Inject
+	public QNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory, QNetworkPartitioner partitioner) {
 		this.qsim = sim;
 
 		final Config config = sim.getScenario().getConfig();
 		final QSimConfigGroup qsimConfigGroup = config.qsim();
-		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool();
+		this.partitioner = partitioner != null ? partitioner : new QNetworkPartitionerProvider(qsimConfigGroup).get();
+		this.usingLocalClocks = qsimConfigGroup.getRunnerSynchronization() == RunnerSynchronization.localClocks;
+		if (this.usingLocalClocks && qsimConfigGroup.isUsingThreadpool()) {
+			log.info("Runner synchronization " + RunnerSynchronization.localClocks + " needs dedicated runner threads; the thread pool is not used.");
+		}
+		this.usingThreadpool = qsimConfigGroup.isUsingThreadpool() && !this.usingLocalClocks;
 
 
 		// configuring the car departure hander (including the vehicle behavior)
@@ -263,6 +286,41 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		for (QLinkI link : network.getNetsimLinks().values()) {
 			link.clearVehicles();
 		}
+
+		collectRunnerLoads();
+	}
+
+	private void collectRunnerLoads() {
+		List<RunnerLoad> loads = new ArrayList<>();
+		Map<Id<Node>, Long> nodeActivity = new HashMap<>();
+		for (int i = 0; i < this.engines.size(); i++) {
+			QNetsimEngineRunner runner = this.engines.get(i);
+			long runTime = -1;
+			if (runner.runTimes != null && !this.usingThreadpool) {
+				runTime = 0;
+				for (long t : runner.runTimes) {
+					runTime += t;
+				}
+			}
+			RunnerLoad load = new RunnerLoad(i, this.numberOfNodesPerRunner[i], this.numberOfLinksPerRunner[i],
+					runner.getNodeMoves(), runner.getLinkMoves(), runTime);
+			loads.add(load);
+			log.info("QSimEngineRunner load: " + load);
+			runner.addNodeActivity(nodeActivity);
+		}
+		log.info("QSimEngineRunner imbalance (max/mean) of node and link moves: " + RunnerLoad.getActivityImbalance(loads));
+		if (QSim.analyzeRunTimes) {
+			log.info("QSimEngineRunner imbalance (max/mean) of run times: " + RunnerLoad.getRunTimeImbalance(loads));
+		}
+		this.runnerLoads = Collections.unmodifiableList(loads);
+		this.partitioner.handleObservedLoad(this.runnerLoads, nodeActivity);
+	}
+
+	/**
+	 * @return the load of every runner in the last mobsim; empty before the end of the first mobsim
+	 */
+	public List<RunnerLoad> getRunnerLoads() {
+		return this.runnerLoads;
 	}
 
 	/**
@@ -289,7 +347,9 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 	private void run(double time) {
 		// yy Acceleration options to try out (kai, jan'15):
 
-		// (a) Try to do without barriers.  With our 
+		// (a) Try to do without barriers.  (Now available as RunnerSynchronization.localClocks, see there and QNetsimEngineRunner.  Only
+		// the separation barrier is replaced by the runner-local clocks; the start and end barriers remain since the other engines
+		// modify the network between time steps.)  With our 
 		// message-based experiments a decade ago, it was better to let each runner decide locally when to proceed.  For intuition, imagine that
 		// one runner is slowest on the links, and some other runner slowest on the nodes.  With the barriers, this cannot overlap.
 		// With message passing, this was achieved by waiting for all necessary messages.  Here, it could (for example) be achieved with runner-local
@@ -305,11 +365,12 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		// processLocalLinks() ;
 		// myTime += 0.5 ;
 
-		// (b) Do deliberate domain decomposition rather than round robin (fewer runners to wait for at (*) and (**)).
+		// (b) Do deliberate domain decomposition rather than round robin (fewer runners to wait for at (*) and (**)).  (Done for
+		// RunnerSynchronization.localClocks, see QNetworkPartitioner.)
 
 		// (c) One thread that is much faster than all others is much more efficient than one thread that is much slower than all others. 
 		// So make sure that no thread sticks out in terms of slowness.  Difficult to achieve, though.  A decade back, we used a "typical" run
-		// as input for the domain decomposition under (b).
+		// as input for the domain decomposition under (b).  (See ActivityWeightedQNetworkPartitioner.)
 
 		// set current Time
 		for (QNetsimEngineRunner engine : this.engines) {
@@ -353,6 +414,19 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		}
 	}
 
+	/**
+	 * The network needs every time step as long as there are active links or nodes.
+	 */
+	@Override
+	public double getNextStepTime() {
+		for (QNetsimEngineRunner engine : this.engines) {
+			if (!engine.isIdle()) {
+				return Double.NEGATIVE_INFINITY;
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
 	public int getNumberOfSimulatedLinks() {
 
 		int numLinks = 0;
@@ -423,7 +497,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		this.engines = new ArrayList<>();
 
 		this.startBarrier = new Phaser(this.numOfThreads + 1);
-		Phaser separationBarrier = new Phaser(this.numOfThreads);
+		Phaser separationBarrier = this.usingLocalClocks ? null : new Phaser(this.numOfThreads);
 		this.endBarrier = new Phaser(this.numOfThreads + 1);
 
 		numOfRunners = this.numOfThreads;
@@ -437,6 +511,7 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		}
 
 		// setup threads
+		MetricsRegistry metrics = MetricsRegistry.getCurrent();
 		for (int i = 0; i < numOfRunners; i++) {
 			QNetsimEngineRunner engine ;
 			if (this.usingThreadpool) {
@@ -448,6 +523,9 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 				thread.setDaemon(true);	// make the Thread Daemons so they will terminate automatically
 				thread.start();
 			}
+			if (metrics != null) {
+				engine.setMetrics(metrics, "qnetsim.runner." + i);
+			}
 			this.engines.add(engine);
 		}
 
@@ -470,12 +548,17 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
-		int roundRobin = 0;
+		Map<Id<Node>, Integer> partition = this.partitioner.partition(network.getNetwork(), this.numOfRunners);
+		boolean observingNodeActivity = this.partitioner.isObservingNodeActivity();
+
 		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+			int i = partition.get(node.getNode().getId());
 			if ( node instanceof QNodeImpl ) {
 				((QNodeImpl) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
+			if (observingNodeActivity) {
+				this.engines.get(i).observeNodeActivity(node.getNode().getId());
+			}
 			nodes[i]++;
 
 			// set activator for out links
@@ -498,8 +581,6 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 				links[i]++;
 
 			}
-
-			roundRobin++;
 		}
 
 		// print some statistics
@@ -507,7 +588,39 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			log.info("Assigned " + nodes[i] + " nodes and " + links[i] + " links to QSimEngineRunner #" + i);
 		}
 
+		this.numberOfNodesPerRunner = nodes;
+		this.numberOfLinksPerRunner = links;
+
 		this.linksToActivateInitially.clear();
+
+		if (this.usingLocalClocks) {
+			assignDownstreamRunners(partition);
+		}
+	}
+
+	/*
+	 * A runner moves the links assigned to it as soon as the runners owning the toNodes of these links have
+	 * moved their nodes, since moving the links fills the buffers which the toNodes empty.  All other runners
+	 * are irrelevant for it.
+	 */
+	private void assignDownstreamRunners(Map<Id<Node>, Integer> partition) {
+		List<Set<QNetsimEngineRunner>> downstreamRunners = new ArrayList<>();
+		for (int i = 0; i < this.numOfRunners; i++) {
+			downstreamRunners.add(new HashSet<QNetsimEngineRunner>());
+		}
+		for (QNodeI node : network.getNetsimNodes().values()) {
+			int i = partition.get(node.getNode().getId());
+			for (Link outLink : node.getNode().getOutLinks().values()) {
+				int j = partition.get(outLink.getToNode().getId());
+				if (i != j) {
+					downstreamRunners.get(i).add(this.engines.get(j));
+				}
+			}
+		}
+		for (int i = 0; i < this.numOfRunners; i++) {
+			this.engines.get(i).setDownstreamRunners(downstreamRunners.get(i));
+			log.info("QSimEngineRunner #" + i + " waits for " + downstreamRunners.get(i).size() + " other runners before moving its links.");
+		}
 	}
 
 	public void printEngineRunTimes() {
@@ -20,13 +20,19 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.metrics.Counter;
+import org.matsim.core.metrics.Histogram;
+import org.matsim.core.metrics.MetricsRegistry;
 import org.matsim.core.mobsim.qsim.QSim;
 
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * These are the "threads" of the {@link QNetsimEngine}. The "run()" method is implicitly called by starting the thread.
@@ -44,6 +50,18 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	private final Phaser separationBarrier;
 	private final Phaser endBarrier;
 
+	/*
+	 * Only used with RunnerSynchronization.localClocks, where it replaces the separationBarrier: the
+	 * runners owning the toNodes of this runner's links, and the runner-local clock telling up to
+	 * which time this runner has moved its nodes.  A runner waiting for its downstream runners parks
+	 * its thread; the downstream runners unpark the runners waiting for them (their upstream runners)
+	 * after advancing their clocks.
+	 */
+	private QNetsimEngineRunner[] downstreamRunners = null;
+	private QNetsimEngineRunner[] upstreamRunners = new QNetsimEngineRunner[0];
+	private volatile double nodesMovedUntil = Double.NEGATIVE_INFINITY;
+	private volatile Thread thread = null;
+
 	/*
 	 * This needs to be thread-safe since QNodes could be activated concurrently
 	 * from multiple threads. In previous implementations, this data structure was
@@ -76,6 +94,14 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	private boolean movingNodes;
 
+	/*
+	 * Load statistics for the QNetworkPartitioner.  The per-node counters are only kept if the partitioner asks for them;
+	 * the map is filled before the simulation starts and only read afterwards, so it is not modified concurrently.
+	 */
+	private long nodeMoves = 0;
+	private long linkMoves = 0;
+	private Map<Id<Node>, long[]> nodeActivity = null;
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -83,6 +109,13 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		else runTimes = null;
 	}
 	
+	// hot path metrics, see controler.collectMetrics; null if they are not collected
+	private Histogram moveNodesMetrics = null;
+	private Histogram moveLinksMetrics = null;
+	private Histogram waitMetrics = null;
+	private Counter nodeMovesMetrics = null;
+	private Counter linkMovesMetrics = null;
+
 	/*package*/ QNetsimEngineRunner(Phaser startBarrier, Phaser separationBarrier, Phaser endBarrier) {
 		this.startBarrier = startBarrier;
 		this.separationBarrier = separationBarrier;
@@ -96,6 +129,45 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		this.endBarrier = null;
 	}
 
+	/*package*/ void setDownstreamRunners(final Collection<QNetsimEngineRunner> runners) {
+		this.downstreamRunners = runners.toArray(new QNetsimEngineRunner[runners.size()]);
+		for (QNetsimEngineRunner runner : this.downstreamRunners) {
+			runner.upstreamRunners = Arrays.copyOf(runner.upstreamRunners, runner.upstreamRunners.length + 1);
+			runner.upstreamRunners[runner.upstreamRunners.length - 1] = this;
+		}
+	}
+
+	/*package*/ void observeNodeActivity(final Id<Node> nodeId) {
+		if (this.nodeActivity == null) {
+			this.nodeActivity = new HashMap<>();
+		}
+		this.nodeActivity.put(nodeId, new long[1]);
+	}
+
+	/*package*/ void addNodeActivity(final Map<Id<Node>, Long> activity) {
+		if (this.nodeActivity != null) {
+			for (Map.Entry<Id<Node>, long[]> e : this.nodeActivity.entrySet()) {
+				activity.put(e.getKey(), e.getValue()[0]);
+			}
+		}
+	}
+
+	/*package*/ void setMetrics(final MetricsRegistry metrics, final String prefix) {
+		this.moveNodesMetrics = metrics.histogram(prefix + ".moveNodes");
+		this.moveLinksMetrics = metrics.histogram(prefix + ".moveLinks");
+		this.waitMetrics = metrics.histogram(prefix + ".wait");
+		this.nodeMovesMetrics = metrics.counter(prefix + ".nodeMoves");
+		this.linkMovesMetrics = metrics.counter(prefix + ".linkMoves");
+	}
+
+	/*package*/ long getNodeMoves() {
+		return this.nodeMoves;
+	}
+
+	/*package*/ long getLinkMoves() {
+		return this.linkMoves;
+	}
+
 	/*package*/ void setTime(final double t) {
 		time = t;
 	}
@@ -126,6 +198,7 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 	@Override
 	public void run() {
+		this.thread = Thread.currentThread();
 
 		// The method is ended when the simulationRunning flag is set to false.
 		while(true) {
@@ -146,8 +219,19 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 
 			moveNodes();
 
-			// After moving the QNodes all we use a Phaser to synchronize the threads.
-			this.separationBarrier.arriveAndAwaitAdvance();
+			long waitStartNanos = this.waitMetrics != null ? System.nanoTime() : 0;
+			if (this.downstreamRunners == null) {
+				// After moving the QNodes all we use a Phaser to synchronize the threads.
+				this.separationBarrier.arriveAndAwaitAdvance();
+			} else {
+				// Publish the local clock and wait only for those runners whose nodes empty the buffers of our links.
+				this.nodesMovedUntil = this.time;
+				for (QNetsimEngineRunner runner : this.upstreamRunners) {
+					LockSupport.unpark(runner.thread);
+				}
+				waitForDownstreamRunners();
+			}
+			if (this.waitMetrics != null) this.waitMetrics.recordSince(waitStartNanos);
 
 			moveLinks();
 
@@ -164,7 +248,21 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			this.endBarrier.arriveAndAwaitAdvance();
 		}
 	}
+	/*
+	 * The clock is checked again after every wakeup: the downstream runner unparks this thread after every
+	 * time step, so the permit may be left over from an earlier step, and park may also return spuriously.
+	 */
+	private void waitForDownstreamRunners() {
+		for (QNetsimEngineRunner runner : this.downstreamRunners) {
+			while (runner.nodesMovedUntil < this.time) {
+				LockSupport.park(this);
+			}
+		}
+	}
+
 	private void moveNodes() {
+		long startNanos = this.moveNodesMetrics != null ? System.nanoTime() : 0;
+		long movesBefore = this.nodeMoves;
 		boolean remainsActive;
 		this.lockNodes = true;
 		QNodeImpl node;
@@ -173,10 +271,18 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			node = simNodes.next();
 			remainsActive = node.doSimStep(time);
 			if (!remainsActive) simNodes.remove();
+			this.nodeMoves++;
+			if (this.nodeActivity != null) this.nodeActivity.get(node.getNode().getId())[0]++;
 		}
 		this.lockNodes = false;
+		if (this.moveNodesMetrics != null) {
+			this.moveNodesMetrics.recordSince(startNanos);
+			this.nodeMovesMetrics.add(this.nodeMoves - movesBefore);
+		}
 	}
 	private void moveLinks() {
+		long startNanos = this.moveLinksMetrics != null ? System.nanoTime() : 0;
+		long movesBefore = this.linkMoves;
 		boolean remainsActive;
 		lockLinks = true;
 		QLinkI link;
@@ -187,8 +293,14 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 			remainsActive = link.doSimStep();
 
 			if (!remainsActive) simLinks.remove();
+			this.linkMoves++;
+			if (this.nodeActivity != null) this.nodeActivity.get(link.getLink().getFromNode().getId())[0]++;
 		}
 		lockLinks = false;
+		if (this.moveLinksMetrics != null) {
+			this.moveLinksMetrics.recordSince(startNanos);
+			this.linkMovesMetrics.add(this.linkMoves - movesBefore);
+		}
 	}
 
 	/*
@@ -229,6 +341,10 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		return this.nodesQueue.size();
 	}
 
+	boolean isIdle() {
+		return this.linksList.isEmpty() && this.nodesQueue.isEmpty();
+	}
+
 	public void setMovingNodes(boolean movingNodes) {
 		this.movingNodes = movingNodes;
 	}
@@ -0,0 +1,63 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitioner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * Decides which {@link QNetsimEngineRunner} moves which nodes.  A runner always moves the out-links of its nodes as well.
+ * <p></p>
+ * The partitioner is bound as a singleton at the level of the controler, i.e. the same instance is asked for a
+ * partitioning at the start of every mobsim and is told about the observed load at its end.  It can thus rebalance
+ * the runners between iterations.
+ *
+ * @see org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning
+ */
+public interface QNetworkPartitioner {
+
+	/**
+	 * @return for every node of the network the index of the runner (0 &le; index &lt; numberOfParts) that moves it
+	 */
+	Map<Id<Node>, Integer> partition(Network network, int numberOfParts);
+
+	/**
+	 * @return true if the runners should count, per node, how often the node and its out-links were moved.  This
+	 * costs a map lookup per moved node and link, so it is off by default.
+	 */
+	default boolean isObservingNodeActivity() {
+		return false;
+	}
+
+	/**
+	 * Called after the mobsim.
+	 *
+	 * @param runnerLoads the load of every runner, in the order of the runner indices
+	 * @param nodeActivity the number of moves of each node and its out-links; empty unless {@link #isObservingNodeActivity()}
+	 */
+	default void handleObservedLoad(List<RunnerLoad> runnerLoads, Map<Id<Node>, Long> nodeActivity) {
+	}
+
+}
@@ -0,0 +1,67 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QNetworkPartitionerProvider.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.config.groups.QSimConfigGroup.RunnerSynchronization;
+
+/**
+ * Creates the {@link QNetworkPartitioner} selected by {@link QSimConfigGroup#getNetworkPartitioning()}.
+ */
+public final class QNetworkPartitionerProvider implements Provider<QNetworkPartitioner> {
+
+	private final QSimConfigGroup qsimConfigGroup;
+
+	@Inject
+	QNetworkPartitionerProvider(Config config) {
+		this(config.qsim());
+	}
+
+	public QNetworkPartitionerProvider(QSimConfigGroup qsimConfigGroup) {
+		this.qsimConfigGroup = qsimConfigGroup;
+	}
+
+	@Override
+	public QNetworkPartitioner get() {
+		switch (this.qsimConfigGroup.getNetworkPartitioning()) {
+		case automatic:
+			if (this.qsimConfigGroup.getRunnerSynchronization() == RunnerSynchronization.localClocks) {
+				return new CoordinateBisectionQNetworkPartitioner();
+			}
+			return new RoundRobinQNetworkPartitioner();
+		case roundRobin:
+			return new RoundRobinQNetworkPartitioner();
+		case coordinateBisection:
+			return new CoordinateBisectionQNetworkPartitioner();
+		case multilevelBisection:
+			return new MultilevelBisectionQNetworkPartitioner();
+		case activityWeightedMultilevelBisection:
+			return new ActivityWeightedQNetworkPartitioner();
+		default:
+			throw new RuntimeException("Unknown network partitioning: " + this.qsimConfigGroup.getNetworkPartitioning());
+		}
+	}
+
+}
@@ -1,10 +1,10 @@
 /* *********************************************************************** *
  * project: org.matsim.*
- * MapBasedDataContainerProvider.java
+ * RoundRobinQNetworkPartitioner.java
  *                                                                         *
  * *********************************************************************** *
  *                                                                         *
- * copyright       : (C) 2013 by the members listed in the COPYING,        *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
  *                   LICENSE and WARRANTY file.                            *
  * email           : info at matsim dot org                                *
  *                                                                         *
@@ -18,32 +18,29 @@
  *                                                                         *
  * *********************************************************************** */
 
-package org.matsim.withinday.trafficmonitoring;
+package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import org.matsim.api.core.v01.Id;
-import org.matsim.api.core.v01.network.Link;
-import org.matsim.withinday.trafficmonitoring.TravelTimeCollector.TravelTimeInfo;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
 
-public class MapBasedTravelTimeInfoProvider implements TravelTimeInfoProvider {
+/**
+ * Hands the nodes to the runners in turn, in the iteration order of the network.  Ignores topology and load.
+ */
+public final class RoundRobinQNetworkPartitioner implements QNetworkPartitioner {
 
-	private final Map<Id<Link>, TravelTimeInfo> linkData;
-	
-	public MapBasedTravelTimeInfoProvider(Map<Id<Link>, TravelTimeInfo> linkData) {
-		this.linkData = linkData;
-	}
-	
-	@Override 
-	public TravelTimeInfo getTravelTimeData(final Id<Link> linkId) {
-		TravelTimeInfo data = this.linkData.get(linkId);
-		return data;
-	}
-		
 	@Override
-	public TravelTimeInfo getTravelTimeData(Link link) {
-		Id<Link> linkId = link.getId();
-		return this.getTravelTimeData(linkId);
+	public Map<Id<Node>, Integer> partition(Network network, int numberOfParts) {
+		Map<Id<Node>, Integer> partition = new HashMap<>(network.getNodes().size() * 2);
+		int roundRobin = 0;
+		for (Node node : network.getNodes().values()) {
+			partition.put(node.getId(), roundRobin % numberOfParts);
+			roundRobin++;
+		}
+		return partition;
 	}
-	
-}
\ No newline at end of file
+
+}
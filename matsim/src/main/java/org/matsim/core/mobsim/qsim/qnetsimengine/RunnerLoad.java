@@ -0,0 +1,123 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RunnerLoad.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.List;
+
+/**
+ * What one {@link QNetsimEngineRunner} did during one mobsim.  The number of moved nodes and links is always
+ * counted; the run time is only measured with {@link org.matsim.core.mobsim.qsim.QSim#analyzeRunTimes}.
+ */
+public final class RunnerLoad {
+
+	private final int runnerIndex;
+	private final int numberOfNodes;
+	private final int numberOfLinks;
+	private final long nodeMoves;
+	private final long linkMoves;
+	private final long runTime;
+
+	RunnerLoad(int runnerIndex, int numberOfNodes, int numberOfLinks, long nodeMoves, long linkMoves, long runTime) {
+		this.runnerIndex = runnerIndex;
+		this.numberOfNodes = numberOfNodes;
+		this.numberOfLinks = numberOfLinks;
+		this.nodeMoves = nodeMoves;
+		this.linkMoves = linkMoves;
+		this.runTime = runTime;
+	}
+
+	public int getRunnerIndex() {
+		return this.runnerIndex;
+	}
+
+	/**
+	 * @return the number of nodes assigned to the runner
+	 */
+	public int getNumberOfNodes() {
+		return this.numberOfNodes;
+	}
+
+	/**
+	 * @return the number of links assigned to the runner
+	 */
+	public int getNumberOfLinks() {
+		return this.numberOfLinks;
+	}
+
+	/**
+	 * @return how often an active node was moved, summed up over all time steps
+	 */
+	public long getNodeMoves() {
+		return this.nodeMoves;
+	}
+
+	/**
+	 * @return how often an active link was moved, summed up over all time steps
+	 */
+	public long getLinkMoves() {
+		return this.linkMoves;
+	}
+
+	/**
+	 * @return the time (in nanoseconds) the runner spent moving nodes and links (including the time waiting
+	 * for other runners in between), or -1 if it was not measured.
+	 */
+	public long getRunTime() {
+		return this.runTime;
+	}
+
+	/**
+	 * @return the ratio between the maximum and the mean number of node and link moves of the runners.  1.0 means perfectly balanced.
+	 */
+	public static double getActivityImbalance(List<RunnerLoad> loads) {
+		long sum = 0;
+		long max = 0;
+		for (RunnerLoad load : loads) {
+			long activity = load.nodeMoves + load.linkMoves;
+			sum += activity;
+			max = Math.max(max, activity);
+		}
+		return sum == 0 ? 1.0 : (double) max * loads.size() / sum;
+	}
+
+	/**
+	 * @return the ratio between the maximum and the mean run time of the runners, or NaN if the run times were not measured.
+	 */
+	public static double getRunTimeImbalance(List<RunnerLoad> loads) {
+		long sum = 0;
+		long max = 0;
+		for (RunnerLoad load : loads) {
+			if (load.runTime < 0) {
+				return Double.NaN;
+			}
+			sum += load.runTime;
+			max = Math.max(max, load.runTime);
+		}
+		return sum == 0 ? 1.0 : (double) max * loads.size() / sum;
+	}
+
+	@Override
+	public String toString() {
+		return "[runner=" + this.runnerIndex + "][nodes=" + this.numberOfNodes + "][links=" + this.numberOfLinks
+				+ "][nodeMoves=" + this.nodeMoves + "][linkMoves=" + this.linkMoves + "][runTime=" + this.runTime + "]";
+	}
+
+}
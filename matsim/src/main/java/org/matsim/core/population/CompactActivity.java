@@ -0,0 +1,158 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactActivity.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import static org.matsim.core.population.CompactPlanStore.*;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * An activity of a {@link CompactPlan}, reading and writing its values directly from and to the packed record.
+ */
+/* deliberately package */ final class CompactActivity implements Activity {
+
+	private final CompactPlanStore.Tables tables;
+	final int[] data;
+	final int offset;
+
+	private Attributes attributes = null;
+	/** coordinates with z values are not packed, the plan is not packed again as long as it has such an activity */
+	private Coord coordWithZ = null;
+
+	CompactActivity(final CompactPlanStore.Tables tables, final int[] data, final int offset) {
+		this.tables = tables;
+		this.data = data;
+		this.offset = offset;
+	}
+
+	@Override
+	public double getEndTime() {
+		return getTime(this.data, this.offset + ACT_END_TIME);
+	}
+
+	@Override
+	public void setEndTime(final double seconds) {
+		setTime(this.data, this.offset + ACT_END_TIME, seconds);
+	}
+
+	@Override
+	public String getType() {
+		return this.tables.strings.get(this.data[this.offset + ACT_TYPE]);
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.data[this.offset + ACT_TYPE] = this.tables.strings.index(type.intern());
+	}
+
+	@Override
+	public Coord getCoord() {
+		if (this.coordWithZ != null) {
+			return this.coordWithZ;
+		}
+		double x = getDouble(this.data, this.offset + ACT_X);
+		if (Double.isNaN(x)) {
+			return null;
+		}
+		return new Coord(x, getDouble(this.data, this.offset + ACT_Y));
+	}
+
+	@Override
+	public void setCoord(final Coord coord) {
+		this.coordWithZ = coord != null && coord.hasZ() ? coord : null;
+		setDouble(this.data, this.offset + ACT_X, coord == null ? Double.NaN : coord.getX());
+		setDouble(this.data, this.offset + ACT_Y, coord == null ? Double.NaN : coord.getY());
+	}
+
+	@Override
+	public double getStartTime() {
+		return getTime(this.data, this.offset + ACT_START_TIME);
+	}
+
+	@Override
+	public void setStartTime(final double seconds) {
+		setTime(this.data, this.offset + ACT_START_TIME, seconds);
+	}
+
+	@Override
+	public double getMaximumDuration() {
+		return getTime(this.data, this.offset + ACT_MAX_DURATION);
+	}
+
+	@Override
+	public void setMaximumDuration(final double seconds) {
+		setTime(this.data, this.offset + ACT_MAX_DURATION, seconds);
+	}
+
+	@Override
+	public Id<Link> getLinkId() {
+		return this.tables.links.get(this.data[this.offset + ACT_LINK]);
+	}
+
+	@Override
+	public void setLinkId(final Id<Link> id) {
+		this.data[this.offset + ACT_LINK] = this.tables.links.index(id);
+	}
+
+	@Override
+	public Id<ActivityFacility> getFacilityId() {
+		return this.tables.facilities.get(this.data[this.offset + ACT_FACILITY]);
+	}
+
+	@Override
+	public void setFacilityId(final Id<ActivityFacility> id) {
+		this.data[this.offset + ACT_FACILITY] = this.tables.facilities.index(id);
+	}
+
+	boolean hasCoordWithZ() {
+		return this.coordWithZ != null;
+	}
+
+	boolean hasAttributes() {
+		return this.attributes != null && !this.attributes.isEmpty();
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public String toString() {
+		return "[type=" + this.getType() + "]" +
+				"[coord=" + this.getCoord() + "]" +
+				"[linkId=" + this.getLinkId() + "]" +
+				"[startTime=" + Time.writeTime(this.getStartTime()) + "]" +
+				"[endTime=" + Time.writeTime(this.getEndTime()) + "]" +
+				"[duration=" + Time.writeTime(this.getMaximumDuration()) + "]" +
+				"[facilityId=" + this.getFacilityId() + "]" ;
+	}
+
+}
@@ -0,0 +1,140 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactLeg.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import static org.matsim.core.population.CompactPlanStore.*;
+
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A leg of a {@link CompactPlan}, reading and writing its values directly from and to the packed record. The route
+ * is only created when it is requested, and is then held by the leg until the plan is packed again.
+ */
+/* deliberately package */ final class CompactLeg implements Leg {
+
+	private final CompactPlanStore store;
+	final int[] data;
+	final int recordStart;
+	final int offset;
+
+	private Route route = null;
+	private boolean routeResolved = false;
+	private boolean routeReplaced = false;
+	private Attributes attributes = null;
+
+	CompactLeg(final CompactPlanStore store, final int[] data, final int recordStart, final int offset) {
+		this.store = store;
+		this.data = data;
+		this.recordStart = recordStart;
+		this.offset = offset;
+	}
+
+	@Override
+	public String getMode() {
+		return this.store.tables.strings.get(this.data[this.offset + LEG_MODE]);
+	}
+
+	@Override
+	public void setMode(final String mode) {
+		this.data[this.offset + LEG_MODE] = this.store.tables.strings.index(mode);
+	}
+
+	@Override
+	public Route getRoute() {
+		if (!this.routeResolved) {
+			this.route = this.store.createRoute(this.data, this.recordStart, this.offset);
+			this.routeResolved = true;
+		}
+		return this.route;
+	}
+
+	@Override
+	public void setRoute(final Route route) {
+		this.route = route;
+		this.routeResolved = true;
+		this.routeReplaced = true;
+	}
+
+	/**
+	 * @return <code>false</code> as long as the route was neither requested nor replaced, i.e. the packed route is
+	 * still valid.
+	 */
+	boolean isRouteResolved() {
+		return this.routeResolved;
+	}
+
+	/**
+	 * @return <code>true</code> if a route was set, as opposed to only requested. A requested route may still have
+	 * been changed, see {@link CompactPlanStore#isModified(long, java.util.List)}.
+	 */
+	boolean isRouteReplaced() {
+		return this.routeReplaced;
+	}
+
+	int getPackedLinkCount() {
+		return this.data[this.offset + LEG_ROUTE_KIND] == ROUTE_NETWORK ? this.data[this.offset + ROUTE_LINKS_COUNT] : 0;
+	}
+
+	@Override
+	public double getDepartureTime() {
+		return getTime(this.data, this.offset + LEG_DEPARTURE_TIME);
+	}
+
+	@Override
+	public void setDepartureTime(final double seconds) {
+		setTime(this.data, this.offset + LEG_DEPARTURE_TIME, seconds);
+	}
+
+	@Override
+	public double getTravelTime() {
+		return getTime(this.data, this.offset + LEG_TRAVEL_TIME);
+	}
+
+	@Override
+	public void setTravelTime(final double seconds) {
+		setTime(this.data, this.offset + LEG_TRAVEL_TIME, seconds);
+	}
+
+	boolean hasAttributes() {
+		return this.attributes != null && !this.attributes.isEmpty();
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public String toString() {
+		return "[mode=" + this.getMode() + "]" +
+				"[depTime=" + Time.writeTime(this.getDepartureTime()) + "]" +
+				"[travTime=" + Time.writeTime(this.getTravelTime()) + "]" +
+				"[arrTime=" + Time.writeTime(this.getDepartureTime() + this.getTravelTime()) + "]" +
+				"[route=" + this.getRoute() + "]";
+	}
+
+}
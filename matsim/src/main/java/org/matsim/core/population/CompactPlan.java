@@ -0,0 +1,193 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlan.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Customizable;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.scenario.CustomizableUtils;
+import org.matsim.utils.objectattributes.attributable.Attributes;
+
+/**
+ * A plan whose elements are packed into a {@link CompactPlanStore}. The plan elements are only created when
+ * {@link #getPlanElements()} is called and are then held by the plan, so that the list can be modified as usual,
+ * until the plan is packed again with {@link #compact(CompactPlanStore)}. Plans that were only read keep their
+ * record, only their plan elements are dropped.
+ * <p></p>
+ * Plan elements obtained before the plan was packed again must not be used afterwards.
+ */
+/* deliberately package */ final class CompactPlan implements Plan {
+
+	private CompactPlanStore store;
+	private long record;
+	private List<PlanElement> elements = null;
+
+	private Double score = null;
+	private Person person = null;
+	private String type = null;
+
+	private Customizable customizableDelegate = null;
+	private Attributes attributes = null;
+
+	private CompactPlan(final CompactPlanStore store, final long record) {
+		this.store = store;
+		this.record = record;
+	}
+
+	/**
+	 * @return a packed copy of the plan, or <code>null</code> if the plan elements cannot be packed.
+	 */
+	static CompactPlan createFrom(final Plan plan, final CompactPlanStore store) {
+		long record = store.pack(plan.getPlanElements());
+		if (record < 0) {
+			return null;
+		}
+		CompactPlan compactPlan = new CompactPlan(store, record);
+		compactPlan.score = plan.getScore();
+		compactPlan.person = plan.getPerson();
+		compactPlan.type = plan.getType();
+		if (!plan.getAttributes().isEmpty()) {
+			compactPlan.attributes = plan.getAttributes();
+		}
+		if (!plan.getCustomAttributes().isEmpty()) {
+			compactPlan.getCustomAttributes().putAll(plan.getCustomAttributes());
+		}
+		return compactPlan;
+	}
+
+	/**
+	 * Packs the plan elements into the given store, if they were modified since the plan was packed, or copies the
+	 * record if the store is a different one. The plan elements of a plan that was only read are dropped.
+	 *
+	 * @return <code>false</code> if the plan elements cannot be packed and are kept as objects.
+	 */
+	boolean compact(final CompactPlanStore target) {
+		if (this.elements != null && !this.store.isModified(this.record, this.elements)) {
+			this.elements = null;
+		}
+		if (this.elements == null) {
+			if (target != this.store) {
+				this.record = target.copy(this.store, this.record);
+				this.store = target;
+			}
+			return true;
+		}
+		long packed = target.pack(this.elements);
+		if (packed < 0) {
+			return false;
+		}
+		if (target == this.store) {
+			this.store.release(this.record);
+		}
+		this.store = target;
+		this.record = packed;
+		this.elements = null;
+		return true;
+	}
+
+	@Override
+	public List<PlanElement> getPlanElements() {
+		if (this.elements == null) {
+			this.elements = this.store.createViews(this.record);
+		}
+		return this.elements;
+	}
+
+	@Override
+	public void addLeg(final Leg leg) {
+		getPlanElements().add(leg);
+	}
+
+	@Override
+	public void addActivity(final Activity act) {
+		getPlanElements().add(act);
+	}
+
+	@Override
+	public Person getPerson() {
+		return this.person;
+	}
+
+	@Override
+	public void setPerson(final Person person) {
+		this.person = person;
+	}
+
+	@Override
+	public Double getScore() {
+		return this.score;
+	}
+
+	@Override
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String getType() {
+		return this.type;
+	}
+
+	@Override
+	public void setType(final String type) {
+		this.type = type;
+	}
+
+	@Override
+	public Attributes getAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new Attributes();
+		}
+		return this.attributes;
+	}
+
+	@Override
+	public Map<String, Object> getCustomAttributes() {
+		if (this.customizableDelegate == null) {
+			this.customizableDelegate = CustomizableUtils.createCustomizable();
+		}
+		return this.customizableDelegate.getCustomAttributes();
+	}
+
+	@Override
+	public String toString() {
+		String scoreString = "undefined";
+		if (this.getScore() != null) {
+			scoreString = this.getScore().toString();
+		}
+		String personIdString = "undefined" ;
+		if ( this.getPerson() != null ) {
+			personIdString = this.getPerson().getId().toString() ;
+		}
+
+		return "[score=" + scoreString + "]" +
+				"[nof_acts_legs=" + (this.elements == null ? this.store.getElementCount(this.record) : this.elements.size()) + "]" +
+				"[type=" + this.type + "]" +
+				"[personId=" + personIdString + "]" ;
+	}
+
+}
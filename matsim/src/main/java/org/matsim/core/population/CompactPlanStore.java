@@ -0,0 +1,486 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPlanStore.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Stores the plan elements of {@link CompactPlan}s in pages of ints, which the garbage collector does not need to
+ * trace. Activity types, modes, route descriptions and Ids are stored as indices into tables shared by the whole
+ * population; times are stored as floats, coordinates and distances as doubles.
+ * <p></p>
+ * A plan is stored as one record, addressed by a <code>long</code>, containing the number of elements, the record
+ * size, one fixed-size slot per plan element and the link ids of all network routes of the plan. Records are never
+ * moved or changed in size: a plan whose structure changed is packed into a new record, the old record becomes
+ * garbage which is only reclaimed by copying all records into a new store, see {@link #getGarbageFraction()}.
+ */
+final class CompactPlanStore {
+
+	static final int PAGE_BITS = 20;
+	static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+	static final int PLAN_ELEMENTS = 0;
+	static final int PLAN_SIZE = 1;
+	static final int PLAN_HEADER = 2;
+
+	static final int ELEMENT_SIZE = 14;
+	static final int KIND = 0;
+	static final int KIND_ACTIVITY = 1;
+	static final int KIND_LEG = 2;
+
+	static final int ACT_TYPE = 1;
+	static final int ACT_LINK = 2;
+	static final int ACT_FACILITY = 3;
+	static final int ACT_X = 4;
+	static final int ACT_Y = 6;
+	static final int ACT_START_TIME = 8;
+	static final int ACT_END_TIME = 9;
+	static final int ACT_MAX_DURATION = 10;
+
+	static final int LEG_MODE = 1;
+	static final int LEG_DEPARTURE_TIME = 2;
+	static final int LEG_TRAVEL_TIME = 3;
+	static final int LEG_ROUTE_KIND = 4;
+	static final int ROUTE_START_LINK = 5;
+	static final int ROUTE_END_LINK = 6;
+	static final int ROUTE_DISTANCE = 7;
+	static final int ROUTE_TRAVEL_TIME = 9;
+	/** offset of the link ids of a network route, relative to the start of the plan record */
+	static final int ROUTE_LINKS_OFFSET = 10;
+	static final int ROUTE_LINKS_COUNT = 11;
+	/** the vehicle of a network route or the description of a generic route */
+	static final int ROUTE_VEHICLE_OR_DESCRIPTION = 12;
+	static final int ROUTE_TRAVEL_COST = 13;
+
+	static final int ROUTE_NONE = 0;
+	static final int ROUTE_NETWORK = 1;
+	static final int ROUTE_GENERIC = 2;
+
+	final Tables tables;
+	final RouteFactories routeFactories;
+	private Class<?> networkRouteClass = null;
+	private Class<?> genericRouteClass = null;
+
+	private volatile int[][] pages = new int[1][];
+	private int pageCount = 0;
+	private int pageFill = PAGE_SIZE;
+	private long used = 0;
+	private long garbage = 0;
+
+	CompactPlanStore(final RouteFactories routeFactories) {
+		this(routeFactories, new Tables());
+	}
+
+	private CompactPlanStore(final RouteFactories routeFactories, final Tables tables) {
+		this.routeFactories = routeFactories;
+		this.tables = tables;
+	}
+
+	/**
+	 * @return an empty store sharing the string and Id tables with this one
+	 */
+	CompactPlanStore createEmptyCopy() {
+		return new CompactPlanStore(this.routeFactories, this.tables);
+	}
+
+	int[] page(final long record) {
+		return this.pages[(int) (record >>> PAGE_BITS)];
+	}
+
+	static int offset(final long record) {
+		return (int) (record & (PAGE_SIZE - 1));
+	}
+
+	/**
+	 * @return the fraction of the stored ints that belong to records which were replaced by newer records
+	 */
+	double getGarbageFraction() {
+		return this.used == 0 ? 0.0 : (double) this.garbage / this.used;
+	}
+
+	long getUsedInts() {
+		return this.used;
+	}
+
+	void release(final long record) {
+		this.garbage += page(record)[offset(record) + PLAN_SIZE];
+	}
+
+	private synchronized long allocate(final int size) {
+		if (this.pageFill + size > PAGE_SIZE) {
+			if (this.pageCount == this.pages.length) {
+				this.pages = Arrays.copyOf(this.pages, this.pages.length * 2);
+			}
+			this.pages[this.pageCount++] = new int[PAGE_SIZE];
+			this.pageFill = 0;
+		}
+		long record = ((long) (this.pageCount - 1) << PAGE_BITS) | this.pageFill;
+		this.pageFill += size;
+		this.used += size;
+		return record;
+	}
+
+	/**
+	 * @return the record of the packed plan elements, or <code>-1</code> if they cannot be stored in this format,
+	 * e.g. because they have attributes or an unknown type of route.
+	 */
+	long pack(final List<PlanElement> elements) {
+		if (this.genericRouteClass == null) {
+			// only routes of the classes created by the route factories can be restored
+			this.networkRouteClass = this.routeFactories.createRoute(NetworkRoute.class, null, null).getClass();
+			this.genericRouteClass = this.routeFactories.createRoute(Route.class, null, null).getClass();
+		}
+		int size = PLAN_HEADER + elements.size() * ELEMENT_SIZE;
+		for (PlanElement pe : elements) {
+			if (pe instanceof CompactActivity || pe instanceof ActivityImpl) {
+				Activity act = (Activity) pe;
+				if (hasAttributes(pe) || (act.getCoord() != null && act.getCoord().hasZ())) {
+					return -1;
+				}
+			} else if (pe instanceof CompactLeg && !((CompactLeg) pe).isRouteResolved()) {
+				size += ((CompactLeg) pe).getPackedLinkCount();
+				if (hasAttributes(pe)) {
+					return -1;
+				}
+			} else if (pe instanceof CompactLeg || pe instanceof LegImpl) {
+				Route route = ((Leg) pe).getRoute();
+				if (hasAttributes(pe)) {
+					return -1;
+				}
+				if (route == null) {
+					continue;
+				}
+				if (route.getClass() == this.networkRouteClass) {
+					size += ((NetworkRoute) route).getLinkIds().size();
+				} else if (route.getClass() != this.genericRouteClass) {
+					return -1;
+				}
+			} else {
+				return -1;
+			}
+		}
+		if (size > PAGE_SIZE) {
+			return -1;
+		}
+		long record = allocate(size);
+		int[] data = page(record);
+		int start = offset(record);
+		data[start + PLAN_ELEMENTS] = elements.size();
+		data[start + PLAN_SIZE] = size;
+		int links = PLAN_HEADER + elements.size() * ELEMENT_SIZE;
+		for (int i = 0; i < elements.size(); i++) {
+			PlanElement pe = elements.get(i);
+			int o = start + PLAN_HEADER + i * ELEMENT_SIZE;
+			if (pe instanceof Activity) {
+				writeActivity((Activity) pe, data, o);
+			} else {
+				links = writeLeg((Leg) pe, data, o, start, links);
+			}
+		}
+		return record;
+	}
+
+	private static boolean hasAttributes(final PlanElement pe) {
+		if (pe instanceof CompactActivity) {
+			return ((CompactActivity) pe).hasAttributes();
+		}
+		if (pe instanceof CompactLeg) {
+			return ((CompactLeg) pe).hasAttributes();
+		}
+		return !pe.getAttributes().isEmpty();
+	}
+
+	private void writeActivity(final Activity act, final int[] data, final int o) {
+		data[o + KIND] = KIND_ACTIVITY;
+		data[o + ACT_TYPE] = this.tables.strings.index(act.getType());
+		data[o + ACT_LINK] = this.tables.links.index(act.getLinkId());
+		data[o + ACT_FACILITY] = this.tables.facilities.index(act.getFacilityId());
+		Coord coord = act.getCoord();
+		setDouble(data, o + ACT_X, coord == null ? Double.NaN : coord.getX());
+		setDouble(data, o + ACT_Y, coord == null ? Double.NaN : coord.getY());
+		setTime(data, o + ACT_START_TIME, act.getStartTime());
+		setTime(data, o + ACT_END_TIME, act.getEndTime());
+		setTime(data, o + ACT_MAX_DURATION, act.getMaximumDuration());
+	}
+
+	private int writeLeg(final Leg leg, final int[] data, final int o, final int start, int links) {
+		data[o + KIND] = KIND_LEG;
+		data[o + LEG_MODE] = this.tables.strings.index(leg.getMode());
+		setTime(data, o + LEG_DEPARTURE_TIME, leg.getDepartureTime());
+		setTime(data, o + LEG_TRAVEL_TIME, leg.getTravelTime());
+		if (leg instanceof CompactLeg && !((CompactLeg) leg).isRouteResolved()) {
+			// copy the route without creating it
+			CompactLeg packed = (CompactLeg) leg;
+			int[] from = packed.data;
+			int fromOffset = packed.offset;
+			System.arraycopy(from, fromOffset + LEG_ROUTE_KIND, data, o + LEG_ROUTE_KIND, ELEMENT_SIZE - LEG_ROUTE_KIND);
+			int count = from[fromOffset + ROUTE_LINKS_COUNT];
+			System.arraycopy(from, packed.recordStart + from[fromOffset + ROUTE_LINKS_OFFSET], data, start + links, count);
+			data[o + ROUTE_LINKS_OFFSET] = links;
+			return links + count;
+		}
+		Route route = leg.getRoute();
+		if (route == null) {
+			data[o + LEG_ROUTE_KIND] = ROUTE_NONE;
+			return links;
+		}
+		data[o + ROUTE_START_LINK] = this.tables.links.index(route.getStartLinkId());
+		data[o + ROUTE_END_LINK] = this.tables.links.index(route.getEndLinkId());
+		setDouble(data, o + ROUTE_DISTANCE, route.getDistance());
+		setTime(data, o + ROUTE_TRAVEL_TIME, route.getTravelTime());
+		if (route instanceof NetworkRoute) {
+			NetworkRoute networkRoute = (NetworkRoute) route;
+			List<Id<Link>> linkIds = networkRoute.getLinkIds();
+			data[o + LEG_ROUTE_KIND] = ROUTE_NETWORK;
+			data[o + ROUTE_LINKS_OFFSET] = links;
+			data[o + ROUTE_LINKS_COUNT] = linkIds.size();
+			for (Id<Link> linkId : linkIds) {
+				data[start + links++] = this.tables.links.index(linkId);
+			}
+			data[o + ROUTE_VEHICLE_OR_DESCRIPTION] = this.tables.vehicles.index(networkRoute.getVehicleId());
+			data[o + ROUTE_TRAVEL_COST] = Float.floatToRawIntBits((float) networkRoute.getTravelCost());
+		} else {
+			data[o + LEG_ROUTE_KIND] = ROUTE_GENERIC;
+			data[o + ROUTE_LINKS_OFFSET] = 0;
+			data[o + ROUTE_LINKS_COUNT] = 0;
+			data[o + ROUTE_VEHICLE_OR_DESCRIPTION] = this.tables.strings.index(route.getRouteDescription());
+		}
+		return links;
+	}
+
+	int getElementCount(final long record) {
+		return page(record)[offset(record) + PLAN_ELEMENTS];
+	}
+
+	/**
+	 * Creates the plan elements viewing the record.
+	 */
+	List<PlanElement> createViews(final long record) {
+		int[] data = page(record);
+		int start = offset(record);
+		int count = data[start + PLAN_ELEMENTS];
+		List<PlanElement> elements = new ArrayList<>(count + 2);
+		for (int i = 0; i < count; i++) {
+			int o = start + PLAN_HEADER + i * ELEMENT_SIZE;
+			if (data[o + KIND] == KIND_ACTIVITY) {
+				elements.add(new CompactActivity(this.tables, data, o));
+			} else {
+				elements.add(new CompactLeg(this, data, start, o));
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * @return <code>false</code> if the elements are still exactly the views created for the record and hold no
+	 * values beyond the ones in the record, i.e. if the plan was only read or its scalar values were written
+	 * through to the record. Elements that were added, removed or replaced, attributes, coordinates with z value,
+	 * and routes which were set or changed after being requested make the plan modified.
+	 */
+	boolean isModified(final long record, final List<PlanElement> elements) {
+		int[] data = page(record);
+		int start = offset(record);
+		if (elements.size() != data[start + PLAN_ELEMENTS]) {
+			return true;
+		}
+		for (int i = 0; i < elements.size(); i++) {
+			PlanElement pe = elements.get(i);
+			int o = start + PLAN_HEADER + i * ELEMENT_SIZE;
+			if (pe instanceof CompactActivity) {
+				CompactActivity act = (CompactActivity) pe;
+				if (act.data != data || act.offset != o || act.hasAttributes() || act.hasCoordWithZ()) {
+					return true;
+				}
+			} else if (pe instanceof CompactLeg) {
+				CompactLeg leg = (CompactLeg) pe;
+				if (leg.data != data || leg.offset != o || leg.hasAttributes()) {
+					return true;
+				}
+				if (leg.isRouteResolved() && (leg.isRouteReplaced() || !isPacked(leg.getRoute(), data, start, o))) {
+					return true;
+				}
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if the route, created from the record, still has the packed values.
+	 */
+	private boolean isPacked(final Route route, final int[] data, final int start, final int o) {
+		int kind = data[o + LEG_ROUTE_KIND];
+		if (route == null || kind == ROUTE_NONE) {
+			return route == null && kind == ROUTE_NONE;
+		}
+		if (!Objects.equals(route.getStartLinkId(), this.tables.links.get(data[o + ROUTE_START_LINK]))
+				|| !Objects.equals(route.getEndLinkId(), this.tables.links.get(data[o + ROUTE_END_LINK]))
+				|| Double.compare(route.getDistance(), getDouble(data, o + ROUTE_DISTANCE)) != 0
+				|| Float.floatToRawIntBits((float) route.getTravelTime()) != data[o + ROUTE_TRAVEL_TIME]) {
+			return false;
+		}
+		if (kind == ROUTE_GENERIC) {
+			return !(route instanceof NetworkRoute)
+					&& Objects.equals(route.getRouteDescription(), this.tables.strings.get(data[o + ROUTE_VEHICLE_OR_DESCRIPTION]));
+		}
+		if (!(route instanceof NetworkRoute)) {
+			return false;
+		}
+		NetworkRoute networkRoute = (NetworkRoute) route;
+		List<Id<Link>> linkIds = networkRoute.getLinkIds();
+		int count = data[o + ROUTE_LINKS_COUNT];
+		int linksStart = start + data[o + ROUTE_LINKS_OFFSET];
+		if (linkIds.size() != count) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			if (!Objects.equals(linkIds.get(i), this.tables.links.get(data[linksStart + i]))) {
+				return false;
+			}
+		}
+		return Objects.equals(networkRoute.getVehicleId(), this.tables.vehicles.get(data[o + ROUTE_VEHICLE_OR_DESCRIPTION]))
+				&& Float.floatToRawIntBits((float) networkRoute.getTravelCost()) == data[o + ROUTE_TRAVEL_COST];
+	}
+
+	/**
+	 * Copies the record into this store, which may be a different store than the one holding the record.
+	 */
+	long copy(final CompactPlanStore source, final long sourceRecord) {
+		int[] from = source.page(sourceRecord);
+		int fromOffset = offset(sourceRecord);
+		int size = from[fromOffset + PLAN_SIZE];
+		long record = allocate(size);
+		System.arraycopy(from, fromOffset, page(record), offset(record), size);
+		return record;
+	}
+
+	/**
+	 * Creates the route of a packed leg.
+	 */
+	Route createRoute(final int[] data, final int recordStart, final int o) {
+		int kind = data[o + LEG_ROUTE_KIND];
+		if (kind == ROUTE_NONE) {
+			return null;
+		}
+		Id<Link> startLinkId = this.tables.links.get(data[o + ROUTE_START_LINK]);
+		Id<Link> endLinkId = this.tables.links.get(data[o + ROUTE_END_LINK]);
+		Route route;
+		if (kind == ROUTE_NETWORK) {
+			NetworkRoute networkRoute = this.routeFactories.createRoute(NetworkRoute.class, startLinkId, endLinkId);
+			int count = data[o + ROUTE_LINKS_COUNT];
+			int linksStart = recordStart + data[o + ROUTE_LINKS_OFFSET];
+			List<Id<Link>> linkIds = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				linkIds.add(this.tables.links.get(data[linksStart + i]));
+			}
+			networkRoute.setLinkIds(startLinkId, linkIds, endLinkId);
+			networkRoute.setVehicleId(this.tables.vehicles.get(data[o + ROUTE_VEHICLE_OR_DESCRIPTION]));
+			networkRoute.setTravelCost(Float.intBitsToFloat(data[o + ROUTE_TRAVEL_COST]));
+			route = networkRoute;
+		} else {
+			route = this.routeFactories.createRoute(Route.class, startLinkId, endLinkId);
+			route.setRouteDescription(this.tables.strings.get(data[o + ROUTE_VEHICLE_OR_DESCRIPTION]));
+		}
+		route.setDistance(getDouble(data, o + ROUTE_DISTANCE));
+		route.setTravelTime(getTime(data, o + ROUTE_TRAVEL_TIME));
+		return route;
+	}
+
+	static void setTime(final int[] data, final int index, final double time) {
+		data[index] = Float.floatToRawIntBits((float) time);
+	}
+
+	static double getTime(final int[] data, final int index) {
+		return Float.intBitsToFloat(data[index]);
+	}
+
+	static void setDouble(final int[] data, final int index, final double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		data[index] = (int) (bits >>> 32);
+		data[index + 1] = (int) bits;
+	}
+
+	static double getDouble(final int[] data, final int index) {
+		return Double.longBitsToDouble(((long) data[index] << 32) | (data[index + 1] & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * The tables of the strings and Ids, shared by all plans of a population.
+	 */
+	static final class Tables {
+		final Table<String> strings = new Table<>();
+		final Table<Id<Link>> links = new Table<>();
+		final Table<Id<ActivityFacility>> facilities = new Table<>();
+		final Table<Id<Vehicle>> vehicles = new Table<>();
+	}
+
+	/**
+	 * Maps values to dense indices, <code>-1</code> stands for <code>null</code>. Plan elements may be changed by
+	 * several threads during replanning, so adding values is synchronized and the array of values is replaced
+	 * instead of being modified when it grows.
+	 */
+	static final class Table<T> {
+		private final Map<T, Integer> indices = new HashMap<>();
+		private volatile Object[] values = new Object[16];
+
+		synchronized int index(final T value) {
+			if (value == null) {
+				return -1;
+			}
+			Integer index = this.indices.get(value);
+			if (index == null) {
+				index = this.indices.size();
+				Object[] current = this.values;
+				if (index == current.length) {
+					current = Arrays.copyOf(current, current.length * 2);
+				}
+				current[index] = value;
+				this.values = current;
+				this.indices.put(value, index);
+			}
+			return index;
+		}
+
+		@SuppressWarnings("unchecked")
+		T get(final int index) {
+			return index < 0 ? null : (T) this.values[index];
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactPopulationImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.population.routes.RouteFactories;
+
+/**
+ * A population which packs the plans of its persons into a {@link CompactPlanStore} when the persons are added.
+ * Plans which are created or modified later on, e.g. during replanning, are only packed again when
+ * {@link #compact()} is called, see {@link PopulationUtils#compactPlans(org.matsim.api.core.v01.population.Population)}.
+ */
+/* deliberately package */ final class CompactPopulationImpl extends PopulationImpl {
+	private static final Logger log = Logger.getLogger(CompactPopulationImpl.class);
+
+	private CompactPlanStore store;
+
+	CompactPopulationImpl(final PopulationFactory populationFactory, final RouteFactories routeFactories) {
+		super(populationFactory);
+		this.store = new CompactPlanStore(routeFactories);
+	}
+
+	@Override
+	public void addPerson(final Person p) {
+		packPlans(p, this.store);
+		super.addPerson(p);
+	}
+
+	/**
+	 * Packs all plans which were created or modified since they were packed; plans which were only read keep their
+	 * records. If more than half of the store is occupied by plans which were replaced, all plans are copied into a
+	 * new store.
+	 */
+	void compact() {
+		CompactPlanStore target = this.store;
+		if (this.store.getGarbageFraction() > 0.5) {
+			target = this.store.createEmptyCopy();
+		}
+		int unpacked = 0;
+		for (Person person : getPersons().values()) {
+			unpacked += packPlans(person, target);
+		}
+		if (target != this.store) {
+			log.info("copied plans into new store, size " + this.store.getUsedInts() + " -> " + target.getUsedInts() + " ints.");
+		}
+		if (unpacked > 0) {
+			log.info(unpacked + " plans cannot be stored compactly, e.g. because they contain attributes or unknown route types.");
+		}
+		this.store = target;
+	}
+
+	/**
+	 * @return the number of ints allocated in the store, including the ones of replaced plans
+	 */
+	long getUsedInts() {
+		return this.store.getUsedInts();
+	}
+
+	/**
+	 * @return the number of plans which could not be packed
+	 */
+	private static int packPlans(final Person person, final CompactPlanStore target) {
+		int unpacked = 0;
+		@SuppressWarnings("unchecked")
+		List<Plan> plans = (List<Plan>) person.getPlans();
+		for (int i = 0; i < plans.size(); i++) {
+			Plan plan = plans.get(i);
+			if (plan instanceof CompactPlan) {
+				if (!((CompactPlan) plan).compact(target)) {
+					unpacked++;
+				}
+			} else {
+				CompactPlan compactPlan = CompactPlan.createFrom(plan, target);
+				if (compactPlan == null) {
+					unpacked++;
+				} else {
+					boolean selected = person.getSelectedPlan() == plan;
+					plans.set(i, compactPlan);
+					if (selected) {
+						person.setSelectedPlan(compactPlan);
+					}
+				}
+			}
+		}
+		return unpacked;
+	}
+
+}
@@ -120,8 +120,21 @@ public final class PopulationUtils {
 			throw new IllegalArgumentException("The type \"" + networkRouteType + "\" is not a supported type for network routes.");
 		}
 		routeFactory.setRouteFactory(NetworkRoute.class, factory);
+		if (PlansConfigGroup.PlansStorage.compact.equals(plansConfigGroup.getPlansStorage())) {
+			return new CompactPopulationImpl(new PopulationFactoryImpl(routeFactory), routeFactory);
+		}
 		return new PopulationImpl(new PopulationFactoryImpl(routeFactory));
 	}
+
+	/**
+	 * Packs the plans which were created or modified since the last call, if the population stores its plans
+	 * compactly (see {@link PlansConfigGroup#getPlansStorage()}). Does nothing for other populations.
+	 */
+	public static void compactPlans(Population population) {
+		if (population instanceof CompactPopulationImpl) {
+			((CompactPopulationImpl) population).compact();
+		}
+	}
 	
 //	public static Population createStreamingPopulation(PlansConfigGroup plansConfigGroup, Network network) {
 //		// yyyy my intuition would be to rather get this out of a standard scenario. kai, jun'16
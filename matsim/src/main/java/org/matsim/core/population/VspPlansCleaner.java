@@ -28,6 +28,8 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.config.groups.PlansConfigGroup;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
+import org.matsim.core.replanning.PipelinedReplanning;
 import org.matsim.core.utils.misc.Time;
 
 import com.google.inject.Inject;
@@ -40,55 +42,69 @@ import com.google.inject.Inject;
 
 	@Inject private PlansConfigGroup plansConfigGroup;
 	@Inject private Population population;
+	@Inject(optional = true) private PipelinedReplanning pipelinedReplanning;
 
 	@Override
 	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
-		PlansConfigGroup.ActivityDurationInterpretation actDurInterp = (plansConfigGroup.getActivityDurationInterpretation() ) ;
-		for ( Person person : population.getPersons().values() ) {
+		PersonAlgorithm cleaner = new PersonAlgorithm() {
+			@Override
+			public void run(Person person) {
+				clean(person);
+			}
+		};
+		if ( pipelinedReplanning != null ) {
+			// the plans of some persons may still be replanned; they are cleaned as soon as they are final
+			pipelinedReplanning.runOnFinalPlans(population, cleaner);
+		} else {
+			for ( Person person : population.getPersons().values() ) {
+				cleaner.run(person);
+			}
+		}
+	}
 
-			Plan plan = person.getSelectedPlan() ; 
-			// do this only for the selected plan in the assumption that the other ones are clean
-			
-			for ( PlanElement pe : plan.getPlanElements() ) {
-				if ( pe instanceof Activity ) {
-					Activity act = (Activity) pe ;
+	private void clean(Person person) {
+		PlansConfigGroup.ActivityDurationInterpretation actDurInterp = (plansConfigGroup.getActivityDurationInterpretation() ) ;
+		Plan plan = person.getSelectedPlan() ; 
+		// do this only for the selected plan in the assumption that the other ones are clean
+		
+		for ( PlanElement pe : plan.getPlanElements() ) {
+			if ( pe instanceof Activity ) {
+				Activity act = (Activity) pe ;
+				
+				if ( actDurInterp == PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime ) {
 					
-					if ( actDurInterp == PlansConfigGroup.ActivityDurationInterpretation.minOfDurationAndEndTime ) {
-						
-						// person stays at the activity either until its duration is over or until its end time, whatever comes first
-						// do nothing
-						
-					} else if ( actDurInterp == PlansConfigGroup.ActivityDurationInterpretation.endTimeOnly ) {
-						
-						// always set duration to undefined:
-						act.setMaximumDuration( Time.UNDEFINED_TIME ) ;
-						
-					} else if ( actDurInterp == PlansConfigGroup.ActivityDurationInterpretation.tryEndTimeThenDuration ) {
-						
-						// set duration to undefined if there is an activity end time:
-						if ( act.getEndTime() != Time.UNDEFINED_TIME ) {
-							act.setMaximumDuration(Time.UNDEFINED_TIME) ;
-						}
-						
-					} else {
-						throw new IllegalStateException("should not happen") ;
-					}
+					// person stays at the activity either until its duration is over or until its end time, whatever comes first
+					// do nothing
 					
-					if (plansConfigGroup.isRemovingUnneccessaryPlanAttributes()) {
-						act.setStartTime(Time.UNDEFINED_TIME) ;
-					}
+				} else if ( actDurInterp == PlansConfigGroup.ActivityDurationInterpretation.endTimeOnly ) {
+					
+					// always set duration to undefined:
+					act.setMaximumDuration( Time.UNDEFINED_TIME ) ;
+					
+				} else if ( actDurInterp == PlansConfigGroup.ActivityDurationInterpretation.tryEndTimeThenDuration ) {
 					
-				} else if ( pe instanceof Leg ) {
-					Leg leg = (Leg) pe ;
-					if (plansConfigGroup.isRemovingUnneccessaryPlanAttributes()) {
-						leg.setDepartureTime(Time.UNDEFINED_TIME) ;
-						Leg r = (leg); // given by activity end time; everything else confuses
-						r.setTravelTime( Time.UNDEFINED_TIME - r.getDepartureTime() );
-						leg.setTravelTime( Time.UNDEFINED_TIME ); // added apr'2015
+					// set duration to undefined if there is an activity end time:
+					if ( act.getEndTime() != Time.UNDEFINED_TIME ) {
+						act.setMaximumDuration(Time.UNDEFINED_TIME) ;
 					}
+					
+				} else {
+					throw new IllegalStateException("should not happen") ;
+				}
+				
+				if (plansConfigGroup.isRemovingUnneccessaryPlanAttributes()) {
+					act.setStartTime(Time.UNDEFINED_TIME) ;
+				}
+				
+			} else if ( pe instanceof Leg ) {
+				Leg leg = (Leg) pe ;
+				if (plansConfigGroup.isRemovingUnneccessaryPlanAttributes()) {
+					leg.setDepartureTime(Time.UNDEFINED_TIME) ;
+					Leg r = (leg); // given by activity end time; everything else confuses
+					r.setTravelTime( Time.UNDEFINED_TIME - r.getDepartureTime() );
+					leg.setTravelTime( Time.UNDEFINED_TIME ); // added apr'2015
 				}
 			}
-									
 		}
 	}
 
@@ -35,6 +35,7 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.config.Config;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.utils.geometry.CoordinateTransformation;
 import org.matsim.core.utils.geometry.transformations.IdentityTransformation;
 import org.matsim.facilities.ActivityFacilities;
@@ -183,6 +184,8 @@ import org.xml.sax.helpers.AttributesImpl;
 			} catch (InterruptedException e) {
 				throw new RuntimeException(e);
 			}
+			// the persons were added before their plans were parsed
+			PopulationUtils.compactPlans(this.plans);
 			
 			super.endTag(name, content, context);
 			log.info("Finished parallel population reading...");
@@ -0,0 +1,249 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6. The main thread only reads the file and collects the
+ * xml data of each person, which is then interpreted by the {@link ParallelPopulationReaderMatsimV6Runner}s.
+ * The completed persons are added to the population by the main thread, in the order in which they appear in
+ * the file.  This also works with population streaming, as the person algorithms are still run on the main thread
+ * one person after the other.
+ * <p></p>
+ * At most {@link #PERSONS_PER_THREAD} persons per thread are read ahead, so the memory needed does not depend on
+ * the size of the file.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private final static String POPULATION = "population";
+	private final static String PERSON = "person";
+	private final static String ATTR_PERSON_ID = "id";
+
+	/*package*/ static final int PERSONS_PER_THREAD = 256;
+
+	private final CoordinateTransformation coordinateTransformation;
+	private final Scenario scenario;
+	private final int numThreads;
+	private final int maxPendingPersons;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+
+	private final BlockingQueue<PersonBlock> queue;
+	private final Deque<PersonBlock> pendingPersons = new ArrayDeque<>();
+	private Thread[] threads;
+	private PersonBlock currentPerson = null;
+
+	public ParallelPopulationReaderMatsimV6(
+			final CoordinateTransformation coordinateTransformation,
+			final Scenario scenario,
+			final int numThreads) {
+		super(coordinateTransformation, scenario);
+		this.coordinateTransformation = coordinateTransformation;
+		this.scenario = scenario;
+		this.numThreads = Math.max(numThreads, 1);
+		this.maxPendingPersons = this.numThreads * PERSONS_PER_THREAD;
+		this.queue = new ArrayBlockingQueue<>(this.maxPendingPersons + this.numThreads);
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+	}
+
+	private void initThreads() {
+		this.threads = new Thread[this.numThreads];
+		for (int i = 0; i < this.numThreads; i++) {
+			ParallelPopulationReaderMatsimV6Runner runner =
+					new ParallelPopulationReaderMatsimV6Runner(
+							this.coordinateTransformation,
+							this.scenario,
+							this.attributeConverters,
+							this.queue);
+
+			Thread thread = new Thread(runner);
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationReaderMatsimV6Runner.class.getSimpleName() + i);
+			this.threads[i] = thread;
+			thread.start();
+		}
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (this.currentPerson != null) {
+			// We have to create copies of the attributes because the object is re-used by the parser!
+			this.currentPerson.tags.add(new Tag(name, new AttributesImpl(atts), null));
+			return;
+		}
+		switch (name) {
+			case POPULATION:
+				log.info("Start parallel population reading with " + this.numThreads + " threads...");
+				initThreads();
+				super.startTag(name, atts, context);
+				break;
+			case PERSON:
+				// create the id here, so that the ids of the persons are indexed in the order of the file
+				Id.create(atts.getValue(ATTR_PERSON_ID), Person.class);
+				Stack<String> personContext = new Stack<>();
+				personContext.addAll(context);
+				this.currentPerson = new PersonBlock(personContext);
+				this.currentPerson.tags.add(new Tag(name, new AttributesImpl(atts), null));
+				break;
+			default:
+				super.startTag(name, atts, context);
+		}
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.currentPerson != null) {
+			this.currentPerson.tags.add(new Tag(name, null, content));
+			if (PERSON.equals(name)) {
+				submit(this.currentPerson);
+				this.currentPerson = null;
+			}
+			return;
+		}
+		if (POPULATION.equals(name)) {
+			for (int i = 0; i < this.numThreads; i++) {
+				put(PersonBlock.END);
+			}
+			while (!this.pendingPersons.isEmpty()) {
+				addNextPerson();
+			}
+			try {
+				for (Thread thread : this.threads) {
+					thread.join();
+				}
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			log.info("Finished parallel population reading...");
+		}
+		super.endTag(name, content, context);
+	}
+
+	private void submit(final PersonBlock person) {
+		while (!this.pendingPersons.isEmpty() && this.pendingPersons.peekFirst().isDone()) {
+			addNextPerson();
+		}
+		while (this.pendingPersons.size() >= this.maxPendingPersons) {
+			addNextPerson();
+		}
+		this.pendingPersons.addLast(person);
+		put(person);
+	}
+
+	private void put(final PersonBlock person) {
+		try {
+			this.queue.put(person);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void addNextPerson() {
+		PersonBlock next = this.pendingPersons.removeFirst();
+		try {
+			next.done.await();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		if (next.error != null) {
+			for (Thread thread : this.threads) {
+				thread.interrupt();
+			}
+			throw new RuntimeException("Could not read person " + next.tags.get(0).atts.getValue(ATTR_PERSON_ID), next.error);
+		}
+		addPerson(next.person);
+	}
+
+	/**
+	 * The xml data of one person, and the person created from it.
+	 */
+	/*package*/ static final class PersonBlock {
+
+		/*package*/ static final PersonBlock END = new PersonBlock(null);
+
+		final Stack<String> context;
+		final List<Tag> tags = new ArrayList<>();
+		final CountDownLatch done = new CountDownLatch(1);
+		// written before done is counted down, so visible to the thread that awaits done
+		Person person = null;
+		Throwable error = null;
+
+		PersonBlock(final Stack<String> context) {
+			this.context = context;
+		}
+
+		boolean isDone() {
+			return this.done.getCount() == 0;
+		}
+
+		void finish(final Person person, final Throwable error) {
+			this.person = person;
+			this.error = error;
+			this.done.countDown();
+		}
+	}
+
+	/**
+	 * A start tag if <code>atts</code> is set, an end tag otherwise.
+	 */
+	/*package*/ static final class Tag {
+		final String name;
+		final Attributes atts;
+		final String content;
+
+		Tag(final String name, final Attributes atts, final String content) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+		}
+	}
+}
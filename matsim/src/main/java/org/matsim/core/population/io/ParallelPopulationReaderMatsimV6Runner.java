@@ -0,0 +1,91 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelPopulationReaderMatsimV6Runner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.PersonBlock;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.Tag;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * Runnable used by ParallelPopulationReaderMatsimV6.
+ * Creates the persons from the xml data taken from a BlockingQueue which is filled
+ * in the main class, and hands them back in their {@link PersonBlock}.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6Runner extends PopulationReaderMatsimV6 implements Runnable {
+
+	private final BlockingQueue<PersonBlock> queue;
+	private Person person = null;
+
+	public ParallelPopulationReaderMatsimV6Runner(
+			final CoordinateTransformation coordinateTransformation,
+			final Scenario scenario,
+			final Map<Class<?>, AttributeConverter<?>> attributeConverters,
+			final BlockingQueue<PersonBlock> queue) {
+		super(coordinateTransformation, scenario);
+		putAttributeConverters(attributeConverters);
+		this.queue = queue;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			PersonBlock block;
+			try {
+				block = this.queue.take();
+			} catch (InterruptedException e) {
+				// reading was aborted by the main thread
+				return;
+			}
+			if (block == PersonBlock.END) {
+				return;
+			}
+			this.person = null;
+			try {
+				// replay the tags the way the parser would have called them
+				Stack<String> context = block.context;
+				for (Tag tag : block.tags) {
+					if (tag.atts != null) {
+						startTag(tag.name, tag.atts, context);
+						context.push(tag.name);
+					} else {
+						context.pop();
+						endTag(tag.name, tag.content, context);
+					}
+				}
+				block.finish(this.person, null);
+			} catch (RuntimeException e) {
+				block.finish(null, e);
+			}
+		}
+	}
+
+	@Override
+	/*package*/ void addPerson(final Person person) {
+		this.person = person;
+	}
+}
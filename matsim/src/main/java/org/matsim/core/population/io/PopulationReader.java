@@ -101,10 +101,20 @@ public final class PopulationReader extends MatsimXmlParser {
 		super.setDoctype(doctype);
 		switch ( doctype ) {
 			case POPULATION_V6:
-				this.delegate =
-						new PopulationReaderMatsimV6(
-								coordinateTransformation,
-								this.scenario);
+				int numberOfThreads = this.scenario.getConfig().plans().getNumberOfReaderThreads();
+				if (numberOfThreads > 1) {
+					log.info("using the parallel population_v6-reader with " + numberOfThreads + " threads (plans.numberOfReaderThreads).");
+					this.delegate =
+							new ParallelPopulationReaderMatsimV6(
+									coordinateTransformation,
+									this.scenario,
+									numberOfThreads);
+				} else {
+					this.delegate =
+							new PopulationReaderMatsimV6(
+									coordinateTransformation,
+									this.scenario);
+				}
 				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
 				log.info("using population_v6-reader.");
 				break;
@@ -181,7 +181,7 @@ import java.util.Stack;
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		switch ( name ) {
 			case PERSON:
-				this.plans.addPerson(this.currperson);
+				addPerson(this.currperson);
 				this.currperson = null;
 				break;
 			case ATTRIBUTE:
@@ -203,6 +203,14 @@ import java.util.Stack;
 		}
 	}
 
+	/**
+	 * Called for every completely read person.  Overridden by {@link ParallelPopulationReaderMatsimV6Runner}, which
+	 * hands the person back to the thread that reads the file.
+	 */
+	/*package*/ void addPerson(final Person person) {
+		this.plans.addPerson(person);
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
@@ -26,6 +26,7 @@ import org.matsim.core.replanning.selectors.PlanSelector;
 import org.matsim.core.replanning.selectors.RandomUnscoredPlanSelector;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author nagel
@@ -39,6 +40,7 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 	private final ArrayList<T> plans = new ArrayList<>();
 	private long counter = 0;
 	private ReplanningContext replanningContext;
+	private boolean followingModulesPrepared = false;
 	private final static Logger log = Logger.getLogger(PlanStrategyImpl.class);
 
 	/**
@@ -114,7 +116,9 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 				this.firstModule.finishReplanning();
 			// now work through the others
 			for (GenericPlanStrategyModule<T> module : this.modules) {
-				module.prepareReplanning(replanningContext);
+				if (!this.followingModulesPrepared) {
+					module.prepareReplanning(replanningContext);
+				}
 				for (T plan : this.plans) {
 					module.handlePlan(plan);
 				}
@@ -122,10 +126,41 @@ public class GenericPlanStrategyImpl<T extends BasicPlan, I> implements GenericP
 			}
 		}
 		this.plans.clear();
+		this.followingModulesPrepared = false;
 		log.info("Plan-Strategy finished, " + this.counter + " plans handled. Strategy: " + this.toString());
 		this.counter = 0;
 	}
 
+	/**
+	 * Prepares the modules after the first one already before {@link #finish()}, which then only needs the random
+	 * number generators of the modules and can run on another thread, see {@link PipelinedReplanning}.
+	 */
+	final void prepareFollowingModules() {
+		for (GenericPlanStrategyModule<T> module : this.modules) {
+			module.prepareReplanning(this.replanningContext);
+		}
+		this.followingModulesPrepared = true;
+	}
+
+	/**
+	 * @return the modules of this strategy, including the first one
+	 */
+	final List<GenericPlanStrategyModule<T>> getStrategyModules() {
+		List<GenericPlanStrategyModule<T>> result = new ArrayList<>();
+		if (this.firstModule != null) {
+			result.add(this.firstModule);
+			result.addAll(this.modules);
+		}
+		return result;
+	}
+
+	/**
+	 * @return the plans handed to the modules since {@link #init(ReplanningContext)}
+	 */
+	final List<T> getPlansInProgress() {
+		return new ArrayList<>(this.plans);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder name = new StringBuilder(20);
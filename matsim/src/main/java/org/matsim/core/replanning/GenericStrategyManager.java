@@ -185,6 +185,25 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 					ObjectAttributes subPopLookup,
 					final ReplanningContext replanningContext) {
 
+		Collection<GenericPlanStrategy<T, I>> strategies = runSelection(persons, subPopLookup, replanningContext);
+
+		// finally make sure all strategies have finished there work
+		for (GenericPlanStrategy<T, I> strategy : strategies) {
+			strategy.finish();
+		}
+
+	}
+
+	/**
+	 * Initializes the strategies and runs a randomly chosen strategy on each person, but does not finish the strategies.
+	 *
+	 * @return the strategies which still need to be finished, in the order in which {@link #run} finishes them
+	 */
+	final Collection<GenericPlanStrategy<T, I>> runSelection(
+			final Iterable<? extends HasPlansAndId<T, I>> persons,
+					ObjectAttributes subPopLookup,
+					final ReplanningContext replanningContext) {
+
 		// initialize all strategies
 		for (GenericPlanStrategy<T, I> strategy : distinctStrategies()) {
 			strategy.init(replanningContext);
@@ -213,11 +232,7 @@ public class GenericStrategyManager<T extends BasicPlan, I extends HasPlansAndId
 			strategy.run(person);
 		}
 
-		// finally make sure all strategies have finished there work
-		for (GenericPlanStrategy<T, I> strategy : distinctStrategies()) {
-			strategy.finish();
-		}
-
+		return distinctStrategies();
 	}
 
 	private Collection<GenericPlanStrategy<T, I>> distinctStrategies() {
@@ -0,0 +1,313 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PipelinedReplanning.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
+import org.matsim.core.config.groups.PlansConfigGroup.ActivityDurationInterpretation;
+import org.matsim.core.config.groups.TimeAllocationMutatorConfigGroup;
+import org.matsim.core.config.groups.TimeAllocationMutatorConfigGroup.TimeAllocationMutatorSubpopulationSettings;
+import org.matsim.core.mobsim.qsim.agents.ActivityDurationUtils;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
+import org.matsim.core.replanning.modules.GenericPlanStrategyModule;
+
+/**
+ * Runs the replanning such that the mobsim can already start while the innovative strategies are still working on
+ * their plans, see {@link org.matsim.core.config.groups.StrategyConfigGroup#isPipelinedReplanning()}.
+ * <p></p>
+ * The selection of the strategies and of the plans is done on the calling thread, as is everything else which
+ * may depend on the global random number generators.  The strategies are then finished one after the other on a
+ * background thread.  The persons of a strategy form a {@link Batch}, whose plans are final once the strategy is
+ * finished.  The earliest departure of a batch is derived from the plans before the modules work on them, widened
+ * by the mutation range of the time allocation mutator; the mobsim must have inserted the agents of a batch before
+ * it reaches that time.
+ * <p></p>
+ * Everything else which reads or modifies the selected plans before {@link #awaitFinalPlans()} has to skip the
+ * persons of pending batches or use {@link #runOnFinalPlans(Population, PersonAlgorithm)}.
+ */
+@Singleton
+public final class PipelinedReplanning {
+
+	private static final Logger log = Logger.getLogger(PipelinedReplanning.class);
+
+	/**
+	 * The persons of one strategy which is finished in the background.
+	 */
+	public static final class Batch {
+
+		private final GenericPlanStrategyImpl<Plan, Person> strategy;
+		private final List<Person> persons;
+		private final double earliestDeparture;
+		private final List<PersonAlgorithm> algorithms = new ArrayList<>();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private final PipelinedReplanning pipeline;
+		private volatile boolean isFinal = false;
+
+		private Batch(PipelinedReplanning pipeline, GenericPlanStrategyImpl<Plan, Person> strategy, List<Person> persons, double earliestDeparture) {
+			this.pipeline = pipeline;
+			this.strategy = strategy;
+			this.persons = persons;
+			this.earliestDeparture = earliestDeparture;
+		}
+
+		/**
+		 * @return the persons of this batch, in the order of the population
+		 */
+		public List<Person> getPersons() {
+			return Collections.unmodifiableList(this.persons);
+		}
+
+		/**
+		 * @return a lower bound for the first departure of the persons of this batch with their final plans
+		 */
+		public double getEarliestDeparture() {
+			return this.earliestDeparture;
+		}
+
+		public boolean isFinal() {
+			return this.isFinal;
+		}
+
+		/**
+		 * Blocks until the plans of this batch are final.
+		 *
+		 * @throws RuntimeException if the replanning failed
+		 */
+		public void awaitFinal() {
+			try {
+				this.done.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			this.pipeline.checkFailure();
+		}
+
+		private void finish() {
+			this.strategy.finish();
+			synchronized (this) {
+				for (PersonAlgorithm algorithm : this.algorithms) {
+					for (Person person : this.persons) {
+						algorithm.run(person);
+					}
+				}
+				this.isFinal = true;
+			}
+			this.done.countDown();
+		}
+	}
+
+	private final ActivityDurationInterpretation activityDurationInterpretation;
+	private final double mutationRange;
+
+	private volatile List<Batch> batches = Collections.emptyList();
+	private Thread thread = null;
+	private volatile Throwable failure = null;
+	private StrategyManager strategyManager = null;
+	private Population population = null;
+
+	@Inject
+	PipelinedReplanning(Config config) {
+		this.activityDurationInterpretation = config.plans().getActivityDurationInterpretation();
+		this.mutationRange = getMaxMutationRange(config.timeAllocationMutator());
+	}
+
+	private static double getMaxMutationRange(TimeAllocationMutatorConfigGroup config) {
+		double range = config.getMutationRange();
+		if (config.isUseIndividualSettingsForSubpopulations()) {
+			for (ConfigGroup settings : config.getParameterSets(TimeAllocationMutatorSubpopulationSettings.SET_NAME)) {
+				range = Math.max(range, ((TimeAllocationMutatorSubpopulationSettings) settings).getMutationRange());
+			}
+		}
+		return range;
+	}
+
+	/**
+	 * Replans the population like {@link StrategyManager#run(Population, int, ReplanningContext)}, but returns as
+	 * soon as the remaining work can be done in the background.
+	 */
+	public void run(StrategyManager strategyManager, Population population, int iteration, ReplanningContext replanningContext) {
+		awaitFinalPlans();
+		Collection<GenericPlanStrategy<Plan, Person>> strategies = strategyManager.runSelection(population, iteration, replanningContext);
+		this.strategyManager = strategyManager;
+		this.population = population;
+
+		boolean inBackground = true;
+		Map<GenericPlanStrategyModule<Plan>, Boolean> modules = new IdentityHashMap<>();
+		for (GenericPlanStrategy<Plan, Person> strategy : strategies) {
+			if (strategy instanceof GenericPlanStrategyImpl) {
+				for (GenericPlanStrategyModule<Plan> module : ((GenericPlanStrategyImpl<Plan, Person>) strategy).getStrategyModules()) {
+					inBackground &= modules.put(module, Boolean.TRUE) == null;
+				}
+			}
+		}
+		if (!inBackground) {
+			log.warn("some strategies share strategy modules; finishing all strategies before the mobsim starts.");
+		}
+
+		// prepare or finish the strategies in the usual order, so that the random number generators are drawn as usual:
+		final List<Batch> batches = new ArrayList<>();
+		for (GenericPlanStrategy<Plan, Person> strategy : strategies) {
+			GenericPlanStrategyImpl<Plan, Person> impl = inBackground && strategy instanceof GenericPlanStrategyImpl ? (GenericPlanStrategyImpl<Plan, Person>) strategy : null;
+			List<Plan> plans = impl == null ? Collections.<Plan>emptyList() : impl.getPlansInProgress();
+			if (plans.isEmpty()) {
+				strategy.finish();
+				continue;
+			}
+			impl.prepareFollowingModules();
+			List<Person> persons = new ArrayList<>(plans.size());
+			double earliestDeparture = Double.POSITIVE_INFINITY;
+			for (Plan plan : plans) {
+				persons.add(plan.getPerson());
+				earliestDeparture = Math.min(earliestDeparture, getFirstDepartureTime(plan, this.activityDurationInterpretation));
+			}
+			batches.add(new Batch(this, impl, persons, earliestDeparture - this.mutationRange));
+		}
+		this.batches = batches;
+		if (batches.isEmpty()) {
+			awaitFinalPlans();
+			return;
+		}
+
+		this.failure = null;
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (Batch batch : batches) {
+						batch.finish();
+					}
+				} catch (Throwable e) {
+					log.error("pipelined replanning failed.", e);
+					PipelinedReplanning.this.failure = e;
+				} finally {
+					for (Batch batch : batches) {
+						batch.done.countDown();
+					}
+				}
+			}
+		}, "PipelinedReplanning");
+		this.thread.setDaemon(true);
+		this.thread.start();
+		log.info("finishing " + batches.size() + " strategies in the background.");
+	}
+
+	/**
+	 * @return the batches whose plans are not yet final, in the order in which they are finished
+	 */
+	public List<Batch> getPendingBatches() {
+		List<Batch> pending = new ArrayList<>();
+		for (Batch batch : this.batches) {
+			if (!batch.isFinal()) {
+				pending.add(batch);
+			}
+		}
+		return pending;
+	}
+
+	/**
+	 * Runs the algorithm on the selected plans of all persons, for the persons of pending batches only once their
+	 * plans are final.  The algorithm must hence be able to run on several persons concurrently.
+	 */
+	public void runOnFinalPlans(Population population, PersonAlgorithm algorithm) {
+		Set<Id<Person>> deferred = new HashSet<>();
+		for (Batch batch : this.batches) {
+			synchronized (batch) {
+				if (!batch.isFinal) {
+					batch.algorithms.add(algorithm);
+					for (Person person : batch.persons) {
+						deferred.add(person.getId());
+					}
+				}
+			}
+		}
+		for (Person person : population.getPersons().values()) {
+			if (!deferred.contains(person.getId())) {
+				algorithm.run(person);
+			}
+		}
+	}
+
+	/**
+	 * Blocks until all plans are final.  Does nothing if there is no replanning going on.
+	 *
+	 * @throws RuntimeException if the replanning failed
+	 */
+	public void awaitFinalPlans() {
+		if (this.thread != null) {
+			try {
+				this.thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			this.thread = null;
+			checkFailure();
+		}
+		if (this.strategyManager != null) {
+			this.strategyManager.afterRunHook(this.population);
+			this.strategyManager = null;
+			this.population = null;
+		}
+		this.batches = Collections.emptyList();
+	}
+
+	private void checkFailure() {
+		Throwable throwable = this.failure;
+		if (throwable != null) {
+			throw new RuntimeException("pipelined replanning failed.", throwable);
+		}
+	}
+
+	/**
+	 * @return the time at which an agent with this plan leaves its first activity if it was inserted into the mobsim
+	 * early enough; {@link Double#NEGATIVE_INFINITY} if that depends on the time of the insertion.
+	 */
+	public static double getFirstDepartureTime(Plan plan, ActivityDurationInterpretation activityDurationInterpretation) {
+		if (plan.getPlanElements().size() <= 1) {
+			return Double.POSITIVE_INFINITY;
+		}
+		try {
+			return ActivityDurationUtils.calculateDepartureTime((Activity) plan.getPlanElements().get(0), Double.NEGATIVE_INFINITY, activityDurationInterpretation);
+		} catch (IllegalStateException e) {
+			// the mobsim will complain about this plan
+			return Double.NEGATIVE_INFINITY;
+		}
+	}
+
+}
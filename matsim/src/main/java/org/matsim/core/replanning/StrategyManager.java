@@ -33,6 +33,7 @@ import org.matsim.core.replanning.selectors.WorstPlanForRemovalSelector;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -189,6 +190,16 @@ public class StrategyManager implements MatsimManager {
 		afterRunHook(population);
 	}
 
+	/**
+	 * Like {@link #run(Population, int, ReplanningContext)}, but does not finish the strategies and does not call
+	 * {@link #afterRunHook(Population)}; both is left to the {@link PipelinedReplanning}.
+	 */
+	final Collection<GenericPlanStrategy<Plan, Person>> runSelection(final Population population, final int iteration, final ReplanningContext replanningContext) {
+		delegate.handleChangeRequests(iteration);
+		beforePopulationRunHook(population, replanningContext);
+		return delegate.runSelection(population.getPersons().values(), population.getPersonAttributes(), replanningContext);
+	}
+
 	/**
 	 * @param population  
 	 */
@@ -46,6 +46,9 @@ public class StrategyManagerModule extends AbstractModule {
 		install(new DefaultPlanStrategiesModule());
 		bind(StrategyManager.class).in(Singleton.class);
 		bind(ReplanningContext.class).to(ReplanningContextImpl.class).asEagerSingleton();
+		if (getConfig().strategy().isPipelinedReplanning()) {
+			bind(PipelinedReplanning.class).in(Singleton.class);
+		}
 		MapBinder<StrategyConfigGroup.StrategySettings, PlanStrategy> planStrategyMapBinder = MapBinder.newMapBinder(binder(), StrategyConfigGroup.StrategySettings.class, PlanStrategy.class);
 		for (StrategyConfigGroup.StrategySettings settings : getConfig().strategy().getStrategySettings()) {
 			String name = settings.getStrategyName() ;
@@ -17,20 +17,32 @@
  *   See also COPYING, LICENSE and WARRANTY file                           *
  *                                                                         *
  * *********************************************************************** */
-
 package org.matsim.core.replanning.modules;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningScheduling;
+import org.matsim.core.metrics.Histogram;
+import org.matsim.core.metrics.MetricsRegistry;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +62,15 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * With {@link ReplanningScheduling#workStealing}, the plans are instead handled by a {@link ForkJoinPool}
+ * that is shared by all modules with the same number of threads and lives across iterations.  Idle threads
+ * take over plans from busy ones, so a few very long plans no longer keep the other threads waiting.  Every
+ * pool thread gets its own instance from getPlanAlgoInstance() and keeps it for the whole iteration.  Since
+ * it depends on the timing which instance handles which plan, runs are only reproducible if the results of the
+ * plan algorithms do not depend on their instance (e.g. on an instance-local random number generator).
+ * <p></p>
+ * In both cases, the time needed per plan is logged as a histogram after every iteration.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -59,6 +80,7 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
 	private final int numOfThreads;
+	private final ReplanningScheduling scheduling;
 
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
@@ -67,6 +89,14 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	private int count = 0;
 
+	private List<Plan> plans = null;
+	private final Deque<PlanAlgorithm> idleAlgos = new ArrayDeque<>();
+	private final Map<Thread, PlanAlgorithm> algosPerThread = new ConcurrentHashMap<>();
+	private Counter counter = null;
+	private PlanHandlingTimes handlingTimes = null;
+	// hot path metrics, see controler.collectMetrics; null if they are not collected
+	private MetricsRegistry metrics = null;
+
 	private final AtomicReference<Throwable> hadException = new AtomicReference<>(null);
 	private final ExceptionHandler exceptionHandler = new ExceptionHandler(this.hadException);
 
@@ -74,6 +104,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	static final private Logger log = Logger.getLogger(AbstractMultithreadedModule.class);
 
+	private static final Map<Integer, ForkJoinPool> pools = new HashMap<>();
+
 	/**
 	 * Design comments:<ul>
 	 * <li> The way I understand this, the instances that this method returns need to be thread-safe (i.e. independent from each other).  They can,
@@ -83,11 +115,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	abstract public PlanAlgorithm getPlanAlgoInstance();
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
-		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this(globalConfigGroup.getNumberOfThreads(), globalConfigGroup.getReplanningScheduling());
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, ReplanningScheduling.roundRobin);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final ReplanningScheduling scheduling) {
 		this.numOfThreads = numOfThreads;
+		this.scheduling = scheduling;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -102,12 +139,20 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void prepareReplanning(ReplanningContext replanningContextTmp) {
 		this.beforePrepareReplanningHook(replanningContextTmp);
 		this.replanningContext = replanningContextTmp;
+		this.metrics = MetricsRegistry.getCurrent();
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
+			this.name = this.directAlgo == null ? null : this.directAlgo.getClass().getSimpleName();
+			this.handlingTimes = new PlanHandlingTimes();
+		} else if (this.scheduling == ReplanningScheduling.workStealing) {
+			initWorkStealing();
 		} else {
 			initThreads();
 		}
+		if (this.metrics != null) {
+			this.handlingTimes.metrics = this.metrics.histogram("replanning." + this.name + ".plan");
+		}
 		this.afterPrepareReplanningHook(replanningContextTmp);
 	}
 
@@ -117,11 +162,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	@Override
 	public final void handlePlan(final Plan plan) {
-		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+		if (this.directAlgo != null) {
+			long start = System.nanoTime();
+			this.directAlgo.run(plan);
+			this.handlingTimes.add(System.nanoTime() - start);
+		} else if (this.plans != null) {
+			this.plans.add(plan);
 			this.count++;
 		} else {
-			this.directAlgo.run(plan);
+			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			this.count++;
 		}
 	}
 
@@ -135,8 +185,23 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void finishReplanning() {
 		this.beforeFinishReplanningHook();
+		long startNanos = System.nanoTime();
 		
-		if (this.directAlgo == null) {
+		if (this.plans != null) {
+			ForkJoinPool pool = getPool(this.numOfThreads);
+			log.info("[" + this.name + "] handling " + this.count + " plans with a work-stealing pool of " + pool.getParallelism() + " threads");
+			try {
+				pool.invoke(new PlanTask(0, this.plans.size(), Math.max(1, this.plans.size() / (this.numOfThreads * 64))));
+			} catch (RuntimeException | Error e) {
+				log.error("Replanning crashed with exception.", e);
+				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", e);
+			} finally {
+				this.plans = null;
+				this.idleAlgos.clear();
+				this.algosPerThread.clear();
+			}
+			log.info("[" + this.name + "] all plans handled.");
+		} else if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
@@ -159,10 +224,20 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				throw new RuntimeException("Some threads crashed, thus not all plans may have been handled.", throwable);
 			}
 		}
+		if (this.handlingTimes != null) {
+			this.handlingTimes.print(this.name);
+		}
+		if (this.metrics != null) {
+			this.metrics.histogram("replanning." + this.name + ".finishReplanning").recordSince(startNanos);
+		}
 		// reset
 		this.algothreads = null;
 		this.threads = null;
+		this.directAlgo = null;
 		this.replanningContext = null;
+		this.counter = null;
+		this.handlingTimes = null;
+		this.metrics = null;
 		this.count = 0;
 		
 		this.afterFinishReplanningHook();
@@ -176,6 +251,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		this.hadException.set(null);
 		this.threads = new Thread[this.numOfThreads];
 		this.algothreads = new PlanAlgoThread[this.numOfThreads];
+		this.handlingTimes = new PlanHandlingTimes();
 
 		Counter counter = null;
 		// setup threads
@@ -185,7 +261,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 				this.name = algo.getClass().getSimpleName();
 				counter = new Counter("[" + this.name + "] handled plan # ");
 			}
-			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter);
+			Histogram busyMetrics = this.metrics == null ? null : this.metrics.histogram("replanning." + this.name + ".thread." + i);
+			PlanAlgoThread algothread = new PlanAlgoThread(algo, counter, this.handlingTimes, busyMetrics);
 			Thread thread = new Thread(algothread, this.name + "." + i);
 			thread.setUncaughtExceptionHandler(this.exceptionHandler);
 			this.threads[i] = thread;
@@ -193,10 +270,140 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	/**
+	 * Creates the plan algorithm instances up front, on the calling thread, as initThreads() does.  Further
+	 * instances are only created if more threads than expected take part.
+	 */
+	private void initWorkStealing() {
+		if (this.plans != null) {
+			throw new RuntimeException("replanning is already initialized");
+		}
+		this.plans = new ArrayList<>();
+		this.handlingTimes = new PlanHandlingTimes();
+		for (int i = 0; i < this.numOfThreads; i++) {
+			PlanAlgorithm algo = getPlanAlgoInstance();
+			if (i == 0) {
+				this.name = algo.getClass().getSimpleName();
+				this.counter = new Counter("[" + this.name + "] handled plan # ");
+			}
+			this.idleAlgos.add(algo);
+		}
+	}
+
+	private PlanAlgorithm getPlanAlgoForCurrentThread() {
+		Thread thread = Thread.currentThread();
+		PlanAlgorithm algo = this.algosPerThread.get(thread);
+		if (algo == null) {
+			synchronized (this.idleAlgos) {
+				algo = this.idleAlgos.poll();
+				if (algo == null) {
+					algo = getPlanAlgoInstance();
+				}
+			}
+			this.algosPerThread.put(thread, algo);
+		}
+		return algo;
+	}
+
+	private static synchronized ForkJoinPool getPool(int parallelism) {
+		ForkJoinPool pool = pools.get(parallelism);
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+			pools.put(parallelism, pool);
+		}
+		return pool;
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
 
+	private final class PlanTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int granularity;
+
+		PlanTask(int from, int to, int granularity) {
+			this.from = from;
+			this.to = to;
+			this.granularity = granularity;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= this.granularity) {
+				long busyStart = System.nanoTime();
+				PlanAlgorithm algo = getPlanAlgoForCurrentThread();
+				for (int i = this.from; i < this.to; i++) {
+					long start = System.nanoTime();
+					algo.run(plans.get(i));
+					handlingTimes.add(System.nanoTime() - start);
+					counter.incCounter();
+				}
+				if (metrics != null) {
+					metrics.histogram("replanning." + name + ".thread." + Thread.currentThread().getName()).recordSince(busyStart);
+				}
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new PlanTask(this.from, middle, this.granularity), new PlanTask(middle, this.to, this.granularity));
+			}
+		}
+	}
+
+	/**
+	 * A histogram of the time needed per plan, with buckets of powers of two nanoseconds.
+	 */
+	private final static class PlanHandlingTimes {
+
+		private final AtomicLongArray buckets = new AtomicLongArray(64);
+		private final AtomicLong total = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+		/* the same times in the metrics registry, null if no metrics are collected */
+		private Histogram metrics = null;
+
+		void add(final long nanos) {
+			if (this.metrics != null) this.metrics.record(nanos);
+			this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(nanos, 1) - 1));
+			this.total.addAndGet(nanos);
+			long currentMax;
+			while (nanos > (currentMax = this.max.get()) && !this.max.compareAndSet(currentMax, nanos)) {
+				// try again
+			}
+		}
+
+		void print(final String name) {
+			long count = 0;
+			for (int i = 0; i < 64; i++) {
+				count += this.buckets.get(i);
+			}
+			if (count == 0) {
+				return;
+			}
+			log.info("[" + name + "] time per plan [ms]: mean=" + toMillis(this.total.get() / count)
+					+ " 50%<=" + toMillis(getPercentile(count, 0.5))
+					+ " 90%<=" + toMillis(getPercentile(count, 0.9))
+					+ " 99%<=" + toMillis(getPercentile(count, 0.99))
+					+ " max=" + toMillis(this.max.get()));
+		}
+
+		private long getPercentile(final long count, final double fraction) {
+			long seen = 0;
+			for (int i = 0; i < 64; i++) {
+				seen += this.buckets.get(i);
+				if (seen >= fraction * count) {
+					return Math.min(1L << i, this.max.get());
+				}
+			}
+			return this.max.get();
+		}
+
+		private static String toMillis(final long nanos) {
+			return String.format("%.3f", nanos / 1e6);
+		}
+	}
+
 	private final static class ExceptionHandler implements UncaughtExceptionHandler {
 
 		private final AtomicReference<Throwable> hadException;
@@ -218,10 +425,14 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		private final PlanAlgorithm planAlgo;
 		private final List<Plan> plans = new LinkedList<>();
 		private final Counter counter;
+		private final PlanHandlingTimes handlingTimes;
+		private final Histogram busyMetrics;
 
-		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter) {
+		public PlanAlgoThread(final PlanAlgorithm algo, final Counter counter, final PlanHandlingTimes handlingTimes, final Histogram busyMetrics) {
 			this.planAlgo = algo;
 			this.counter = counter;
+			this.handlingTimes = handlingTimes;
+			this.busyMetrics = busyMetrics;
 		}
 
 		public void addPlanToThread(final Plan plan) {
@@ -230,10 +441,14 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 		@Override
 		public void run() {
+			long busyStart = System.nanoTime();
 			for (Plan plan : this.plans) {
+				long start = System.nanoTime();
 				this.planAlgo.run(plan);
+				this.handlingTimes.add(System.nanoTime() - start);
 				this.counter.incCounter();
 			}
+			if (this.busyMetrics != null) this.busyMetrics.recordSince(busyStart);
 		}
 	}
 }
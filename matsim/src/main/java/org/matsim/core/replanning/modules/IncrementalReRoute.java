@@ -0,0 +1,323 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IncrementalReRoute.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Provider;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.population.algorithms.PlanAlgorithm;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.replanning.ReplanningContext;
+import org.matsim.core.router.PlanRouter;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.TripStructureUtils;
+import org.matsim.core.router.TripStructureUtils.Trip;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.facilities.ActivityFacilities;
+
+/**
+ * Like {@link ReRoute}, but only recomputes the trips whose routes may have become noticeably worse than the best
+ * alternative.  A trip keeps its route if
+ * <ul>
+ * <li> it still departs at the time for which it was routed, and still connects the links of its activities,
+ * <li> the travel time along each of its network routes, under the current travel times, differs from the travel
+ * time stored in the route by at most the tolerance (relative), and
+ * <li> none of the links branching off from these routes has become faster by more than the tolerance (relative)
+ * than its reference travel time, in the hour in which the agent passes it.
+ * </ul>
+ * The reference travel time of a link is its travel time when it was last found faster, or the highest travel time
+ * since then.  Thus, a link that becomes a bit faster in every iteration is found faster as soon as the changes add
+ * up to more than the tolerance, and a link that becomes slower and then faster again is found faster relative to
+ * the slow travel time that the routes in between were computed with.  The travel time of a link in an hour is the
+ * minimum of the travel times at the starts of the travel time bins in that hour.  The reference travel times take
+ * one float per link, hour and mode; they are updated by the threads of the module before the replanning starts.
+ * <p></p>
+ * The first time this module runs, all trips are routed.  The number of kept and recomputed trips is logged
+ * after every iteration.
+ * <p></p>
+ * Trips are routed in the order in which they appear in the plan, so that later trips are checked against the
+ * departure times that result from the new routes of earlier trips.
+ */
+public class IncrementalReRoute extends AbstractMultithreadedModule {
+
+	private static final Logger log = Logger.getLogger(IncrementalReRoute.class);
+
+	private final ActivityFacilities facilities;
+	private final Provider<TripRouter> tripRouterProvider;
+	private final Network network;
+	private final Map<String, TravelTime> travelTimes;
+	private final double tolerance;
+	private final double binSize;
+	private final double maxTime;
+	private final double checkBinSize;
+	private final int numberOfCheckBins;
+
+	/* per mode, check bin and link index, the reference travel time, see the class comment */
+	private final Map<String, float[][]> referenceTravelTimes = new HashMap<>();
+	/* per mode and check bin, the bits of the indices of the links which have become faster */
+	private final Map<String, long[][]> fasterLinks = new HashMap<>();
+
+	private final AtomicLong keptTrips = new AtomicLong();
+	private final AtomicLong routedTrips = new AtomicLong();
+
+	public IncrementalReRoute(ActivityFacilities facilities, Provider<TripRouter> tripRouterProvider, GlobalConfigGroup globalConfigGroup,
+			Network network, Map<String, TravelTime> travelTimes, TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup,
+			double tolerance) {
+		super(globalConfigGroup);
+		this.facilities = facilities;
+		this.tripRouterProvider = tripRouterProvider;
+		this.network = network;
+		this.travelTimes = travelTimes;
+		this.tolerance = tolerance;
+		this.binSize = travelTimeCalculatorConfigGroup.getTraveltimeBinSize();
+		this.maxTime = travelTimeCalculatorConfigGroup.getMaxTime();
+		this.checkBinSize = Math.max(this.binSize, 3600.0);
+		this.numberOfCheckBins = (int) (this.maxTime / this.checkBinSize) + 1;
+	}
+
+	@Override
+	public final PlanAlgorithm getPlanAlgoInstance() {
+		TripRouter tripRouter = this.tripRouterProvider.get();
+		return new IncrementalPlanRouter(new PlanRouter(tripRouter, this.facilities), tripRouter);
+	}
+
+	@Override
+	protected void beforePrepareReplanningHook(ReplanningContext replanningContext) {
+		int numberOfLinks = Id.getNumberOfIds(Link.class);
+		Link[] links = new Link[numberOfLinks];
+		for (Link link : this.network.getLinks().values()) {
+			links[link.getId().index()] = link;
+		}
+		for (Map.Entry<String, TravelTime> e : this.travelTimes.entrySet()) {
+			float[][] references = this.referenceTravelTimes.get(e.getKey());
+			boolean firstRun = references == null;
+			if (firstRun) {
+				references = new float[this.numberOfCheckBins][0];
+			}
+			for (int bin = 0; bin < this.numberOfCheckBins; bin++) {
+				if (references[bin].length < numberOfLinks) {
+					// links without a reference are found faster
+					int length = references[bin].length;
+					references[bin] = Arrays.copyOf(references[bin], numberOfLinks);
+					Arrays.fill(references[bin], length, numberOfLinks, Float.NaN);
+				}
+			}
+			long[][] faster = new long[this.numberOfCheckBins][(numberOfLinks + 63) >>> 6];
+			updateReferences(links, e.getValue(), references, faster);
+			this.referenceTravelTimes.put(e.getKey(), references);
+			this.fasterLinks.put(e.getKey(), firstRun ? null : faster);
+		}
+		this.keptTrips.set(0);
+		this.routedTrips.set(0);
+	}
+
+	/**
+	 * Updates the reference travel times and finds the faster links, in ranges of link indices on the threads of the
+	 * module.  The ranges are multiples of 64 links, so that no two threads write to the same word of <code>faster</code>.
+	 */
+	private void updateReferences(final Link[] links, final TravelTime travelTime, final float[][] references, final long[][] faster) {
+		int numberOfThreads = Math.max(1, getNumOfThreads());
+		int rangeSize = Math.max(64, ((links.length / numberOfThreads + 63) >>> 6) << 6);
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int from = 0; from < links.length; from += rangeSize) {
+				final int start = from;
+				final int end = Math.min(from + rangeSize, links.length);
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						updateReferences(links, start, end, travelTime, references, faster);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void updateReferences(final Link[] links, final int start, final int end, final TravelTime travelTime,
+			final float[][] references, final long[][] faster) {
+		for (int index = start; index < end; index++) {
+			Link link = links[index];
+			if (link == null) {
+				continue;
+			}
+			for (int bin = 0; bin < this.numberOfCheckBins; bin++) {
+				float time = (float) getMinimumTravelTime(link, bin, travelTime);
+				float reference = references[bin][index];
+				if (Float.isNaN(reference) || time < reference * (1.0 - this.tolerance)) {
+					faster[bin][index >>> 6] |= 1L << index;
+					references[bin][index] = time;
+				} else if (time > reference) {
+					references[bin][index] = time;
+				}
+			}
+		}
+	}
+
+	private double getMinimumTravelTime(final Link link, final int checkBin, final TravelTime travelTime) {
+		double minimum = Double.POSITIVE_INFINITY;
+		double end = (checkBin + 1) * this.checkBinSize;
+		for (double time = checkBin * this.checkBinSize; time < end && time <= this.maxTime; time += this.binSize) {
+			minimum = Math.min(minimum, travelTime.getLinkTravelTime(link, time, null, null));
+		}
+		return minimum;
+	}
+
+	@Override
+	protected void afterFinishReplanningHook() {
+		log.info("kept the routes of " + this.keptTrips.get() + " trips, recomputed " + this.routedTrips.get() + " trips.");
+	}
+
+	/*package*/ long getNumberOfKeptTrips() {
+		return this.keptTrips.get();
+	}
+
+	/*package*/ long getNumberOfRoutedTrips() {
+		return this.routedTrips.get();
+	}
+
+	private class IncrementalPlanRouter implements PlanAlgorithm {
+
+		private final PlanRouter planRouter;
+		private final TripRouter tripRouter;
+
+		IncrementalPlanRouter(PlanRouter planRouter, TripRouter tripRouter) {
+			this.planRouter = planRouter;
+			this.tripRouter = tripRouter;
+		}
+
+		@Override
+		public void run(Plan plan) {
+			TripRouter tripRouter = this.tripRouter;
+			for (Trip trip : TripStructureUtils.getTrips(plan, tripRouter.getStageActivityTypes())) {
+				if (isRouteKept(plan, trip, tripRouter)) {
+					keptTrips.incrementAndGet();
+				} else {
+					this.planRouter.run(plan, trip);
+					routedTrips.incrementAndGet();
+				}
+			}
+		}
+
+		private boolean isRouteKept(Plan plan, Trip trip, TripRouter tripRouter) {
+			List<Leg> legs = trip.getLegsOnly();
+			if (legs.isEmpty()) {
+				return false;
+			}
+			double departureTime = PlanRouter.calcEndOfActivity(trip.getOriginActivity(), plan, tripRouter.getConfig());
+			if (legs.get(0).getDepartureTime() != departureTime) {
+				return false;
+			}
+			Route firstRoute = legs.get(0).getRoute();
+			Route lastRoute = legs.get(legs.size() - 1).getRoute();
+			if (firstRoute == null || lastRoute == null
+					|| !isAtLink(trip.getOriginActivity(), firstRoute.getStartLinkId())
+					|| !isAtLink(trip.getDestinationActivity(), lastRoute.getEndLinkId())) {
+				return false;
+			}
+			for (Leg leg : legs) {
+				if (leg.getRoute() == null) {
+					return false;
+				}
+				if (leg.getRoute() instanceof NetworkRoute && !isNetworkRouteKept(leg, (NetworkRoute) leg.getRoute(), plan.getPerson())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean isAtLink(Activity activity, Id<Link> linkId) {
+			return activity.getLinkId() != null && activity.getLinkId().equals(linkId);
+		}
+
+		private boolean isNetworkRouteKept(Leg leg, NetworkRoute route, Person person) {
+			TravelTime travelTime = travelTimes.get(leg.getMode());
+			long[][] faster = fasterLinks.get(leg.getMode());
+			if (travelTime == null || faster == null || leg.getDepartureTime() == Time.UNDEFINED_TIME || route.getTravelTime() == Time.UNDEFINED_TIME) {
+				return false;
+			}
+			Map<Id<Link>, ? extends Link> links = network.getLinks();
+			Link startLink = links.get(route.getStartLinkId());
+			if (startLink == null) {
+				return false;
+			}
+			double time = leg.getDepartureTime();
+			Node node = startLink.getToNode();
+			for (Id<Link> linkId : route.getLinkIds()) {
+				Link link = links.get(linkId);
+				if (link == null || hasFasterBranch(node, link, leg.getMode(), time, faster)) {
+					return false;
+				}
+				time += travelTime.getLinkTravelTime(link, time, person, null);
+				node = link.getToNode();
+			}
+			double routeTravelTime = time - leg.getDepartureTime();
+			return Math.abs(routeTravelTime - route.getTravelTime()) <= tolerance * route.getTravelTime();
+		}
+
+		private boolean hasFasterBranch(Node node, Link routeLink, String mode, double time, long[][] faster) {
+			long[] fasterInBin = faster[Math.min(Math.max((int) (time / checkBinSize), 0), numberOfCheckBins - 1)];
+			for (Link outLink : node.getOutLinks().values()) {
+				if (outLink != routeLink && outLink.getAllowedModes().contains(mode)) {
+					int index = outLink.getId().index();
+					// links created after the references were updated count as faster
+					if (index >>> 6 >= fasterInBin.length || (fasterInBin[index >>> 6] & (1L << index)) != 0) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+}
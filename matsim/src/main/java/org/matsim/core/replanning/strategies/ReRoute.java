@@ -19,29 +19,44 @@
 
 package org.matsim.core.replanning.strategies;
 
+import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.replanning.PlanStrategy;
 import org.matsim.core.replanning.PlanStrategyImpl;
 import org.matsim.core.replanning.PlanStrategyImpl.Builder;
+import org.matsim.core.replanning.modules.IncrementalReRoute;
 import org.matsim.core.replanning.selectors.RandomPlanSelector;
 import org.matsim.core.router.TripRouter;
+import org.matsim.core.router.util.TravelTime;
 import org.matsim.facilities.ActivityFacilities;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
+import java.util.Map;
 
 public class ReRoute implements Provider<PlanStrategy> {
 
 	@Inject private GlobalConfigGroup globalConfigGroup;
 	@Inject private ActivityFacilities facilities;
 	@Inject private Provider<TripRouter> tripRouterProvider;
+	@Inject private PlansCalcRouteConfigGroup plansCalcRouteConfigGroup;
+	@Inject private TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup;
+	@Inject private Network network;
+	@Inject private Map<String, TravelTime> travelTimes;
 
 	@Override
 	public PlanStrategy get() {
 		Builder builder = new PlanStrategyImpl.Builder(new RandomPlanSelector<Plan,Person>()) ;
-		builder.addStrategyModule(new org.matsim.core.replanning.modules.ReRoute(facilities, tripRouterProvider, globalConfigGroup));
+		if (plansCalcRouteConfigGroup.isUsingIncrementalReRoute()) {
+			builder.addStrategyModule(new IncrementalReRoute(facilities, tripRouterProvider, globalConfigGroup, network, travelTimes,
+					travelTimeCalculatorConfigGroup, plansCalcRouteConfigGroup.getIncrementalReRouteTolerance()));
+		} else {
+			builder.addStrategyModule(new org.matsim.core.replanning.modules.ReRoute(facilities, tripRouterProvider, globalConfigGroup));
+		}
 		return builder.build() ;
 	}
 
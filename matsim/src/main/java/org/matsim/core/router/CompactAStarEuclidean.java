@@ -0,0 +1,62 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactAStarEuclidean.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Implementation of the {@link AStarEuclidean} algorithm on a {@link CompactRoutingGraph}.
+ * The remaining cost to the to-node is estimated by the euclidean distance, based on the
+ * x and y coordinates of the nodes, times the minimal travel cost per length unit.
+ *
+ * @see CompactDijkstra
+ * @see org.matsim.core.router.util.PreProcessEuclidean
+ */
+public class CompactAStarEuclidean extends CompactDijkstra {
+
+	final double overdoFactor;
+	private final double minTravelCostPerLength;
+
+	CompactAStarEuclidean(final CompactRoutingGraph graph, final double minTravelCostPerLength,
+			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor) {
+		super(graph, costFunction, timeFunction);
+		this.minTravelCostPerLength = minTravelCostPerLength;
+		this.overdoFactor = overdoFactor;
+	}
+
+	@Override
+	double estimateRemainingTravelCost(final int node, final int toNode) {
+		double xDiff = this.graph.getNodeX(toNode) - this.graph.getNodeX(node);
+		double yDiff = this.graph.getNodeY(toNode) - this.graph.getNodeY(node);
+		return Math.sqrt((xDiff * xDiff) + (yDiff * yDiff)) * this.minTravelCostPerLength * this.overdoFactor;
+	}
+
+	public double getOverdoFactor() {
+		return this.overdoFactor;
+	}
+
+	public final double getMinTravelCostPerLength() {
+		return this.minTravelCostPerLength;
+	}
+
+}
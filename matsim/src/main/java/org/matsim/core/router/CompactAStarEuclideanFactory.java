@@ -0,0 +1,69 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactAStarEuclideanFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.PreProcessEuclidean;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link CompactAStarEuclidean} instances. The {@link CompactRoutingGraph} and the
+ * minimal travel cost per length unit are determined once per network.
+ */
+@Singleton
+public class CompactAStarEuclideanFactory implements LeastCostPathCalculatorFactory {
+
+	private final double overdoFactor;
+	private final Map<Network, CompactRoutingGraph> graphs = new HashMap<>();
+	private final Map<Network, Double> minTravelCostsPerLength = new HashMap<>();
+
+	@Inject
+	public CompactAStarEuclideanFactory() {
+		this(1.0);
+	}
+
+	public CompactAStarEuclideanFactory(final double overdoFactor) {
+		this.overdoFactor = overdoFactor;
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		CompactRoutingGraph graph = this.graphs.get(network);
+		if (graph == null) {
+			PreProcessEuclidean preProcessEuclidean = new PreProcessEuclidean(travelCosts);
+			preProcessEuclidean.run(network);
+			this.minTravelCostsPerLength.put(network, preProcessEuclidean.getMinTravelCostPerLength());
+			graph = new CompactRoutingGraph(network);
+			this.graphs.put(network, graph);
+		}
+		return new CompactAStarEuclidean(graph, this.minTravelCostsPerLength.get(network), travelCosts, travelTimes, this.overdoFactor);
+	}
+}
@@ -0,0 +1,178 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactAStarLandmarks.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Implementation of the {@link AStarLandmarks} algorithm on a {@link CompactRoutingGraph}.
+ * Like the original, it starts with the two landmarks that give the best estimation between
+ * the from- and the to-node and checks every {@link #controlInterval} expanded nodes whether
+ * another landmark would improve the estimation.
+ *
+ * @see CompactDijkstra
+ * @see org.matsim.core.router.util.PreProcessLandmarks
+ */
+public class CompactAStarLandmarks extends CompactAStarEuclidean {
+
+	/*package*/ static final int controlInterval = AStarLandmarks.controlInterval;
+
+	private final CompactLandmarks landmarks;
+	private final int landmarkCount;
+
+	private final int[] activeLandmarks;
+	private final double[] activeLandmarkEstimates;
+	private int activeLandmarkCount = 0;
+	private int controlCounter = 0;
+
+	private int[] nodesToBeUpdated = null;
+
+	CompactAStarLandmarks(final CompactRoutingGraph graph, final CompactLandmarks landmarks,
+			final TravelDisutility costFunction, final TravelTime timeFunction, final double overdoFactor) {
+		super(graph, landmarks.minTravelCostPerLength, costFunction, timeFunction, overdoFactor);
+		this.landmarks = landmarks;
+		this.landmarkCount = landmarks.landmarkCount;
+		this.activeLandmarks = new int[this.landmarkCount];
+		this.activeLandmarkEstimates = new double[this.landmarkCount];
+	}
+
+	@Override
+	void initSearch(final int fromNode, final int toNode) {
+		this.controlCounter = 0;
+		initializeActiveLandmarks(fromNode, toNode, Math.min(2, this.landmarkCount));
+	}
+
+	@Override
+	void relaxNode(final int node, final int toNode) {
+		this.controlCounter++;
+		if (this.controlCounter == controlInterval) {
+			int newLandmark = checkToAddLandmark(node, toNode);
+			// same condition as in AStarLandmarks, to get the same results
+			if (newLandmark > 0) {
+				updatePendingNodes(newLandmark, toNode);
+			}
+			this.controlCounter = 0;
+		}
+		super.relaxNode(node, toNode);
+	}
+
+	/**
+	 * Activates the <code>count</code> landmarks that give the best estimation of the travel cost
+	 * between the from- and the to-node.
+	 */
+	private void initializeActiveLandmarks(final int fromNode, final int toNode, final int count) {
+		double[] estimates = this.activeLandmarkEstimates;
+		for (int j = 0; j < count; j++) {
+			estimates[j] = Double.NEGATIVE_INFINITY;
+			this.activeLandmarks[j] = 0;
+		}
+		for (int i = 0; i < this.landmarkCount; i++) {
+			double estimate = estimateRemainingTravelCost(fromNode, toNode, i);
+			for (int j = 0; j < count; j++) {
+				if (estimate > estimates[j]) {
+					for (int k = count - 1; k > j; k--) {
+						estimates[k] = estimates[k - 1];
+						this.activeLandmarks[k] = this.activeLandmarks[k - 1];
+					}
+					estimates[j] = estimate;
+					this.activeLandmarks[j] = i;
+					break;
+				}
+			}
+		}
+		this.activeLandmarkCount = count;
+	}
+
+	@Override
+	double estimateRemainingTravelCost(final int node, final int toNode) {
+		double travCost = 0;
+		for (int i = 0; i < this.activeLandmarkCount; i++) {
+			double tmpTravCost = estimateRemainingTravelCost(node, toNode, this.activeLandmarks[i]);
+			if (tmpTravCost > travCost) {
+				travCost = tmpTravCost;
+			}
+		}
+		double euclideanTravCost = super.estimateRemainingTravelCost(node, toNode);
+		return travCost > euclideanTravCost ? travCost : euclideanTravCost;
+	}
+
+	private double estimateRemainingTravelCost(final int node, final int toNode, final int landmark) {
+		final int nodeOffset = node * this.landmarkCount + landmark;
+		final int toNodeOffset = toNode * this.landmarkCount + landmark;
+		double tmpTravCost = this.landmarks.minTravelCosts[nodeOffset] - this.landmarks.maxTravelCosts[toNodeOffset];
+		if (tmpTravCost < 0) {
+			tmpTravCost = this.landmarks.minTravelCosts[toNodeOffset] - this.landmarks.maxTravelCosts[nodeOffset];
+			if (tmpTravCost <= 0) {
+				return 0;
+			}
+		}
+		return tmpTravCost * this.overdoFactor;
+	}
+
+	/**
+	 * Activates the landmark that gives a better estimation than all active ones, if there is any.
+	 *
+	 * @return the index of the activated landmark, or -1 if no landmark was added.
+	 */
+	private int checkToAddLandmark(final int node, final int toNode) {
+		double bestTravCostEst = estimateRemainingTravelCost(node, toNode);
+		int bestIndex = -1;
+		for (int i = 0; i < this.landmarkCount; i++) {
+			double tmpTravCost = estimateRemainingTravelCost(node, toNode, i);
+			if (tmpTravCost > bestTravCostEst) {
+				bestIndex = i;
+				bestTravCostEst = tmpTravCost;
+			}
+		}
+		if (bestIndex != -1) {
+			this.activeLandmarks[this.activeLandmarkCount] = bestIndex;
+			this.activeLandmarkCount++;
+		}
+		return bestIndex;
+	}
+
+	/**
+	 * Re-evaluates the estimated remaining cost of the pending nodes with the new landmark and
+	 * updates their position in the queue if the estimation improved.
+	 */
+	private void updatePendingNodes(final int newLandmark, final int toNode) {
+		if (this.nodesToBeUpdated == null) {
+			this.nodesToBeUpdated = new int[this.graph.getNodeCount()];
+		}
+		int count = 0;
+		for (int i = 0, n = this.pendingNodes.size(); i < n; i++) {
+			int node = this.pendingNodes.get(i);
+			double newEstimate = estimateRemainingTravelCost(node, toNode, newLandmark);
+			if (newEstimate > this.estimates[node]) {
+				this.estimates[node] = newEstimate;
+				this.nodesToBeUpdated[count++] = node;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			int node = this.nodesToBeUpdated[i];
+			this.pendingNodes.remove(node);
+			this.pendingNodes.add(node, this.costs[node] + this.estimates[node]);
+		}
+	}
+
+}
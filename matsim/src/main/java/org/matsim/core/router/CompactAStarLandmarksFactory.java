@@ -0,0 +1,74 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactAStarLandmarksFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link CompactAStarLandmarks} instances. The {@link CompactRoutingGraph} and the
+ * landmarks are determined once per network, like in {@link FastAStarLandmarksFactory}.
+ */
+@Singleton
+public class CompactAStarLandmarksFactory implements LeastCostPathCalculatorFactory {
+
+	private final int numberOfThreads;
+	private final Map<Network, CompactRoutingGraph> graphs = new HashMap<>();
+	private final Map<Network, CompactLandmarks> landmarks = new HashMap<>();
+
+	@Inject
+	public CompactAStarLandmarksFactory() {
+		this(8);
+	}
+
+	/**
+	 * @param numberOfThreads the number of threads used to calculate the landmark travel costs.
+	 */
+	public CompactAStarLandmarksFactory(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		CompactRoutingGraph graph = this.graphs.get(network);
+		if (graph == null) {
+			PreProcessLandmarks preProcessLandmarks = new PreProcessLandmarks(travelCosts);
+			preProcessLandmarks.setNumberOfThreads(this.numberOfThreads);
+			preProcessLandmarks.run(network);
+			graph = new CompactRoutingGraph(network);
+			this.landmarks.put(network, new CompactLandmarks(graph, preProcessLandmarks));
+			this.graphs.put(network, graph);
+		}
+		final double overdoFactor = 1.0;
+		return new CompactAStarLandmarks(graph, this.landmarks.get(network), travelCosts, travelTimes, overdoFactor);
+	}
+}
@@ -0,0 +1,214 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactDijkstra.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of {@link Dijkstra}'s algorithm on a {@link CompactRoutingGraph}.
+ * <p></p>
+ * The search state (cost, time and previous link of each node) is kept in primitive
+ * arrays indexed by the node numbers of the graph and the pending nodes are kept in an
+ * {@link IntMinHeap}. All of them are allocated once per instance and re-used for every
+ * calculated route, thus a route query only allocates the returned {@link Path}. As the
+ * graph numbers the nodes in the iteration order of the network and ties are broken the
+ * same way, the returned paths are identical to the ones of {@link Dijkstra}.
+ * <p></p>
+ * Instances are not thread-safe, but any number of instances can share the same graph.
+ *
+ * @see CompactDijkstraFactory
+ * @see CompactRoutingGraph
+ */
+public class CompactDijkstra implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(CompactDijkstra.class);
+
+	final CompactRoutingGraph graph;
+	final TravelDisutility costFunction;
+	final TravelTime timeFunction;
+
+	final double[] costs;
+	final double[] times;
+	/* the estimated remaining cost to the to-node, always 0 for plain Dijkstra */
+	final double[] estimates;
+	private final int[] prevLinks;
+	private final int[] iterationIds;
+	private int iterationId = 0;
+
+	final IntMinHeap pendingNodes;
+
+	private Person person = null;
+	private Vehicle vehicle = null;
+
+	CompactDijkstra(final CompactRoutingGraph graph, final TravelDisutility costFunction, final TravelTime timeFunction) {
+		this.graph = graph;
+		this.costFunction = costFunction;
+		this.timeFunction = timeFunction;
+		int nodeCount = graph.getNodeCount();
+		this.costs = new double[nodeCount];
+		this.times = new double[nodeCount];
+		this.estimates = new double[nodeCount];
+		this.prevLinks = new int[nodeCount];
+		this.iterationIds = new int[nodeCount];
+		this.pendingNodes = new IntMinHeap(nodeCount);
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		final int from = getNodeIndex(fromNode);
+		final int to = getNodeIndex(toNode);
+
+		augmentIterationId();
+		this.person = person;
+		this.vehicle = vehicle;
+		this.pendingNodes.reset();
+
+		initSearch(from, to);
+		visitNode(from, startTime, 0, -1, estimateRemainingTravelCost(from, to));
+
+		while (true) {
+			int node = this.pendingNodes.poll();
+			if (node < 0) {
+				log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+				log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+				log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+				log.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+				log.warn("This will now return null, but it may fail later with a null pointer exception.");
+				return null;
+			}
+			if (node == to) {
+				break;
+			}
+			relaxNode(node, to);
+		}
+
+		return constructPath(from, to, startTime);
+	}
+
+	private int getNodeIndex(final Node node) {
+		int index = this.graph.getNodeIndex(node);
+		if (index < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		return index;
+	}
+
+	private void augmentIterationId() {
+		if (this.iterationId == Integer.MAX_VALUE) {
+			Arrays.fill(this.iterationIds, 0);
+			this.iterationId = 0;
+		}
+		this.iterationId++;
+	}
+
+	/**
+	 * Called before the search for a route from <code>fromNode</code> to <code>toNode</code>
+	 * starts; does nothing by default.
+	 */
+	void initSearch(final int fromNode, final int toNode) {
+	}
+
+	/**
+	 * @return an estimation of the remaining cost from <code>node</code> to <code>toNode</code>
+	 * that is used to direct the search; 0 for plain Dijkstra.
+	 */
+	double estimateRemainingTravelCost(final int node, final int toNode) {
+		return 0;
+	}
+
+	/**
+	 * Expands the given node, i.e. visits or revisits the to-nodes of all its out-links.
+	 */
+	void relaxNode(final int node, final int toNode) {
+		final double currTime = this.times[node];
+		final double currCost = this.costs[node];
+		for (int link = this.graph.getFirstOutLink(node), end = this.graph.getFirstOutLink(node + 1); link < end; link++) {
+			final Link l = this.graph.getLink(link);
+			final int n = this.graph.getLinkToNode(link);
+			final double travelTime = this.timeFunction.getLinkTravelTime(l, currTime, this.person, this.vehicle);
+			final double travelCost = this.costFunction.getLinkTravelDisutility(l, currTime, this.person, this.vehicle);
+			final double totalCost = currCost + travelCost;
+			if (this.iterationIds[n] != this.iterationId) {
+				visitNode(n, currTime + travelTime, totalCost, link, estimateRemainingTravelCost(n, toNode));
+			} else {
+				final double nCost = this.costs[n];
+				if (totalCost < nCost) {
+					revisitNode(n, currTime + travelTime, totalCost, link);
+				} else if (totalCost == nCost) {
+					// Special case: a node can be reached from two links with exactly the same costs.
+					// Like Dijkstra, decide based on the link ids which one to take.
+					int prevLink = this.prevLinks[n];
+					if (prevLink >= 0 && this.graph.getLinkIdRank(prevLink) > this.graph.getLinkIdRank(link)) {
+						revisitNode(n, currTime + travelTime, totalCost, link);
+					}
+				}
+			}
+		}
+	}
+
+	private void visitNode(final int node, final double time, final double cost, final int prevLink, final double estimate) {
+		this.iterationIds[node] = this.iterationId;
+		this.times[node] = time;
+		this.costs[node] = cost;
+		this.prevLinks[node] = prevLink;
+		this.estimates[node] = estimate;
+		this.pendingNodes.add(node, cost + estimate);
+	}
+
+	private void revisitNode(final int node, final double time, final double cost, final int prevLink) {
+		this.times[node] = time;
+		this.costs[node] = cost;
+		this.prevLinks[node] = prevLink;
+		this.pendingNodes.decreaseKey(node, cost + this.estimates[node]);
+	}
+
+	private Path constructPath(final int fromNode, final int toNode, final double startTime) {
+		List<Node> nodes = new ArrayList<>();
+		List<Link> links = new ArrayList<>();
+		int node = toNode;
+		nodes.add(this.graph.getNode(node));
+		while (node != fromNode) {
+			int link = this.prevLinks[node];
+			links.add(this.graph.getLink(link));
+			node = this.graph.getLinkFromNode(link);
+			nodes.add(this.graph.getNode(node));
+		}
+		Collections.reverse(nodes);
+		Collections.reverse(links);
+		return new Path(nodes, links, this.times[toNode] - startTime, this.costs[toNode]);
+	}
+
+}
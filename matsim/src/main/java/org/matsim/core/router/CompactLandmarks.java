@@ -0,0 +1,52 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactLandmarks.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.PreProcessLandmarks;
+
+/**
+ * The landmark travel costs of {@link PreProcessLandmarks}, copied into flat arrays
+ * indexed by <code>node * landmarkCount + landmark</code> of a {@link CompactRoutingGraph}.
+ * Immutable and shared by all {@link CompactAStarLandmarks} instances of a graph.
+ */
+final class CompactLandmarks {
+
+	final int landmarkCount;
+	final double minTravelCostPerLength;
+	final double[] minTravelCosts;
+	final double[] maxTravelCosts;
+
+	CompactLandmarks(final CompactRoutingGraph graph, final PreProcessLandmarks preProcessData) {
+		this.landmarkCount = preProcessData.getLandmarks().length;
+		this.minTravelCostPerLength = preProcessData.getMinTravelCostPerLength();
+		this.minTravelCosts = new double[graph.getNodeCount() * this.landmarkCount];
+		this.maxTravelCosts = new double[graph.getNodeCount() * this.landmarkCount];
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			PreProcessLandmarks.LandmarksData data = preProcessData.getNodeData(graph.getNode(node));
+			for (int i = 0; i < this.landmarkCount; i++) {
+				this.minTravelCosts[node * this.landmarkCount + i] = data.getMinLandmarkTravelTime(i);
+				this.maxTravelCosts[node * this.landmarkCount + i] = data.getMaxLandmarkTravelTime(i);
+			}
+		}
+	}
+
+}
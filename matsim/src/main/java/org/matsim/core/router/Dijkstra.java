@@ -21,12 +21,13 @@
 package org.matsim.core.router;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.network.Node;
@@ -100,7 +101,7 @@ public class Dijkstra implements LeastCostPathCalculator {
 	 */
 	protected final TravelTime timeFunction;
 
-	final HashMap<Id<Node>, DijkstraNodeData> nodeData;
+	final Map<Id<Node>, DijkstraNodeData> nodeData;
 
 	/**
 	 * Provides an unique id (loop number) for each routing request, so we don't
@@ -167,7 +168,7 @@ public class Dijkstra implements LeastCostPathCalculator {
 		this.timeFunction = timeFunction;
 		this.preProcessData = preProcessData;
 
-		this.nodeData = new HashMap<>((int)(network.getNodes().size() * 1.1), 0.95f);
+		this.nodeData = new IdMap<>(Node.class);
 
 		if (preProcessData != null) {
 			if (!preProcessData.containsData()) {
@@ -83,22 +83,29 @@ public class PlanRouter implements PlanAlgorithm, PersonAlgorithm {
 		final List<Trip> trips = TripStructureUtils.getTrips( plan , routingHandler.getStageActivityTypes() );
 
 		for (Trip oldTrip : trips) {
-			final List<? extends PlanElement> newTrip =
-					routingHandler.calcRoute(
-							routingHandler.getMainModeIdentifier().identifyMainMode( oldTrip.getTripElements() ),
-							toFacility( oldTrip.getOriginActivity() ),
-							toFacility( oldTrip.getDestinationActivity() ),
-							calcEndOfActivity( oldTrip.getOriginActivity() , plan, routingHandler.getConfig() ),
-							plan.getPerson() );
-			putVehicleFromOldTripIntoNewTripIfMeaningful(oldTrip, newTrip);
-			TripRouter.insertTrip(
-					plan, 
-					oldTrip.getOriginActivity(),
-					newTrip,
-					oldTrip.getDestinationActivity());
+			run(plan, oldTrip);
 		}
 	}
 
+	/**
+	 * Routes a single trip of the plan, and replaces the old trip by the new one.
+	 */
+	public void run(final Plan plan, final Trip oldTrip) {
+		final List<? extends PlanElement> newTrip =
+				routingHandler.calcRoute(
+						routingHandler.getMainModeIdentifier().identifyMainMode( oldTrip.getTripElements() ),
+						toFacility( oldTrip.getOriginActivity() ),
+						toFacility( oldTrip.getDestinationActivity() ),
+						calcEndOfActivity( oldTrip.getOriginActivity() , plan, routingHandler.getConfig() ),
+						plan.getPerson() );
+		putVehicleFromOldTripIntoNewTripIfMeaningful(oldTrip, newTrip);
+		TripRouter.insertTrip(
+				plan, 
+				oldTrip.getOriginActivity(),
+				newTrip,
+				oldTrip.getDestinationActivity());
+	}
+
 	/**
 	 * If the old trip had vehicles set in its network routes, and it used a single vehicle,
 	 * and if the new trip does not come with vehicles set in its network routes,
@@ -0,0 +1,131 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesFactory.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.ch;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link ContractionHierarchiesRouter}s.
+ * <p></p>
+ * The {@link ContractionHierarchy} of a network is created once. The metric, i.e. the edge weights
+ * per time bin, is customized with the travel disutility of the first path calculator that is requested
+ * for a network and travel time, and shared by all further path calculators for the same network and
+ * travel time until the end of the iteration. The routing modules create a new travel disutility for
+ * every trip router, but use the same filtered network and travel time per mode, so the metric is
+ * customized once per mode and iteration. Like the landmarks of {@link org.matsim.core.router.FastAStarLandmarksFactory},
+ * the metric thus assumes that all disutilities requested for the same network and travel time are
+ * equal. When the travel times change after an iteration, the metric is customized again when the
+ * first route of the next iteration is requested.
+ * <p></p>
+ * The customization evaluates the travel disutility without a person, so the routes do not depend on
+ * the person; <code>planscalcroute.routingRandomness</code> is ignored. Disutilities that require a
+ * person are not supported. The costs of the returned paths are calculated with the person.
+ */
+@Singleton
+public class ContractionHierarchiesFactory implements LeastCostPathCalculatorFactory, IterationEndsListener {
+
+	private final double timeBinSize;
+	private final int numberOfTimeBins;
+	private final int numberOfThreads;
+
+	private final Map<Network, ContractionHierarchy> hierarchies = new HashMap<>();
+	private final Map<MetricKey, ContractionHierarchyMetric> metrics = new HashMap<>();
+
+	@Inject
+	public ContractionHierarchiesFactory(final Config config) {
+		this(config.plansCalcRoute().getContractionHierarchiesTimeBinSize(), config.travelTimeCalculator().getMaxTime(),
+				config.global().getNumberOfThreads());
+	}
+
+	/**
+	 * @param timeBinSize the duration for which the same edge weights are used.
+	 * @param maxTime the start of the last time bin; later routes use the weights of the last time bin.
+	 * @param numberOfThreads the number of threads that customize the time bins in parallel.
+	 */
+	public ContractionHierarchiesFactory(final double timeBinSize, final double maxTime, final int numberOfThreads) {
+		this.timeBinSize = timeBinSize;
+		this.numberOfTimeBins = (int) (maxTime / timeBinSize) + 1;
+		this.numberOfThreads = Math.max(1, numberOfThreads);
+	}
+
+	@Override
+	public synchronized LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		MetricKey key = new MetricKey(network, travelTimes);
+		ContractionHierarchyMetric metric = this.metrics.get(key);
+		if (metric == null) {
+			ContractionHierarchy hierarchy = this.hierarchies.get(network);
+			if (hierarchy == null) {
+				hierarchy = new ContractionHierarchy(new CompactRoutingGraph(network));
+				this.hierarchies.put(network, hierarchy);
+			}
+			metric = new ContractionHierarchyMetric(hierarchy, travelCosts, this.timeBinSize, this.numberOfTimeBins, this.numberOfThreads);
+			this.metrics.put(key, metric);
+		}
+		return new ContractionHierarchiesRouter(metric, travelCosts, travelTimes);
+	}
+
+	/**
+	 * Discards the customized metrics, the travel times of the iteration may have changed.
+	 */
+	@Override
+	public synchronized void notifyIterationEnds(final IterationEndsEvent event) {
+		this.metrics.clear();
+	}
+
+	private static final class MetricKey {
+		private final Network network;
+		private final TravelTime travelTime;
+
+		MetricKey(final Network network, final TravelTime travelTime) {
+			this.network = network;
+			this.travelTime = travelTime;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof MetricKey)) {
+				return false;
+			}
+			MetricKey other = (MetricKey) obj;
+			return this.network == other.network && this.travelTime == other.travelTime;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(this.network) + System.identityHashCode(this.travelTime);
+		}
+	}
+
+}
@@ -0,0 +1,229 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.ch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Calculates least cost paths on a customized {@link ContractionHierarchy}.
+ * <p></p>
+ * A query uses the weights of the time bin of its start time. Both searches only go upwards
+ * and thus only visit the ancestors of the from- and to-node in the elimination tree, in the
+ * order of their ranks; no priority queue is needed. The found path is unpacked into the original
+ * links afterwards, and its travel time and cost are calculated like in {@link org.matsim.core.router.Dijkstra},
+ * i.e. link by link at the time the link is entered, with the given person and vehicle.
+ * <p></p>
+ * As long as the disutilities do not change during a trip's time bin, the cost of the returned path
+ * equals the one of the path returned by Dijkstra. Instances are not thread-safe.
+ *
+ * @see ContractionHierarchiesFactory
+ */
+public final class ContractionHierarchiesRouter implements LeastCostPathCalculator {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchiesRouter.class);
+
+	private final ContractionHierarchy ch;
+	private final ContractionHierarchyMetric metric;
+	private final CompactRoutingGraph graph;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+
+	private final double[] forwardCosts;
+	private final double[] backwardCosts;
+	private final int[] forwardPredecessors;
+	private final int[] backwardPredecessors;
+	private final int[] forwardPredecessorEdges;
+	private final int[] backwardPredecessorEdges;
+	private final int[] forwardPath;
+
+	private double[] forwardWeights;
+	private double[] backwardWeights;
+	private int[] forwardVia;
+	private int[] backwardVia;
+	private final List<Link> links = new ArrayList<>();
+
+	public ContractionHierarchiesRouter(final ContractionHierarchyMetric metric, final TravelDisutility travelDisutility, final TravelTime travelTime) {
+		this.ch = metric.getHierarchy();
+		this.metric = metric;
+		this.graph = this.ch.getGraph();
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		int n = this.ch.getNodeCount();
+		this.forwardCosts = new double[n];
+		this.backwardCosts = new double[n];
+		Arrays.fill(this.forwardCosts, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.backwardCosts, Double.POSITIVE_INFINITY);
+		this.forwardPredecessors = new int[n];
+		this.backwardPredecessors = new int[n];
+		this.forwardPredecessorEdges = new int[n];
+		this.backwardPredecessorEdges = new int[n];
+		this.forwardPath = new int[n];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double startTime, final Person person, final Vehicle vehicle) {
+		final int source = this.ch.getRank(getNodeIndex(fromNode));
+		final int target = this.ch.getRank(getNodeIndex(toNode));
+		int timeBin = this.metric.getTimeBin(startTime);
+		this.forwardWeights = this.metric.getForwardWeights(timeBin);
+		this.backwardWeights = this.metric.getBackwardWeights(timeBin);
+		this.forwardVia = this.metric.getForwardVia(timeBin);
+		this.backwardVia = this.metric.getBackwardVia(timeBin);
+
+		search(source, this.forwardWeights, this.forwardCosts, this.forwardPredecessors, this.forwardPredecessorEdges);
+		search(target, this.backwardWeights, this.backwardCosts, this.backwardPredecessors, this.backwardPredecessorEdges);
+
+		/* the ancestors of both nodes coincide above their lowest common ancestor */
+		int meetingNode = -1;
+		double bestCost = Double.POSITIVE_INFINITY;
+		for (int node = target; node != -1; node = this.ch.getParent(node)) {
+			double cost = this.forwardCosts[node] + this.backwardCosts[node];
+			if (cost < bestCost) {
+				bestCost = cost;
+				meetingNode = node;
+			}
+		}
+
+		Path path = null;
+		if (meetingNode < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+			log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+			log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+			log.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+			log.warn("This will now return null, but it may fail later with a null pointer exception.");
+		} else {
+			path = constructPath(fromNode, source, target, meetingNode, startTime, person, vehicle);
+		}
+
+		clear(source, this.forwardCosts);
+		clear(target, this.backwardCosts);
+		return path;
+	}
+
+	private int getNodeIndex(final Node node) {
+		int index = this.graph.getNodeIndex(node);
+		if (index < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		return index;
+	}
+
+	/**
+	 * Relaxes the upward edges of all ancestors of the start node in the order of their ranks.
+	 */
+	private void search(final int start, final double[] weights, final double[] costs, final int[] predecessors, final int[] predecessorEdges) {
+		costs[start] = 0;
+		predecessors[start] = -1;
+		for (int node = start; node != -1; node = this.ch.getParent(node)) {
+			double cost = costs[node];
+			if (cost == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			for (int edge = this.ch.getFirstUpEdge(node), end = this.ch.getFirstUpEdge(node + 1); edge < end; edge++) {
+				int head = this.ch.getUpHead(edge);
+				double headCost = cost + weights[edge];
+				if (headCost < costs[head]) {
+					costs[head] = headCost;
+					predecessors[head] = node;
+					predecessorEdges[head] = edge;
+				}
+			}
+		}
+	}
+
+	private void clear(final int start, final double[] costs) {
+		for (int node = start; node != -1; node = this.ch.getParent(node)) {
+			costs[node] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+	private Path constructPath(final Node fromNode, final int source, final int target, final int meetingNode,
+			final double startTime, final Person person, final Vehicle vehicle) {
+		this.links.clear();
+		unpackForwardSearch(source, meetingNode);
+		for (int node = meetingNode; node != target; node = this.backwardPredecessors[node]) {
+			unpackDown(this.backwardPredecessors[node], this.backwardPredecessorEdges[node], node);
+		}
+
+		List<Node> nodes = new ArrayList<>(this.links.size() + 1);
+		List<Link> links = new ArrayList<>(this.links);
+		nodes.add(fromNode);
+		double time = startTime;
+		double cost = 0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - startTime, cost);
+	}
+
+	private void unpackForwardSearch(final int source, final int meetingNode) {
+		int count = 0;
+		for (int node = meetingNode; node != source; node = this.forwardPredecessors[node]) {
+			this.forwardPath[count++] = node;
+		}
+		for (int i = count - 1; i >= 0; i--) {
+			int node = this.forwardPath[i];
+			unpackUp(this.forwardPredecessors[node], this.forwardPredecessorEdges[node], node);
+		}
+	}
+
+	/**
+	 * Appends the links of the path from <code>lower</code> up to <code>higher</code>.
+	 */
+	private void unpackUp(final int lower, final int edge, final int higher) {
+		int via = this.forwardVia[edge];
+		if (via < 0) {
+			this.links.add(this.graph.getLink(-via - 1));
+			return;
+		}
+		unpackDown(via, this.ch.getEdge(via, lower), lower);
+		unpackUp(via, this.ch.getEdge(via, higher), higher);
+	}
+
+	/**
+	 * Appends the links of the path from <code>higher</code> down to <code>lower</code>.
+	 */
+	private void unpackDown(final int lower, final int edge, final int higher) {
+		int via = this.backwardVia[edge];
+		if (via < 0) {
+			this.links.add(this.graph.getLink(-via - 1));
+			return;
+		}
+		unpackDown(via, this.ch.getEdge(via, higher), higher);
+		unpackUp(via, this.ch.getEdge(via, lower), lower);
+	}
+
+}
@@ -0,0 +1,420 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchy.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.ch;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.router.util.CompactRoutingGraph;
+
+/**
+ * The metric independent part of a customizable contraction hierarchy: a node order and the
+ * upward graph that results from contracting the nodes in this order without witness searches.
+ * <p></p>
+ * The order is computed by a geometric nested dissection: the nodes are recursively split at the
+ * median of their coordinates, the nodes separating both halves get the highest remaining ranks.
+ * Contracting the nodes in this order adds an edge between every pair of higher ranked neighbors
+ * of a contracted node; the resulting graph is chordal, thus every shortest path can be found by
+ * only going upwards from both ends, whatever the edge weights are. The weights are set later by
+ * a {@link ContractionHierarchyMetric}.
+ * <p></p>
+ * All nodes and edges are identified by their rank; the edges of a node are stored with the node
+ * of lower rank, sorted by the rank of the other node. The forward direction of an edge is the one
+ * from its lower to its higher node.
+ */
+public final class ContractionHierarchy {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchy.class);
+
+	/* nested dissection stops at parts of this size */
+	private static final int LEAF_SIZE = 4;
+
+	private final CompactRoutingGraph graph;
+	private final int nodeCount;
+	/* rank of a graph node, and graph node of a rank */
+	private final int[] ranks;
+	private final int[] nodes;
+	/* elimination tree: the neighbor of lowest higher rank, or -1 */
+	private final int[] parents;
+
+	/* upward edges */
+	private final int[] firstUpEdge;
+	private final int[] upHeads;
+
+	/* downward edges: the lower node and the edge id */
+	private final int[] firstDownEdge;
+	private final int[] downTails;
+	private final int[] downEdges;
+
+	/* original links per edge; negative values encode links in backward direction (-link - 1) */
+	private final int[] firstEdgeLink;
+	private final int[] edgeLinks;
+
+	public ContractionHierarchy(final CompactRoutingGraph graph) {
+		this.graph = graph;
+		this.nodeCount = graph.getNodeCount();
+		long start = System.currentTimeMillis();
+
+		int[][] adjacency = createUndirectedAdjacency(graph);
+		this.nodes = new NestedDissection(graph, adjacency).order();
+		this.ranks = new int[this.nodeCount];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			this.ranks[this.nodes[rank]] = rank;
+		}
+
+		/* contract the nodes: the higher neighbors of a node are its original ones plus the ones inherited
+		 * from its children in the elimination tree. */
+		int[][] higherNeighbors = new int[this.nodeCount][];
+		int[] higherNeighborCounts = new int[this.nodeCount];
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			for (int neighbor : adjacency[this.nodes[rank]]) {
+				int neighborRank = this.ranks[neighbor];
+				if (neighborRank > rank) {
+					append(higherNeighbors, higherNeighborCounts, rank, neighborRank);
+				}
+			}
+		}
+		this.parents = new int[this.nodeCount];
+		this.firstUpEdge = new int[this.nodeCount + 1];
+		int[] heads = new int[Math.max(16, graph.getLinkCount())];
+		int edgeCount = 0;
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			int[] neighbors = higherNeighbors[rank];
+			int count = higherNeighborCounts[rank];
+			higherNeighbors[rank] = null;
+			this.firstUpEdge[rank] = edgeCount;
+			if (count == 0) {
+				this.parents[rank] = -1;
+				continue;
+			}
+			Arrays.sort(neighbors, 0, count);
+			int unique = 0;
+			for (int i = 0; i < count; i++) {
+				if (unique == 0 || neighbors[i] != neighbors[unique - 1]) {
+					neighbors[unique++] = neighbors[i];
+				}
+			}
+			if (edgeCount + unique > heads.length) {
+				heads = Arrays.copyOf(heads, Math.max(heads.length * 2, edgeCount + unique));
+			}
+			System.arraycopy(neighbors, 0, heads, edgeCount, unique);
+			edgeCount += unique;
+			int parent = neighbors[0];
+			this.parents[rank] = parent;
+			for (int i = 1; i < unique; i++) {
+				append(higherNeighbors, higherNeighborCounts, parent, neighbors[i]);
+			}
+		}
+		this.firstUpEdge[this.nodeCount] = edgeCount;
+		this.upHeads = Arrays.copyOf(heads, edgeCount);
+
+		this.firstDownEdge = new int[this.nodeCount + 1];
+		for (int edge = 0; edge < edgeCount; edge++) {
+			this.firstDownEdge[this.upHeads[edge] + 1]++;
+		}
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			this.firstDownEdge[rank + 1] += this.firstDownEdge[rank];
+		}
+		this.downTails = new int[edgeCount];
+		this.downEdges = new int[edgeCount];
+		int[] fill = Arrays.copyOf(this.firstDownEdge, this.nodeCount);
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			for (int edge = this.firstUpEdge[rank]; edge < this.firstUpEdge[rank + 1]; edge++) {
+				int position = fill[this.upHeads[edge]]++;
+				this.downTails[position] = rank;
+				this.downEdges[position] = edge;
+			}
+		}
+
+		/* map the original links to the edges */
+		int[] linkEdges = new int[graph.getLinkCount()];
+		this.firstEdgeLink = new int[edgeCount + 1];
+		for (int link = 0; link < graph.getLinkCount(); link++) {
+			int from = this.ranks[graph.getLinkFromNode(link)];
+			int to = this.ranks[graph.getLinkToNode(link)];
+			linkEdges[link] = from == to ? -1 : getEdge(Math.min(from, to), Math.max(from, to));
+			if (linkEdges[link] >= 0) {
+				this.firstEdgeLink[linkEdges[link] + 1]++;
+			}
+		}
+		for (int edge = 0; edge < edgeCount; edge++) {
+			this.firstEdgeLink[edge + 1] += this.firstEdgeLink[edge];
+		}
+		this.edgeLinks = new int[this.firstEdgeLink[edgeCount]];
+		fill = Arrays.copyOf(this.firstEdgeLink, edgeCount);
+		for (int link = 0; link < graph.getLinkCount(); link++) {
+			int edge = linkEdges[link];
+			if (edge >= 0) {
+				boolean forward = this.ranks[graph.getLinkFromNode(link)] < this.ranks[graph.getLinkToNode(link)];
+				this.edgeLinks[fill[edge]++] = forward ? link : -link - 1;
+			}
+		}
+
+		log.info("contraction hierarchy of " + this.nodeCount + " nodes and " + graph.getLinkCount() + " links has "
+				+ edgeCount + " edges, created in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	private static int[][] createUndirectedAdjacency(final CompactRoutingGraph graph) {
+		int n = graph.getNodeCount();
+		int[] degrees = new int[n];
+		for (int link = 0; link < graph.getLinkCount(); link++) {
+			degrees[graph.getLinkFromNode(link)]++;
+			degrees[graph.getLinkToNode(link)]++;
+		}
+		int[][] adjacency = new int[n][];
+		for (int node = 0; node < n; node++) {
+			adjacency[node] = new int[degrees[node]];
+			degrees[node] = 0;
+		}
+		for (int link = 0; link < graph.getLinkCount(); link++) {
+			int from = graph.getLinkFromNode(link);
+			int to = graph.getLinkToNode(link);
+			adjacency[from][degrees[from]++] = to;
+			adjacency[to][degrees[to]++] = from;
+		}
+		return adjacency;
+	}
+
+	private static void append(final int[][] lists, final int[] counts, final int index, final int value) {
+		int[] list = lists[index];
+		if (list == null) {
+			list = new int[4];
+			lists[index] = list;
+		} else if (counts[index] == list.length) {
+			list = Arrays.copyOf(list, list.length * 2);
+			lists[index] = list;
+		}
+		list[counts[index]++] = value;
+	}
+
+	public CompactRoutingGraph getGraph() {
+		return this.graph;
+	}
+
+	public Network getNetwork() {
+		return this.graph.getNetwork();
+	}
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	public int getEdgeCount() {
+		return this.upHeads.length;
+	}
+
+	int getRank(final int graphNode) {
+		return this.ranks[graphNode];
+	}
+
+	int getGraphNode(final int rank) {
+		return this.nodes[rank];
+	}
+
+	int getParent(final int rank) {
+		return this.parents[rank];
+	}
+
+	int getFirstUpEdge(final int rank) {
+		return this.firstUpEdge[rank];
+	}
+
+	int getUpHead(final int edge) {
+		return this.upHeads[edge];
+	}
+
+	int getFirstDownEdge(final int rank) {
+		return this.firstDownEdge[rank];
+	}
+
+	int getDownTail(final int downEdge) {
+		return this.downTails[downEdge];
+	}
+
+	int getDownEdge(final int downEdge) {
+		return this.downEdges[downEdge];
+	}
+
+	int getFirstEdgeLink(final int edge) {
+		return this.firstEdgeLink[edge];
+	}
+
+	/**
+	 * @return the graph link index, or <code>-link - 1</code> if the link runs in backward direction of the edge.
+	 */
+	int getEdgeLink(final int position) {
+		return this.edgeLinks[position];
+	}
+
+	/**
+	 * @return the id of the edge between the two ranks, or -1 if there is none.
+	 */
+	int getEdge(final int lowerRank, final int higherRank) {
+		int index = Arrays.binarySearch(this.upHeads, this.firstUpEdge[lowerRank], this.firstUpEdge[lowerRank + 1], higherRank);
+		return index < 0 ? -1 : index;
+	}
+
+	/**
+	 * Geometric nested dissection, see class comment.
+	 */
+	private static final class NestedDissection {
+
+		private final CompactRoutingGraph graph;
+		private final int[][] adjacency;
+		private final int[] order;
+		private final int[] labels;
+		private int nextLabel = 1;
+		private int nextRank;
+
+		NestedDissection(final CompactRoutingGraph graph, final int[][] adjacency) {
+			this.graph = graph;
+			this.adjacency = adjacency;
+			this.order = new int[graph.getNodeCount()];
+			this.labels = new int[graph.getNodeCount()];
+			this.nextRank = graph.getNodeCount() - 1;
+		}
+
+		int[] order() {
+			int[] all = new int[this.graph.getNodeCount()];
+			for (int i = 0; i < all.length; i++) {
+				all[i] = i;
+			}
+			dissect(all, 0, all.length);
+			return this.order;
+		}
+
+		/**
+		 * Assigns the highest free ranks to the separator of nodes[from, to) and recursively handles both parts.
+		 */
+		private void dissect(final int[] nodes, final int from, final int to) {
+			int size = to - from;
+			if (size <= LEAF_SIZE) {
+				for (int i = from; i < to; i++) {
+					this.order[this.nextRank--] = nodes[i];
+				}
+				return;
+			}
+			sortByLongerAxis(nodes, from, to);
+			int middle = from + size / 2;
+			int leftLabel = this.nextLabel++;
+			int rightLabel = this.nextLabel++;
+			for (int i = from; i < middle; i++) {
+				this.labels[nodes[i]] = leftLabel;
+			}
+			for (int i = middle; i < to; i++) {
+				this.labels[nodes[i]] = rightLabel;
+			}
+			/* the separator consists of the boundary nodes of the smaller boundary */
+			int leftBoundary = countBoundary(nodes, from, middle, rightLabel);
+			int rightBoundary = countBoundary(nodes, middle, to, leftLabel);
+			int separatorLabel = this.nextLabel++;
+			if (leftBoundary <= rightBoundary) {
+				markBoundary(nodes, from, middle, rightLabel, separatorLabel);
+			} else {
+				markBoundary(nodes, middle, to, leftLabel, separatorLabel);
+			}
+
+			/* move the separator nodes to the end, assign them the highest ranks */
+			int[] parts = new int[size];
+			int left = 0;
+			int right = size;
+			for (int i = from; i < to; i++) {
+				int node = nodes[i];
+				if (this.labels[node] == separatorLabel) {
+					this.order[this.nextRank--] = node;
+				} else if (this.labels[node] == leftLabel) {
+					parts[left++] = node;
+				} else {
+					parts[--right] = node;
+				}
+			}
+			System.arraycopy(parts, 0, nodes, from, left);
+			System.arraycopy(parts, right, nodes, from + left, size - right);
+			int rightEnd = from + left + size - right;
+			dissect(nodes, from, from + left);
+			dissect(nodes, from + left, rightEnd);
+		}
+
+		private int countBoundary(final int[] nodes, final int from, final int to, final int otherLabel) {
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				for (int neighbor : this.adjacency[nodes[i]]) {
+					if (this.labels[neighbor] == otherLabel) {
+						count++;
+						break;
+					}
+				}
+			}
+			return count;
+		}
+
+		private void markBoundary(final int[] nodes, final int from, final int to, final int otherLabel, final int separatorLabel) {
+			int[] boundary = new int[to - from];
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				for (int neighbor : this.adjacency[nodes[i]]) {
+					if (this.labels[neighbor] == otherLabel) {
+						boundary[count++] = nodes[i];
+						break;
+					}
+				}
+			}
+			for (int i = 0; i < count; i++) {
+				this.labels[boundary[i]] = separatorLabel;
+			}
+		}
+
+		private void sortByLongerAxis(final int[] nodes, final int from, final int to) {
+			double minX = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				double x = this.graph.getNodeX(nodes[i]);
+				double y = this.graph.getNodeY(nodes[i]);
+				minX = Math.min(minX, x);
+				maxX = Math.max(maxX, x);
+				minY = Math.min(minY, y);
+				maxY = Math.max(maxY, y);
+			}
+			final boolean byX = maxX - minX >= maxY - minY;
+			final double[] coordinates = new double[to - from];
+			for (int i = from; i < to; i++) {
+				coordinates[i - from] = byX ? this.graph.getNodeX(nodes[i]) : this.graph.getNodeY(nodes[i]);
+			}
+			Integer[] positions = new Integer[to - from];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = i;
+			}
+			Arrays.sort(positions, (p1, p2) -> {
+				int c = Double.compare(coordinates[p1], coordinates[p2]);
+				return c != 0 ? c : Integer.compare(nodes[from + p1], nodes[from + p2]);
+			});
+			int[] sorted = new int[positions.length];
+			for (int i = 0; i < positions.length; i++) {
+				sorted[i] = nodes[from + positions[i]];
+			}
+			System.arraycopy(sorted, 0, nodes, from, sorted.length);
+		}
+	}
+
+}
@@ -0,0 +1,229 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchyMetric.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.ch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The edge weights of a {@link ContractionHierarchy} for a given {@link TravelDisutility}, one set
+ * of weights per time bin. The weights of a time bin are the link disutilities at the start of the
+ * bin, propagated to the shortcut edges along all lower triangles ("customization"). The time bins
+ * are customized in parallel. For every weight, the link or the middle node it was taken over is
+ * recorded, so that paths can be unpacked without evaluating the disutility again.
+ * <p></p>
+ * The disutility is evaluated without person and vehicle, concurrently by several threads.
+ * Instances are immutable once created.
+ */
+public final class ContractionHierarchyMetric {
+
+	private final static Logger log = Logger.getLogger(ContractionHierarchyMetric.class);
+
+	private final ContractionHierarchy hierarchy;
+	private final TravelDisutility travelDisutility;
+	private final double timeBinSize;
+	/* per time bin and edge, the weight from the lower to the higher node and vice versa */
+	private final double[][] forwardWeights;
+	private final double[][] backwardWeights;
+	/* per time bin and edge, the middle node of the shortcut the weight was taken over, or -link - 1 for an original link */
+	private final int[][] forwardVia;
+	private final int[][] backwardVia;
+
+	public ContractionHierarchyMetric(final ContractionHierarchy hierarchy, final TravelDisutility travelDisutility,
+			final double timeBinSize, final int numberOfTimeBins, final int numberOfThreads) {
+		this.hierarchy = hierarchy;
+		this.travelDisutility = travelDisutility;
+		this.timeBinSize = timeBinSize;
+		this.forwardWeights = new double[numberOfTimeBins][];
+		this.backwardWeights = new double[numberOfTimeBins][];
+		this.forwardVia = new int[numberOfTimeBins][];
+		this.backwardVia = new int[numberOfTimeBins][];
+
+		long start = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(numberOfThreads, numberOfTimeBins)));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int bin = 0; bin < numberOfTimeBins; bin++) {
+				final int timeBin = bin;
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						customize(timeBin);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		log.info("customized " + numberOfTimeBins + " time bins of the contraction hierarchy with " + numberOfThreads
+				+ " threads in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+
+	private void customize(final int timeBin) {
+		final ContractionHierarchy ch = this.hierarchy;
+		final int edgeCount = ch.getEdgeCount();
+		final double[] forward = new double[edgeCount];
+		final double[] backward = new double[edgeCount];
+		final int[] forwardVia = new int[edgeCount];
+		final int[] backwardVia = new int[edgeCount];
+		final double time = getTimeBinStart(timeBin);
+
+		for (int edge = 0; edge < edgeCount; edge++) {
+			forward[edge] = Double.POSITIVE_INFINITY;
+			backward[edge] = Double.POSITIVE_INFINITY;
+			for (int i = ch.getFirstEdgeLink(edge), end = ch.getFirstEdgeLink(edge + 1); i < end; i++) {
+				int link = ch.getEdgeLink(i);
+				if (link >= 0) {
+					double weight = getLinkWeight(link, time);
+					if (weight < forward[edge]) {
+						forward[edge] = weight;
+						forwardVia[edge] = -link - 1;
+					}
+				} else {
+					double weight = getLinkWeight(-link - 1, time);
+					if (weight < backward[edge]) {
+						backward[edge] = weight;
+						backwardVia[edge] = link;
+					}
+				}
+			}
+		}
+
+		/* Process the nodes bottom up. For each node u, the edges to its higher neighbors w are improved via
+		 * all lower neighbors v that are adjacent to both; the edges of v are final at that point. */
+		final int[] edgeToHead = new int[ch.getNodeCount()];
+		Arrays.fill(edgeToHead, -1);
+		for (int u = 0; u < ch.getNodeCount(); u++) {
+			int firstUp = ch.getFirstUpEdge(u);
+			int lastUp = ch.getFirstUpEdge(u + 1);
+			for (int e = firstUp; e < lastUp; e++) {
+				edgeToHead[ch.getUpHead(e)] = e;
+			}
+			for (int d = ch.getFirstDownEdge(u), endDown = ch.getFirstDownEdge(u + 1); d < endDown; d++) {
+				int v = ch.getDownTail(d);
+				int vu = ch.getDownEdge(d);
+				double uToV = backward[vu];
+				double vToU = forward[vu];
+				if (uToV == Double.POSITIVE_INFINITY && vToU == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				// the edges of v are sorted by head, the ones above u follow the edge to u
+				for (int vw = vu + 1, endV = ch.getFirstUpEdge(v + 1); vw < endV; vw++) {
+					int uw = edgeToHead[ch.getUpHead(vw)];
+					double viaV = uToV + forward[vw];
+					if (viaV < forward[uw]) {
+						forward[uw] = viaV;
+						forwardVia[uw] = v;
+					}
+					viaV = backward[vw] + vToU;
+					if (viaV < backward[uw]) {
+						backward[uw] = viaV;
+						backwardVia[uw] = v;
+					}
+				}
+			}
+			for (int e = firstUp; e < lastUp; e++) {
+				edgeToHead[ch.getUpHead(e)] = -1;
+			}
+		}
+		this.forwardWeights[timeBin] = forward;
+		this.backwardWeights[timeBin] = backward;
+		this.forwardVia[timeBin] = forwardVia;
+		this.backwardVia[timeBin] = backwardVia;
+	}
+
+	private double getLinkWeight(final int link, final double time) {
+		CompactRoutingGraph graph = this.hierarchy.getGraph();
+		Link l = graph.getLink(link);
+		return this.travelDisutility.getLinkTravelDisutility(l, time, null, null);
+	}
+
+	public ContractionHierarchy getHierarchy() {
+		return this.hierarchy;
+	}
+
+	public TravelDisutility getTravelDisutility() {
+		return this.travelDisutility;
+	}
+
+	public int getNumberOfTimeBins() {
+		return this.forwardWeights.length;
+	}
+
+	public double getTimeBinSize() {
+		return this.timeBinSize;
+	}
+
+	/**
+	 * @return the time bin for the given time; times before 0 or after the last bin are mapped to the first and last bin.
+	 */
+	public int getTimeBin(final double time) {
+		if (!(time > 0)) {
+			return 0;
+		}
+		return (int) Math.min(time / this.timeBinSize, this.forwardWeights.length - 1);
+	}
+
+	public double getTimeBinStart(final int timeBin) {
+		return timeBin * this.timeBinSize;
+	}
+
+	double[] getForwardWeights(final int timeBin) {
+		return this.forwardWeights[timeBin];
+	}
+
+	double[] getBackwardWeights(final int timeBin) {
+		return this.backwardWeights[timeBin];
+	}
+
+	/**
+	 * @return per edge, the middle node of the shortcut the forward weight was taken over, or <code>-link - 1</code>
+	 * for an original link.
+	 */
+	int[] getForwardVia(final int timeBin) {
+		return this.forwardVia[timeBin];
+	}
+
+	/**
+	 * @see #getForwardVia(int)
+	 */
+	int[] getBackwardVia(final int timeBin) {
+		return this.backwardVia[timeBin];
+	}
+
+}
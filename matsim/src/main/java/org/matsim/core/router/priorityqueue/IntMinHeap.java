@@ -0,0 +1,205 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntMinHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Arrays;
+
+/**
+ * A d-ary min heap of int elements in the range [0, maxSize). In contrast to the
+ * {@link BinaryMinHeap}, neither the elements nor the heap entries are objects,
+ * thus adding and removing elements does not allocate any memory.
+ * <p></p>
+ * Like the {@link BinaryMinHeap}, elements with equal costs are ordered by their
+ * value, i.e. the heap defines a total order on (cost, element) and the sequence
+ * of polled elements does not depend on the order in which they were added.
+ */
+public final class IntMinHeap {
+
+	private static final int FANOUT = 4;
+
+	private final int[] heap;
+	private final double[] costs;
+	/* position of each element in the heap, or -1 if it is not part of the heap */
+	private final int[] positions;
+	private int size = 0;
+
+	public IntMinHeap(int maxSize) {
+		this.heap = new int[maxSize];
+		this.costs = new double[maxSize];
+		this.positions = new int[maxSize];
+		Arrays.fill(this.positions, -1);
+	}
+
+	/**
+	 * Removes all remaining elements.
+	 */
+	public void reset() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.heap[i]] = -1;
+		}
+		this.size = 0;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean contains(int element) {
+		return this.positions[element] >= 0;
+	}
+
+	/**
+	 * @return the element at the given position of the heap's underlying array. Together with
+	 * {@link #size()}, this allows to inspect all elements (in no particular order).
+	 */
+	public int get(int position) {
+		return this.heap[position];
+	}
+
+	/**
+	 * @return the cost the element was added with, or {@link Double#NaN} if it is not part of the heap.
+	 */
+	public double getCost(int element) {
+		int position = this.positions[element];
+		return position < 0 ? Double.NaN : this.costs[position];
+	}
+
+	/**
+	 * @return <tt>false</tt> if the element is already part of the heap.
+	 */
+	public boolean add(int element, double cost) {
+		if (this.positions[element] >= 0) {
+			return false;
+		}
+		siftUp(this.size, element, cost);
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Decreases the cost of the element, or adds it if it is not part of the heap.
+	 *
+	 * @return <tt>false</tt> if the element is part of the heap with a lower cost.
+	 */
+	public boolean decreaseKey(int element, double cost) {
+		int position = this.positions[element];
+		if (position < 0) {
+			return add(element, cost);
+		}
+		if (this.costs[position] < cost) {
+			return false;
+		}
+		siftUp(position, element, cost);
+		return true;
+	}
+
+	/**
+	 * @return the element with the lowest cost, or -1 if the heap is empty.
+	 */
+	public int poll() {
+		if (this.size == 0) {
+			return -1;
+		}
+		int min = this.heap[0];
+		removeAt(0);
+		return min;
+	}
+
+	public boolean remove(int element) {
+		int position = this.positions[element];
+		if (position < 0) {
+			return false;
+		}
+		removeAt(position);
+		return true;
+	}
+
+	private void removeAt(int position) {
+		int removed = this.heap[position];
+		this.size--;
+		if (position < this.size) {
+			int last = this.heap[this.size];
+			double lastCost = this.costs[this.size];
+			if (position > 0 && isLess(lastCost, last, this.costs[(position - 1) / FANOUT], this.heap[(position - 1) / FANOUT])) {
+				siftUp(position, last, lastCost);
+			} else {
+				siftDown(position, last, lastCost);
+			}
+		}
+		this.positions[removed] = -1;
+	}
+
+	private void siftUp(int position, int element, double cost) {
+		while (position > 0) {
+			int parent = (position - 1) / FANOUT;
+			if (!isLess(cost, element, this.costs[parent], this.heap[parent])) {
+				break;
+			}
+			move(parent, position);
+			position = parent;
+		}
+		set(position, element, cost);
+	}
+
+	private void siftDown(int position, int element, double cost) {
+		while (true) {
+			int firstChild = FANOUT * position + 1;
+			if (firstChild >= this.size) {
+				break;
+			}
+			int lastChild = Math.min(firstChild + FANOUT, this.size);
+			int minChild = firstChild;
+			for (int child = firstChild + 1; child < lastChild; child++) {
+				if (isLess(this.costs[child], this.heap[child], this.costs[minChild], this.heap[minChild])) {
+					minChild = child;
+				}
+			}
+			if (!isLess(this.costs[minChild], this.heap[minChild], cost, element)) {
+				break;
+			}
+			move(minChild, position);
+			position = minChild;
+		}
+		set(position, element, cost);
+	}
+
+	private static boolean isLess(double cost1, int element1, double cost2, int element2) {
+		return cost1 < cost2 || (cost1 == cost2 && element1 < element2);
+	}
+
+	private void move(int from, int to) {
+		int element = this.heap[from];
+		this.heap[to] = element;
+		this.costs[to] = this.costs[from];
+		this.positions[element] = to;
+	}
+
+	private void set(int position, int element, double cost) {
+		this.heap[position] = element;
+		this.costs[position] = cost;
+		this.positions[element] = position;
+	}
+
+}
@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactRoutingGraph.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * An immutable, array based representation of a network's topology in compressed sparse row
+ * format: the nodes are numbered from 0 to n-1 in the iteration order of the network, the
+ * outgoing links of node <code>i</code> are stored at the positions
+ * <code>[getFirstOutLink(i), getFirstOutLink(i + 1))</code> of the link arrays, again in the
+ * iteration order of the node's out-links.
+ * <p></p>
+ * Routers working on such a graph store their per-node search state in primitive arrays
+ * indexed by the node numbers instead of in node data objects. The graph itself can be
+ * shared by any number of routers, also across threads. It does not reflect changes of the
+ * network after its creation.
+ *
+ * @see org.matsim.core.router.CompactDijkstra
+ */
+public final class CompactRoutingGraph {
+
+	private final Network network;
+	private final Node[] nodes;
+	private final Map<Id<Node>, Integer> nodeIndices;
+	private final double[] nodeX;
+	private final double[] nodeY;
+
+	private final int[] firstOutLink;
+	private final Link[] links;
+	private final int[] linkFromNodes;
+	private final int[] linkToNodes;
+	private final int[] linkIdRanks;
+
+	public CompactRoutingGraph(final Network network) {
+		this.network = network;
+		int nodeCount = network.getNodes().size();
+		this.nodes = new Node[nodeCount];
+		this.nodeIndices = new HashMap<>((int) (nodeCount / 0.75) + 1);
+		this.nodeX = new double[nodeCount];
+		this.nodeY = new double[nodeCount];
+		int linkCount = 0;
+		int index = 0;
+		for (Node node : network.getNodes().values()) {
+			this.nodes[index] = node;
+			this.nodeIndices.put(node.getId(), index);
+			this.nodeX[index] = node.getCoord().getX();
+			this.nodeY[index] = node.getCoord().getY();
+			linkCount += node.getOutLinks().size();
+			index++;
+		}
+
+		this.firstOutLink = new int[nodeCount + 1];
+		this.links = new Link[linkCount];
+		this.linkFromNodes = new int[linkCount];
+		this.linkToNodes = new int[linkCount];
+		int linkIndex = 0;
+		for (int node = 0; node < nodeCount; node++) {
+			this.firstOutLink[node] = linkIndex;
+			for (Link link : this.nodes[node].getOutLinks().values()) {
+				this.links[linkIndex] = link;
+				this.linkFromNodes[linkIndex] = node;
+				int toNode = getNodeIndex(link.getToNode());
+				if (toNode < 0) {
+					throw new IllegalArgumentException("The to-node of link " + link.getId() + " is not part of the network.");
+				}
+				this.linkToNodes[linkIndex] = toNode;
+				linkIndex++;
+			}
+		}
+		this.firstOutLink[nodeCount] = linkIndex;
+
+		/* Dijkstra decides between two equally expensive links by comparing their ids. Comparing
+		 * ranks gives the same result without comparing strings while routing. */
+		Integer[] byId = new Integer[linkCount];
+		for (int i = 0; i < linkCount; i++) {
+			byId[i] = i;
+		}
+		Arrays.sort(byId, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer l1, Integer l2) {
+				return CompactRoutingGraph.this.links[l1].getId().compareTo(CompactRoutingGraph.this.links[l2].getId());
+			}
+		});
+		this.linkIdRanks = new int[linkCount];
+		for (int rank = 0; rank < linkCount; rank++) {
+			this.linkIdRanks[byId[rank]] = rank;
+		}
+	}
+
+	public Network getNetwork() {
+		return this.network;
+	}
+
+	public int getNodeCount() {
+		return this.nodes.length;
+	}
+
+	public int getLinkCount() {
+		return this.links.length;
+	}
+
+	/**
+	 * @return the index of the node, or -1 if the node is not part of the network this graph was created from.
+	 */
+	public int getNodeIndex(final Node node) {
+		Integer index = this.nodeIndices.get(node.getId());
+		if (index == null || this.nodes[index] != node) {
+			return -1;
+		}
+		return index;
+	}
+
+	public Node getNode(final int node) {
+		return this.nodes[node];
+	}
+
+	public double getNodeX(final int node) {
+		return this.nodeX[node];
+	}
+
+	public double getNodeY(final int node) {
+		return this.nodeY[node];
+	}
+
+	/**
+	 * @return the index of the first out-link of the node; <code>getFirstOutLink(node + 1)</code> is the
+	 * exclusive upper bound of the node's out-links.
+	 */
+	public int getFirstOutLink(final int node) {
+		return this.firstOutLink[node];
+	}
+
+	public Link getLink(final int link) {
+		return this.links[link];
+	}
+
+	public int getLinkFromNode(final int link) {
+		return this.linkFromNodes[link];
+	}
+
+	public int getLinkToNode(final int link) {
+		return this.linkToNodes[link];
+	}
+
+	/**
+	 * @return the position of the link's id among all link ids of the graph in their natural order.
+	 */
+	public int getLinkIdRank(final int link) {
+		return this.linkIdRanks[link];
+	}
+
+}
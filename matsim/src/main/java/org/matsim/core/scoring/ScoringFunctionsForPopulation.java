@@ -22,14 +22,20 @@ package org.matsim.core.scoring;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.IdMap;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.PersonMoneyEvent;
@@ -42,6 +48,8 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.ControlerListenerManager;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.listener.IterationStartsListener;
@@ -60,6 +68,13 @@ import gnu.trove.list.array.TDoubleArrayList;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p></p>
+ * By default, the scoring functions are called in the event handling threads, which are serialized by a lock.  If
+ * {@link PlanCalcScoreConfigGroup#getNumberOfScoringThreads()} is larger than 0, the persons are instead split into
+ * that many shards by their {@link Id#index()}, and every shard is scored by its own thread.  The events, legs and
+ * activities are passed to the shard of their person through a lock-free queue, so the events of a person reach its
+ * scoring function in the same order as without shards, and the scores are the same.  The scoring functions are then
+ * only up to date after {@link #finishScoringFunctions()}.
  * 
  * @author michaz
  *
@@ -82,10 +97,16 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	 * should be faster and reduce the memory overhead.
 	 *
 	 * cdobler, nov'15
+	 *
+	 * The scoring functions are looked up for every event, so they are kept in an IdMap, which is backed by an array.
+	 * The order of the IdMap depends on the order the ids were created, so it is not used for 'partialScores'.
 	 */
-	private final Map<Id<Person>, ScoringFunction> agentScorers = new HashMap<>();
+	private final Map<Id<Person>, ScoringFunction> agentScorers = new IdMap<>(Person.class);
 	private final Map<Id<Person>, TDoubleCollection> partialScores = new LinkedHashMap<>();
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
+
+	private final int numberOfThreads;
+	private ScoringShard[] shards = null;
 	
 	/**
 	 * For something like the bicycle scoring, we need to know individual links at the level of the scoring function.  This is a first sketch how this could be implemented.
@@ -96,8 +117,18 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	private Vehicle2DriverEventHandler delegate = new Vehicle2DriverEventHandler();
 
 	@Inject
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  Population population, ScoringFunctionFactory scoringFunctionFactory, Config config) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, config.planCalcScore().getNumberOfScoringThreads());
+	}
+
 	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
 								  Population population, ScoringFunctionFactory scoringFunctionFactory) {
+		this(controlerListenerManager, eventsManager, eventsToActivities, eventsToLegs, population, scoringFunctionFactory, 0);
+	}
+
+	ScoringFunctionsForPopulation(ControlerListenerManager controlerListenerManager, EventsManager eventsManager, EventsToActivities eventsToActivities, EventsToLegs eventsToLegs,
+								  Population population, ScoringFunctionFactory scoringFunctionFactory, int numberOfThreads) {
 		controlerListenerManager.addControlerListener(new IterationStartsListener() {
 			@Override
 			public void notifyIterationStarts(IterationStartsEvent event) {
@@ -106,6 +137,7 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		this.numberOfThreads = numberOfThreads;
 		eventsManager.addHandler(this);
 		eventsToActivities.addActivityHandler(this);
 		eventsToLegs.addLegHandler(this);
@@ -115,35 +147,76 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	}
 
 	private void init() {
+		if (this.shards != null) {
+			// the last iteration was not finished, stop its threads
+			stopShards();
+		}
 		for (Person person : population.getPersons().values()) {
 			ScoringFunction data = scoringFunctionFactory.createNewScoringFunction(person);
 			this.agentScorers.put(person.getId(), data);
 			this.partialScores.put(person.getId(), new TDoubleArrayList());
 		}
+		if (this.numberOfThreads > 0) {
+			this.shards = new ScoringShard[this.numberOfThreads];
+			for (int i = 0; i < this.shards.length; i++) {
+				this.shards[i] = new ScoringShard();
+			}
+			for (Person person : population.getPersons().values()) {
+				getShard(person.getId()).personIds.add(person.getId());
+			}
+			for (int i = 0; i < this.shards.length; i++) {
+				Thread thread = new Thread(this.shards[i], "ScoringFunctionsForPopulation." + i);
+				thread.setDaemon(true);
+				this.shards[i].thread = thread;
+				thread.start();
+			}
+		}
+	}
+
+	private ScoringShard getShard(final Id<Person> personId) {
+		return this.shards[personId.index() % this.shards.length];
 	}
 
 	@Override
-	synchronized public void handleEvent(Event o) {
+	public void handleEvent(Event o) {
+		ScoringShard[] shards = this.shards;
+		if (shards == null) {
+			synchronized (this) {
+				scoreEvent(o);
+			}
+			return;
+		}
+		if (o instanceof HasPersonId) {
+			Id<Person> personId = ((HasPersonId) o).getPersonId();
+			if (personId != null) {
+				getShard(personId).add(o);
+			}
+		}
+		if ( passLinkEventsToPerson ) {
+			// the driver of the vehicle is looked up here, as the vehicle events may be scored in other shards
+			if (o instanceof VehicleEntersTrafficEvent) {
+				delegate.handleEvent((VehicleEntersTrafficEvent) o);
+			}
+			if (o instanceof VehicleLeavesTrafficEvent) {
+				delegate.handleEvent((VehicleLeavesTrafficEvent) o);
+			}
+			if ( o instanceof LinkEnterEvent ) {
+				Id<Person> driverId = delegate.getDriverOfVehicle(((LinkEnterEvent) o).getVehicleId());
+				if (driverId != null) {
+					getShard(driverId).add(new LinkEventOfPerson(driverId, o));
+				}
+			}
+		}
+	}
+
+	private void scoreEvent(Event o) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
-			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
-			}
+			scorePersonEvent(o);
 		}
 		if ( passLinkEventsToPerson ) {
 			// Establish and end connection between driver and vehicle
@@ -157,11 +230,8 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 			if ( o instanceof LinkEnterEvent ) {
 				Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId() ;
 				Id<Person> driverId = delegate.getDriverOfVehicle(vehicleId) ;
-				ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
+				scoreLinkEvent(driverId, o);
 				// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
-				if (scoringFunction != null) {
-					scoringFunction.handleEvent(o) ;
-				}
 			}
 			/*
 			 * (This shouldn't really be more expensive than passing the link events to the router: here, we have a map lookup
@@ -173,8 +243,43 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 		}
 	}
 
+	private void scorePersonEvent(Event o) {
+		ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
+		if (scoringFunction != null) {
+			if (o instanceof PersonStuckEvent) {
+				scoringFunction.agentStuck(o.getTime());
+			} else if (o instanceof PersonMoneyEvent) {
+				scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+				// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+				// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+			} 
+//			else {
+				scoringFunction.handleEvent(o);
+				// passing this on in any case, see comment above.  kai, mar'17
+//			}
+		}
+	}
+
+	private void scoreLinkEvent(Id<Person> driverId, Event o) {
+		ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
+		if (scoringFunction != null) {
+			scoringFunction.handleEvent(o) ;
+		}
+	}
+
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
+	public void handleLeg(PersonExperiencedLeg o) {
+		ScoringShard[] shards = this.shards;
+		if (shards == null) {
+			synchronized (this) {
+				scoreLeg(o);
+			}
+		} else {
+			getShard(o.getAgentId()).add(o);
+		}
+	}
+
+	private void scoreLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
 		Leg leg = o.getLeg();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -186,7 +291,18 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	}
 
 	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
+	public void handleActivity(PersonExperiencedActivity o) {
+		ScoringShard[] shards = this.shards;
+		if (shards == null) {
+			synchronized (this) {
+				scoreActivity(o);
+			}
+		} else {
+			getShard(o.getAgentId()).add(o);
+		}
+	}
+
+	private void scoreActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
 		Activity activity = o.getActivity();
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
@@ -212,6 +328,37 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	}
 
 	public void finishScoringFunctions() {
+		if (this.shards != null) {
+			// the shards finish the scoring functions of their persons in parallel
+			stopShards();
+			rethrowException();
+			return;
+		}
+		rethrowException();
+		for (ScoringFunction sf : this.agentScorers.values()) {
+			sf.finish();
+		}
+		for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
+			entry.getValue().add(this.getScoringFunctionForAgent(entry.getKey()).getScore());
+		}
+	}
+
+	private void stopShards() {
+		for (ScoringShard shard : this.shards) {
+			shard.finishing = true;
+			LockSupport.unpark(shard.thread);
+		}
+		for (ScoringShard shard : this.shards) {
+			try {
+				shard.thread.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		this.shards = null;
+	}
+
+	private void rethrowException() {
 		// Rethrow an exception in a scoring function (user code) if there was one.
 		Throwable throwable = exception.get();
 		if (throwable != null) {
@@ -221,12 +368,6 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 				throw new RuntimeException(throwable);
 			}
 		}
-		for (ScoringFunction sf : this.agentScorers.values()) {
-			sf.finish();
-		}
-		for (Entry<Id<Person>, TDoubleCollection> entry : this.partialScores.entrySet()) {
-			entry.getValue().add(this.getScoringFunctionForAgent(entry.getKey()).getScore());
-		}
 	}
 
 	public void writePartialScores(String iterationFilename) {
@@ -257,4 +398,97 @@ public final class ScoringFunctionsForPopulation implements BasicEventHandler, E
 	public void setPassLinkEventsToPerson(boolean passLinkEventsToPerson) {
 		this.passLinkEventsToPerson = passLinkEventsToPerson;
 	}
+
+	/**
+	 * A link event for the driver of the vehicle, who is looked up when the event is handled.
+	 */
+	private static final class LinkEventOfPerson {
+		final Id<Person> personId;
+		final Event event;
+
+		LinkEventOfPerson(final Id<Person> personId, final Event event) {
+			this.personId = personId;
+			this.event = event;
+		}
+	}
+
+	/**
+	 * Scores the persons of one shard in its own thread.  Any thread may add events, legs and activities; they are
+	 * handled in the order they were added.
+	 */
+	private final class ScoringShard implements Runnable {
+		/** limits the memory used if the scoring cannot keep up with the events */
+		private static final int MAX_PENDING = 100000;
+
+		final List<Id<Person>> personIds = new ArrayList<>();
+		private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+		private final AtomicInteger pending = new AtomicInteger();
+		Thread thread = null;
+		private volatile boolean waiting = false;
+		volatile boolean finishing = false;
+
+		void add(final Object item) {
+			if (exception.get() != null) {
+				rethrowException();
+			}
+			this.queue.add(item);
+			if (this.waiting) {
+				LockSupport.unpark(this.thread);
+			}
+			if (this.pending.incrementAndGet() > MAX_PENDING) {
+				while (this.pending.get() > MAX_PENDING && exception.get() == null) {
+					Thread.yield();
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Object item = this.queue.poll();
+				if (item != null) {
+					this.pending.decrementAndGet();
+					if (exception.get() == null) {
+						score(item);
+					}
+				} else if (this.finishing) {
+					// everything was added before finishing was set, so the queue is only checked once more
+					if (this.queue.isEmpty()) {
+						break;
+					}
+				} else {
+					this.waiting = true;
+					if (this.queue.isEmpty() && !this.finishing) {
+						LockSupport.park(this);
+					}
+					this.waiting = false;
+				}
+			}
+			try {
+				for (Id<Person> personId : this.personIds) {
+					ScoringFunction scoringFunction = getScoringFunctionForAgent(personId);
+					scoringFunction.finish();
+					partialScores.get(personId).add(scoringFunction.getScore());
+				}
+			} catch (Throwable t) {
+				exception.compareAndSet(null, t);
+			}
+		}
+
+		private void score(final Object item) {
+			try {
+				if (item instanceof PersonExperiencedLeg) {
+					scoreLeg((PersonExperiencedLeg) item);
+				} else if (item instanceof PersonExperiencedActivity) {
+					scoreActivity((PersonExperiencedActivity) item);
+				} else if (item instanceof LinkEventOfPerson) {
+					scoreLinkEvent(((LinkEventOfPerson) item).personId, ((LinkEventOfPerson) item).event);
+				} else {
+					scorePersonEvent((Event) item);
+				}
+			} catch (Throwable t) {
+				exception.compareAndSet(null, t);
+			}
+		}
+	}
 }
\ No newline at end of file
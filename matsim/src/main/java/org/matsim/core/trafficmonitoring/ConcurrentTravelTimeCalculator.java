@@ -0,0 +1,626 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ConcurrentTravelTimeCalculator.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleAbortsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.router.priorityqueue.HasIndex;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.collections.CollectionUtils;
+import org.matsim.vehicles.Vehicle;
+
+import com.google.inject.Inject;
+
+/**
+ * A {@link TravelTimeCalculator} which may be fed with events from several threads at the same time, e.g. when
+ * the events are handled by the threads of a parallel mobsim. Events of the same vehicle must still be handled
+ * in their order, which is the case for all events managers and mobsims.
+ * <p></p>
+ * Links and turns of the network, as well as vehicles, are addressed by dense indices, see {@link Id#index()}. The travel times observed
+ * per link and time bin are summed up in primitive arrays; every link is guarded by one of a fixed number of
+ * locks, so threads only contend when they update links sharing the same lock. When the travel times of a link are
+ * requested, the sums are averaged and consolidated (see {@link TravelTimeCalculator}) in exactly the same order
+ * as by {@link TravelTimeDataArray}, so the results are identical to the ones of a {@link TravelTimeCalculator} if
+ * the events are handled by a single thread. The consolidated travel times are kept until travel times of the link
+ * are observed again.
+ * <p></p>
+ * {@link #createSnapshot()} returns the consolidated travel times of all links as an immutable {@link TravelTime}
+ * which is not affected by events handled afterwards.  {@link #freezeLinkTravelTimes()} makes the
+ * {@link #getLinkTravelTimes()} answer with such a snapshot, e.g. for routers which are still running while the
+ * next iteration is observed.
+ * <p></p>
+ * Only links of the network given at construction are observed.
+ */
+public final class ConcurrentTravelTimeCalculator extends TravelTimeCalculator {
+
+	private static final Logger log = Logger.getLogger(ConcurrentTravelTimeCalculator.class);
+
+	private static final int VEHICLE_PAGE_BITS = 10;
+	private static final int VEHICLE_PAGE_SIZE = 1 << VEHICLE_PAGE_BITS;
+
+	private final boolean calculateLinkTravelTimes;
+	private final boolean calculateLinkToLinkTravelTimes;
+	private final boolean filterAnalyzedModes;
+	private final Set<String> analyzedModes;
+
+	private final Link[] links;
+	/** maps the {@link Id#index()} of the link ids to the link index plus one, zero means unknown */
+	private final int[] idIndexToLink;
+	/** maps the indices of {@link HasIndex} links to the link index plus one, zero means unknown */
+	private final int[] arrayIndexToLink;
+
+	/** the turns of link <code>i</code> are the ones from <code>turnOffsets[i]</code> to <code>turnOffsets[i + 1]</code> */
+	private final int[] turnOffsets;
+	private final int[] turnToLinks;
+
+	private final Object[] locks;
+	private final int lockMask;
+
+	/** the sums of the observed travel times, guarded by the lock of the link */
+	private final TravelTimeSums[] linkSums;
+	private final TravelTimeSums[] turnSums;
+	/** the consolidated travel times, <code>null</code> if travel times were observed since they were consolidated */
+	private final AtomicReferenceArray<ConsolidatedTravelTimes> linkTravelTimes;
+	private final AtomicReferenceArray<ConsolidatedTravelTimes> turnTravelTimes;
+
+	private volatile VehiclePage[] vehiclePages = new VehiclePage[16];
+
+	private volatile TravelTime frozenLinkTravelTimes = null;
+
+	private AbstractTravelTimeAggregator aggregator;
+
+	@Inject private QSimConfigGroup qsimConfig;
+
+	@Inject
+	ConcurrentTravelTimeCalculator(TravelTimeCalculatorConfigGroup ttconfigGroup, EventsManager eventsManager, Network network) {
+		this(network, ttconfigGroup.getTraveltimeBinSize(), ttconfigGroup.getMaxTime(), ttconfigGroup.isCalculateLinkTravelTimes(), ttconfigGroup.isCalculateLinkToLinkTravelTimes(), ttconfigGroup.isFilterModes(), CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModes()));
+		eventsManager.addHandler(this);
+		configure(this, ttconfigGroup, network);
+	}
+
+	public ConcurrentTravelTimeCalculator(final Network network, TravelTimeCalculatorConfigGroup ttconfigGroup) {
+		this(network, ttconfigGroup.getTraveltimeBinSize(), ttconfigGroup.getMaxTime(), ttconfigGroup.isCalculateLinkTravelTimes(), ttconfigGroup.isCalculateLinkToLinkTravelTimes(), ttconfigGroup.isFilterModes(), CollectionUtils.stringToSet(ttconfigGroup.getAnalyzedModes()));
+	}
+
+	ConcurrentTravelTimeCalculator(final Network network, final int timeslice, final int maxTime,
+			boolean calculateLinkTravelTimes, boolean calculateLinkToLinkTravelTimes, boolean filterModes, Set<String> analyzedModes) {
+		super(network, timeslice, maxTime, false, false, filterModes, analyzedModes);
+		this.calculateLinkTravelTimes = calculateLinkTravelTimes;
+		this.calculateLinkToLinkTravelTimes = calculateLinkToLinkTravelTimes;
+		this.filterAnalyzedModes = filterModes;
+		this.analyzedModes = analyzedModes;
+		this.aggregator = new OptimisticTravelTimeAggregator(this.numSlots, this.timeSlice);
+
+		int linkCount = network.getLinks().size();
+		this.links = network.getLinks().values().toArray(new Link[linkCount]);
+		this.idIndexToLink = new int[Id.getNumberOfIds(Link.class)];
+		for (int i = 0; i < linkCount; i++) {
+			this.idIndexToLink[this.links[i].getId().index()] = i + 1;
+		}
+		this.arrayIndexToLink = new int[linkCount];
+
+		this.turnOffsets = new int[linkCount + 1];
+		for (int i = 0; i < linkCount; i++) {
+			this.turnOffsets[i + 1] = this.turnOffsets[i] + (calculateLinkToLinkTravelTimes ? this.links[i].getToNode().getOutLinks().size() : 0);
+		}
+		this.turnToLinks = new int[this.turnOffsets[linkCount]];
+		if (calculateLinkToLinkTravelTimes) {
+			for (int i = 0; i < linkCount; i++) {
+				int turn = this.turnOffsets[i];
+				for (Link toLink : this.links[i].getToNode().getOutLinks().values()) {
+					this.turnToLinks[turn++] = getLinkIndex(toLink.getId());
+				}
+			}
+		}
+
+		int lockCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 16 - 1) << 1;
+		this.locks = new Object[lockCount];
+		for (int i = 0; i < lockCount; i++) {
+			this.locks[i] = new Object();
+		}
+		this.lockMask = lockCount - 1;
+
+		this.linkSums = new TravelTimeSums[calculateLinkTravelTimes ? linkCount : 0];
+		this.turnSums = new TravelTimeSums[this.turnToLinks.length];
+		this.linkTravelTimes = new AtomicReferenceArray<>(this.linkSums.length);
+		this.turnTravelTimes = new AtomicReferenceArray<>(this.turnSums.length);
+	}
+
+	@Override
+	public void setTravelTimeAggregator(final AbstractTravelTimeAggregator aggregator) {
+		super.setTravelTimeAggregator(aggregator);
+		this.aggregator = aggregator;
+		if (this.linkTravelTimes != null) {
+			// the consolidation does not depend on the aggregator, but the cached views do
+			invalidateAll();
+		}
+	}
+
+	@Override
+	public void handleEvent(final LinkEnterEvent e) {
+		int vehicle = getVehicleIndex(e.getVehicleId(), true);
+		VehiclePage page = this.vehiclePages[vehicle >>> VEHICLE_PAGE_BITS];
+		int v = vehicle & (VEHICLE_PAGE_SIZE - 1);
+		/* if only some modes are analyzed, we check whether the vehicles
+		 * performs a trip with one of those modes. if not, we skip the event. */
+		if (this.filterAnalyzedModes && page.ignored[v]) return;
+
+		int link = getLinkIndex(e.getLinkId());
+		int fromLink = page.enterLinks[v];
+		if (fromLink >= 0 && this.calculateLinkToLinkTravelTimes && link >= 0) {
+			int turn = getTurnIndex(fromLink, link);
+			if (turn >= 0) {
+				synchronized (this.locks[fromLink & this.lockMask]) {
+					TravelTimeSums sums = this.turnSums[turn];
+					if (sums == null) {
+						sums = new TravelTimeSums(this.numSlots);
+						this.turnSums[turn] = sums;
+					}
+					this.aggregator.addTravelTime(sums, page.enterTimes[v], e.getTime());
+					this.turnTravelTimes.set(turn, null);
+				}
+			}
+		}
+		page.enterLinks[v] = link;
+		page.enterTimes[v] = e.getTime();
+	}
+
+	@Override
+	public void handleEvent(final LinkLeaveEvent e) {
+		if (this.calculateLinkTravelTimes) {
+			int vehicle = getVehicleIndex(e.getVehicleId(), false);
+			if (vehicle < 0) return;
+			VehiclePage page = this.vehiclePages[vehicle >>> VEHICLE_PAGE_BITS];
+			int v = vehicle & (VEHICLE_PAGE_SIZE - 1);
+			if (page.enterLinks[v] >= 0) {
+				int link = getLinkIndex(e.getLinkId());
+				if (link >= 0) {
+					addTravelTime(link, page.enterTimes[v], e.getTime(), false);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void handleEvent(VehicleEntersTrafficEvent event) {
+		/* if filtering transport modes is enabled and the vehicles
+		 * starts a leg on a non analyzed transport mode, mark the vehicle as filtered. */
+		if (this.filterAnalyzedModes && !this.analyzedModes.contains(event.getNetworkMode())) {
+			int vehicle = getVehicleIndex(event.getVehicleId(), true);
+			this.vehiclePages[vehicle >>> VEHICLE_PAGE_BITS].ignored[vehicle & (VEHICLE_PAGE_SIZE - 1)] = true;
+		}
+	}
+
+	@Override
+	public void handleEvent(final VehicleLeavesTrafficEvent event) {
+		/* forget the link enter time when a vehicle arrives.
+		 * otherwise, the activity duration would counted as travel time, when the
+		 * vehicle departs again and leaves the link! */
+		int vehicle = getVehicleIndex(event.getVehicleId(), false);
+		if (vehicle < 0) return;
+		VehiclePage page = this.vehiclePages[vehicle >>> VEHICLE_PAGE_BITS];
+		page.enterLinks[vehicle & (VEHICLE_PAGE_SIZE - 1)] = -1;
+		page.ignored[vehicle & (VEHICLE_PAGE_SIZE - 1)] = false;
+	}
+
+	@Override
+	public void handleEvent(VehicleArrivesAtFacilityEvent event) {
+		/* forget the link enter time when a bus stops on a link.
+		 * otherwise, the stop time would counted as travel time, when the
+		 * bus departs again and leaves the link! */
+		int vehicle = getVehicleIndex(event.getVehicleId(), false);
+		if (vehicle < 0) return;
+		this.vehiclePages[vehicle >>> VEHICLE_PAGE_BITS].enterLinks[vehicle & (VEHICLE_PAGE_SIZE - 1)] = -1;
+	}
+
+	@Override
+	public void handleEvent(VehicleAbortsEvent event) {
+		int vehicle = getVehicleIndex(event.getVehicleId(), false);
+		if (vehicle < 0) return;
+		VehiclePage page = this.vehiclePages[vehicle >>> VEHICLE_PAGE_BITS];
+		int v = vehicle & (VEHICLE_PAGE_SIZE - 1);
+		int link = page.enterLinks[v];
+		if (link >= 0) {
+			if (this.calculateLinkTravelTimes) {
+				addTravelTime(link, page.enterTimes[v], event.getTime(), true);
+			}
+			if (this.calculateLinkToLinkTravelTimes
+					&& event.getTime() < this.qsimConfig.getEndTime()) {
+				log.error(ERROR_STUCK_AND_LINKTOLINK);
+				throw new IllegalStateException(ERROR_STUCK_AND_LINKTOLINK);
+			}
+		}
+		page.enterLinks[v] = -1;
+		page.ignored[v] = false;
+	}
+
+	private void addTravelTime(final int link, final double enterTime, final double leaveTime, final boolean stuck) {
+		synchronized (this.locks[link & this.lockMask]) {
+			TravelTimeSums sums = this.linkSums[link];
+			if (sums == null) {
+				sums = new TravelTimeSums(this.numSlots);
+				this.linkSums[link] = sums;
+			}
+			if (stuck) {
+				this.aggregator.addStuckEventTravelTime(sums, enterTime, leaveTime);
+			} else {
+				this.aggregator.addTravelTime(sums, enterTime, leaveTime);
+			}
+			this.linkTravelTimes.set(link, null);
+		}
+	}
+
+	private int getTurnIndex(final int fromLink, final int toLink) {
+		for (int turn = this.turnOffsets[fromLink]; turn < this.turnOffsets[fromLink + 1]; turn++) {
+			if (this.turnToLinks[turn] == toLink) {
+				return turn;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the {@link Id#index()} of the vehicle, or <code>-1</code> if the vehicle was not seen before and is
+	 * not to be created
+	 */
+	private int getVehicleIndex(final Id<Vehicle> vehicleId, final boolean create) {
+		int index = vehicleId.index();
+		int page = index >>> VEHICLE_PAGE_BITS;
+		VehiclePage[] pages = this.vehiclePages;
+		if (page < pages.length && pages[page] != null) {
+			return index;
+		}
+		return create ? addVehiclePage(index) : -1;
+	}
+
+	private synchronized int addVehiclePage(final int index) {
+		int page = index >>> VEHICLE_PAGE_BITS;
+		VehiclePage[] pages = this.vehiclePages;
+		if (page >= pages.length) {
+			pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+		}
+		if (pages[page] == null) {
+			pages[page] = new VehiclePage();
+		}
+		this.vehiclePages = pages;
+		return index;
+	}
+
+	private int getLinkIndex(final Link link) {
+		if (link instanceof HasIndex) {
+			int arrayIndex = ((HasIndex) link).getArrayIndex();
+			if (arrayIndex >= 0 && arrayIndex < this.arrayIndexToLink.length) {
+				int index = this.arrayIndexToLink[arrayIndex] - 1;
+				if (index < 0) {
+					index = getLinkIndex(link.getId());
+					this.arrayIndexToLink[arrayIndex] = index + 1;
+				}
+				return index;
+			}
+		}
+		return getLinkIndex(link.getId());
+	}
+
+	private int getLinkIndex(final Id<Link> linkId) {
+		int index = linkId.index();
+		return index < this.idIndexToLink.length ? this.idIndexToLink[index] - 1 : -1;
+	}
+
+	@Override
+	public double getLinkTravelTime(final Link link, final double time) {
+		if (this.calculateLinkTravelTimes) {
+			int index = getLinkIndex(link);
+			if (index < 0) {
+				return link.getLength() / link.getFreespeed(time);
+			}
+			return this.aggregator.getTravelTime(getConsolidatedTravelTimes(index), time);
+		}
+		throw new IllegalStateException("No link travel time is available " +
+				"if calculation is switched off by config option!");
+	}
+
+	@Override
+	public double getLinkToLinkTravelTime(final Id<Link> fromLinkId, final Id<Link> toLinkId, double time) {
+		if (!this.calculateLinkToLinkTravelTimes) {
+			throw new IllegalStateException("No link to link travel time is available " +
+					"if calculation is switched off by config option!");
+		}
+		int fromLink = getLinkIndex(fromLinkId);
+		if (fromLink < 0) {
+			throw new IllegalArgumentException("Link " + fromLinkId + " is not part of the network.");
+		}
+		int turn = getTurnIndex(fromLink, getLinkIndex(toLinkId));
+		if (turn < 0) {
+			// no travel times are observed for turns which do not exist in the network
+			return this.aggregator.getTravelTime(new ConsolidatedTravelTimes(this.links[fromLink], null), time);
+		}
+		return this.aggregator.getTravelTime(getConsolidatedTurnTravelTimes(fromLink, turn), time);
+	}
+
+	private ConsolidatedTravelTimes getConsolidatedTravelTimes(final int link) {
+		ConsolidatedTravelTimes travelTimes = this.linkTravelTimes.get(link);
+		if (travelTimes == null) {
+			synchronized (this.locks[link & this.lockMask]) {
+				travelTimes = new ConsolidatedTravelTimes(this.links[link], consolidate(this.links[link], this.linkSums[link]));
+				this.linkTravelTimes.set(link, travelTimes);
+			}
+		}
+		return travelTimes;
+	}
+
+	private ConsolidatedTravelTimes getConsolidatedTurnTravelTimes(final int fromLink, final int turn) {
+		ConsolidatedTravelTimes travelTimes = this.turnTravelTimes.get(turn);
+		if (travelTimes == null) {
+			synchronized (this.locks[fromLink & this.lockMask]) {
+				travelTimes = new ConsolidatedTravelTimes(this.links[fromLink], consolidate(this.links[fromLink], this.turnSums[turn]));
+				this.turnTravelTimes.set(turn, travelTimes);
+			}
+		}
+		return travelTimes;
+	}
+
+	/**
+	 * Averages the sums and makes sure that the travel time of a time bin is not smaller than the one of the bin
+	 * before minus the bin size, in the same way as {@link TravelTimeDataArray} and {@link TravelTimeCalculator} do.
+	 *
+	 * @return <code>null</code> if no travel times were observed, i.e. the free speed travel time applies
+	 */
+	private double[] consolidate(final Link link, final TravelTimeSums sums) {
+		if (sums == null || sums.isEmpty()) {
+			return null;
+		}
+		double[] travelTimes = new double[this.numSlots];
+		double prevTravelTime = sums.getAverage(0, link, 0.0);
+		travelTimes[0] = prevTravelTime;
+		for (int i = 1; i < this.numSlots; i++) {
+			double travelTime = sums.getAverage(i, link, i * this.timeSlice);
+			double minTravelTime = prevTravelTime - this.timeSlice;
+			if (travelTime < minTravelTime) {
+				travelTime = minTravelTime;
+			}
+			travelTimes[i] = travelTime;
+			prevTravelTime = travelTime;
+		}
+		return travelTimes;
+	}
+
+	private void invalidateAll() {
+		for (int i = 0; i < this.linkTravelTimes.length(); i++) {
+			synchronized (this.locks[i & this.lockMask]) {
+				this.linkTravelTimes.set(i, null);
+			}
+		}
+		for (int i = 0; i < this.turnTravelTimes.length(); i++) {
+			this.turnTravelTimes.set(i, null);
+		}
+	}
+
+	/**
+	 * @return the consolidated travel times of all links at the time of the call; the returned object is immutable
+	 * and can be used by several threads without synchronization.
+	 */
+	public TravelTime createSnapshot() {
+		if (!this.calculateLinkTravelTimes) {
+			throw new IllegalStateException("No link travel time is available " +
+					"if calculation is switched off by config option!");
+		}
+		final ConsolidatedTravelTimes[] travelTimes = new ConsolidatedTravelTimes[this.links.length];
+		for (int i = 0; i < travelTimes.length; i++) {
+			travelTimes[i] = getConsolidatedTravelTimes(i);
+		}
+		final AbstractTravelTimeAggregator aggregator = this.aggregator;
+		return new TravelTime() {
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				int index = getLinkIndex(link);
+				if (index < 0) {
+					return link.getLength() / link.getFreespeed(time);
+				}
+				return aggregator.getTravelTime(travelTimes[index], time);
+			}
+		};
+	}
+
+	/**
+	 * Lets {@link #getLinkTravelTimes()} return the travel times observed so far until
+	 * {@link #unfreezeLinkTravelTimes()} is called, no matter which events are handled in the meantime.
+	 */
+	public void freezeLinkTravelTimes() {
+		this.frozenLinkTravelTimes = createSnapshot();
+	}
+
+	public void unfreezeLinkTravelTimes() {
+		this.frozenLinkTravelTimes = null;
+	}
+
+	@Override
+	public TravelTime getLinkTravelTimes() {
+		return new TravelTime() {
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				TravelTime frozen = ConcurrentTravelTimeCalculator.this.frozenLinkTravelTimes;
+				if (frozen != null) {
+					return frozen.getLinkTravelTime(link, time, person, vehicle);
+				}
+				return ConcurrentTravelTimeCalculator.this.getLinkTravelTime(link, time);
+			}
+		};
+	}
+
+	@Override
+	public void reset(int iteration) {
+		super.reset(iteration);
+		if (this.linkSums == null) {
+			// called by the constructor of the super class
+			return;
+		}
+		for (int i = 0; i < this.linkSums.length; i++) {
+			synchronized (this.locks[i & this.lockMask]) {
+				if (this.linkSums[i] != null) {
+					this.linkSums[i].resetTravelTimes();
+				}
+				this.linkTravelTimes.set(i, null);
+			}
+		}
+		for (int i = 0; i < this.links.length; i++) {
+			synchronized (this.locks[i & this.lockMask]) {
+				for (int turn = this.turnOffsets[i]; turn < this.turnOffsets[i + 1]; turn++) {
+					if (this.turnSums[turn] != null) {
+						this.turnSums[turn].resetTravelTimes();
+					}
+					this.turnTravelTimes.set(turn, null);
+				}
+			}
+		}
+		for (VehiclePage page : this.vehiclePages) {
+			if (page != null) {
+				page.clear();
+			}
+		}
+	}
+
+	/**
+	 * The observed travel times of a link or turn, summed up per time bin.
+	 */
+	private static final class TravelTimeSums implements TravelTimeData {
+		private final double[] timeSum;
+		private final int[] timeCnt;
+		private int count = 0;
+
+		TravelTimeSums(final int numSlots) {
+			this.timeSum = new double[numSlots];
+			this.timeCnt = new int[numSlots];
+		}
+
+		boolean isEmpty() {
+			return this.count == 0;
+		}
+
+		/**
+		 * @return the average travel time of the bin, or the free speed travel time if there is none, like
+		 * {@link TravelTimeDataArray#getTravelTime(int, double)}
+		 */
+		double getAverage(final int timeSlot, final Link link, final double now) {
+			int cnt = this.timeCnt[timeSlot];
+			if (cnt == 0) {
+				return link.getLength() / link.getFreespeed(now);
+			}
+			return this.timeSum[timeSlot] / cnt;
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			Arrays.fill(this.timeSum, 0.0);
+			Arrays.fill(this.timeCnt, 0);
+			this.count = 0;
+		}
+
+		@Override
+		public void addTravelTime(final int timeSlot, final double traveltime) {
+			this.timeSum[timeSlot] += traveltime;
+			this.timeCnt[timeSlot]++;
+			this.count++;
+		}
+
+		@Override
+		public void setTravelTime(final int timeSlot, final double traveltime) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public double getTravelTime(final int timeSlot, final double now) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * The immutable, consolidated travel times of a link or turn, as passed to the {@link TravelTimeGetter}.
+	 */
+	private static final class ConsolidatedTravelTimes implements TravelTimeData {
+		private final Link link;
+		private final double[] travelTimes;
+
+		ConsolidatedTravelTimes(final Link link, final double[] travelTimes) {
+			this.link = link;
+			this.travelTimes = travelTimes;
+		}
+
+		@Override
+		public double getTravelTime(final int timeSlot, final double now) {
+			if (this.travelTimes == null) {
+				return this.link.getLength() / this.link.getFreespeed(now);
+			}
+			return this.travelTimes[timeSlot];
+		}
+
+		@Override
+		public void resetTravelTimes() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void addTravelTime(final int timeSlot, final double traveltime) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setTravelTime(final int timeSlot, final double traveltime) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * The state of {@value #VEHICLE_PAGE_SIZE} vehicles: the link they entered last, with their time of entering
+	 * it, and whether they are ignored because of their mode.
+	 */
+	private static final class VehiclePage {
+		final double[] enterTimes = new double[VEHICLE_PAGE_SIZE];
+		final int[] enterLinks = new int[VEHICLE_PAGE_SIZE];
+		final boolean[] ignored = new boolean[VEHICLE_PAGE_SIZE];
+
+		VehiclePage() {
+			clear();
+		}
+
+		void clear() {
+			Arrays.fill(this.enterLinks, -1);
+			Arrays.fill(this.ignored, false);
+		}
+	}
+
+}
@@ -44,6 +44,7 @@ import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
@@ -71,7 +72,7 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler, VehicleArrivesAtFacilityEventHandler, 
 	VehicleAbortsEventHandler {
 
-	private static final String ERROR_STUCK_AND_LINKTOLINK = "Using the stuck feature with turning move travel times is not available. As the next link of a stucked" +
+	/*package*/ static final String ERROR_STUCK_AND_LINKTOLINK = "Using the stuck feature with turning move travel times is not available. As the next link of a stucked" +
 			"agent is not known the turning move travel time cannot be calculated!";
 
 	/*package*/ final int timeSlice;
@@ -102,7 +103,8 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 	@Inject private QSimConfigGroup qsimConfig ;
 
 	public static TravelTimeCalculator create(Network network, TravelTimeCalculatorConfigGroup group) {
-		TravelTimeCalculator calculator = new TravelTimeCalculator(network, group);
+		TravelTimeCalculator calculator = group.getTravelTimeCalculatorType() == TravelTimeCalculatorType.TravelTimeCalculatorConcurrent ?
+				new ConcurrentTravelTimeCalculator(network, group) : new TravelTimeCalculator(network, group);
 		configure(calculator, group, network);
 		return calculator;
 	}
@@ -111,6 +113,8 @@ public class TravelTimeCalculator implements LinkEnterEventHandler, LinkLeaveEve
 		// Customize micro-behavior of the TravelTimeCalculator based on config. Should not be necessary for most use cases.
 		switch ( config.getTravelTimeCalculatorType() ) {
 			case TravelTimeCalculatorArray:
+			case TravelTimeCalculatorConcurrent:
+				// (the concurrent calculator keeps its own arrays and ignores the factory)
 				calculator.setTravelTimeDataFactory(new TravelTimeDataArrayFactory(network, calculator.numSlots));
 				break;
 			case TravelTimeCalculatorHashMap:
@@ -30,6 +30,7 @@ import com.google.inject.name.Names;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
@@ -73,7 +74,11 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 			// (all analyzed modes are measured together, and the same result is returned to each mode)
 			
 			// bind the TravelTimeCalculator, which is the observer and aggregator:
-			bind(TravelTimeCalculator.class).in(Singleton.class);
+			if (getConfig().travelTimeCalculator().getTravelTimeCalculatorType() == TravelTimeCalculatorType.TravelTimeCalculatorConcurrent) {
+				bind(TravelTimeCalculator.class).to(ConcurrentTravelTimeCalculator.class).in(Singleton.class);
+			} else {
+				bind(TravelTimeCalculator.class).in(Singleton.class);
+			}
 			
 			// bind the TravelTime objects.  In this case, this just passes on the same information from TravelTimeCalculator to each individual mode:
 			if (getConfig().travelTimeCalculator().isCalculateLinkTravelTimes()) {
@@ -101,8 +106,14 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 
 		@Override
 		public TravelTimeCalculator get() {
-			TravelTimeCalculator calculator = new TravelTimeCalculator(network, config.getTraveltimeBinSize(), config.getMaxTime(), 
-					config.isCalculateLinkTravelTimes(), config.isCalculateLinkToLinkTravelTimes(), true, CollectionUtils.stringToSet(mode));
+			TravelTimeCalculator calculator;
+			if (config.getTravelTimeCalculatorType() == TravelTimeCalculatorType.TravelTimeCalculatorConcurrent) {
+				calculator = new ConcurrentTravelTimeCalculator(network, config.getTraveltimeBinSize(), config.getMaxTime(), 
+						config.isCalculateLinkTravelTimes(), config.isCalculateLinkToLinkTravelTimes(), true, CollectionUtils.stringToSet(mode));
+			} else {
+				calculator = new TravelTimeCalculator(network, config.getTraveltimeBinSize(), config.getMaxTime(), 
+						config.isCalculateLinkTravelTimes(), config.isCalculateLinkToLinkTravelTimes(), true, CollectionUtils.stringToSet(mode));
+			}
 			eventsManager.addHandler(calculator);
 			return TravelTimeCalculator.configure(calculator, config, network);
 		}
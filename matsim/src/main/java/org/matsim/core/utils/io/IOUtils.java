@@ -43,12 +43,52 @@ import java.util.Locale;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import io.airlift.compress.zstd.ZstdInputStream;
+import io.airlift.compress.zstd.ZstdOutputStream;
+
 import org.apache.log4j.Logger;
 
 /** A class with some static utility functions for file-I/O. */
 public class IOUtils {
 
 	private static final String GZ = ".gz";
+	private static final String ZST = ".zst";
+	private static final String LZ4 = ".lz4";
+
+	/**
+	 * The compression formats supported by the readers and writers of this class.  Writers choose the format
+	 * according to the ending of the filename, readers recognize compressed data by its first bytes.
+	 */
+	public enum CompressionType {
+		NONE(""), GZIP(GZ), ZSTD(ZST), LZ4(IOUtils.LZ4);
+
+		private final String fileEnding;
+
+		CompressionType(final String fileEnding) {
+			this.fileEnding = fileEnding;
+		}
+
+		public String getFileEnding() {
+			return this.fileEnding;
+		}
+
+		/**
+		 * @return the compression to use for a file with the given name
+		 */
+		public static CompressionType fromFilename(final String filename) {
+			String name = filename.toLowerCase(Locale.ROOT);
+			for (CompressionType type : values()) {
+				if (type != NONE && name.endsWith(type.fileEnding)) {
+					return type;
+				}
+			}
+			return NONE;
+		}
+	}
+
+	private static final byte[] GZIP_MAGIC = { (byte) 0x1f, (byte) 0x8b };
+	private static final byte[] ZSTD_MAGIC = { (byte) 0x28, (byte) 0xb5, (byte) 0x2f, (byte) 0xfd };
+	private static final byte[] LZ4_MAGIC = { (byte) 0x04, (byte) 0x22, (byte) 0x4d, (byte) 0x18 };
 
 	public static final Charset CHARSET_UTF8 = Charset.forName("UTF8");
 	public static final Charset CHARSET_WINDOWS_ISO88591 = Charset.forName("ISO-8859-1");
@@ -57,6 +97,109 @@ public class IOUtils {
 
 	private final static Logger log = Logger.getLogger(IOUtils.class);
 
+	private static volatile int numberOfCompressionThreads = 1;
+
+	/**
+	 * Sets the number of threads used to compress gzip files written by the methods of this class.  With more than
+	 * one thread, a {@link ParallelGZIPOutputStream} is used, so that the compression does not slow down the thread
+	 * that writes the data.  The default is 1, i.e. the data is compressed by the writing thread itself.
+	 */
+	public static void setNumberOfCompressionThreads(final int numberOfThreads) {
+		numberOfCompressionThreads = Math.max(numberOfThreads, 1);
+	}
+
+	public static int getNumberOfCompressionThreads() {
+		return numberOfCompressionThreads;
+	}
+
+	private static OutputStream getGZIPOutputStream(final OutputStream out) throws IOException {
+		int threads = numberOfCompressionThreads;
+		if (threads > 1) {
+			return new ParallelGZIPOutputStream(out, threads);
+		}
+		return new GZIPOutputStream(out);
+	}
+
+	private static OutputStream getCompressedOutputStream(final OutputStream out, final CompressionType compression) throws IOException {
+		switch (compression) {
+			case GZIP:
+				return getGZIPOutputStream(out);
+			case ZSTD:
+				return new ZstdOutputStream(out);
+			case LZ4:
+				return new Lz4FrameOutputStream(out);
+			default:
+				return out;
+		}
+	}
+
+	/**
+	 * Recognizes gzip, zstd and lz4 compressed data by its first bytes, and returns a stream of the decompressed
+	 * data.  Data that is not compressed is returned as is.
+	 */
+	public static InputStream getDecompressedInputStream(final InputStream in) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(in);
+		byte[] magic = new byte[4];
+		buffered.mark(magic.length);
+		int length = 0;
+		while (length < magic.length) {
+			int n = buffered.read(magic, length, magic.length - length);
+			if (n < 0) {
+				break;
+			}
+			length += n;
+		}
+		buffered.reset();
+		if (startsWith(magic, length, GZIP_MAGIC)) {
+			return new GZIPInputStream(buffered);
+		}
+		if (startsWith(magic, length, ZSTD_MAGIC)) {
+			return new ZstdInputStream(buffered);
+		}
+		if (startsWith(magic, length, LZ4_MAGIC)) {
+			return new Lz4FrameInputStream(buffered);
+		}
+		return buffered;
+	}
+
+	private static boolean startsWith(final byte[] data, final int length, final byte[] prefix) {
+		if (length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (data[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Opens the file from the file system or, if it does not exist there, from the classpath.  If the file is not
+	 * found, the file with one of the endings of the {@link CompressionType}s added is searched for.
+	 *
+	 * @return the decompressed content of the file, or <code>null</code> if it was not found
+	 */
+	private static InputStream openInputStream(final String filename) throws IOException {
+		if (new File(filename).exists()) {
+			return getDecompressedInputStream(new FileInputStream(filename));
+		}
+		for (CompressionType type : CompressionType.values()) {
+			if (type != CompressionType.NONE && new File(filename + type.getFileEnding()).exists()) {
+				return getDecompressedInputStream(new FileInputStream(filename + type.getFileEnding()));
+			}
+		}
+		for (CompressionType type : CompressionType.values()) {
+			String name = filename + type.getFileEnding();
+			InputStream stream = IOUtils.class.getClassLoader().getResourceAsStream(name);
+			if (stream != null) {
+				log.info("loading file from classpath: " + name);
+				return getDecompressedInputStream(stream);
+			}
+		}
+		return null;
+	}
+
 	public static URL getUrlFromFileOrResource(String filename) {
 		if (filename.startsWith("~" + File.separator)) {
 			filename = System.getProperty("user.home") + filename.substring(1);
@@ -80,12 +223,13 @@ public class IOUtils {
 
 	/**
 	 * Tries to open the specified file for reading and returns a BufferedReader for it.
-	 * Supports gzip-compressed files, such files are automatically decompressed.
-	 * If the file is not found, a gzip-compressed version of the file with the
-	 * added ending ".gz" will be searched for and used if found. Assumes that the text
+	 * Supports gzip-, zstd- and lz4-compressed files, such files are automatically
+	 * recognized by their content and decompressed. If the file is not found, a
+	 * compressed version of the file with the added ending ".gz", ".zst" or ".lz4"
+	 * will be searched for and used if found. Assumes that the text
 	 * in the file is stored in UTF-8 (without BOM).
 	 *
-	 * @param filename The file to read, may contain the ending ".gz" to force reading a compressed file.
+	 * @param filename The file to read, may contain the ending of a compressed file.
 	 * @return BufferedReader for the specified file.
 	 * @throws UncheckedIOException
 	 *
@@ -97,11 +241,12 @@ public class IOUtils {
 
 	/**
 	 * Tries to open the specified file for reading and returns a BufferedReader for it.
-	 * Supports gzip-compressed files, such files are automatically decompressed.
-	 * If the file is not found, a gzip-compressed version of the file with the
-	 * added ending ".gz" will be searched for and used if found.
+	 * Supports gzip-, zstd- and lz4-compressed files, such files are automatically
+	 * recognized by their content and decompressed. If the file is not found, a
+	 * compressed version of the file with the added ending ".gz", ".zst" or ".lz4"
+	 * will be searched for and used if found.
 	 *
-	 * @param filename The file to read, may contain the ending ".gz" to force reading a compressed file.
+	 * @param filename The file to read, may contain the ending of a compressed file.
 	 * @param charset the Charset of the file to read
 	 * @return BufferedReader for the specified file.
 	 * @throws UncheckedIOException
@@ -114,31 +259,9 @@ public class IOUtils {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
 		try {
-			if (new File(filename).exists()) {
-				if (filename.endsWith(GZ)) {
-					infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(new FileInputStream(filename))), charset));
-				} else {
-					infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new FileInputStream(filename)), charset));
-				}
-			} else if (new File(filename + GZ).exists()) {
-				infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(new FileInputStream(filename  + GZ))), charset));
-			} else {
-				InputStream stream = IOUtils.class.getClassLoader().getResourceAsStream(filename);
-				if (stream != null) {
-					if (filename.endsWith(GZ)) {
-						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(stream)), charset));
-						log.info("loading file from classpath: " + filename);
-					} else {
-						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(stream), charset));
-						log.info("loading file from classpath: " + filename);
-					}
-				} else {
-					stream = IOUtils.class.getClassLoader().getResourceAsStream(filename + GZ);
-					if (stream != null) {
-						infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(new GZIPInputStream(stream)), charset));
-						log.info("loading file from classpath: " + filename + GZ);
-					}
-				}
+			InputStream stream = openInputStream(filename);
+			if (stream != null) {
+				infile = new BufferedReader(new InputStreamReader(new UnicodeInputStream(stream), charset));
 			}
 		} catch (IOException e) {
 			log.fatal("encountered IOException.  This will most probably be fatal.  Note that for relative path names, the root is no longer the Java root, but the directory where the config file resides.");
@@ -154,13 +277,13 @@ public class IOUtils {
 
 	/**
 	 * Tries to open the specified file for writing and returns a BufferedWriter for it.
-	 * Supports gzip-compression of the written data. The filename may contain the
-	 * ending ".gz". If no compression is to be used, the ending will be removed
+	 * Supports compression of the written data. The filename may contain the
+	 * ending ".gz", ".zst" or ".lz4". If no compression is to be used, the ending will be removed
 	 * from the filename. If compression is to be used and the filename does not yet
-	 * have the ending ".gz", the ending will be added to it.
+	 * have one of these endings, the ending ".gz" will be added to it.
 	 *
 	 * @param filename The filename where to write the data.
-	 * @param useCompression whether the file should be gzip-compressed or not.
+	 * @param useCompression whether the file should be compressed or not.
 	 * @return BufferedWriter for the specified file.
 	 * @throws UncheckedIOException
 	 */
@@ -168,10 +291,11 @@ public class IOUtils {
 		if (filename == null) {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
-		if (useCompression && !filename.endsWith(GZ)) {
+		CompressionType compression = CompressionType.fromFilename(filename);
+		if (useCompression && compression == CompressionType.NONE) {
 			return getBufferedWriter(filename + GZ);
-		} else if (!useCompression && filename.endsWith(GZ)) {
-			return getBufferedWriter(filename.substring(0, filename.length() - 3));
+		} else if (!useCompression && compression != CompressionType.NONE) {
+			return getBufferedWriter(filename.substring(0, filename.length() - compression.getFileEnding().length()));
 		} else {
 			return getBufferedWriter(filename);
 		}
@@ -180,7 +304,8 @@ public class IOUtils {
 
 	/**
 	 * Tries to open the specified file for writing and returns a BufferedWriter for it.
-	 * If the filename ends with ".gz", data will be automatically gzip-compressed.
+	 * If the filename ends with ".gz", ".zst" or ".lz4", data will be automatically
+	 * compressed with gzip, zstd or lz4.
 	 * The data written will be encoded as UTF-8 (only relevant if you use Umlauts or
 	 * other characters not used in plain English).
 	 *
@@ -195,7 +320,8 @@ public class IOUtils {
 
 	/**
 	 * Tries to open the specified file for writing and returns a BufferedWriter for it.
-	 * If the filename ends with ".gz", data will be automatically gzip-compressed.
+	 * If the filename ends with ".gz", ".zst" or ".lz4", data will be automatically
+	 * compressed with gzip, zstd or lz4.
 	 * The data written will be encoded as UTF-8 (only relevant if you use Umlauts or
 	 * other characters not used in plain English). If the file already exists, content
 	 * will not be overwritten, but new content be appended to the file.
@@ -211,7 +337,8 @@ public class IOUtils {
 
 	/**
 	 * Tries to open the specified file for writing and returns a BufferedWriter for it.
-	 * If the filename ends with ".gz", data will be automatically gzip-compressed.
+	 * If the filename ends with ".gz", ".zst" or ".lz4", data will be automatically
+	 * compressed with gzip, zstd or lz4.
 	 *
 	 * @param filename The filename where to write the data.
 	 * @param charset the encoding to use to write the file.
@@ -225,7 +352,8 @@ public class IOUtils {
 
 	/**
 	 * Tries to open the specified file for writing and returns a BufferedWriter for it.
-	 * If the filename ends with ".gz", data will be automatically gzip-compressed. If
+	 * If the filename ends with ".gz", ".zst" or ".lz4", data will be automatically
+	 * compressed with gzip, zstd or lz4. If
 	 * the file already exists, content will not be overwritten, but new content be
 	 * appended to the file.
 	 *
@@ -241,7 +369,8 @@ public class IOUtils {
 
 	/**
 	 * Tries to open the specified file for writing and returns a BufferedWriter for it.
-	 * If the filename ends with ".gz", data will be automatically gzip-compressed.
+	 * If the filename ends with ".gz", ".zst" or ".lz4", data will be automatically
+	 * compressed with gzip, zstd or lz4.
 	 *
 	 * @param filename The filename where to write the data.
 	 * @param charset the encoding to use to write the file.
@@ -254,14 +383,14 @@ public class IOUtils {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
 		try {
-			if (filename.toLowerCase(Locale.ROOT).endsWith(GZ)) {
+			CompressionType compression = CompressionType.fromFilename(filename);
+			if (compression != CompressionType.NONE) {
 				File f = new File(filename);
 				if (append && f.exists() && (f.length() > 0)) {
-					throw new IllegalArgumentException("Appending to an existing gzip-compressed file is not supported.");
+					throw new IllegalArgumentException("Appending to an existing compressed file is not supported.");
 				}
-				return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(filename, append)), charset));
 			}
-			return new BufferedWriter(new OutputStreamWriter(new FileOutputStream (filename, append), charset));
+			return new BufferedWriter(new OutputStreamWriter(getCompressedOutputStream(new FileOutputStream(filename, append), compression), charset));
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
@@ -313,51 +442,23 @@ public class IOUtils {
 
 	/**
 	 * Tries to open the specified file for reading and returns an InputStream for it.
-	 * Supports gzip-compressed files, such files are automatically decompressed.
-	 * If the file is not found, a gzip-compressed version of the file with the
-	 * added ending ".gz" will be searched for and used if found.
+	 * Supports gzip-, zstd- and lz4-compressed files, such files are automatically
+	 * recognized by their content and decompressed. If the file is not found, a
+	 * compressed version of the file with the added ending ".gz", ".zst" or ".lz4"
+	 * will be searched for and used if found.
 	 *
-	 * @param filename The file to read, may contain the ending ".gz" to force reading a compressed file.
+	 * @param filename The file to read, may contain the ending of a compressed file.
 	 * @return InputStream for the specified file.
 	 * @throws UncheckedIOException
 	 *
 	 * <br> author dgrether
 	 */
 	public static InputStream getInputStream(final String filename) throws UncheckedIOException {
-		InputStream inputStream = null;
 		if (filename == null) {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
 		try {
-			// search in file system
-			if (new File(filename).exists()) {
-				if (filename.endsWith(GZ)) {
-					inputStream = new GZIPInputStream(new FileInputStream(filename));
-				} else {
-					inputStream = new FileInputStream(filename);
-				}
-			} else if (new File(filename + GZ).exists()) {
-				inputStream = new GZIPInputStream(new FileInputStream(filename));
-			} else {
-				// search in classpath
-				InputStream stream = IOUtils.class.getClassLoader().getResourceAsStream(filename);
-				if (stream != null) {
-					if (filename.endsWith(GZ)) {
-						inputStream = new GZIPInputStream(stream);
-					}
-					else {
-						inputStream = stream;
-					}
-				} else {
-					stream = IOUtils.class.getClassLoader().getResourceAsStream(filename + GZ);
-					if (stream != null) {
-						inputStream = new GZIPInputStream(stream);
-					}
-				}
-				if (inputStream != null) {
-					log.info("streaming file from classpath: " + filename);
-				}
-			}
+			InputStream inputStream = openInputStream(filename);
 			if (inputStream == null) {
 				throw new FileNotFoundException(filename);
 			}
@@ -369,20 +470,16 @@ public class IOUtils {
 
 	public static InputStream getInputStream(URL url) throws UncheckedIOException {
 		try {
-			if (url.getFile().endsWith(".gz")) {
-				return new GZIPInputStream(url.openStream());
-			} else {
-				return url.openStream();
-			}
+			return getDecompressedInputStream(url.openStream());
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
 	}
 
 	/**
-	 * Returns a buffered and optionally gzip-compressed output stream to the specified file.
-	 * If the given filename ends with ".gz", the written file content will be automatically 
-	 * compressed with the gzip-algorithm.
+	 * Returns a buffered and optionally compressed output stream to the specified file.
+	 * If the given filename ends with ".gz", ".zst" or ".lz4", the written file content will
+	 * be automatically compressed with the gzip, zstd or lz4 algorithm.
 	 * 
 	 * @throws UncheckedIOException if the file cannot be created.
 	 * 
@@ -393,11 +490,7 @@ public class IOUtils {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
 		try {
-			if (filename.toLowerCase(Locale.ROOT).endsWith(GZ)) {
-				return new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(filename)));
-			} else {
-				return new BufferedOutputStream(new FileOutputStream (filename));
-			}
+			return new BufferedOutputStream(getCompressedOutputStream(new FileOutputStream(filename), CompressionType.fromFilename(filename)));
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
@@ -414,11 +507,7 @@ public class IOUtils {
 			throw new UncheckedIOException(new FileNotFoundException("No filename given (filename == null)"));
 		}
 		try {
-			if (filename.toLowerCase(Locale.ROOT).endsWith(GZ)) {
-				return new PrintStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(filename))));
-			} else {
-				return new PrintStream(new BufferedOutputStream(new FileOutputStream (filename))) ;
-			}
+			return new PrintStream(new BufferedOutputStream(getCompressedOutputStream(new FileOutputStream(filename), CompressionType.fromFilename(filename))));
 		} catch (IOException e) {
 			throw new UncheckedIOException(e);
 		}
@@ -0,0 +1,304 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Lz4FrameInputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads data in the LZ4 frame format, as written by the <code>lz4</code> command line tool or by
+ * {@link Lz4FrameOutputStream}.  Supports independent and linked blocks, block and content checksums, several
+ * concatenated frames and skippable frames.  Frames that need a dictionary are not supported.
+ */
+public final class Lz4FrameInputStream extends InputStream {
+
+	private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+	private static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+	private static final int MAX_OFFSET = 65535;
+	private static final int HISTORY_SIZE = 64 * 1024;
+
+	private final InputStream in;
+	private final byte[] intBuffer = new byte[8];
+
+	private boolean inFrame = false;
+	private boolean blockIndependence;
+	private boolean blockChecksum;
+	private XXHash32 contentChecksum = null;
+	private int blockMaxSize;
+	private byte[] compressed = new byte[0];
+	private byte[] decompressed = new byte[0];
+	private int position = 0;
+	private int limit = 0;
+	private boolean closed = false;
+
+	public Lz4FrameInputStream(final InputStream in) {
+		this.in = in;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (this.position == this.limit && !readNextBlock()) {
+			return -1;
+		}
+		return this.decompressed[this.position++] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (this.position == this.limit && !readNextBlock()) {
+			return -1;
+		}
+		int n = Math.min(len, this.limit - this.position);
+		System.arraycopy(this.decompressed, this.position, b, off, n);
+		this.position += n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return this.limit - this.position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!this.closed) {
+			this.closed = true;
+			this.in.close();
+		}
+	}
+
+	private boolean readNextBlock() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		while (true) {
+			if (!this.inFrame && !readFrameHeader()) {
+				return false;
+			}
+			int size = readIntLE();
+			if (size == 0) {
+				// end mark
+				if (this.contentChecksum != null && readIntLE() != this.contentChecksum.getValue()) {
+					throw new IOException("Content checksum mismatch in lz4 frame");
+				}
+				this.inFrame = false;
+				continue;
+			}
+			boolean uncompressed = (size & Lz4FrameOutputStream.UNCOMPRESSED_BLOCK) != 0;
+			size &= ~Lz4FrameOutputStream.UNCOMPRESSED_BLOCK;
+			if (size > this.blockMaxSize) {
+				throw new IOException("Block of " + size + " bytes is larger than the maximum block size " + this.blockMaxSize);
+			}
+			readFully(this.compressed, size);
+			if (this.blockChecksum && readIntLE() != XXHash32.hash(this.compressed, 0, size, 0)) {
+				throw new IOException("Block checksum mismatch in lz4 frame");
+			}
+
+			int start = 0;
+			if (!this.blockIndependence) {
+				// keep the last 64 kB in front of the new block, later blocks may refer to them
+				if (this.limit > HISTORY_SIZE) {
+					System.arraycopy(this.decompressed, this.limit - HISTORY_SIZE, this.decompressed, 0, HISTORY_SIZE);
+					start = HISTORY_SIZE;
+				} else {
+					start = this.limit;
+				}
+			}
+			int end;
+			if (uncompressed) {
+				System.arraycopy(this.compressed, 0, this.decompressed, start, size);
+				end = start + size;
+			} else {
+				end = decompress(this.compressed, size, this.decompressed, start, start + this.blockMaxSize);
+			}
+			if (this.contentChecksum != null) {
+				this.contentChecksum.update(this.decompressed, start, end - start);
+			}
+			this.position = start;
+			this.limit = end;
+			if (end > start) {
+				return true;
+			}
+		}
+	}
+
+	private boolean readFrameHeader() throws IOException {
+		while (true) {
+			int first = this.in.read();
+			if (first == -1) {
+				return false;
+			}
+			readFully(this.intBuffer, 3);
+			int magic = first | ((this.intBuffer[0] & 0xFF) << 8) | ((this.intBuffer[1] & 0xFF) << 16) | ((this.intBuffer[2] & 0xFF) << 24);
+			if ((magic & SKIPPABLE_MAGIC_MASK) == SKIPPABLE_MAGIC) {
+				skipFully(readIntLE() & 0xFFFFFFFFL);
+				continue;
+			}
+			if (magic != Lz4FrameOutputStream.MAGIC) {
+				throw new IOException("Not an lz4 frame, magic number is 0x" + Integer.toHexString(magic));
+			}
+			break;
+		}
+		byte[] descriptor = new byte[14];
+		readFully(descriptor, 2);
+		int flg = descriptor[0] & 0xFF;
+		int bd = descriptor[1] & 0xFF;
+		if ((flg & 0xC0) != Lz4FrameOutputStream.FLG_VERSION) {
+			throw new IOException("Unsupported lz4 frame version " + (flg >>> 6));
+		}
+		int length = 2;
+		if ((flg & Lz4FrameOutputStream.FLG_CONTENT_SIZE) != 0) {
+			readFully(descriptor, length, 8);
+			length += 8;
+		}
+		if ((flg & Lz4FrameOutputStream.FLG_DICTIONARY_ID) != 0) {
+			throw new IOException("lz4 frames with a dictionary are not supported");
+		}
+		int headerChecksum = this.in.read();
+		if (headerChecksum == -1) {
+			throw new EOFException();
+		}
+		if (headerChecksum != ((XXHash32.hash(descriptor, 0, length, 0) >>> 8) & 0xFF)) {
+			throw new IOException("Header checksum mismatch in lz4 frame");
+		}
+		int blockSizeId = (bd >>> 4) & 0x07;
+		if (blockSizeId < 4) {
+			throw new IOException("Invalid lz4 block size id " + blockSizeId);
+		}
+		this.blockMaxSize = 1 << (2 * blockSizeId + 8);
+		this.blockIndependence = (flg & Lz4FrameOutputStream.FLG_BLOCK_INDEPENDENCE) != 0;
+		this.blockChecksum = (flg & Lz4FrameOutputStream.FLG_BLOCK_CHECKSUM) != 0;
+		this.contentChecksum = (flg & Lz4FrameOutputStream.FLG_CONTENT_CHECKSUM) != 0 ? new XXHash32(0) : null;
+		if (this.compressed.length < this.blockMaxSize) {
+			this.compressed = new byte[this.blockMaxSize];
+		}
+		int decompressedSize = this.blockMaxSize + (this.blockIndependence ? 0 : HISTORY_SIZE);
+		if (this.decompressed.length < decompressedSize) {
+			this.decompressed = new byte[decompressedSize];
+		}
+		this.position = 0;
+		this.limit = 0;
+		this.inFrame = true;
+		return true;
+	}
+
+	/**
+	 * Decompresses one LZ4 block from <code>src[0..length)</code> to <code>dest</code>, starting at
+	 * <code>destOffset</code>.  Matches may refer to the data in front of <code>destOffset</code>.
+	 *
+	 * @return the end of the decompressed data in <code>dest</code>
+	 */
+	/*package*/ static int decompress(final byte[] src, final int length, final byte[] dest, final int destOffset, final int destLimit) throws IOException {
+		int ip = 0;
+		int op = destOffset;
+		try {
+			while (true) {
+				int token = src[ip++] & 0xFF;
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xFF;
+						literals += b;
+					} while (b == 255);
+				}
+				if (ip + literals > length || op + literals > destLimit) {
+					throw new IOException("Corrupt lz4 block: literals exceed the block");
+				}
+				System.arraycopy(src, ip, dest, op, literals);
+				ip += literals;
+				op += literals;
+				if (ip == length) {
+					return op;
+				}
+
+				int offset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+				ip += 2;
+				if (offset == 0 || offset > op || offset > MAX_OFFSET) {
+					throw new IOException("Corrupt lz4 block: invalid offset " + offset);
+				}
+				int matchLength = token & 0x0F;
+				if (matchLength == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xFF;
+						matchLength += b;
+					} while (b == 255);
+				}
+				matchLength += 4;
+				if (op + matchLength > destLimit) {
+					throw new IOException("Corrupt lz4 block: match exceeds the block");
+				}
+				int ref = op - offset;
+				if (offset >= matchLength) {
+					System.arraycopy(dest, ref, dest, op, matchLength);
+					op += matchLength;
+				} else {
+					// overlapping copy, repeats the last offset bytes
+					int end = op + matchLength;
+					while (op < end) {
+						dest[op++] = dest[ref++];
+					}
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IOException("Corrupt lz4 block", e);
+		}
+	}
+
+	private int readIntLE() throws IOException {
+		readFully(this.intBuffer, 4);
+		return XXHash32.readIntLE(this.intBuffer, 0);
+	}
+
+	private void readFully(final byte[] b, final int len) throws IOException {
+		readFully(b, 0, len);
+	}
+
+	private void readFully(final byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = this.in.read(b, off, len);
+			if (n < 0) {
+				throw new EOFException("Unexpected end of lz4 frame");
+			}
+			off += n;
+			len -= n;
+		}
+	}
+
+	private void skipFully(long n) throws IOException {
+		while (n > 0) {
+			long skipped = this.in.skip(n);
+			if (skipped <= 0) {
+				if (this.in.read() < 0) {
+					throw new EOFException("Unexpected end of skippable lz4 frame");
+				}
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+
+}
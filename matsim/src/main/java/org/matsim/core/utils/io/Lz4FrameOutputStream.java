@@ -0,0 +1,272 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * Lz4FrameOutputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes data in the LZ4 frame format, readable by the <code>lz4</code> command line tool and by
+ * {@link Lz4FrameInputStream}.  The data is compressed in independent blocks of 4 MB, and the frame ends with a
+ * checksum over the uncompressed content.
+ * <p></p>
+ * LZ4 compresses considerably less than gzip, but is several times faster both when writing and reading.
+ */
+public final class Lz4FrameOutputStream extends OutputStream {
+
+	/*package*/ static final int MAGIC = 0x184D2204;
+	/*package*/ static final int FLG_VERSION = 0x40;
+	/*package*/ static final int FLG_BLOCK_INDEPENDENCE = 0x20;
+	/*package*/ static final int FLG_BLOCK_CHECKSUM = 0x10;
+	/*package*/ static final int FLG_CONTENT_SIZE = 0x08;
+	/*package*/ static final int FLG_CONTENT_CHECKSUM = 0x04;
+	/*package*/ static final int FLG_DICTIONARY_ID = 0x01;
+	/*package*/ static final int UNCOMPRESSED_BLOCK = 0x80000000;
+
+	private static final int BLOCK_SIZE_ID = 7; // 4 MB
+	private static final int BLOCK_SIZE = 1 << (2 * BLOCK_SIZE_ID + 8);
+
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5;
+	private static final int MF_LIMIT = 12;
+	private static final int MAX_OFFSET = 65535;
+	private static final int HASH_LOG = 16;
+
+	private final OutputStream out;
+	private final byte[] block = new byte[BLOCK_SIZE];
+	private int blockLength = 0;
+	private final byte[] compressed = new byte[4 + maxCompressedLength(BLOCK_SIZE)];
+	private final int[] hashTable = new int[1 << HASH_LOG];
+	private final XXHash32 contentChecksum = new XXHash32(0);
+	private boolean closed = false;
+
+	public Lz4FrameOutputStream(final OutputStream out) throws IOException {
+		this.out = out;
+		writeHeader();
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		ensureOpen();
+		this.block[this.blockLength++] = (byte) b;
+		if (this.blockLength == BLOCK_SIZE) {
+			writeBlock();
+		}
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			int n = Math.min(len, BLOCK_SIZE - this.blockLength);
+			System.arraycopy(b, off, this.block, this.blockLength, n);
+			this.blockLength += n;
+			off += n;
+			len -= n;
+			if (this.blockLength == BLOCK_SIZE) {
+				writeBlock();
+			}
+		}
+	}
+
+	/**
+	 * Writes the data collected so far as a block of its own, and flushes the underlying stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if (this.blockLength > 0) {
+			writeBlock();
+		}
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			if (this.blockLength > 0) {
+				writeBlock();
+			}
+			byte[] end = new byte[8];
+			writeIntLE(end, 0, 0);
+			writeIntLE(end, 4, this.contentChecksum.getValue());
+			this.out.write(end);
+			this.out.flush();
+		} finally {
+			this.out.close();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		byte[] header = new byte[7];
+		writeIntLE(header, 0, MAGIC);
+		header[4] = (byte) (FLG_VERSION | FLG_BLOCK_INDEPENDENCE | FLG_CONTENT_CHECKSUM);
+		header[5] = (byte) (BLOCK_SIZE_ID << 4);
+		header[6] = (byte) (XXHash32.hash(header, 4, 2, 0) >>> 8);
+		this.out.write(header);
+	}
+
+	private void writeBlock() throws IOException {
+		this.contentChecksum.update(this.block, 0, this.blockLength);
+		int size = compress(this.block, this.blockLength, this.compressed, 4, this.hashTable);
+		if (size < this.blockLength) {
+			writeIntLE(this.compressed, 0, size);
+			this.out.write(this.compressed, 0, 4 + size);
+		} else {
+			writeIntLE(this.compressed, 0, this.blockLength | UNCOMPRESSED_BLOCK);
+			this.out.write(this.compressed, 0, 4);
+			this.out.write(this.block, 0, this.blockLength);
+		}
+		this.blockLength = 0;
+	}
+
+	/*package*/ static int maxCompressedLength(final int length) {
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * Compresses <code>src[0..length)</code> as a single LZ4 block into <code>dest</code>, starting at
+	 * <code>destOffset</code>, and returns the size of the compressed data.  <code>dest</code> must have room for
+	 * {@link #maxCompressedLength(int)} bytes.
+	 */
+	/*package*/ static int compress(final byte[] src, final int length, final byte[] dest, final int destOffset, final int[] hashTable) {
+		int op = destOffset;
+		int anchor = 0;
+		if (length >= MF_LIMIT + 1) {
+			Arrays.fill(hashTable, -1);
+			int matchLimit = length - LAST_LITERALS;
+			int mfLimit = length - MF_LIMIT;
+			int ip = 0;
+			hashTable[hash(readInt(src, ip))] = ip;
+			ip++;
+			search:
+			while (true) {
+				// find the next match
+				int ref;
+				int attempts = 0;
+				while (true) {
+					if (ip > mfLimit) {
+						break search;
+					}
+					int sequence = readInt(src, ip);
+					int h = hash(sequence);
+					ref = hashTable[h];
+					hashTable[h] = ip;
+					if (ref >= 0 && ip - ref <= MAX_OFFSET && readInt(src, ref) == sequence) {
+						break;
+					}
+					// skip faster over data that does not compress
+					ip += 1 + (attempts++ >>> 6);
+				}
+				// extend the match backwards
+				while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+					ip--;
+					ref--;
+				}
+				// and forwards
+				int matchLength = MIN_MATCH;
+				while (ip + matchLength < matchLimit && src[ip + matchLength] == src[ref + matchLength]) {
+					matchLength++;
+				}
+
+				op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dest, op);
+				ip += matchLength;
+				anchor = ip;
+				if (ip > mfLimit) {
+					break;
+				}
+				hashTable[hash(readInt(src, ip - 2))] = ip - 2;
+			}
+		}
+		// the last literals
+		int literals = length - anchor;
+		int tokenPos = op++;
+		if (literals >= 15) {
+			dest[tokenPos] = (byte) 0xF0;
+			op = writeLength(literals - 15, dest, op);
+		} else {
+			dest[tokenPos] = (byte) (literals << 4);
+		}
+		System.arraycopy(src, anchor, dest, op, literals);
+		return op + literals - destOffset;
+	}
+
+	private static int writeSequence(final byte[] src, final int literalStart, final int literals, final int offset,
+			final int matchLength, final byte[] dest, int op) {
+		int tokenPos = op++;
+		int token;
+		if (literals >= 15) {
+			token = 0xF0;
+			op = writeLength(literals - 15, dest, op);
+		} else {
+			token = literals << 4;
+		}
+		System.arraycopy(src, literalStart, dest, op, literals);
+		op += literals;
+		dest[op++] = (byte) offset;
+		dest[op++] = (byte) (offset >>> 8);
+		int matchCode = matchLength - MIN_MATCH;
+		if (matchCode >= 15) {
+			token |= 0x0F;
+			op = writeLength(matchCode - 15, dest, op);
+		} else {
+			token |= matchCode;
+		}
+		dest[tokenPos] = (byte) token;
+		return op;
+	}
+
+	private static int writeLength(int length, final byte[] dest, int op) {
+		while (length >= 255) {
+			dest[op++] = (byte) 255;
+			length -= 255;
+		}
+		dest[op++] = (byte) length;
+		return op;
+	}
+
+	private static int hash(final int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+
+	private static int readInt(final byte[] b, final int off) {
+		return XXHash32.readIntLE(b, off);
+	}
+
+	/*package*/ static void writeIntLE(final byte[] b, final int off, final int value) {
+		b[off] = (byte) value;
+		b[off + 1] = (byte) (value >>> 8);
+		b[off + 2] = (byte) (value >>> 16);
+		b[off + 3] = (byte) (value >>> 24);
+	}
+
+}
@@ -20,6 +20,7 @@
 
 package org.matsim.core.utils.io;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.Locale;
 
@@ -61,7 +62,9 @@ public class MatsimFileTypeGuesser extends DefaultHandler {
 
 	public MatsimFileTypeGuesser(final String fileName) throws UncheckedIOException {
 		String name = fileName.toLowerCase(Locale.ROOT);
-		if (name.endsWith(".xml.gz") || name.endsWith(".xml")) {
+		IOUtils.CompressionType compression = IOUtils.CompressionType.fromFilename(name);
+		name = name.substring(0, name.length() - compression.getFileEnding().length());
+		if (name.endsWith(".xml") || (!hasKnownEnding(name) && startsWithXml(fileName))) {
 			guessFileTypeXml(fileName);
 			// I think the following would also be useful for the API, but with which name?
 			String shortSystemId = null;
@@ -92,15 +95,35 @@ public class MatsimFileTypeGuesser extends DefaultHandler {
 				}
 			}
 
-		} else if (name.endsWith(".txt.gz") || name.endsWith(".txt")) {
+		} else if (name.endsWith(".txt")) {
 			this.fileType = FileType.Events;
-		} else if (name.endsWith(".mvi.gz") || name.endsWith(".mvi")) {
+		} else if (name.endsWith(".mvi")) {
 			this.fileType = FileType.OTFVis;
-		} else if (name.endsWith(".veh.gz") || name.endsWith(".veh")) {
+		} else if (name.endsWith(".veh")) {
 			this.fileType = FileType.TransimsVehicle;
 		}
 	}
 
+	private static boolean hasKnownEnding(final String name) {
+		return name.endsWith(".txt") || name.endsWith(".mvi") || name.endsWith(".veh");
+	}
+
+	/**
+	 * Looks at the content of files with unknown endings:  if the first character that is not white space is a
+	 * <code>&lt;</code>, the file is treated as XML.  Compressed files are decompressed for this.
+	 */
+	private static boolean startsWithXml(final String fileName) throws UncheckedIOException {
+		try (BufferedReader reader = IOUtils.getBufferedReader(fileName)) {
+			int c = reader.read();
+			while (c >= 0 && Character.isWhitespace(c)) {
+				c = reader.read();
+			}
+			return c == '<';
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	public FileType getGuessedFileType() {
 		return this.fileType;
 	}
@@ -35,7 +35,6 @@ import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Stack;
-import java.util.zip.GZIPInputStream;
 
 /**
  * An abstract XML-Parser which can be easily extended for reading custom XML-formats. This class handles all the low level
@@ -134,12 +133,12 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	}
 
 	/**
-	 * Parses the specified file. The file can be gzip-compressed and is decompressed on-the-fly while parsing. A gzip-compressed
-	 * file must have the ending ".gz" to be correctly recognized. The passed filename may or may not contain the ending ".gz". If
-	 * no uncompressed file is found with the specified name, the ending ".gz" will be added to the filename and a compressed file
-	 * will be searched for and read if found.
+	 * Parses the specified file. The file can be gzip-, zstd- or lz4-compressed and is decompressed on-the-fly while parsing.
+	 * Compressed files are recognized by their content. If no file is found with the specified name, the endings ".gz", ".zst"
+	 * and ".lz4" will be added to the filename and a compressed file will be searched for and read if found.
 	 *
-	 * @param filename The filename of the file to read, optionally ending with ".gz" to force reading a gzip-compressed file.
+	 * @param filename The filename of the file to read.
+	 * @see IOUtils#getBufferedReader(String)
 	 * @throws UncheckedIOException
 	 */
 	@Override
@@ -153,15 +152,9 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		Gbl.assertNotNull(url);
 		this.theSource = url.toString();
 		log.info("starting to parse xml from url " + this.theSource + " ...");
-		if (url.getFile().endsWith(".gz")) {
-			try {
-				parse(new InputSource(new GZIPInputStream(url.openStream())));
-			} catch (IOException e) {
-				throw new RuntimeException(e);
-			}
-		} else {
-			parse(new InputSource(url.toExternalForm()));
-		}
+		InputSource input = new InputSource(IOUtils.getInputStream(url));
+		input.setSystemId(url.toExternalForm());
+		parse(input);
 	}
 
 	public final void parse(final InputStream stream) throws UncheckedIOException {
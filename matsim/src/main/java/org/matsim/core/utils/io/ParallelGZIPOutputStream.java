@@ -0,0 +1,317 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ParallelGZIPOutputStream.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A gzip output stream that compresses blocks of data on several threads, similar to <code>pigz</code>.
+ * <p></p>
+ * The data is split into blocks of fixed size, and every block is deflated independently, using the last 32 kB
+ * of the previous block as dictionary. The compressed blocks are concatenated to a single deflate stream, so the
+ * result is a normal gzip file with a single member, which can be read by any gzip reader, including
+ * {@link java.util.zip.GZIPInputStream}. The compressed data only depends on the block size and the compression
+ * level, not on the number of threads.
+ * <p></p>
+ * The calling thread only copies the data and computes the checksum. At most <code>numberOfThreads</code> blocks
+ * are compressed at the same time; if all of them are still busy when the next block is full, the calling thread
+ * waits. Like {@link java.util.zip.GZIPOutputStream}, {@link #flush()} does not force out data that is not yet
+ * compressed.
+ */
+public final class ParallelGZIPOutputStream extends OutputStream {
+
+	private static final Logger log = Logger.getLogger(ParallelGZIPOutputStream.class);
+
+	public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+
+	private static ExecutorService executor = null;
+
+	private final OutputStream out;
+	private final int level;
+	private final int blockSize;
+	private final int maxPendingBlocks;
+
+	private final CRC32 crc = new CRC32();
+	private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+	private byte[] block;
+	private int blockLength = 0;
+	private byte[] previousBlock = null;
+	private int previousBlockLength = 0;
+	private boolean closed = false;
+
+	private final long startTime = System.nanoTime();
+	private long uncompressedBytes = 0;
+	private long compressedBytes = 0;
+	private long waitTime = 0;
+
+	public ParallelGZIPOutputStream(final OutputStream out, final int numberOfThreads) throws IOException {
+		this(out, numberOfThreads, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE);
+	}
+
+	public ParallelGZIPOutputStream(final OutputStream out, final int numberOfThreads, final int level, final int blockSize) throws IOException {
+		if (blockSize < DICTIONARY_SIZE) {
+			throw new IllegalArgumentException("The block size must be at least " + DICTIONARY_SIZE + " bytes, but is " + blockSize);
+		}
+		this.out = out;
+		this.level = level;
+		this.blockSize = blockSize;
+		this.maxPendingBlocks = Math.max(numberOfThreads, 1);
+		this.block = new byte[blockSize];
+		writeHeader();
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, ParallelGZIPOutputStream.class.getSimpleName() + "-" + this.count.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		ensureOpen();
+		this.block[this.blockLength++] = (byte) b;
+		if (this.blockLength == this.blockSize) {
+			submitBlock(false);
+		}
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			int n = Math.min(len, this.blockSize - this.blockLength);
+			System.arraycopy(b, off, this.block, this.blockLength, n);
+			this.blockLength += n;
+			off += n;
+			len -= n;
+			if (this.blockLength == this.blockSize) {
+				submitBlock(false);
+			}
+		}
+	}
+
+	/**
+	 * Writes the blocks that are already compressed, and flushes the underlying stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		while (!this.pendingBlocks.isEmpty() && this.pendingBlocks.peekFirst().isDone()) {
+			writeNextBlock();
+		}
+		this.out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			submitBlock(true);
+			while (!this.pendingBlocks.isEmpty()) {
+				writeNextBlock();
+			}
+			writeTrailer();
+			this.out.flush();
+			if (log.isDebugEnabled()) {
+				double seconds = (System.nanoTime() - this.startTime) / 1e9;
+				log.debug("compressed " + this.uncompressedBytes + " bytes to " + this.compressedBytes + " bytes in "
+						+ seconds + " s (" + (this.uncompressedBytes / 1e6 / seconds) + " MB/s), waited "
+						+ (this.waitTime / 1e9) + " s for compression.");
+			}
+		} finally {
+			for (Future<byte[]> pending : this.pendingBlocks) {
+				pending.cancel(false);
+			}
+			this.out.close();
+		}
+	}
+
+	/**
+	 * @return the number of bytes written to this stream, before compression
+	 */
+	public long getUncompressedBytes() {
+		return this.uncompressedBytes;
+	}
+
+	/**
+	 * @return the number of bytes written to the underlying stream so far, including the gzip header and trailer
+	 */
+	public long getCompressedBytes() {
+		return this.compressedBytes;
+	}
+
+	/**
+	 * @return the time in nanoseconds that the writing thread spent waiting for blocks to be compressed
+	 */
+	public long getWaitTime() {
+		return this.waitTime;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private void submitBlock(final boolean last) throws IOException {
+		final byte[] data = this.block;
+		final int length = this.blockLength;
+		final byte[] dictionary = this.previousBlock;
+		final int dictionaryLength = this.previousBlockLength;
+		this.crc.update(data, 0, length);
+		this.uncompressedBytes += length;
+
+		if (last && this.pendingBlocks.isEmpty()) {
+			// nothing to wait for, e.g. for small files: no need to hand it over to another thread
+			writeCompressed(deflate(data, length, dictionary, dictionaryLength, this.level, true));
+			return;
+		}
+		final int level = this.level;
+		this.pendingBlocks.addLast(getExecutor().submit(new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				return deflate(data, length, dictionary, dictionaryLength, level, last);
+			}
+		}));
+		if (!last) {
+			this.previousBlock = data;
+			this.previousBlockLength = length;
+			this.block = new byte[this.blockSize];
+			this.blockLength = 0;
+		}
+		while (this.pendingBlocks.size() > this.maxPendingBlocks) {
+			writeNextBlock();
+		}
+	}
+
+	private void writeNextBlock() throws IOException {
+		Future<byte[]> next = this.pendingBlocks.removeFirst();
+		long start = System.nanoTime();
+		byte[] compressed;
+		try {
+			compressed = next.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for compression");
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+		this.waitTime += System.nanoTime() - start;
+		writeCompressed(compressed);
+	}
+
+	private void writeCompressed(final byte[] compressed) throws IOException {
+		this.out.write(compressed);
+		this.compressedBytes += compressed.length;
+	}
+
+	/**
+	 * Deflates one block to raw deflate data.  All blocks except the last one end with a sync flush, so that the
+	 * output of the blocks can simply be concatenated.
+	 */
+	/*package*/ static byte[] deflate(final byte[] data, final int length, final byte[] dictionary, final int dictionaryLength,
+			final int level, final boolean last) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			if (dictionary != null) {
+				int n = Math.min(dictionaryLength, DICTIONARY_SIZE);
+				deflater.setDictionary(dictionary, dictionaryLength - n, n);
+			}
+			deflater.setInput(data, 0, length);
+			byte[] buffer = new byte[length + (length >> 3) + 64];
+			int size = 0;
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					if (size == buffer.length) {
+						buffer = Arrays.copyOf(buffer, buffer.length * 2);
+					}
+					size += deflater.deflate(buffer, size, buffer.length - size);
+				}
+			} else {
+				while (true) {
+					if (size == buffer.length) {
+						buffer = Arrays.copyOf(buffer, buffer.length * 2);
+					}
+					int available = buffer.length - size;
+					int n = deflater.deflate(buffer, size, available, Deflater.SYNC_FLUSH);
+					size += n;
+					if (n < available) {
+						break;
+					}
+				}
+			}
+			return Arrays.copyOf(buffer, size);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		// magic number, compression method deflate, no flags, no modification time, no extra flags, unknown OS
+		byte[] header = new byte[] { (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+		writeCompressed(header);
+	}
+
+	private void writeTrailer() throws IOException {
+		byte[] trailer = new byte[8];
+		writeIntLE(trailer, 0, (int) this.crc.getValue());
+		writeIntLE(trailer, 4, (int) this.uncompressedBytes);
+		writeCompressed(trailer);
+	}
+
+	private static void writeIntLE(final byte[] b, final int offset, final int value) {
+		b[offset] = (byte) value;
+		b[offset + 1] = (byte) (value >> 8);
+		b[offset + 2] = (byte) (value >> 16);
+		b[offset + 3] = (byte) (value >> 24);
+	}
+
+}
@@ -0,0 +1,148 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * XXHash32.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+/**
+ * The 32-bit xxHash checksum, as used by the LZ4 frame format.  Can either be computed in one go with
+ * {@link #hash(byte[], int, int, int)}, or over several pieces of data with {@link #update(byte[], int, int)}.
+ */
+/*package*/ final class XXHash32 {
+
+	private static final int PRIME1 = 0x9E3779B1;
+	private static final int PRIME2 = 0x85EBCA77;
+	private static final int PRIME3 = 0xC2B2AE3D;
+	private static final int PRIME4 = 0x27D4EB2F;
+	private static final int PRIME5 = 0x165667B1;
+
+	private final int seed;
+	private int v1;
+	private int v2;
+	private int v3;
+	private int v4;
+	private final byte[] buffer = new byte[16];
+	private int bufferLength = 0;
+	private long totalLength = 0;
+
+	/*package*/ XXHash32(final int seed) {
+		this.seed = seed;
+		this.v1 = seed + PRIME1 + PRIME2;
+		this.v2 = seed + PRIME2;
+		this.v3 = seed;
+		this.v4 = seed - PRIME1;
+	}
+
+	/*package*/ void update(final byte[] b, int off, int len) {
+		this.totalLength += len;
+		if (this.bufferLength > 0) {
+			int n = Math.min(len, 16 - this.bufferLength);
+			System.arraycopy(b, off, this.buffer, this.bufferLength, n);
+			this.bufferLength += n;
+			off += n;
+			len -= n;
+			if (this.bufferLength < 16) {
+				return;
+			}
+			processStripe(this.buffer, 0);
+			this.bufferLength = 0;
+		}
+		int end = off + len;
+		while (off + 16 <= end) {
+			processStripe(b, off);
+			off += 16;
+		}
+		if (off < end) {
+			System.arraycopy(b, off, this.buffer, 0, end - off);
+			this.bufferLength = end - off;
+		}
+	}
+
+	private void processStripe(final byte[] b, final int off) {
+		this.v1 = round(this.v1, readIntLE(b, off));
+		this.v2 = round(this.v2, readIntLE(b, off + 4));
+		this.v3 = round(this.v3, readIntLE(b, off + 8));
+		this.v4 = round(this.v4, readIntLE(b, off + 12));
+	}
+
+	/*package*/ int getValue() {
+		int h;
+		if (this.totalLength >= 16) {
+			h = Integer.rotateLeft(this.v1, 1) + Integer.rotateLeft(this.v2, 7) + Integer.rotateLeft(this.v3, 12) + Integer.rotateLeft(this.v4, 18);
+		} else {
+			h = this.seed + PRIME5;
+		}
+		h += (int) this.totalLength;
+		return finish(h, this.buffer, 0, this.bufferLength);
+	}
+
+	/*package*/ static int hash(final byte[] b, int off, final int len, final int seed) {
+		int end = off + len;
+		int h;
+		if (len >= 16) {
+			int v1 = seed + PRIME1 + PRIME2;
+			int v2 = seed + PRIME2;
+			int v3 = seed;
+			int v4 = seed - PRIME1;
+			while (off + 16 <= end) {
+				v1 = round(v1, readIntLE(b, off));
+				v2 = round(v2, readIntLE(b, off + 4));
+				v3 = round(v3, readIntLE(b, off + 8));
+				v4 = round(v4, readIntLE(b, off + 12));
+				off += 16;
+			}
+			h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+		} else {
+			h = seed + PRIME5;
+		}
+		h += len;
+		return finish(h, b, off, end - off);
+	}
+
+	private static int finish(int h, final byte[] b, int off, final int len) {
+		int end = off + len;
+		while (off + 4 <= end) {
+			h += readIntLE(b, off) * PRIME3;
+			h = Integer.rotateLeft(h, 17) * PRIME4;
+			off += 4;
+		}
+		while (off < end) {
+			h += (b[off] & 0xFF) * PRIME5;
+			h = Integer.rotateLeft(h, 11) * PRIME1;
+			off++;
+		}
+		h ^= h >>> 15;
+		h *= PRIME2;
+		h ^= h >>> 13;
+		h *= PRIME3;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	private static int round(int v, final int input) {
+		v += input * PRIME2;
+		v = Integer.rotateLeft(v, 13);
+		return v * PRIME1;
+	}
+
+	/*package*/ static int readIntLE(final byte[] b, final int off) {
+		return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8) | ((b[off + 2] & 0xFF) << 16) | ((b[off + 3] & 0xFF) << 24);
+	}
+
+}
@@ -0,0 +1,80 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorJourney.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.matsim.api.core.v01.population.Leg;
+
+/**
+ * A public transit connection found by the {@link RaptorTransitRouter}, with the criteria it is
+ * optimal for: departure time, arrival time and number of transfers.
+ */
+public final class RaptorJourney {
+
+	private final double departureTime;
+	private final double arrivalTime;
+	private final int numberOfTransfers;
+	private final double cost;
+	private final List<Leg> legs;
+
+	RaptorJourney(final double departureTime, final double arrivalTime, final int numberOfTransfers, final double cost, final List<Leg> legs) {
+		this.departureTime = departureTime;
+		this.arrivalTime = arrivalTime;
+		this.numberOfTransfers = numberOfTransfers;
+		this.cost = cost;
+		this.legs = Collections.unmodifiableList(legs);
+	}
+
+	public double getDepartureTime() {
+		return this.departureTime;
+	}
+
+	public double getArrivalTime() {
+		return this.arrivalTime;
+	}
+
+	public int getNumberOfTransfers() {
+		return this.numberOfTransfers;
+	}
+
+	/**
+	 * @return the generalized cost of the journey, calculated with the same parameters as the
+	 * {@link TransitRouterNetworkTravelTimeAndDisutility}.
+	 */
+	public double getCost() {
+		return this.cost;
+	}
+
+	/**
+	 * @return the legs of the journey, in the same form as returned by {@link TransitRouter#calcRoute}
+	 */
+	public List<Leg> getLegs() {
+		return this.legs;
+	}
+
+	@Override
+	public String toString() {
+		return "[departure=" + this.departureTime + " arrival=" + this.arrivalTime + " transfers=" + this.numberOfTransfers + " cost=" + this.cost + "]";
+	}
+
+}
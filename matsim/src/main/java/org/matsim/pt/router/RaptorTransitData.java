@@ -0,0 +1,328 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitData.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.core.utils.collections.QuadTree;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * The transit schedule in flat arrays, as used by the {@link RaptorTransitRouter}.
+ * <p></p>
+ * Stops are numbered in the order they are first served by a route. Each transit route
+ * with at least two stops and one departure gets a route index; its route stops are stored
+ * consecutively (global route stop index), its departures at the first stop are stored
+ * consecutively and sorted. For every stop, the route stops serving it and the walk
+ * connections to other stops within the beeline walk connection distance are stored.
+ * <p></p>
+ * Thread-safe once constructed; does not expect the TransitSchedule to change.
+ */
+public final class RaptorTransitData {
+
+	private final static Logger log = Logger.getLogger(RaptorTransitData.class);
+
+	private final TransitStopFacility[] stops;
+	private final Map<TransitStopFacility, Integer> stopIndices = new LinkedHashMap<>();
+	private final QuadTree<TransitStopFacility> stopsQuadTree;
+
+	private final TransitLine[] routeLines;
+	private final TransitRoute[] routes;
+	private final int[] routeFirstRouteStop;
+	private final int[] routeFirstDeparture;
+	private final double[] departures;
+
+	private final TransitRouteStop[] routeStops;
+	private final int[] routeStopRoutes;
+	private final int[] routeStopStops;
+	private final double[] routeStopArrivalOffsets;
+	private final double[] routeStopDepartureOffsets;
+	private final double[] routeStopDistances;
+
+	private final int[] stopFirstRouteStop;
+	private final int[] stopRouteStops;
+
+	private final int[] stopFirstTransfer;
+	private final int[] transferStops;
+	private final double[] transferDistances;
+
+	public RaptorTransitData(final TransitSchedule schedule, final double beelineWalkConnectionDistance) {
+		List<TransitLine> lines = new ArrayList<>();
+		List<TransitRoute> transitRoutes = new ArrayList<>();
+		int numberOfRouteStops = 0;
+		int numberOfDepartures = 0;
+		for (TransitLine line : schedule.getTransitLines().values()) {
+			for (TransitRoute route : line.getRoutes().values()) {
+				if (route.getStops().size() < 2 || route.getDepartures().isEmpty()) {
+					continue;
+				}
+				lines.add(line);
+				transitRoutes.add(route);
+				numberOfRouteStops += route.getStops().size();
+				numberOfDepartures += route.getDepartures().size();
+				for (TransitRouteStop stop : route.getStops()) {
+					if (!this.stopIndices.containsKey(stop.getStopFacility())) {
+						this.stopIndices.put(stop.getStopFacility(), this.stopIndices.size());
+					}
+				}
+			}
+		}
+		this.stops = this.stopIndices.keySet().toArray(new TransitStopFacility[this.stopIndices.size()]);
+		this.routeLines = lines.toArray(new TransitLine[lines.size()]);
+		this.routes = transitRoutes.toArray(new TransitRoute[transitRoutes.size()]);
+
+		this.routeFirstRouteStop = new int[this.routes.length + 1];
+		this.routeFirstDeparture = new int[this.routes.length + 1];
+		this.departures = new double[numberOfDepartures];
+		this.routeStops = new TransitRouteStop[numberOfRouteStops];
+		this.routeStopRoutes = new int[numberOfRouteStops];
+		this.routeStopStops = new int[numberOfRouteStops];
+		this.routeStopArrivalOffsets = new double[numberOfRouteStops];
+		this.routeStopDepartureOffsets = new double[numberOfRouteStops];
+		this.routeStopDistances = new double[numberOfRouteStops];
+		this.stopFirstRouteStop = new int[this.stops.length + 1];
+
+		int routeStop = 0;
+		int departure = 0;
+		for (int route = 0; route < this.routes.length; route++) {
+			this.routeFirstRouteStop[route] = routeStop;
+			this.routeFirstDeparture[route] = departure;
+			Coord prevCoord = null;
+			double distance = 0;
+			for (TransitRouteStop stop : this.routes[route].getStops()) {
+				Coord coord = stop.getStopFacility().getCoord();
+				if (prevCoord != null) {
+					distance += CoordUtils.calcEuclideanDistance(prevCoord, coord);
+				}
+				prevCoord = coord;
+				double arrivalOffset = stop.getArrivalOffset();
+				double departureOffset = stop.getDepartureOffset();
+				this.routeStops[routeStop] = stop;
+				this.routeStopRoutes[routeStop] = route;
+				this.routeStopStops[routeStop] = this.stopIndices.get(stop.getStopFacility());
+				this.routeStopArrivalOffsets[routeStop] = arrivalOffset != Time.UNDEFINED_TIME ? arrivalOffset : departureOffset;
+				this.routeStopDepartureOffsets[routeStop] = departureOffset != Time.UNDEFINED_TIME ? departureOffset : arrivalOffset;
+				this.routeStopDistances[routeStop] = distance;
+				this.stopFirstRouteStop[this.routeStopStops[routeStop] + 1]++;
+				routeStop++;
+			}
+			for (Departure dep : this.routes[route].getDepartures().values()) {
+				this.departures[departure++] = dep.getDepartureTime();
+			}
+			Arrays.sort(this.departures, this.routeFirstDeparture[route], departure);
+		}
+		this.routeFirstRouteStop[this.routes.length] = routeStop;
+		this.routeFirstDeparture[this.routes.length] = departure;
+
+		// route stops per stop, as counting sort on the stop index
+		for (int stop = 0; stop < this.stops.length; stop++) {
+			this.stopFirstRouteStop[stop + 1] += this.stopFirstRouteStop[stop];
+		}
+		this.stopRouteStops = new int[numberOfRouteStops];
+		int[] fill = Arrays.copyOf(this.stopFirstRouteStop, this.stops.length);
+		for (int i = 0; i < numberOfRouteStops; i++) {
+			this.stopRouteStops[fill[this.routeStopStops[i]]++] = i;
+		}
+
+		this.stopsQuadTree = createQuadTree(this.stops);
+
+		// walk connections between different stops
+		this.stopFirstTransfer = new int[this.stops.length + 1];
+		List<TransitStopFacility> targets = new ArrayList<>();
+		List<Double> distances = new ArrayList<>();
+		for (int stop = 0; stop < this.stops.length; stop++) {
+			this.stopFirstTransfer[stop] = targets.size();
+			Coord coord = this.stops[stop].getCoord();
+			for (TransitStopFacility other : this.stopsQuadTree.getDisk(coord.getX(), coord.getY(), beelineWalkConnectionDistance)) {
+				if (other != this.stops[stop]) {
+					targets.add(other);
+					distances.add(CoordUtils.calcEuclideanDistance(coord, other.getCoord()));
+				}
+			}
+		}
+		this.stopFirstTransfer[this.stops.length] = targets.size();
+		this.transferStops = new int[targets.size()];
+		this.transferDistances = new double[targets.size()];
+		for (int i = 0; i < this.transferStops.length; i++) {
+			this.transferStops[i] = this.stopIndices.get(targets.get(i));
+			this.transferDistances[i] = distances.get(i);
+		}
+
+		log.info("raptor transit data: " + this.stops.length + " stops, " + this.routes.length + " routes, "
+				+ numberOfRouteStops + " route stops, " + numberOfDepartures + " departures, "
+				+ this.transferStops.length + " walk connections.");
+	}
+
+	private static QuadTree<TransitStopFacility> createQuadTree(final TransitStopFacility[] stops) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (TransitStopFacility stop : stops) {
+			Coord c = stop.getCoord();
+			minX = Math.min(minX, c.getX());
+			minY = Math.min(minY, c.getY());
+			maxX = Math.max(maxX, c.getX());
+			maxY = Math.max(maxY, c.getY());
+		}
+		if (stops.length == 0) {
+			minX = minY = maxX = maxY = 0;
+		}
+		QuadTree<TransitStopFacility> quadTree = new QuadTree<>(minX, minY, maxX, maxY);
+		for (TransitStopFacility stop : stops) {
+			quadTree.put(stop.getCoord().getX(), stop.getCoord().getY(), stop);
+		}
+		return quadTree;
+	}
+
+	/**
+	 * @return the index of the earliest departure of the route at the given route stop at or after
+	 * the given time, counting the departures of the following days after the ones of the first day
+	 * (that is, <code>day * departureCount + departure</code>).
+	 */
+	int getEarliestTrip(final int routeStop, final double time) {
+		int route = this.routeStopRoutes[routeStop];
+		int first = this.routeFirstDeparture[route];
+		int last = this.routeFirstDeparture[route + 1] - 1;
+		double timeAtTerminus = time - this.routeStopDepartureOffsets[routeStop];
+		int day = 0;
+		if (timeAtTerminus > this.departures[last]) {
+			// no later departure on this day, continue with the departures of the following day(s)
+			day = (int) Math.ceil((timeAtTerminus - this.departures[last]) / TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT);
+			timeAtTerminus -= day * TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+		}
+		int pos = Arrays.binarySearch(this.departures, first, last + 1, timeAtTerminus);
+		if (pos < 0) {
+			pos = -(pos + 1);
+		} else {
+			// there might be several departures at exactly the same time
+			while (pos > first && this.departures[pos - 1] == timeAtTerminus) {
+				pos--;
+			}
+		}
+		return day * (last + 1 - first) + (pos - first);
+	}
+
+	double getTripDepartureAtTerminus(final int route, final int trip) {
+		int count = this.routeFirstDeparture[route + 1] - this.routeFirstDeparture[route];
+		return this.departures[this.routeFirstDeparture[route] + trip % count]
+				+ (trip / count) * TransitRouterNetworkTravelTimeAndDisutility.MIDNIGHT;
+	}
+
+	TransitStopFacility getStop(final int stop) {
+		return this.stops[stop];
+	}
+
+	int getStopIndex(final TransitStopFacility stop) {
+		Integer index = this.stopIndices.get(stop);
+		return index == null ? -1 : index;
+	}
+
+	int getStopCount() {
+		return this.stops.length;
+	}
+
+	Collection<TransitStopFacility> getNearestStops(final Coord coord, final double distance) {
+		return this.stopsQuadTree.getDisk(coord.getX(), coord.getY(), distance);
+	}
+
+	TransitStopFacility getNearestStop(final Coord coord) {
+		return this.stopsQuadTree.getClosest(coord.getX(), coord.getY());
+	}
+
+	TransitLine getRouteLine(final int route) {
+		return this.routeLines[route];
+	}
+
+	TransitRoute getRoute(final int route) {
+		return this.routes[route];
+	}
+
+	int getRouteCount() {
+		return this.routes.length;
+	}
+
+	int getFirstRouteStop(final int route) {
+		return this.routeFirstRouteStop[route];
+	}
+
+	TransitRouteStop getRouteStop(final int routeStop) {
+		return this.routeStops[routeStop];
+	}
+
+	int getRouteStopRoute(final int routeStop) {
+		return this.routeStopRoutes[routeStop];
+	}
+
+	int getRouteStopStop(final int routeStop) {
+		return this.routeStopStops[routeStop];
+	}
+
+	double getRouteStopArrivalOffset(final int routeStop) {
+		return this.routeStopArrivalOffsets[routeStop];
+	}
+
+	double getRouteStopDepartureOffset(final int routeStop) {
+		return this.routeStopDepartureOffsets[routeStop];
+	}
+
+	/**
+	 * @return the beeline distance along the route from its first stop to the given route stop
+	 */
+	double getRouteStopDistance(final int routeStop) {
+		return this.routeStopDistances[routeStop];
+	}
+
+	int getFirstRouteStopAtStop(final int stop) {
+		return this.stopFirstRouteStop[stop];
+	}
+
+	int getRouteStopAtStop(final int index) {
+		return this.stopRouteStops[index];
+	}
+
+	int getFirstTransfer(final int stop) {
+		return this.stopFirstTransfer[stop];
+	}
+
+	int getTransferStop(final int transfer) {
+		return this.transferStops[transfer];
+	}
+
+	double getTransferDistance(final int transfer) {
+		return this.transferDistances[transfer];
+	}
+
+}
@@ -0,0 +1,553 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RaptorTransitRouter.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.pt.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.priorityqueue.IntMinHeap;
+import org.matsim.core.utils.geometry.CoordUtils;
+import org.matsim.facilities.Facility;
+import org.matsim.pt.routes.ExperimentalTransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Round-based public transit router (RAPTOR) working on the flat arrays of the {@link RaptorTransitData}.
+ * <p></p>
+ * Round <i>k</i> finds the earliest arrival at every stop using exactly <i>k</i> transit legs, so the
+ * journeys of the different rounds form the Pareto set of arrival time and number of transfers. Walking
+ * between stops uses the walk connections of the {@link RaptorTransitData}, several of them may be
+ * combined like transfer links in the {@link TransitRouterNetwork}. A range query runs one search for
+ * every possible departure time within the given time window, the latest first, and re-uses the arrival
+ * times of the later departures as upper bounds (rRAPTOR).
+ * <p></p>
+ * {@link #calcRoute} returns the journey with the lowest generalized cost, calculated with the walk,
+ * transfer and waiting parameters of the {@link TransitRouterConfig} like the {@link TransitRouterImpl}
+ * does, or a direct walk if that is cheaper or no journey could be found.
+ * <p></p>
+ * Not thread-safe; use one instance per thread.
+ */
+public class RaptorTransitRouter implements TransitRouter {
+
+	private final TransitRouterConfig config;
+	private final RaptorTransitData data;
+
+	private final List<Round> rounds = new ArrayList<>();
+	private final List<Target> targets = new ArrayList<>();
+	/* number of rounds used in the current query */
+	private int roundCount = 0;
+	private final double[] egressWalkTimes;
+	private final BitSet markedStops;
+	private final BitSet improvedStops;
+	private final BitSet markedRoutes;
+	private final int[] routeScanStarts;
+	private final IntMinHeap transferHeap;
+
+	public RaptorTransitRouter(final TransitRouterConfig config, final RaptorTransitData data) {
+		this.config = config;
+		this.data = data;
+		int stopCount = data.getStopCount();
+		this.egressWalkTimes = new double[stopCount];
+		Arrays.fill(this.egressWalkTimes, Double.POSITIVE_INFINITY);
+		this.markedStops = new BitSet(stopCount);
+		this.improvedStops = new BitSet(stopCount);
+		this.markedRoutes = new BitSet(data.getRouteCount());
+		this.routeScanStarts = new int[data.getRouteCount()];
+		this.transferHeap = new IntMinHeap(stopCount);
+	}
+
+	@Override
+	public List<Leg> calcRoute(final Facility<?> fromFacility, final Facility<?> toFacility, final double departureTime, final Person person) {
+		RaptorJourney best = null;
+		for (RaptorJourney journey : calcJourneys(fromFacility, toFacility, departureTime, departureTime, person)) {
+			if (best == null || journey.getCost() < best.getCost()) {
+				best = journey;
+			}
+		}
+		double directWalkCost = getWalkDisutility(fromFacility.getCoord(), toFacility.getCoord());
+		if (best == null || directWalkCost * this.config.getDirectWalkFactor() < best.getCost()) {
+			return createDirectWalkLegList(fromFacility.getCoord(), toFacility.getCoord());
+		}
+		return new ArrayList<>(best.getLegs());
+	}
+
+	/**
+	 * Calculates all journeys departing within the given time window which are Pareto-optimal with
+	 * respect to departure time (later is better), arrival time and number of transfers. If both times
+	 * are the same, this is the Pareto set of arrival time and number of transfers for a single departure.
+	 *
+	 * @return the journeys, sorted by departure time and number of transfers
+	 */
+	public List<RaptorJourney> calcJourneys(final Facility<?> fromFacility, final Facility<?> toFacility,
+			final double earliestDepartureTime, final double latestDepartureTime, final Person person) {
+		Coord fromCoord = fromFacility.getCoord();
+		Coord toCoord = toFacility.getCoord();
+		List<TransitStopFacility> accessStops = new ArrayList<>(locateNearestStops(fromCoord));
+		double[] accessWalkTimes = new double[accessStops.size()];
+		for (int i = 0; i < accessWalkTimes.length; i++) {
+			accessWalkTimes[i] = getWalkTime(fromCoord, accessStops.get(i).getCoord());
+		}
+		List<TransitStopFacility> egressStops = new ArrayList<>(locateNearestStops(toCoord));
+		for (TransitStopFacility stop : egressStops) {
+			this.egressWalkTimes[this.data.getStopIndex(stop)] = getWalkTime(stop.getCoord(), toCoord);
+		}
+
+		List<RaptorJourney> journeys = new ArrayList<>();
+		if (!accessStops.isEmpty() && !egressStops.isEmpty()) {
+			this.roundCount = 0;
+			double[] departureTimes = collectDepartureTimes(accessStops, accessWalkTimes, earliestDepartureTime, latestDepartureTime);
+			for (int i = departureTimes.length - 1; i >= 0; i--) {
+				double departureTime = departureTimes[i];
+				search(accessStops, accessWalkTimes, departureTime, egressStops);
+				for (int round = 1; round < this.roundCount; round++) {
+					Target target = this.targets.get(round);
+					if (target.improved) {
+						journeys.add(createJourney(departureTime, round, target, fromCoord, toCoord));
+						target.improved = false;
+					}
+				}
+			}
+		}
+		for (TransitStopFacility stop : egressStops) {
+			this.egressWalkTimes[this.data.getStopIndex(stop)] = Double.POSITIVE_INFINITY;
+		}
+
+		Collections.sort(journeys, new Comparator<RaptorJourney>() {
+			@Override
+			public int compare(RaptorJourney j1, RaptorJourney j2) {
+				int cmp = Double.compare(j1.getDepartureTime(), j2.getDepartureTime());
+				return cmp != 0 ? cmp : Integer.compare(j1.getNumberOfTransfers(), j2.getNumberOfTransfers());
+			}
+		});
+		return journeys;
+	}
+
+	private Collection<TransitStopFacility> locateNearestStops(final Coord coord) {
+		// same as in AbstractTransitRouter.locateWrappedNearestTransitNodes
+		Collection<TransitStopFacility> nearestStops = this.data.getNearestStops(coord, this.config.getSearchRadius());
+		if (nearestStops.size() < 2) {
+			// also enlarge search area if only one stop found, maybe a second one is near the border of the search area
+			TransitStopFacility nearestStop = this.data.getNearestStop(coord);
+			if (nearestStop != null) { // transit schedule might be completely empty!
+				double distance = CoordUtils.calcEuclideanDistance(coord, nearestStop.getCoord());
+				nearestStops = this.data.getNearestStops(coord, distance + this.config.getExtensionRadius());
+			}
+		}
+		return nearestStops;
+	}
+
+	/**
+	 * @return the departure times from the origin at which a vehicle can be caught at one of the access
+	 * stops without waiting, plus the latest departure time, sorted and without duplicates
+	 */
+	private double[] collectDepartureTimes(final List<TransitStopFacility> accessStops, final double[] accessWalkTimes,
+			final double earliestDepartureTime, final double latestDepartureTime) {
+		double[] times = new double[16];
+		int count = 0;
+		times[count++] = latestDepartureTime;
+		if (earliestDepartureTime < latestDepartureTime) {
+			for (int i = 0; i < accessStops.size(); i++) {
+				int stop = this.data.getStopIndex(accessStops.get(i));
+				for (int j = this.data.getFirstRouteStopAtStop(stop); j < this.data.getFirstRouteStopAtStop(stop + 1); j++) {
+					int routeStop = this.data.getRouteStopAtStop(j);
+					double offset = this.data.getRouteStopDepartureOffset(routeStop) - accessWalkTimes[i];
+					int trip = this.data.getEarliestTrip(routeStop, earliestDepartureTime + accessWalkTimes[i]);
+					int route = this.data.getRouteStopRoute(routeStop);
+					while (true) {
+						double time = this.data.getTripDepartureAtTerminus(route, trip++) + offset;
+						if (time > latestDepartureTime) {
+							break;
+						}
+						if (count == times.length) {
+							times = Arrays.copyOf(times, 2 * count);
+						}
+						times[count++] = time;
+					}
+				}
+			}
+		}
+		Arrays.sort(times, 0, count);
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (distinct == 0 || times[i] != times[distinct - 1]) {
+				times[distinct++] = times[i];
+			}
+		}
+		return Arrays.copyOf(times, distinct);
+	}
+
+	/**
+	 * Returns the labels of the given round, initializing them if the round is used for the first time
+	 * in the current query. Rounds are always initialized in order.
+	 */
+	private Round getRound(final int k) {
+		if (k < this.roundCount) {
+			return this.rounds.get(k);
+		}
+		if (this.rounds.size() == k) {
+			this.rounds.add(new Round(this.data.getStopCount()));
+			this.targets.add(new Target());
+		}
+		Round round = this.rounds.get(k);
+		Target target = this.targets.get(k);
+		Arrays.fill(round.transitArrivals, Double.POSITIVE_INFINITY);
+		Arrays.fill(round.transferArrivals, Double.POSITIVE_INFINITY);
+		if (k == 0) {
+			Arrays.fill(round.bestTransitArrivals, Double.POSITIVE_INFINITY);
+			Arrays.fill(round.bestTransferArrivals, Double.POSITIVE_INFINITY);
+			target.bestArrival = Double.POSITIVE_INFINITY;
+		} else {
+			Round previous = this.rounds.get(k - 1);
+			System.arraycopy(previous.bestTransitArrivals, 0, round.bestTransitArrivals, 0, round.bestTransitArrivals.length);
+			System.arraycopy(previous.bestTransferArrivals, 0, round.bestTransferArrivals, 0, round.bestTransferArrivals.length);
+			target.bestArrival = this.targets.get(k - 1).bestArrival;
+		}
+		target.improved = false;
+		this.roundCount++;
+		return round;
+	}
+
+	/*
+	 * The best arrivals of a round are the ones with at most as many transit legs, from this or a later
+	 * departure. As the labels of later departures are kept in a range query, an improvement may affect
+	 * several rounds.
+	 */
+
+	private void updateBestTransitArrival(final int k, final int stop, final double arrival) {
+		for (int j = k; j < this.roundCount && arrival < this.rounds.get(j).bestTransitArrivals[stop]; j++) {
+			this.rounds.get(j).bestTransitArrivals[stop] = arrival;
+		}
+	}
+
+	private void updateBestTransferArrival(final int k, final int stop, final double arrival) {
+		for (int j = k; j < this.roundCount && arrival < this.rounds.get(j).bestTransferArrivals[stop]; j++) {
+			this.rounds.get(j).bestTransferArrivals[stop] = arrival;
+		}
+	}
+
+	private void updateBestTargetArrival(final int k, final double arrival) {
+		for (int j = k; j < this.roundCount && arrival < this.targets.get(j).bestArrival; j++) {
+			this.targets.get(j).bestArrival = arrival;
+		}
+	}
+
+	private void search(final List<TransitStopFacility> accessStops, final double[] accessWalkTimes, final double departureTime,
+			final List<TransitStopFacility> egressStops) {
+		Round access = getRound(0);
+		for (int i = 0; i < accessStops.size(); i++) {
+			int stop = this.data.getStopIndex(accessStops.get(i));
+			double arrival = departureTime + accessWalkTimes[i];
+			if (arrival < access.bestTransferArrivals[stop]) {
+				access.transferArrivals[stop] = arrival;
+				access.transferFromStops[stop] = -1;
+				access.transferChained[stop] = false;
+				updateBestTransferArrival(0, stop, arrival);
+				this.markedStops.set(stop);
+			}
+		}
+
+		for (int k = 1; !this.markedStops.isEmpty(); k++) {
+			Round previous = this.rounds.get(k - 1);
+			Round current = getRound(k);
+
+			// collect the routes serving the stops improved in the previous round
+			this.markedRoutes.clear();
+			for (int stop = this.markedStops.nextSetBit(0); stop >= 0; stop = this.markedStops.nextSetBit(stop + 1)) {
+				for (int j = this.data.getFirstRouteStopAtStop(stop); j < this.data.getFirstRouteStopAtStop(stop + 1); j++) {
+					int routeStop = this.data.getRouteStopAtStop(j);
+					int route = this.data.getRouteStopRoute(routeStop);
+					if (!this.markedRoutes.get(route) || routeStop < this.routeScanStarts[route]) {
+						this.routeScanStarts[route] = routeStop;
+						this.markedRoutes.set(route);
+					}
+				}
+			}
+			this.markedStops.clear();
+
+			for (int route = this.markedRoutes.nextSetBit(0); route >= 0; route = this.markedRoutes.nextSetBit(route + 1)) {
+				scanRoute(route, k, previous, current);
+			}
+
+			Target target = this.targets.get(k);
+			for (TransitStopFacility egressStop : egressStops) {
+				int stop = this.data.getStopIndex(egressStop);
+				if (this.improvedStops.get(stop)) {
+					double arrival = current.transitArrivals[stop] + this.egressWalkTimes[stop];
+					if (arrival < target.bestArrival) {
+						updateBestTargetArrival(k, arrival);
+						target.stop = stop;
+						target.arrival = arrival;
+						target.improved = true;
+					}
+				}
+			}
+
+			relaxTransfers(k, current);
+			this.improvedStops.clear();
+		}
+	}
+
+	private void scanRoute(final int route, final int k, final Round previous, final Round current) {
+		double bestTargetArrival = this.targets.get(k).bestArrival;
+		int lastRouteStop = this.data.getFirstRouteStop(route + 1) - 1;
+		int trip = -1;
+		int boardingRouteStop = -1;
+		double tripDepartureAtTerminus = Double.NaN;
+		for (int routeStop = this.routeScanStarts[route]; routeStop <= lastRouteStop; routeStop++) {
+			int stop = this.data.getRouteStopStop(routeStop);
+			if (trip >= 0) {
+				double arrival = tripDepartureAtTerminus + this.data.getRouteStopArrivalOffset(routeStop);
+				if (arrival < current.bestTransitArrivals[stop] && arrival < bestTargetArrival) {
+					current.transitArrivals[stop] = arrival;
+					current.boardingRouteStops[stop] = boardingRouteStop;
+					current.alightingRouteStops[stop] = routeStop;
+					current.trips[stop] = trip;
+					updateBestTransitArrival(k, stop, arrival);
+					this.improvedStops.set(stop);
+				}
+			}
+			if (routeStop < lastRouteStop) {
+				double readyTime = previous.transferArrivals[stop];
+				if (readyTime < Double.POSITIVE_INFINITY
+						&& (trip < 0 || readyTime <= tripDepartureAtTerminus + this.data.getRouteStopDepartureOffset(routeStop))) {
+					// an earlier trip might be caught here
+					int earliestTrip = this.data.getEarliestTrip(routeStop, readyTime);
+					if (trip < 0 || earliestTrip < trip) {
+						trip = earliestTrip;
+						boardingRouteStop = routeStop;
+						tripDepartureAtTerminus = this.data.getTripDepartureAtTerminus(route, trip);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Walks from the stops improved in this round to the same or nearby stops, where a transit leg of
+	 * the next round may start. Every walk connection takes the additional transfer time, like a transfer
+	 * link in the {@link TransitRouterNetwork}.
+	 */
+	private void relaxTransfers(final int k, final Round round) {
+		double additionalTransferTime = this.config.getAdditionalTransferTime();
+		double walkSpeed = this.config.getBeelineWalkSpeed();
+		this.transferHeap.reset();
+		for (int stop = this.improvedStops.nextSetBit(0); stop >= 0; stop = this.improvedStops.nextSetBit(stop + 1)) {
+			double arrival = round.transitArrivals[stop];
+			relaxTransfer(k, round, stop, arrival + additionalTransferTime, stop, false);
+			for (int transfer = this.data.getFirstTransfer(stop); transfer < this.data.getFirstTransfer(stop + 1); transfer++) {
+				double time = arrival + this.data.getTransferDistance(transfer) / walkSpeed + additionalTransferTime;
+				relaxTransfer(k, round, this.data.getTransferStop(transfer), time, stop, false);
+			}
+		}
+		while (!this.transferHeap.isEmpty()) {
+			int stop = this.transferHeap.poll();
+			double arrival = round.transferArrivals[stop];
+			for (int transfer = this.data.getFirstTransfer(stop); transfer < this.data.getFirstTransfer(stop + 1); transfer++) {
+				double time = arrival + this.data.getTransferDistance(transfer) / walkSpeed + additionalTransferTime;
+				relaxTransfer(k, round, this.data.getTransferStop(transfer), time, stop, true);
+			}
+		}
+	}
+
+	private void relaxTransfer(final int k, final Round round, final int stop, final double time, final int fromStop, final boolean chained) {
+		if (time < round.bestTransferArrivals[stop] && time < this.targets.get(k).bestArrival) {
+			round.transferArrivals[stop] = time;
+			round.transferFromStops[stop] = fromStop;
+			round.transferChained[stop] = chained;
+			updateBestTransferArrival(k, stop, time);
+			this.markedStops.set(stop);
+			this.transferHeap.decreaseKey(stop, time);
+		}
+	}
+
+	private RaptorJourney createJourney(final double departureTime, final int numberOfRounds, final Target target, final Coord fromCoord, final Coord toCoord) {
+		// collect the transit legs, backwards
+		int[] boardingRouteStops = new int[numberOfRounds];
+		int[] alightingRouteStops = new int[numberOfRounds];
+		int[] trips = new int[numberOfRounds];
+		int stop = target.stop;
+		for (int k = numberOfRounds; k >= 1; k--) {
+			Round round = this.rounds.get(k);
+			boardingRouteStops[k - 1] = round.boardingRouteStops[stop];
+			alightingRouteStops[k - 1] = round.alightingRouteStops[stop];
+			trips[k - 1] = round.trips[stop];
+			if (k > 1) {
+				Round previous = this.rounds.get(k - 1);
+				stop = this.data.getRouteStopStop(boardingRouteStops[k - 1]);
+				while (previous.transferChained[stop]) {
+					stop = previous.transferFromStops[stop];
+				}
+				stop = previous.transferFromStops[stop];
+			}
+		}
+
+		// create the legs and calculate the cost, forwards
+		List<Leg> legs = new ArrayList<>();
+		double time = departureTime;
+		double cost = 0;
+		TransitStopFacility accessStop = this.data.getStop(this.data.getRouteStopStop(boardingRouteStops[0]));
+		double walkTime = getWalkTime(fromCoord, accessStop.getCoord());
+		legs.add(createWalkLeg(null, accessStop, fromCoord, accessStop.getCoord(), walkTime));
+		cost += getWalkDisutility(fromCoord, accessStop.getCoord());
+		time += walkTime;
+		TransitStopFacility egressStop = null;
+		for (int i = 0; i < numberOfRounds; i++) {
+			int boardingRouteStop = boardingRouteStops[i];
+			int alightingRouteStop = alightingRouteStops[i];
+			accessStop = this.data.getStop(this.data.getRouteStopStop(boardingRouteStop));
+			double readyTime = time;
+			if (egressStop != null) {
+				// transfer from the previous transit leg, calculated like the TransitRouterNetworkTravelTimeAndDisutility does
+				double distance = CoordUtils.calcEuclideanDistance(egressStop.getCoord(), accessStop.getCoord());
+				double transferWalkTime = distance / this.config.getBeelineWalkSpeed();
+				double transferTime = transferWalkTime + this.config.getAdditionalTransferTime();
+				if (egressStop != accessStop) {
+					legs.add(createWalkLeg(egressStop, accessStop, egressStop.getCoord(), accessStop.getCoord(), transferTime));
+					time += transferTime;
+				}
+				readyTime += transferTime;
+				cost += - transferWalkTime * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+						- distance * this.config.getMarginalUtilityOfTravelDistanceWalk_utl_m()
+						- this.config.getAdditionalTransferTime() * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+						- this.config.getUtilityOfLineSwitch_utl();
+			}
+			int route = this.data.getRouteStopRoute(boardingRouteStop);
+			double departureAtTerminus = this.data.getTripDepartureAtTerminus(route, trips[i]);
+			double vehicleArrivalTime = departureAtTerminus + this.data.getRouteStopArrivalOffset(boardingRouteStop);
+			double arrivalTime = departureAtTerminus + this.data.getRouteStopArrivalOffset(alightingRouteStop);
+			double waitTime = Math.max(0, vehicleArrivalTime - readyTime);
+			double inVehicleTime = arrivalTime - readyTime - waitTime;
+			double distance = this.data.getRouteStopDistance(alightingRouteStop) - this.data.getRouteStopDistance(boardingRouteStop);
+			cost += - inVehicleTime * this.config.getMarginalUtilityOfTravelTimePt_utl_s()
+					- waitTime * this.config.getMarginalUtilityOfWaitingPt_utl_s()
+					- distance * this.config.getMarginalUtilityOfTravelDistancePt_utl_m();
+
+			egressStop = this.data.getStop(this.data.getRouteStopStop(alightingRouteStop));
+			Leg leg = PopulationUtils.createLeg(TransportMode.pt);
+			ExperimentalTransitRoute ptRoute = new ExperimentalTransitRoute(accessStop, this.data.getRouteLine(route), this.data.getRoute(route), egressStop);
+			ptRoute.setTravelTime(arrivalTime - time);
+			ptRoute.setDistance(distance);
+			leg.setRoute(ptRoute);
+			leg.setTravelTime(arrivalTime - time);
+			legs.add(leg);
+			time = arrivalTime;
+		}
+		// the route of the egress leg is set by the TransitRouterWrapper, as for the TransitRouterImpl
+		walkTime = getWalkTime(egressStop.getCoord(), toCoord);
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		leg.setTravelTime(walkTime);
+		legs.add(leg);
+		cost += getWalkDisutility(egressStop.getCoord(), toCoord);
+		time += walkTime;
+
+		return new RaptorJourney(departureTime, time, numberOfRounds - 1, cost, legs);
+	}
+
+	private Leg createWalkLeg(final TransitStopFacility fromStop, final TransitStopFacility toStop, final Coord fromCoord, final Coord toCoord, final double travelTime) {
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		Route walkRoute = RouteUtils.createGenericRouteImpl(fromStop == null ? null : fromStop.getLinkId(), toStop.getLinkId());
+		walkRoute.setTravelTime(travelTime);
+		walkRoute.setDistance(this.config.getBeelineDistanceFactor() * CoordUtils.calcEuclideanDistance(fromCoord, toCoord));
+		leg.setRoute(walkRoute);
+		leg.setTravelTime(travelTime);
+		return leg;
+	}
+
+	private List<Leg> createDirectWalkLegList(final Coord fromCoord, final Coord toCoord) {
+		List<Leg> legs = new ArrayList<>();
+		Leg leg = PopulationUtils.createLeg(TransportMode.transit_walk);
+		double walkTime = getWalkTime(fromCoord, toCoord);
+		leg.setTravelTime(walkTime);
+		Route walkRoute = RouteUtils.createGenericRouteImpl(null, null);
+		walkRoute.setTravelTime(walkTime);
+		leg.setRoute(walkRoute);
+		legs.add(leg);
+		return legs;
+	}
+
+	private double getWalkTime(final Coord fromCoord, final Coord toCoord) {
+		return CoordUtils.calcEuclideanDistance(fromCoord, toCoord) / this.config.getBeelineWalkSpeed();
+	}
+
+	private double getWalkDisutility(final Coord fromCoord, final Coord toCoord) {
+		// same as TransitRouterNetworkTravelTimeAndDisutility.getWalkTravelDisutility
+		return - getWalkTime(fromCoord, toCoord) * this.config.getMarginalUtilityOfTravelTimeWalk_utl_s()
+				- CoordUtils.calcEuclideanDistance(fromCoord, toCoord) * this.config.getBeelineDistanceFactor()
+				* this.config.getMarginalUtilityOfTravelDistanceWalk_utl_m();
+	}
+
+	/**
+	 * The labels of one round, indexed by stop.
+	 */
+	private static final class Round {
+		/* arrival at the stop with a transit leg of this round */
+		final double[] transitArrivals;
+		final int[] boardingRouteStops;
+		final int[] alightingRouteStops;
+		final int[] trips;
+		/* time at which a transit leg of the next round may depart from the stop */
+		final double[] transferArrivals;
+		/* the stop the agent walked from, -1 in round 0 (walk from the origin) */
+		final int[] transferFromStops;
+		/* whether the agent already walked to the transferFromStop, instead of arriving there by transit */
+		final boolean[] transferChained;
+		/* the best arrivals with at most as many transit legs as in this round */
+		final double[] bestTransitArrivals;
+		final double[] bestTransferArrivals;
+
+		Round(final int stopCount) {
+			this.transitArrivals = new double[stopCount];
+			this.boardingRouteStops = new int[stopCount];
+			this.alightingRouteStops = new int[stopCount];
+			this.trips = new int[stopCount];
+			this.transferArrivals = new double[stopCount];
+			this.transferFromStops = new int[stopCount];
+			this.transferChained = new boolean[stopCount];
+			this.bestTransitArrivals = new double[stopCount];
+			this.bestTransferArrivals = new double[stopCount];
+		}
+	}
+
+	/**
+	 * The arrival at the destination found in one round.
+	 */
+	private static final class Target {
+		int stop = -1;
+		double arrival = Double.POSITIVE_INFINITY;
+		/* whether the arrival was improved by the current departure time */
+		boolean improved = false;
+		/* the best arrival with at most as many transit legs as in this round */
+		double bestArrival = Double.POSITIVE_INFINITY;
+	}
+
+}
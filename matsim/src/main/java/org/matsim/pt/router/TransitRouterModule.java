@@ -31,7 +31,16 @@ public class TransitRouterModule extends AbstractModule {
     @Override
     public void install() {
         if (getConfig().transit().isUseTransit()) {
-            bind(TransitRouter.class).toProvider(TransitRouterImplFactory.class);
+            switch (getConfig().transitRouter().getRoutingAlgorithmType()) {
+                case Dijkstra:
+                    bind(TransitRouter.class).toProvider(TransitRouterImplFactory.class);
+                    break;
+                case Raptor:
+                    bind(TransitRouter.class).toProvider(RaptorTransitRouterFactory.class);
+                    break;
+                default:
+                    throw new RuntimeException("Unknown transit routing algorithm: " + getConfig().transitRouter().getRoutingAlgorithmType());
+            }
         }
     }
 
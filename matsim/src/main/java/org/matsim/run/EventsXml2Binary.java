@@ -0,0 +1,51 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsXml2Binary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.run;
+
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+
+/**
+ * Converts an xml events file into the binary events format written by {@link EventWriterBinary}.
+ * <p></p>
+ * Usage: <code>EventsXml2Binary input-events-file output-events-file.bin</code>
+ */
+public class EventsXml2Binary {
+
+	public static void convert(final String inputFile, final String outputFile) {
+		EventsManager events = EventsUtils.createEventsManager();
+		EventWriterBinary writer = new EventWriterBinary(outputFile);
+		events.addHandler(writer);
+		new MatsimEventsReader(events).readFile(inputFile);
+		writer.closeFile();
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.out.println("usage: EventsXml2Binary input-events-file output-events-file.bin");
+			System.exit(1);
+		}
+		convert(args[0], args[1]);
+	}
+
+}
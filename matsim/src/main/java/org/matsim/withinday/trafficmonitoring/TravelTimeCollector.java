@@ -28,7 +28,6 @@ import org.matsim.api.core.v01.events.handler.*;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
-import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
@@ -49,13 +48,25 @@ import org.matsim.vehicles.Vehicle;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.*;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Collects link travel times over a given time span (storedTravelTimesBinSize)
  * and calculates an average travel time over this time span.
+ * <p></p>
+ * Link events may be handled by several threads at the same time, as long as the events of a vehicle are handled in
+ * their order. Link traversals are passed to their link without locking, and the travel time estimates are only
+ * recomputed for links with new traversals or traversals leaving the time window. The estimates are updated at the
+ * beginning of every time step and published as a whole, so all replanners of a time step (e.g. the ones of a
+ * {@link org.matsim.withinday.replanning.parallel.ParallelDuringLegReplanner}) see the same travel times, without
+ * any locking when they are read.
  * 
  * TODO:
  * - make storedTravelTimesBinSize configurable (e.g. via config)
@@ -71,29 +82,50 @@ public class TravelTimeCollector implements TravelTime,
 
 	private static final Logger log = Logger.getLogger(TravelTimeCollector.class);
 
+	private static final int VEHICLE_PAGE_BITS = 10;
+	private static final int VEHICLE_PAGE_SIZE = 1 << VEHICLE_PAGE_BITS;
+
+	/*
+	 * Below this number of links to update, the updates are not split among threads.
+	 */
+	private static final int MIN_LINKS_PER_THREAD = 1024;
+
 	private Network network;
 
-	// Trips with no Activity on the current Link
-	private Map<Id<Vehicle>, TripBin> regularActiveTrips; // VehicleId
-	private Map<Id<Link>, TravelTimeInfo> travelTimeInfos; // LinkId
-	
-	private TravelTimeInfoProvider travelTimeInfoProvider;
+	private LinkState[] linkStates;
+	/** maps the {@link Id#index()} of the link ids to the link index plus one, zero means unknown */
+	private int[] idIndexToLink;
+
+	// Trips with no Activity on the current Link, by the index of the vehicle id
+	private volatile VehiclePage[] vehiclePages;
+
+	// Links with new traversals since the last update
+	private Queue<LinkState> changedLinks;
+	// Links with traversals, ordered by the time their oldest traversal leaves the time window
+	private PriorityQueue<Expiry> expiries;
+	private int activeLinks = 0;
+	private int updateCount = 0;
+
+	/*
+	 * The published travel times, plus the array the next update is written to. The links updated in the last
+	 * update are copied to the other array before it is updated.
+	 */
+	private volatile double[] travelTimes;
+	private double[] nextTravelTimes;
+	private LinkState[] lastUpdatedLinks = new LinkState[0];
 
 	// Links that are changed by network change events
-	private Map<Double, Collection<Link>> changedLinks;
+	private Map<Double, Collection<Link>> networkChangedLinks;
 	
 	/*
 	 * For parallel Execution
 	 */
-	private CyclicBarrier startBarrier;
-	private CyclicBarrier endBarrier;
-	private UpdateMeanTravelTimesRunnable[] updateMeanTravelTimesRunnables;
+	private ExecutorService executor;
 	private final int numOfThreads;
 
 	private final int infoTimeStep = 3600;
 	private int nextInfoTime = 0;
 	
-	private Set<Id<Vehicle>> vehiclesToFilter;
 	private final Set<String> analyzedModes;
 	private final boolean filterModes;
 
@@ -124,24 +156,27 @@ public class TravelTimeCollector implements TravelTime,
 	}
 
 	private void init() {
-		this.regularActiveTrips = new HashMap<>();
-		this.travelTimeInfos = new ConcurrentHashMap<>();
-		this.changedLinks = new HashMap<>();
-		this.vehiclesToFilter = new HashSet<>();
+		this.vehiclePages = new VehiclePage[16];
+		this.changedLinks = new ConcurrentLinkedQueue<>();
+		this.expiries = new PriorityQueue<>();
+		this.networkChangedLinks = new HashMap<>();
+		this.activeLinks = 0;
+		this.lastUpdatedLinks = new LinkState[0];
 		
-		// one TravelTimeInfo per link:
+		// one LinkState per link:
+		int linkCount = this.network.getLinks().size();
+		this.linkStates = new LinkState[linkCount];
+		this.idIndexToLink = new int[Id.getNumberOfIds(Link.class)];
+		int index = 0;
 		for (Link link : this.network.getLinks().values()) {
-			TravelTimeInfo travelTimeInfo = new TravelTimeInfo();
-			this.travelTimeInfos.put(link.getId(), travelTimeInfo);
+			this.linkStates[index] = new LinkState(link, index);
+			this.idIndexToLink[link.getId().index()] = index + 1;
+			index++;
 		}
-		
-		/*
-		 * If no RoutingNetwork is used, ArrayBasedTravelTimeInfoProvider uses 
-		 * a MapBasedTravelTimeInfoProvider as fall back solution. This increases 
-		 * routing times of a AStarLandmarks router by ~5%.
-		 */
-//		this.travelTimeInfoProvider = new MapBasedTravelTimeInfoProvider(this.travelTimeInfos);
-		this.travelTimeInfoProvider = new ArrayBasedTravelTimeInfoProvider(this.travelTimeInfos, this.network);
+		this.travelTimes = new double[linkCount];
+		this.nextTravelTimes = new double[linkCount];
+		Arrays.fill(this.travelTimes, Double.MAX_VALUE);
+		Arrays.fill(this.nextTravelTimes, Double.MAX_VALUE);
 		
 		/*
 		 * If the network is time variant, we have to update the link parameters
@@ -154,10 +189,10 @@ public class TravelTimeCollector implements TravelTime,
 					ChangeValue freespeedChange = networkChangeEvent.getFreespeedChange();
 					if (freespeedChange != null) {
 						double startTime = networkChangeEvent.getStartTime();
-						Collection<Link> links = changedLinks.get(startTime);
+						Collection<Link> links = networkChangedLinks.get(startTime);
 						if (links == null) {
 							links = new HashSet<>();
-							changedLinks.put(startTime, links);
+							networkChangedLinks.put(startTime, links);
 						}
 						links.addAll(networkChangeEvent.getLinks());
 					}
@@ -168,7 +203,7 @@ public class TravelTimeCollector implements TravelTime,
 
 	@Override
 	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
-		return this.travelTimeInfoProvider.getTravelTimeData(link).travelTime;
+		return this.travelTimes[getLinkState(link.getId()).index];
 	}
 
 	@Override
@@ -187,40 +222,33 @@ public class TravelTimeCollector implements TravelTime,
 
 	@Override
 	public void handleEvent(LinkEnterEvent event) {
+		int vehicle = getVehicleIndex(event.getVehicleId(), true);
+		VehiclePage page = this.vehiclePages[vehicle >>> VEHICLE_PAGE_BITS];
+		int v = vehicle & (VEHICLE_PAGE_SIZE - 1);
+
 		/* 
 		 * If only some modes are analyzed, we check whether the vehicle
 		 * performs a trip with one of those modes. if not, we skip the event.
 		 */
-		if (filterModes && vehiclesToFilter.contains(event.getVehicleId())) return;
+		if (filterModes && page.filtered[v]) return;
 		
-		Id<Vehicle> vehicleId = event.getVehicleId();
-		double time = event.getTime();
-
-		TripBin tripBin = new TripBin();
-		tripBin.enterTime = time;
-
-		this.regularActiveTrips.put(vehicleId, tripBin);
+		page.enterTimes[v] = event.getTime();
 	}
 
 	@Override
 	public void handleEvent(LinkLeaveEvent event) {
-		Id<Link> linkId = event.getLinkId();
-		Id<Vehicle> vehicleId = event.getVehicleId();
-		double time = event.getTime();
-
-		TripBin tripBin = this.regularActiveTrips.remove(vehicleId);
-		if (tripBin != null) {
-			tripBin.leaveTime = time;
-
-			double tripTime = tripBin.leaveTime - tripBin.enterTime;
-
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeData(linkId);
-			travelTimeInfo.tripBins.add(tripBin);
-			travelTimeInfo.addedTravelTimes += tripTime;
-			travelTimeInfo.addedTrips++;
-
-			travelTimeInfo.checkActiveState();
-			travelTimeInfo.checkBinSize(tripTime);
+		int vehicle = getVehicleIndex(event.getVehicleId(), false);
+		if (vehicle < 0) return;
+		VehiclePage page = this.vehiclePages[vehicle >>> VEHICLE_PAGE_BITS];
+		int v = vehicle & (VEHICLE_PAGE_SIZE - 1);
+
+		double enterTime = page.enterTimes[v];
+		if (!Double.isNaN(enterTime)) {
+			page.enterTimes[v] = Double.NaN;
+			LinkState linkState = getLinkState(event.getLinkId());
+			if (linkState.addTraversal(new Traversal(event.getTime(), event.getTime() - enterTime))) {
+				this.changedLinks.add(linkState);
+			}
 		}
 	}
 
@@ -240,22 +268,28 @@ public class TravelTimeCollector implements TravelTime,
 	 */
 	@Override
 	public void handleEvent(VehicleLeavesTrafficEvent event) {
-		Id<Vehicle> vehicleId = event.getVehicleId();
+		int vehicle = getVehicleIndex(event.getVehicleId(), false);
+		if (vehicle < 0) return;
+		VehiclePage page = this.vehiclePages[vehicle >>> VEHICLE_PAGE_BITS];
+		int v = vehicle & (VEHICLE_PAGE_SIZE - 1);
 
-		this.regularActiveTrips.remove(vehicleId);
+		page.enterTimes[v] = Double.NaN;
 		
-		// try to remove vehicle from set with filtered vehicles
-		if (filterModes) this.vehiclesToFilter.remove(event.getVehicleId());
+		// the vehicle is no longer filtered
+		if (filterModes) page.filtered[v] = false;
 	}
 
 	@Override
 	public void handleEvent(VehicleEntersTrafficEvent event) {
 		/* 
 		 * If filtering transport modes is enabled and the vehicle
-		 * starts a leg on a non analyzed transport mode, add the vehicle
-		 * to the filtered vehicles set.
+		 * starts a leg on a non analyzed transport mode, mark the vehicle
+		 * as filtered.
 		 */
-		if (filterModes && !analyzedModes.contains(event.getNetworkMode())) this.vehiclesToFilter.add(event.getVehicleId());
+		if (filterModes && !analyzedModes.contains(event.getNetworkMode())) {
+			int vehicle = getVehicleIndex(event.getVehicleId(), true);
+			this.vehiclePages[vehicle >>> VEHICLE_PAGE_BITS].filtered[vehicle & (VEHICLE_PAGE_SIZE - 1)] = true;
+		}
 	}
 	
 	/*
@@ -275,14 +309,14 @@ public class TravelTimeCollector implements TravelTime,
 			this.nextInfoTime = (int)(Math.floor(simStartTime / this.infoTimeStep) * this.infoTimeStep);
 		}
 		
-		
-		for (Link link : this.network.getLinks().values()) {
-			double freeSpeedTravelTime = link.getLength() / link.getFreespeed(Time.UNDEFINED_TIME);
-
-			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeData(link);
-			travelTimeInfo.travelTime = freeSpeedTravelTime;
-			travelTimeInfo.init(freeSpeedTravelTime);
+		double[] travelTimes = this.nextTravelTimes;
+		for (LinkState linkState : this.linkStates) {
+			double freeSpeedTravelTime = linkState.link.getLength() / linkState.link.getFreespeed(Time.UNDEFINED_TIME);
+			linkState.travelTime = freeSpeedTravelTime;
+			linkState.init(freeSpeedTravelTime);
+			travelTimes[linkState.index] = freeSpeedTravelTime;
 		}
+		System.arraycopy(travelTimes, 0, this.travelTimes, 0, travelTimes.length);
 
 		// Now initialize the Parallel Update Threads
 		initParallelThreads();
@@ -293,14 +327,14 @@ public class TravelTimeCollector implements TravelTime,
 	public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
 		problem = false ;
 		
-		Collection<Link> links = changedLinks.remove(e.getSimulationTime());
+		Collection<Link> links = networkChangedLinks.remove(e.getSimulationTime());
 		
 		if (links != null) {
 			for (Link link : links) {
 				double freeSpeedTravelTime = link.getLength() / link.getFreespeed(e.getSimulationTime());
-				TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeData(link);
-				travelTimeInfo.init(freeSpeedTravelTime);
-				travelTimeInfo.checkActiveState();	// ensure that the estimated link travel time is updated
+				LinkState linkState = getLinkState(link.getId());
+				linkState.init(freeSpeedTravelTime);
+				this.changedLinks.add(linkState);	// ensure that the estimated link travel time is updated
 			}
 		}
 	}
@@ -310,7 +344,6 @@ public class TravelTimeCollector implements TravelTime,
 	public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
 		problem = false ;
 
-		// parallel Execution
 		this.run(e.getSimulationTime());
 
 		printInfo(e.getSimulationTime());
@@ -321,73 +354,156 @@ public class TravelTimeCollector implements TravelTime,
 	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
 		problem = false ;
 		
-		/*
-		 * Calling the afterSim Method of the Threads will set their 
-		 * simulationRunning flag to false.
-		 */
-		for (UpdateMeanTravelTimesRunnable runnable : this.updateMeanTravelTimesRunnables) {
-			runnable.afterSim();
-		}
-
-		/*
-		 * Triggering the startBarrier of the UpdateMeanTravelTimesRunnables.
-		 * They will check whether the Simulation is still running.
-		 * It is not, so the Threads will terminate.
-		 */
-		try {
-			this.startBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException ex) {
-			throw new RuntimeException(ex);
+		if (this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
 		}
 	}
 	
 	private void printInfo(double time) {
 		if (time >= this.nextInfoTime) {
-			int activeLinks = 0;
-			for (UpdateMeanTravelTimesRunnable runnable : this.updateMeanTravelTimesRunnables) {
-				activeLinks += runnable.getActiveLinksCount();
-			}
-
-			log.info("TravelTimeCollector at " + Time.writeTime(time) + " #links=" + activeLinks);
+			log.info("TravelTimeCollector at " + Time.writeTime(time) + " #links=" + this.activeLinks);
 
 			this.nextInfoTime += this.infoTimeStep;
 		}
 	}
 
-	private static class TripBin {
-		double enterTime;
-		double leaveTime;
+	private LinkState getLinkState(Id<Link> linkId) {
+		int index = linkId.index();
+		if (index < this.idIndexToLink.length && this.idIndexToLink[index] > 0) {
+			return this.linkStates[this.idIndexToLink[index] - 1];
+		}
+		throw new IllegalArgumentException("Link " + linkId + " is not part of the network.");
+	}
+
+	/**
+	 * @return the {@link Id#index()} of the vehicle, or <code>-1</code> if the vehicle was not seen before and is
+	 * not to be created
+	 */
+	private int getVehicleIndex(final Id<Vehicle> vehicleId, final boolean create) {
+		int index = vehicleId.index();
+		int page = index >>> VEHICLE_PAGE_BITS;
+		VehiclePage[] pages = this.vehiclePages;
+		if (page < pages.length && pages[page] != null) {
+			return index;
+		}
+		return create ? addVehiclePage(index) : -1;
+	}
+
+	/*
+	 * The pages are read without locking, so a new page is only published through a new copy of the array:
+	 * writing the volatile field makes the initialized page visible to the readers.
+	 */
+	private synchronized int addVehiclePage(final int index) {
+		int page = index >>> VEHICLE_PAGE_BITS;
+		VehiclePage[] pages = this.vehiclePages;
+		if (page >= pages.length || pages[page] == null) {
+			pages = Arrays.copyOf(pages, page >= pages.length ? Math.max(page + 1, pages.length * 2) : pages.length);
+			pages[page] = new VehiclePage();
+			this.vehiclePages = pages;
+		}
+		return index;
+	}
+
+	/*
+	 * The enter times of the vehicles on their current link (NaN if there is none), and whether they are filtered.
+	 */
+	private static class VehiclePage {
+		final double[] enterTimes = new double[VEHICLE_PAGE_SIZE];
+		final boolean[] filtered = new boolean[VEHICLE_PAGE_SIZE];
+
+		VehiclePage() {
+			Arrays.fill(this.enterTimes, Double.NaN);
+		}
+	}
+
+	/*
+	 * A traversal of a link, as passed from the event handlers to the update.
+	 */
+	private static class Traversal {
+		final double leaveTime;
+		final double travelTime;
+		Traversal next;
+
+		Traversal(double leaveTime, double travelTime) {
+			this.leaveTime = leaveTime;
+			this.travelTime = travelTime;
+		}
+	}
+
+	/*
+	 * The time the oldest traversal of a link leaves the time window of the link.
+	 */
+	private static class Expiry implements Comparable<Expiry> {
+		final double time;
+		final LinkState linkState;
+
+		Expiry(double time, LinkState linkState) {
+			this.time = time;
+			this.linkState = linkState;
+		}
+
+		@Override
+		public int compareTo(Expiry o) {
+			return Double.compare(this.time, o.time);
+		}
 	}
 
-	/*package*/ static class TravelTimeInfo {
+	/*package*/ static class LinkState {
+
+		private static final AtomicReferenceFieldUpdater<LinkState, Traversal> INBOX =
+				AtomicReferenceFieldUpdater.newUpdater(LinkState.class, Traversal.class, "inbox");
+
+		final Link link;
+		final int index;
 
-		UpdateMeanTravelTimesRunnable runnable;
-		List<TripBin> tripBins = new ArrayList<>();
+		/*
+		 * The traversals added by the event handlers since the last update, latest first.
+		 */
+		private volatile Traversal inbox = null;
 
-		boolean isActive = false;
-		// int numActiveTrips = 0;
-		int addedTrips = 0;
-		double addedTravelTimes = 0.0;
+		/*
+		 * The traversals within the time window, oldest first, stored as a ring buffer. Only accessed by the update.
+		 */
+		private double[] leaveTimes = new double[4];
+		private double[] tripTimes = new double[4];
+		private int first = 0;
+		private int size = 0;
 		double sumTravelTimes = 0.0; // We cache the sum of the TravelTimes
 
 		double freeSpeedTravelTime = Double.MAX_VALUE; // We cache the FreeSpeedTravelTimes
 		double travelTime = Double.MAX_VALUE; 
 
 		double dynamicBinSize = 0.0; // size of the time window that is taken into account
+		double expiryTime = Double.NaN; // the time the oldest traversal leaves the time window
+		double scheduledExpiryTime = Double.NaN; // the expiry time in the queue of expiries
+		int lastUpdate = -1;
 
 		static Counter enlarge = new Counter("TravelTimeCollector: enlarged time bin size: ");
 		static Counter shrink = new Counter("TravelTimeCollector: shrunk time bin size: ");
 
+		LinkState(Link link, int index) {
+			this.link = link;
+			this.index = index;
+		}
+
 		/*package*/ void init(double freeSpeedTravelTime) {
 			this.freeSpeedTravelTime = freeSpeedTravelTime;
 			this.dynamicBinSize = freeSpeedTravelTime * 2.5;
 		}
 
-		/*package*/ void checkActiveState() {
-			if (!isActive) {
-				this.isActive = true;
-				runnable.addTravelTimeInfo(this);
-			}
+		/**
+		 * Lock-free, may be called by several threads at the same time.
+		 * 
+		 * @return <code>true</code> if this is the first traversal since the last update 
+		 */
+		/*package*/ boolean addTraversal(Traversal traversal) {
+			Traversal head;
+			do {
+				head = this.inbox;
+				traversal.next = head;
+			} while (!INBOX.compareAndSet(this, head, traversal));
+			return head == null;
 		}
 
 		/*package*/ void checkBinSize(double tripTime) {
@@ -399,213 +515,202 @@ public class TravelTimeCollector implements TravelTime,
 				shrink.incCounter();
 			}
 		}
-	}
-
-	/*
-	 * ----------------------------------------------------------------
-	 * Methods for parallel Execution
-	 * ----------------------------------------------------------------
-	 */
-
-	/*
-	 * The Threads are waiting at the TimeStepStartBarrier. We trigger them by
-	 * reaching this Barrier. Now the Threads will start moving the Nodes. We
-	 * wait until all of them reach the TimeStepEndBarrier to move on. We should
-	 * not have any Problems with Race Conditions because even if the Threads
-	 * would be faster than this Thread, means they reach the TimeStepEndBarrier
-	 * before this Method does, it should work anyway.
-	 */
-	private void run(double time) {
-
-		try {
-			// set current Time
-			for (UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable : updateMeanTravelTimesRunnables) {
-				updateMeanTravelTimesRunnable.setTime(time);
-			}
-
-			this.startBarrier.await();
 
-			this.endBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException e) {
-			throw new RuntimeException(e);
+		/*package*/ int getTripCount() {
+			return this.size;
 		}
-	}
-
-	private void initParallelThreads() {
 
-		this.startBarrier = new CyclicBarrier(numOfThreads + 1);
-		this.endBarrier = new CyclicBarrier(numOfThreads + 1);
+		/*
+		 * Adds the traversals from the inbox, removes the ones which left the time window and updates the
+		 * travel time estimate.
+		 */
+		/*package*/ void update(double time) {
+			double addedTravelTimes = 0.0;
+			Traversal traversal = INBOX.getAndSet(this, null);
+			if (traversal != null) {
+				// reverse the inbox, so that the traversals are added in the order they were handled
+				Traversal reversed = null;
+				while (traversal != null) {
+					Traversal next = traversal.next;
+					traversal.next = reversed;
+					reversed = traversal;
+					traversal = next;
+				}
+				for (traversal = reversed; traversal != null; traversal = traversal.next) {
+					append(traversal.leaveTime, traversal.travelTime);
+					addedTravelTimes += traversal.travelTime;
+					checkBinSize(traversal.travelTime);
+				}
+			}
 
-		Thread[] threads = new Thread[numOfThreads];
-		this.updateMeanTravelTimesRunnables = new UpdateMeanTravelTimesRunnable[numOfThreads];
+			// first remove old TravelTimes
+			double removedTravelTimes = 0.0;
+			while (this.size > 0 && this.leaveTimes[this.first] + this.dynamicBinSize < time) {
+				removedTravelTimes += this.tripTimes[this.first];
+				this.first = (this.first + 1) % this.leaveTimes.length;
+				this.size--;
+			}
+			this.expiryTime = this.size > 0 ? this.leaveTimes[this.first] + this.dynamicBinSize : Double.NaN;
 
-		// setup threads
-		for (int i = 0; i < numOfThreads; i++) {
-			UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable = new UpdateMeanTravelTimesRunnable();
-			updateMeanTravelTimesRunnable.setStartBarrier(this.startBarrier);
-			updateMeanTravelTimesRunnable.setEndBarrier(this.endBarrier);
-			updateMeanTravelTimesRunnables[i] = updateMeanTravelTimesRunnable;
-			
-			Thread thread = new Thread(updateMeanTravelTimesRunnable);
-			thread.setName("UpdateMeanTravelTimes" + i);
-			thread.setDaemon(true); // make the Thread demons so they will terminate automatically
-			threads[i] = thread;
-			
-			thread.start();
-		}
+			/*
+			 * We don't need an update if no Trips have been added or removed
+			 * within the current SimStep. The initial FreeSpeedTravelTime has
+			 * to be set correctly via setTravelTime!
+			 */
+			if (removedTravelTimes != 0.0 || addedTravelTimes != 0.0) {
+				this.sumTravelTimes = this.sumTravelTimes - removedTravelTimes + addedTravelTimes;
+
+				/*
+				 * Ensure, that we don't allow TravelTimes shorter than the
+				 * FreeSpeedTravelTime.
+				 */
+				double meanTravelTime = this.freeSpeedTravelTime;
+				if (this.size > 0) meanTravelTime = this.sumTravelTimes / this.size;
+
+				if (meanTravelTime < this.freeSpeedTravelTime) {
+					log.warn("Mean TravelTime to short?");
+					this.travelTime = this.freeSpeedTravelTime;
+				} else this.travelTime = meanTravelTime;
+			}
 
-		/*
-		 * Assign the TravelTimeInfos to the Threads
-		 */
-		int roundRobin = 0;
-		for (TravelTimeInfo travelTimeInfo : this.travelTimeInfos.values()) {
-			travelTimeInfo.runnable = updateMeanTravelTimesRunnables[roundRobin % numOfThreads];
-			roundRobin++;
+			/*
+			 * If no further trips are stored, we ensure that the expected
+			 * travel time is the free speed travel time.
+			 */
+			if (this.size == 0) this.travelTime = this.freeSpeedTravelTime;
 		}
 
-		/*
-		 * After initialization the Threads are waiting at the endBarrier. We
-		 * trigger this Barrier once so they wait at the startBarrier what has
-		 * to be their state when the run() method is called.
-		 */
-		try {
-			this.endBarrier.await();
-		} catch (InterruptedException | BrokenBarrierException e) {
-			throw new RuntimeException(e);
+		private void append(double leaveTime, double tripTime) {
+			if (this.size == this.leaveTimes.length) {
+				double[] leaveTimes = new double[this.size * 2];
+				double[] tripTimes = new double[this.size * 2];
+				for (int i = 0; i < this.size; i++) {
+					leaveTimes[i] = this.leaveTimes[(this.first + i) % this.size];
+					tripTimes[i] = this.tripTimes[(this.first + i) % this.size];
+				}
+				this.leaveTimes = leaveTimes;
+				this.tripTimes = tripTimes;
+				this.first = 0;
+			}
+			int last = (this.first + this.size) % this.leaveTimes.length;
+			this.leaveTimes[last] = leaveTime;
+			this.tripTimes[last] = tripTime;
+			this.size++;
 		}
 	}
 
 	/*
-	 * The thread class that updates the mean travel times.
+	 * ----------------------------------------------------------------
+	 * Methods for parallel Execution
+	 * ----------------------------------------------------------------
 	 */
-	private static class UpdateMeanTravelTimesRunnable implements Runnable {
 
-		private volatile boolean simulationRunning = true;
-		
-		private CyclicBarrier startBarrier = null;
-		private CyclicBarrier endBarrier = null;
-		
-		private double time = Time.UNDEFINED_TIME;
-		private Collection<TravelTimeInfo> activeTravelTimeInfos;
-
-		public UpdateMeanTravelTimesRunnable() {
-			activeTravelTimeInfos = new ArrayList<>();
+	/*
+	 * Collects the links with new traversals or traversals leaving their time window, updates them, if there are
+	 * many of them in parallel, and publishes the new travel times.
+	 */
+	private void run(double time) {
+		int update = ++this.updateCount;
+		List<LinkState> linksToUpdate = new ArrayList<>();
+		LinkState changed;
+		while ((changed = this.changedLinks.poll()) != null) {
+			if (changed.lastUpdate != update) {
+				changed.lastUpdate = update;
+				linksToUpdate.add(changed);
+			}
 		}
-
-		public void setStartBarrier(CyclicBarrier cyclicBarrier) {
-			this.startBarrier = cyclicBarrier;
+		while (!this.expiries.isEmpty() && this.expiries.peek().time < time) {
+			Expiry expiry = this.expiries.poll();
+			LinkState linkState = expiry.linkState;
+			if (expiry.time == linkState.scheduledExpiryTime) {
+				linkState.scheduledExpiryTime = Double.NaN;
+			}
+			// ignore outdated entries, the expiry time changes when the link is updated
+			if (expiry.time == linkState.expiryTime && linkState.lastUpdate != update) {
+				linkState.lastUpdate = update;
+				linksToUpdate.add(linkState);
+			}
 		}
 
-		public void setEndBarrier(CyclicBarrier cyclicBarrier) {
-			this.endBarrier = cyclicBarrier;
+		final LinkState[] links = linksToUpdate.toArray(new LinkState[linksToUpdate.size()]);
+		int[] tripCounts = new int[links.length];
+		for (int i = 0; i < links.length; i++) {
+			tripCounts[i] = links[i].getTripCount();
 		}
+		updateLinks(links, time);
 
-		public void setTime(final double t) {
-			time = t;
+		// bring the other array up to date, then write the new travel times to it and publish it
+		double[] previous = this.travelTimes;
+		double[] next = this.nextTravelTimes;
+		for (LinkState linkState : this.lastUpdatedLinks) {
+			next[linkState.index] = previous[linkState.index];
 		}
-
-		public void addTravelTimeInfo(TravelTimeInfo travelTimeInfo) {
-			this.activeTravelTimeInfos.add(travelTimeInfo);
+		for (int i = 0; i < links.length; i++) {
+			LinkState linkState = links[i];
+			next[linkState.index] = linkState.travelTime;
+			double expiryTime = linkState.expiryTime;
+			if (!Double.isNaN(expiryTime) && expiryTime != linkState.scheduledExpiryTime) {
+				this.expiries.add(new Expiry(expiryTime, linkState));
+				linkState.scheduledExpiryTime = expiryTime;
+			}
+			if (tripCounts[i] == 0 && linkState.getTripCount() > 0) this.activeLinks++;
+			else if (tripCounts[i] > 0 && linkState.getTripCount() == 0) this.activeLinks--;
 		}
+		this.nextTravelTimes = previous;
+		this.lastUpdatedLinks = links;
+		this.travelTimes = next;
+	}
 
-		public int getActiveLinksCount() {
-			return this.activeTravelTimeInfos.size();
+	private void updateLinks(final LinkState[] links, final double time) {
+		int threads = Math.min(this.numOfThreads, links.length / MIN_LINKS_PER_THREAD);
+		if (threads <= 1 || this.executor == null) {
+			for (LinkState linkState : links) {
+				linkState.update(time);
+			}
+			return;
 		}
 
-		public void afterSim() {
-			this.simulationRunning = false;
-		}
-		
-		@Override
-		public void run() {
-
-			while (true) {
-				try {
-					/*
-					 * The End of the Moving is synchronized with the
-					 * endBarrier. If all Threads reach this Barrier the main
-					 * run() Thread can go on.
-					 * 
-					 * The Threads wait now at the startBarrier until they are
-					 * triggered again in the next TimeStep by the main run()
-					 * method.
-					 */
-					endBarrier.await();
-
-					startBarrier.await();
-
-					/*
-					 * Check if Simulation is still running.
-					 * Otherwise print CPU usage and end Thread.
-					 */
-					if (!simulationRunning) {
-						Gbl.printCurrentThreadCpuTime();
-						return;
-					}
-					
-					Iterator<TravelTimeInfo> iter = activeTravelTimeInfos.iterator();
-					while (iter.hasNext()) {
-						TravelTimeInfo travelTimeInfo = iter.next();
-						calcBinTravelTime(this.time, travelTimeInfo);
-
-						/*
-						 * If no further trips are stored in the TravelTimeInfo,
-						 * we deactivate the link and ensure that its expected
-						 * travel time is its free speed travel time.
-						 */
-						if (travelTimeInfo.tripBins.size() == 0) {
-							travelTimeInfo.isActive = false;
-							travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
-							iter.remove();
-						}
+		List<Callable<Void>> tasks = new ArrayList<>(threads);
+		for (int t = 0; t < threads; t++) {
+			final int from = (int) ((long) links.length * t / threads);
+			final int to = (int) ((long) links.length * (t + 1) / threads);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for (int i = from; i < to; i++) {
+						links[i].update(time);
 					}
-
-				} catch (InterruptedException | BrokenBarrierException e) {
-					throw new RuntimeException(e);
+					return null;
 				}
+			});
+		}
+		try {
+			for (Future<Void> future : this.executor.invokeAll(tasks)) {
+				future.get();
 			}
-		} // run()
-
-		private void calcBinTravelTime(double time, TravelTimeInfo travelTimeInfo) {
-			double removedTravelTimes = 0.0;
-
-			List<TripBin> tripBins = travelTimeInfo.tripBins;
-
-			// first remove old TravelTimes
-			Iterator<TripBin> iter = tripBins.iterator();
-			while (iter.hasNext()) {
-				TripBin tripBin = iter.next();
-				if (tripBin.leaveTime + travelTimeInfo.dynamicBinSize < time) {
-					double travelTime = tripBin.leaveTime - tripBin.enterTime;
-					removedTravelTimes += travelTime;
-					iter.remove();
-				} else break;
-			}
-
-			/*
-			 * We don't need an update if no Trips have been added or removed
-			 * within the current SimStep. The initial FreeSpeedTravelTime has
-			 * to be set correctly via setTravelTime!
-			 */
-			if (removedTravelTimes == 0.0 && travelTimeInfo.addedTravelTimes == 0.0) return;
-
-			travelTimeInfo.sumTravelTimes = travelTimeInfo.sumTravelTimes - removedTravelTimes + travelTimeInfo.addedTravelTimes;
-
-			travelTimeInfo.addedTravelTimes = 0.0;
-
-			/*
-			 * Ensure, that we don't allow TravelTimes shorter than the
-			 * FreeSpeedTravelTime.
-			 */
-			double meanTravelTime = travelTimeInfo.freeSpeedTravelTime;
-			if (!tripBins.isEmpty()) meanTravelTime = travelTimeInfo.sumTravelTimes / tripBins.size();
-
-			if (meanTravelTime < travelTimeInfo.freeSpeedTravelTime) {
-				log.warn("Mean TravelTime to short?");
-				travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
-			} else travelTimeInfo.travelTime = meanTravelTime;
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
 		}
+	}
 
-	} // ReplannerRunnable
+	private void initParallelThreads() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+			this.executor = null;
+		}
+		if (this.numOfThreads > 1) {
+			this.executor = Executors.newFixedThreadPool(this.numOfThreads, new ThreadFactory() {
+				private int count = 0;
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable);
+					thread.setName("UpdateMeanTravelTimes" + this.count++);
+					thread.setDaemon(true); // make the Thread demons so they will terminate automatically
+					return thread;
+				}
+			});
+		}
+	}
 
-}
\ No newline at end of file
+}
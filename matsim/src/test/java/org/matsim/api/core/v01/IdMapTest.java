@@ -0,0 +1,113 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		Id<TLink> id1 = Id.create("1", TLink.class);
+		Id<TLink> id2 = Id.create("2", TLink.class);
+		Id<TLink> id3 = Id.create("3", TLink.class);
+		IdMap<TLink, String> map = new IdMap<>(TLink.class, 1);
+
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.put(id1, "one"));
+		Assert.assertNull(map.put(id3, "three"));
+		Assert.assertEquals("one", map.put(id1, "uno"));
+		Assert.assertEquals(2, map.size());
+		Assert.assertEquals("uno", map.get(id1));
+		Assert.assertNull(map.get(id2));
+		Assert.assertTrue(map.containsKey(id3));
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertTrue(map.containsValue("three"));
+
+		Assert.assertEquals("three", map.remove(id3));
+		Assert.assertNull(map.remove(id3));
+		Assert.assertEquals(1, map.size());
+
+		Assert.assertNull(map.put(id2, null));
+		Assert.assertTrue(map.containsKey(id2));
+		Assert.assertNull(map.get(id2));
+		Assert.assertEquals(2, map.size());
+
+		map.clear();
+		Assert.assertTrue(map.isEmpty());
+		Assert.assertNull(map.get(id1));
+	}
+
+	@Test
+	public void testOtherIdTypes() {
+		Id<TLink> linkId = Id.create("7", TLink.class);
+		Id<TNode> nodeId = Id.create("7", TNode.class);
+		Id<TNode> otherNodeId = Id.create("8", TNode.class);
+		IdMap<TLink, String> map = new IdMap<>(TLink.class);
+		map.put(linkId, "seven");
+
+		// ids are equal if their keys are equal, see Id#equals
+		Assert.assertEquals("seven", map.get(nodeId));
+		Assert.assertNull(map.get(otherNodeId));
+		Assert.assertNull(map.get("7"));
+	}
+
+	@Test
+	public void testIteration() {
+		Id<TLink> id1 = Id.create("1", TLink.class);
+		Id<TLink> id2 = Id.create("2", TLink.class);
+		Id<TLink> id3 = Id.create("3", TLink.class);
+		IdMap<TLink, String> map = new IdMap<>(TLink.class);
+		map.put(id3, "three");
+		map.put(id1, "one");
+		map.put(id2, "two");
+
+		// the map is iterated in the order of the index
+		Iterator<Map.Entry<Id<TLink>, String>> iter = map.entrySet().iterator();
+		Map.Entry<Id<TLink>, String> entry = iter.next();
+		Assert.assertSame(id1, entry.getKey());
+		Assert.assertEquals("one", entry.getValue());
+		Assert.assertSame(id2, iter.next().getKey());
+		iter.remove();
+		entry = iter.next();
+		Assert.assertSame(id3, entry.getKey());
+		entry.setValue("drei");
+		Assert.assertFalse(iter.hasNext());
+
+		Assert.assertEquals(2, map.size());
+		Assert.assertFalse(map.containsKey(id2));
+		Assert.assertEquals("drei", map.get(id3));
+		Assert.assertEquals(2, map.keySet().size());
+		Assert.assertTrue(map.values().contains("one"));
+
+		Map<Id<TLink>, String> hashMap = new java.util.HashMap<>(map);
+		Assert.assertEquals(hashMap, map);
+		Assert.assertEquals(map, hashMap);
+		Assert.assertEquals(hashMap.hashCode(), map.hashCode());
+	}
+
+	private static class TLink {}
+	private static class TNode {}
+
+}
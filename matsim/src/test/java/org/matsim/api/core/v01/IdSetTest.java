@@ -0,0 +1,77 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.api.core.v01;
+
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdSetTest {
+
+	@Test
+	public void testAddContainsRemove() {
+		Id<TLink> id1 = Id.create("1", TLink.class);
+		Id<TLink> id2 = Id.create("2", TLink.class);
+		Id<TNode> nodeId1 = Id.create("1", TNode.class);
+		IdSet<TLink> set = new IdSet<>(TLink.class);
+
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertTrue(set.add(id1));
+		Assert.assertFalse(set.add(id1));
+		Assert.assertEquals(1, set.size());
+		Assert.assertTrue(set.contains(id1));
+		Assert.assertTrue(set.contains(nodeId1));
+		Assert.assertFalse(set.contains(id2));
+
+		Assert.assertTrue(set.add(id2));
+		Assert.assertTrue(set.remove(id1));
+		Assert.assertFalse(set.remove(id1));
+		Assert.assertEquals(1, set.size());
+
+		set.clear();
+		Assert.assertTrue(set.isEmpty());
+		Assert.assertFalse(set.contains(id2));
+	}
+
+	@Test
+	public void testIteration() {
+		Id<TLink> id1 = Id.create("1", TLink.class);
+		Id<TLink> id2 = Id.create("2", TLink.class);
+		Id<TLink> id3 = Id.create("3", TLink.class);
+		IdSet<TLink> set = new IdSet<>(TLink.class);
+		set.add(id3);
+		set.add(id1);
+		set.add(id2);
+
+		Iterator<Id<TLink>> iter = set.iterator();
+		Assert.assertSame(id1, iter.next());
+		Assert.assertSame(id2, iter.next());
+		iter.remove();
+		Assert.assertSame(id3, iter.next());
+		Assert.assertFalse(iter.hasNext());
+		Assert.assertEquals(2, set.size());
+		Assert.assertFalse(set.contains(id2));
+	}
+
+	private static class TLink {}
+	private static class TNode {}
+
+}
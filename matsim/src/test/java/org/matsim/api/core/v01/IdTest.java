@@ -67,7 +67,23 @@ public class IdTest {
 //		} // FIXME temporarily deactivated
 	}
 	
+	@Test
+	public void testIndex() {
+		int count = Id.getNumberOfIds(TIndexed.class);
+		Id<TIndexed> id1 = Id.create("1", TIndexed.class);
+		Id<TIndexed> id2 = Id.create("2", TIndexed.class);
+		
+		Assert.assertEquals(count, id1.index());
+		Assert.assertEquals(count + 1, id2.index());
+		Assert.assertEquals(id1.index(), Id.create("1", TIndexed.class).index());
+		Assert.assertEquals(count + 2, Id.getNumberOfIds(TIndexed.class));
+		Assert.assertSame(id1, Id.get(id1.index(), TIndexed.class));
+		Assert.assertSame(id2, Id.get(id2.index(), TIndexed.class));
+		Assert.assertNull(Id.get(count + 2, TIndexed.class));
+	}
+	
 	private static class TLink {}
 	private static class TNode {}
+	private static class TIndexed {}
 	
 }
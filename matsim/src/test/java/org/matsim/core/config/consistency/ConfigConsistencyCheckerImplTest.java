@@ -24,6 +24,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup.RoutingAlgorithmType;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
 import org.matsim.pt.PtConstants;
 import org.matsim.testcases.utils.LogCounter;
@@ -150,5 +151,27 @@ public class ConfigConsistencyCheckerImplTest {
 		
 	}
 
+	@Test
+	public void testCheckConsistency_ContractionHierarchiesWithRoutingRandomness() {
+		Config config = new Config();
+		config.addCoreModules();
+		config.controler().setRoutingAlgorithmType(RoutingAlgorithmType.ContractionHierarchies);
+
+		LogCounter logger = new LogCounter(Level.WARN);
+		try {
+			logger.activiate();
+			new ConfigConsistencyCheckerImpl().checkConsistency(config);
+			int warnCountWithRandomness = logger.getWarnCount();
+			logger.resetCounts();
+			config.plansCalcRoute().setRoutingRandomness(0.);
+			new ConfigConsistencyCheckerImpl().checkConsistency(config);
+			// the default routing randomness is not 0, it is ignored with a warning
+			Assert.assertEquals(warnCountWithRandomness - 1, logger.getWarnCount());
+		} finally {
+			// make sure counter is deactivated at the end
+			logger.deactiviate();
+		}
+	}
+
 
 }
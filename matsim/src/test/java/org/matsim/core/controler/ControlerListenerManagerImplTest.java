@@ -1,10 +1,19 @@
 package org.matsim.core.controler;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.analysis.IterationStopWatch;
+import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.IterationStartsEvent;
 import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.events.StartupEvent;
+import org.matsim.core.controler.listener.AsyncIterationEndsListener;
+import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.controler.listener.IterationStartsListener;
 import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.controler.listener.StartupListener;
@@ -88,6 +97,119 @@ public class ControlerListenerManagerImplTest {
 		Assert.assertEquals(1, ecl.nOfShutdowns);
 	}
 	
+	@Test
+	public void testAsyncIterationEndsListener_finishedInOrder() {
+		ControlerListenerManagerImpl m = new ControlerListenerManagerImpl();
+		IterationStopWatch stopwatch = new IterationStopWatch();
+		m.setStopwatch(stopwatch);
+		SlowAsyncListener listener = new SlowAsyncListener();
+		m.addControlerListener(listener);
+
+		m.fireControlerIterationEndsEvent(0);
+		m.fireControlerIterationEndsEvent(1);
+		m.fireControlerIterationEndsEvent(2);
+		// the work of the previous iteration is always done before the listener is called again
+		Assert.assertEquals(Arrays.asList(0, 1, 2), listener.doneAtNotify);
+
+		m.fireControlerShutdownEvent(false);
+		Assert.assertEquals(Arrays.asList(0, 1, 2), listener.done);
+		Assert.assertEquals(3, listener.doneAtShutdown);
+
+		Assert.assertNotNull(stopwatch.getListenerDuration(2, "SlowAsyncListener"));
+		Assert.assertTrue(stopwatch.getListenerDuration(2, "SlowAsyncListener (async)") >= SlowAsyncListener.SLEEP / 2);
+	}
+
+	@Test
+	public void testAsyncIterationEndsListener_failure() {
+		ControlerListenerManagerImpl m = new ControlerListenerManagerImpl();
+		m.addControlerListener(new AsyncIterationEndsListener() {
+			@Override
+			public Runnable notifyIterationEnds(IterationEndsEvent event) {
+				return new Runnable() {
+					@Override
+					public void run() {
+						throw new IllegalStateException("failing on purpose");
+					}
+				};
+			}
+		});
+
+		m.fireControlerIterationEndsEvent(0);
+		try {
+			m.finishAsyncIterationEndsListeners();
+			Assert.fail("expected exception.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+		m.fireControlerIterationEndsEvent(1);
+		try {
+			m.fireControlerShutdownEvent(false);
+			Assert.fail("expected exception.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	@Test
+	public void testAsyncIterationEndsListener_calledInRegistrationOrder() {
+		ControlerListenerManagerImpl m = new ControlerListenerManagerImpl();
+		final List<String> called = new ArrayList<>();
+		m.addControlerListener(new IterationEndsListener() {
+			@Override
+			public void notifyIterationEnds(IterationEndsEvent event) {
+				called.add("sync 1");
+			}
+		});
+		m.addControlerListener(new AsyncIterationEndsListener() {
+			@Override
+			public Runnable notifyIterationEnds(IterationEndsEvent event) {
+				called.add("async");
+				return null;
+			}
+		});
+		m.addControlerListener(new IterationEndsListener() {
+			@Override
+			public void notifyIterationEnds(IterationEndsEvent event) {
+				called.add("sync 2");
+			}
+		});
+
+		m.fireControlerIterationEndsEvent(0);
+		Assert.assertEquals(Arrays.asList("sync 1", "async", "sync 2"), called);
+	}
+
+	private static class SlowAsyncListener implements AsyncIterationEndsListener, ShutdownListener {
+
+		/*package*/ static final long SLEEP = 100;
+
+		/*package*/ final List<Integer> done = Collections.synchronizedList(new ArrayList<Integer>());
+		/*package*/ final List<Integer> doneAtNotify = new ArrayList<>();
+		/*package*/ int doneAtShutdown = -1;
+
+		@Override
+		public Runnable notifyIterationEnds(final IterationEndsEvent event) {
+			this.doneAtNotify.add(this.done.size());
+			return new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Thread.sleep(SLEEP);
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+					done.add(event.getIteration());
+				}
+			};
+		}
+
+		@Override
+		public void notifyShutdown(ShutdownEvent event) {
+			this.doneAtShutdown = this.done.size();
+		}
+
+	}
+
 	private static class CountingControlerListener implements StartupListener, IterationStartsListener {
 
 		/*package*/ int nOfStartups = 0;
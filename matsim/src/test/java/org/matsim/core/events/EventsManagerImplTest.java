@@ -22,9 +22,16 @@ package org.matsim.core.events;
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventHandlerDispatch;
+import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author mrieser
@@ -63,6 +70,41 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_GeneratedDispatch() {
+		EventsManager manager = new EventsManagerImpl(EventHandlerDispatch.generated);
+		CountingMyEventHandler handler = new CountingMyEventHandler();
+		CountingLinkEnterEventHandler linkHandler = new CountingLinkEnterEventHandler();
+		manager.addHandler(handler);
+		manager.addHandler(linkHandler);
+		manager.processEvent(new MyEvent(123.45));
+		manager.processEvent(new LinkEnterEvent(123.45, Id.create("1", Vehicle.class), Id.create("1", Link.class)));
+		manager.processEvent(new MyEvent(123.45));
+		Assert.assertEquals("EventHandler was not called.", 2, handler.counter);
+		Assert.assertEquals("EventHandler was not called.", 1, linkHandler.counter);
+		Assert.assertEquals("BasicEventHandler was not called for every event.", 3, linkHandler.basicCounter);
+
+		manager.removeHandler(handler);
+		manager.processEvent(new MyEvent(123.45));
+		Assert.assertEquals("removed EventHandler was called.", 2, handler.counter);
+		Assert.assertEquals(4, linkHandler.basicCounter);
+	}
+
+	@Test
+	public void testProcessEvent_GeneratedDispatch_ExceptionInEventHandler() {
+		EventsManager manager = new EventsManagerImpl(EventHandlerDispatch.generated);
+		CrashingMyEventHandler handler = new CrashingMyEventHandler();
+		manager.addHandler(handler);
+		try {
+			manager.processEvent(new MyEvent(123.45));
+			Assert.fail("expected exception, but got none.");
+		} catch (final RuntimeException e) {
+			log.info("Catched expected exception.", e);
+			Assert.assertEquals(1, handler.counter);
+			Assert.assertTrue(e.getCause() instanceof ArithmeticException);
+		}
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -89,6 +131,24 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static class CountingLinkEnterEventHandler implements LinkEnterEventHandler, BasicEventHandler {
+		/*package*/ int counter = 0;
+		/*package*/ int basicCounter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.counter = 0;
+			this.basicCounter = 0;
+		}
+		@Override
+		public void handleEvent(final LinkEnterEvent e) {
+			this.counter++;
+		}
+		@Override
+		public void handleEvent(final Event e) {
+			this.basicCounter++;
+		}
+	}
+
 	/*package*/ static class CrashingMyEventHandler implements MyEventHandler {
 		/*package*/ int counter = 0;
 		@Override
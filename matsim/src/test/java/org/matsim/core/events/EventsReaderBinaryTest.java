@@ -0,0 +1,119 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.core.api.experimental.events.BoardingDeniedEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class EventsReaderBinaryTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteRead_standardAndGenericEvents() {
+		List<Event> events = createEvents();
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		EventWriterBinary writer = new EventWriterBinary(filename);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new MatsimEventsReader(eventsManager).readFile(filename);
+
+		assertSameEvents(events, collector.getEvents());
+	}
+
+	@Test
+	public void testWriteRead_multipleBlocks() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			events.add(new LinkEnterEvent(6 * 3600 + i / 3, Id.createVehicleId(i % 17), Id.createLinkId(i % 5)));
+			if (i % 7 == 0) {
+				events.add(new PersonArrivalEvent(6 * 3600 + i / 3 + 0.5, Id.createPersonId(i), Id.createLinkId(i % 5), "car"));
+			}
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		EventWriterBinary writer = new EventWriterBinary(bytes, 100);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new EventsReaderBinary(eventsManager).readStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+		assertSameEvents(events, collector.getEvents());
+	}
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		events.add(new ActivityEndEvent(21600.0, Id.createPersonId("1"), Id.createLinkId("2"), null, "home"));
+		events.add(new VehicleEntersTrafficEvent(21600.0, Id.createPersonId("1"), Id.createLinkId("2"), Id.createVehicleId("1"), "car", 1.0));
+		events.add(new LinkEnterEvent(21659.0, Id.createVehicleId("1"), Id.createLinkId("3")));
+		events.add(new PersonStuckEvent(21660.25, Id.createPersonId("2"), null, null));
+		events.add(new PersonMoneyEvent(21700.0, Id.createPersonId("1"), -3.75));
+		events.add(new VehicleArrivesAtFacilityEvent(21701.0, Id.createVehicleId("bus"), Id.create("stop", TransitStopFacility.class), -12.0));
+		events.add(new BoardingDeniedEvent(21702.0, Id.createPersonId("3"), Id.createVehicleId("bus")));
+		GenericEvent generic = new GenericEvent("someCustomEvent", 21703.5);
+		generic.getAttributes().put("foo", "<bar & baz>");
+		generic.getAttributes().put("count", "42");
+		events.add(generic);
+		events.add(new LinkEnterEvent(21599.0, Id.createVehicleId("2"), Id.createLinkId("3")));
+		return events;
+	}
+
+	private static void assertSameEvents(List<Event> expected, List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals("wrong class of event " + i, expected.get(i).getClass(), actual.get(i).getClass());
+			Assert.assertEquals("wrong attributes of event " + i, expected.get(i).getAttributes(), actual.get(i).getAttributes());
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class ParallelEventsReaderTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testXml_sameEventsInSameOrder() {
+		String filename = this.utils.getOutputDirectory() + "events.xml";
+		List<Event> events = createEvents();
+		write(new EventWriterXML(filename), events);
+
+		assertSameEvents(events, read(filename));
+	}
+
+	@Test
+	public void testBinary_sameEventsInSameOrder() {
+		String filename = this.utils.getOutputDirectory() + "events.bin";
+		List<Event> events = createEvents();
+		write(new EventWriterBinary(filename), events);
+
+		assertSameEvents(events, read(filename));
+	}
+
+	private static List<Event> read(String filename) {
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		// small chunks, so the file is split into many of them
+		new ParallelEventsReader(eventsManager, 3, 1000).readFile(filename);
+		return collector.getEvents();
+	}
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			events.add(new LinkEnterEvent(i, Id.createVehicleId(i % 13), Id.createLinkId(i % 7)));
+			events.add(new LinkLeaveEvent(i + 0.5, Id.createVehicleId(i % 13), Id.createLinkId(i % 7)));
+			if (i % 100 == 0) {
+				events.add(new ActivityEndEvent(i + 0.5, Id.createPersonId(i), Id.createLinkId(i % 7), null, "home"));
+				GenericEvent generic = new GenericEvent("custom", i + 0.75);
+				generic.getAttributes().put("text", "<\"a\" & 'b'>");
+				events.add(generic);
+			}
+		}
+		return events;
+	}
+
+	private static void write(EventWriter writer, List<Event> events) {
+		for (Event event : events) {
+			((BasicEventHandler) writer).handleEvent(event);
+		}
+		writer.closeFile();
+	}
+
+	private static void assertSameEvents(List<Event> expected, List<Event> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals("wrong class of event " + i, expected.get(i).getClass(), actual.get(i).getClass());
+			Assert.assertEquals("wrong attributes of event " + i, expected.get(i).getAttributes(), actual.get(i).getAttributes());
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * RingBufferEventsManagerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup.EventHandlerDispatch;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class RingBufferEventsManagerTest {
+
+	@Test
+	public void testEventHandlerCanProduceAdditionalEventLateInSimStep() {
+		final RingBufferEventsManager events = new RingBufferEventsManager(8, true);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+				events.processEvent(new PersonStuckEvent(event.getTime(), Id.createPersonId(0), Id.createLinkId(0), "car"));
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		events.initProcessing();
+		events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(0.0);
+		events.processEvent(new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.processEvent(new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)));
+		events.afterSimStep(1.0);
+		events.finishProcessing();
+
+		assertThat(collector.getEvents(),
+			contains(
+					new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(0.0, Id.createPersonId(0), Id.createLinkId(0), "car"),
+					new LinkEnterEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new LinkLeaveEvent(1.0, Id.createVehicleId(0), Id.createLinkId(0)),
+					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
+	}
+
+	@Test
+	public void testEveryHandlerGetsAllEventsInOrder() {
+		// a small buffer, so that the producer has to wait for the consumers
+		RingBufferEventsManager events = new RingBufferEventsManager(3, false, 16, EventHandlerDispatch.reflection);
+		List<EventsCollector> collectors = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			EventsCollector collector = new EventsCollector();
+			collectors.add(collector);
+			events.addHandler(collector);
+		}
+		List<Event> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			expected.add(new LinkEnterEvent(i, Id.createVehicleId(i % 10), Id.createLinkId(i % 7)));
+		}
+
+		events.initProcessing();
+		for (Event event : expected) {
+			events.processEvent(event);
+		}
+		events.finishProcessing();
+
+		for (EventsCollector collector : collectors) {
+			Assert.assertEquals(expected, collector.getEvents());
+		}
+
+		// outside of the mobsim, the events are processed directly
+		Event after = new LinkLeaveEvent(1000, Id.createVehicleId(0), Id.createLinkId(0));
+		events.processEvent(after);
+		Assert.assertEquals(after, collectors.get(0).getEvents().get(1000));
+	}
+
+	@Test
+	public void testExceptionInEventHandler() {
+		RingBufferEventsManager events = new RingBufferEventsManager(2, true);
+		events.addHandler(new LinkEnterEventHandler() {
+			@Override
+			public void handleEvent(LinkEnterEvent event) {
+				throw new IllegalStateException("expected exception");
+			}
+
+			@Override
+			public void reset(int iteration) {}
+		});
+		events.initProcessing();
+		try {
+			events.processEvent(new LinkEnterEvent(0.0, Id.createVehicleId(0), Id.createLinkId(0)));
+			events.afterSimStep(0.0);
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof RuntimeException);
+		}
+		try {
+			events.finishProcessing();
+			Assert.fail("expected exception, but got none.");
+		} catch (RuntimeException e) {
+			// expected, the consumer has crashed
+		}
+	}
+
+}
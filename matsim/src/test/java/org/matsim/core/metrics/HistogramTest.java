@@ -0,0 +1,80 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+	@Test
+	public void testBuckets() {
+		for (long value = 0; value < 64; value++) {
+			Assert.assertEquals("small values must be counted exactly", value, Histogram.getBucket(value));
+			Assert.assertEquals(value, Histogram.getHighestValueOfBucket((int) value));
+		}
+		Assert.assertEquals(Histogram.getBucket(64), Histogram.getBucket(65));
+		Assert.assertEquals(Histogram.getBucket(64) + 1, Histogram.getBucket(66));
+		Assert.assertEquals(65, Histogram.getHighestValueOfBucket(Histogram.getBucket(64)));
+
+		long previousHighest = -1;
+		for (int bucket = 0; bucket <= Histogram.getBucket(Long.MAX_VALUE); bucket++) {
+			long highest = Histogram.getHighestValueOfBucket(bucket);
+			Assert.assertTrue("buckets must be ascending", highest > previousHighest);
+			Assert.assertEquals("bucket " + bucket, bucket, Histogram.getBucket(highest));
+			Assert.assertEquals("bucket " + bucket, bucket, Histogram.getBucket(previousHighest + 1));
+			previousHighest = highest;
+		}
+		Assert.assertEquals(Long.MAX_VALUE, previousHighest);
+	}
+
+	@Test
+	public void testPercentiles() {
+		Histogram histogram = new Histogram();
+		Assert.assertEquals(0, histogram.getValueAtPercentile(0.5));
+		Assert.assertEquals(0, histogram.getMax());
+		Assert.assertEquals(0.0, histogram.getMean(), 0.0);
+
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value * 1000);
+		}
+		Assert.assertEquals(1000, histogram.getCount());
+		Assert.assertEquals(1000, histogram.getMin());
+		Assert.assertEquals(1000000, histogram.getMax());
+		Assert.assertEquals(500500.0, histogram.getMean(), 1e-9);
+		assertWithinPercent(500000, histogram.getValueAtPercentile(0.5), 3.2);
+		assertWithinPercent(900000, histogram.getValueAtPercentile(0.9), 3.2);
+		assertWithinPercent(990000, histogram.getValueAtPercentile(0.99), 3.2);
+		Assert.assertEquals(1000000, histogram.getValueAtPercentile(1.0));
+
+		histogram.record(-5);
+		Assert.assertEquals("negative values are recorded as 0", 0, histogram.getMin());
+
+		histogram.reset();
+		Assert.assertEquals(0, histogram.getCount());
+		Assert.assertEquals(0, histogram.getSum());
+		Assert.assertEquals(0, histogram.getValueAtPercentile(0.99));
+	}
+
+	private static void assertWithinPercent(final long expected, final long actual, final double percent) {
+		Assert.assertTrue("expected " + expected + " but was " + actual, actual >= expected && actual <= expected * (1 + percent / 100));
+	}
+
+}
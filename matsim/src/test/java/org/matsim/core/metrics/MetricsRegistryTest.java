@@ -0,0 +1,111 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.metrics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class MetricsRegistryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteCsvAndJson() throws IOException {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("b.counter").add(3);
+		registry.counter("b.counter").increment();
+		registry.histogram("a.histogram").record(10);
+		registry.histogram("a.histogram").record(20);
+		registry.gauge("c.gauge", () -> 1.5);
+		registry.gauge("d.gauge", () -> Double.NaN);
+
+		String csv = this.utils.getOutputDirectory() + "metrics.csv";
+		registry.writeCsv(csv);
+		List<String> lines = readLines(csv);
+		Assert.assertEquals("metric,type,count,sum,min,mean,p50,p90,p99,max,value", lines.get(0));
+		Assert.assertEquals("b.counter,counter,4,,,,,,,,", lines.get(1));
+		Assert.assertEquals("a.histogram,histogram,2,30,10,15.0,10,20,20,20,", lines.get(2));
+		Assert.assertEquals("c.gauge,gauge,,,,,,,,,1.5", lines.get(3));
+		Assert.assertEquals(5, lines.size());
+
+		String json = this.utils.getOutputDirectory() + "metrics.json";
+		registry.writeJson(json);
+		String content = String.join("\n", readLines(json));
+		Assert.assertTrue(content, content.contains("\"b.counter\": 4"));
+		Assert.assertTrue(content, content.contains("\"a.histogram\": {\"count\": 2, \"sum\": 30, \"min\": 10, \"mean\": 15.0"));
+		Assert.assertTrue(content, content.contains("\"c.gauge\": 1.5"));
+		Assert.assertTrue(content, content.contains("\"d.gauge\": null"));
+
+		registry.reset();
+		Assert.assertEquals(0, registry.counter("b.counter").getCount());
+		Assert.assertEquals(0, registry.histogram("a.histogram").getCount());
+		Assert.assertEquals(1.5, registry.getGauges().get("c.gauge").getValue(), 0.0);
+	}
+
+	@Test
+	public void testControlerWritesMetrics() throws IOException {
+		Config config = this.utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setLastIteration(1);
+		config.controler().setCreateGraphs(false);
+		config.controler().setWriteEventsInterval(0);
+		config.controler().setCollectMetrics(true);
+		config.qsim().setNumberOfThreads(2);
+		new Controler(config).run();
+
+		Assert.assertNull("the registry must only be available while the controler runs", MetricsRegistry.getCurrent());
+		for (int iteration = 0; iteration <= 1; iteration++) {
+			String csv = this.utils.getOutputDirectory() + "ITERS/it." + iteration + "/" + iteration + ".metrics.csv";
+			Assert.assertTrue(new File(this.utils.getOutputDirectory() + "ITERS/it." + iteration + "/" + iteration + ".metrics.json").exists());
+			String content = String.join("\n", readLines(csv));
+			Assert.assertTrue(content, content.contains("\nqsim.simStep,histogram,"));
+			Assert.assertTrue(content, content.contains("\nqsim.engine.QNetsimEngine,histogram,"));
+			Assert.assertTrue(content, content.contains("\nevents.processed,counter,"));
+			Assert.assertTrue(content, content.contains("\nqnetsim.runner.1.wait,histogram,"));
+			Assert.assertTrue(content, content.contains("\ncontroler.mobsim,histogram,1,"));
+			if (iteration == 1) {
+				Assert.assertTrue(content, content.contains("\nreplanning."));
+			}
+		}
+	}
+
+	private static List<String> readLines(final String filename) throws IOException {
+		List<String> lines = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+
+}
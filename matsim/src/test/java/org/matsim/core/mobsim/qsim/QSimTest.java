@@ -47,6 +47,9 @@ import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.NextStepTimeAware;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
 import org.matsim.core.mobsim.qsim.agents.AgentFactory;
 import org.matsim.core.mobsim.qsim.agents.DefaultAgentFactory;
 import org.matsim.core.mobsim.qsim.agents.PersonDriverAgentImpl;
@@ -307,6 +310,77 @@ public class QSimTest {
 		Assert.assertEquals("wrong time in event.", 6.0*3600 + 15, allEvents.get(3).getTime(), MatsimTestCase.EPSILON);
 	}
 
+	/**
+	 * Tests that skipping idle time steps results in the same events, but in fewer time steps.
+	 */
+	@Test
+	public void testSkippingIdleTimeSteps() {
+		List<String> expectedEvents = null;
+		int expectedSteps = 0;
+		for (boolean skipping : new boolean[] { false, true }) {
+			Fixture f = new Fixture(isUsingFastCapacityUpdate);
+			f.scenario.getConfig().qsim().setSkippingIdleTimeSteps(skipping);
+
+			Person person = PopulationUtils.getFactory().createPerson(Id.create(0, Person.class));
+			Plan plan = PersonUtils.createAndAddPlan(person, true);
+			Activity a1 = PopulationUtils.createAndAddActivityFromLinkId(plan, "h", f.link1.getId());
+			a1.setEndTime(6*3600);
+			Leg leg = PopulationUtils.createAndAddLeg( plan, TransportMode.car );
+			NetworkRoute route = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(NetworkRoute.class, f.link1.getId(), f.link3.getId());
+			route.setLinkIds(f.link1.getId(), f.linkIds2, f.link3.getId());
+			leg.setRoute(route);
+			PopulationUtils.createAndAddActivityFromLinkId(plan, "w", f.link3.getId());
+			f.plans.addPerson(person);
+
+			Person person2 = PopulationUtils.getFactory().createPerson(Id.create(1, Person.class));
+			Plan plan2 = PersonUtils.createAndAddPlan(person2, true);
+			Activity a2 = PopulationUtils.createAndAddActivityFromLinkId(plan2, "h", f.link1.getId());
+			a2.setEndTime(9*3600 + 0.5);
+			Leg leg2 = PopulationUtils.createAndAddLeg( plan2, "other" );
+			Route route2 = f.scenario.getPopulation().getFactory().getRouteFactories().createRoute(Route.class, f.link1.getId(), f.link3.getId());
+			route2.setTravelTime(15.0);
+			leg2.setRoute(route2);
+			PopulationUtils.createAndAddActivityFromLinkId(plan2, "w", f.link3.getId());
+			f.plans.addPerson(person2);
+
+			EventsManager events = EventsUtils.createEventsManager();
+			EventsCollector collector = new EventsCollector();
+			events.addHandler(collector);
+
+			QSim sim = createQSim(f, events);
+			StepCounter counter = new StepCounter();
+			sim.addQueueSimulationListeners(counter);
+			sim.run();
+
+			List<String> allEvents = new ArrayList<>();
+			for (Event event : collector.getEvents()) {
+				allEvents.add(event.toString());
+			}
+			if (skipping) {
+				Assert.assertEquals(expectedEvents, allEvents);
+				Assert.assertTrue("no time steps were skipped.", counter.steps < expectedSteps / 100);
+			} else {
+				Assert.assertEquals("wrong number of events.", 17, allEvents.size());
+				expectedEvents = allEvents;
+				expectedSteps = counter.steps;
+			}
+		}
+	}
+
+	private static class StepCounter implements MobsimAfterSimStepListener, NextStepTimeAware {
+		int steps = 0;
+
+		@Override
+		public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
+			this.steps++;
+		}
+
+		@Override
+		public double getNextStepTime() {
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+
 	/**
 	 * This test is mostly useful for manual debugging, because only a single agent is simulated
 	 * on a very simple network.
@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+
+public class WakeUpCalendarTest {
+
+	@Test
+	public void testOrderWithinTimeStep() {
+		WakeUpCalendar calendar = new WakeUpCalendar();
+		MobsimAgent a1 = createAgent("1");
+		MobsimAgent a2 = createAgent("2");
+		MobsimAgent a3 = createAgent("3");
+		MobsimAgent a4 = createAgent("4");
+		calendar.add(a1, 100.0);
+		calendar.add(a2, 100.0);
+		calendar.add(a3, 100.5);
+		calendar.add(a4, 99.0);
+
+		Assert.assertEquals(99.0, calendar.getNextTime(), 0.0);
+		Assert.assertSame(a4, calendar.poll(100.0).getAgent());
+		Assert.assertSame("larger id first", a2, calendar.poll(100.0).getAgent());
+		Assert.assertSame(a1, calendar.poll(100.0).getAgent());
+		Assert.assertNull(calendar.poll(100.0));
+		Assert.assertEquals(100.5, calendar.getNextTime(), 0.0);
+		Assert.assertSame(a3, calendar.poll(101.0).getAgent());
+		Assert.assertNull(calendar.poll(101.0));
+		Assert.assertTrue(calendar.isEmpty());
+		Assert.assertEquals(Double.POSITIVE_INFINITY, calendar.getNextTime(), 0.0);
+	}
+
+	@Test
+	public void testRemoveAndReschedule() {
+		WakeUpCalendar calendar = new WakeUpCalendar();
+		MobsimAgent a1 = createAgent("1");
+		MobsimAgent a2 = createAgent("2");
+		MobsimAgent a3 = createAgent("3");
+		calendar.add(a1, 10.0);
+		calendar.add(a2, 20.0);
+		calendar.add(a3, 30.0);
+
+		Assert.assertEquals(20.0, calendar.remove(a2).getTime(), 0.0);
+		Assert.assertNull(calendar.remove(a2));
+		Assert.assertFalse(calendar.contains(a2));
+		Assert.assertNull("same id, but another agent", calendar.remove(createAgent("1")));
+
+		calendar.reschedule(a3, 5.0);
+		calendar.reschedule(a2, 7.0 * 24 * 3600); // far beyond the wheel
+		Assert.assertEquals(3, calendar.size());
+
+		Assert.assertSame(a3, calendar.poll(10.0).getAgent());
+		Assert.assertSame(a1, calendar.poll(10.0).getAgent());
+		Assert.assertNull(calendar.poll(10.0));
+		Assert.assertEquals(7.0 * 24 * 3600, calendar.getNextTime(), 0.0);
+		Assert.assertSame(a2, calendar.poll(8.0 * 24 * 3600).getAgent());
+		Assert.assertTrue(calendar.isEmpty());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddTwice() {
+		WakeUpCalendar calendar = new WakeUpCalendar();
+		MobsimAgent agent = createAgent("1");
+		calendar.add(agent, 10.0);
+		calendar.add(agent, 20.0);
+	}
+
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Random random = new Random(4711);
+		List<MobsimAgent> agents = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			agents.add(createAgent(Integer.toString(i)));
+		}
+		WakeUpCalendar calendar = new WakeUpCalendar();
+		PriorityQueue<WakeUpCalendar.Entry> expected = new PriorityQueue<>(16, WakeUpCalendar.ORDER);
+
+		double now = 3600.0;
+		for (int step = 0; step < 5000; step++) {
+			// add, reschedule or remove a few agents; some before now, some far beyond the wheel
+			for (int i = 0; i < 5; i++) {
+				MobsimAgent agent = agents.get(random.nextInt(agents.size()));
+				double time;
+				switch (random.nextInt(5)) {
+				case 0: time = now - random.nextInt(100); break;
+				case 1: time = now + random.nextInt(3 * WakeUpCalendar.WHEEL_SIZE); break;
+				case 2: time = Double.POSITIVE_INFINITY; break;
+				default: time = now + random.nextInt(200) + (random.nextBoolean() ? 0.5 : 0.0);
+				}
+				removeAgent(expected, agent);
+				if (random.nextInt(4) == 0) {
+					calendar.remove(agent);
+				} else {
+					expected.add(calendar.reschedule(agent, time));
+				}
+			}
+			Assert.assertEquals(expected.size(), calendar.size());
+			double nextTime = expected.isEmpty() ? Double.POSITIVE_INFINITY : expected.peek().getTime();
+			Assert.assertEquals(nextTime, calendar.getNextTime(), 0.0);
+
+			WakeUpCalendar.Entry entry;
+			while ((entry = calendar.poll(now)) != null) {
+				Assert.assertSame(expected.poll(), entry);
+			}
+			Assert.assertTrue(expected.isEmpty() || expected.peek().getTime() > now);
+			now += random.nextInt(10) == 0 ? random.nextInt(2 * WakeUpCalendar.WHEEL_SIZE) : 1.0;
+		}
+	}
+
+	private static void removeAgent(PriorityQueue<WakeUpCalendar.Entry> queue, MobsimAgent agent) {
+		for (WakeUpCalendar.Entry entry : queue) {
+			if (entry.getAgent() == agent) {
+				queue.remove(entry);
+				return;
+			}
+		}
+	}
+
+	private static MobsimAgent createAgent(String id) {
+		final Id<Person> personId = Id.create(id, Person.class);
+		return (MobsimAgent) Proxy.newProxyInstance(WakeUpCalendarTest.class.getClassLoader(), new Class<?>[] { MobsimAgent.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getId")) {
+					return personId;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+}
@@ -0,0 +1,184 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.network.NetworkUtils;
+
+public class QNetworkPartitionerTest {
+
+	private static final int GRID_SIZE = 30;
+	private static final int NUMBER_OF_PARTS = 6;
+
+	@Test
+	public void testRoundRobin() {
+		Network network = createGridNetwork();
+		Map<Id<Node>, Integer> partition = new RoundRobinQNetworkPartitioner().partition(network, NUMBER_OF_PARTS);
+		assertCompleteAndBalanced(network, partition, 1.05);
+	}
+
+	@Test
+	public void testCoordinateBisection() {
+		Network network = createGridNetwork();
+		Map<Id<Node>, Integer> partition = new CoordinateBisectionQNetworkPartitioner().partition(network, NUMBER_OF_PARTS);
+		assertCompleteAndBalanced(network, partition, 1.05);
+		assertSmallCut(network, partition);
+	}
+
+	@Test
+	public void testMultilevelBisection() {
+		Network network = createGridNetwork();
+		Map<Id<Node>, Integer> partition = new MultilevelBisectionQNetworkPartitioner().partition(network, NUMBER_OF_PARTS);
+		assertCompleteAndBalanced(network, partition, 1.05);
+		assertSmallCut(network, partition);
+	}
+
+	@Test
+	public void testMultilevelBisection_moreRunnersThanNodes() {
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(100, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), n1, n2, 100, 10, 1000, 1);
+		Map<Id<Node>, Integer> partition = new MultilevelBisectionQNetworkPartitioner().partition(network, 4);
+		Assert.assertEquals(2, partition.size());
+		Assert.assertNotEquals(partition.get(n1.getId()), partition.get(n2.getId()));
+	}
+
+	@Test
+	public void testMultilevelBisection_shareRoundsToZero() {
+		// two nodes without links, split into 1 and 2 parts: the weight share of the first part rounds to zero
+		Network network = NetworkUtils.createNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(100, 0));
+		Map<Id<Node>, Integer> partition = new MultilevelBisectionQNetworkPartitioner().partition(network, 3);
+		Assert.assertEquals(2, partition.size());
+		Assert.assertNotEquals(partition.get(n1.getId()), partition.get(n2.getId()));
+	}
+
+	@Test
+	public void testMultilevelBisection_doesNotUseGlobalRandom() {
+		Network network = createGridNetwork();
+		MatsimRandom.reset();
+		double expected = MatsimRandom.getRandom().nextDouble();
+		MatsimRandom.reset();
+		new MultilevelBisectionQNetworkPartitioner().partition(network, NUMBER_OF_PARTS);
+		Assert.assertEquals(expected, MatsimRandom.getRandom().nextDouble(), 0.0);
+	}
+
+	@Test
+	public void testActivityWeighted_rebalancesTowardsObservedActivity() {
+		Network network = createGridNetwork();
+		ActivityWeightedQNetworkPartitioner partitioner = new ActivityWeightedQNetworkPartitioner();
+		partitioner.partition(network, NUMBER_OF_PARTS);
+
+		// all the traffic is in the left half of the network:
+		Map<Id<Node>, Long> activity = new HashMap<>();
+		for (Node node : network.getNodes().values()) {
+			activity.put(node.getId(), node.getCoord().getX() < GRID_SIZE * 50 ? 100L : 0L);
+		}
+		List<RunnerLoad> loads = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_PARTS; i++) {
+			loads.add(new RunnerLoad(i, 0, 0, 0, 0, -1));
+		}
+		partitioner.handleObservedLoad(loads, activity);
+		Map<Id<Node>, Integer> partition = partitioner.partition(network, NUMBER_OF_PARTS);
+
+		long[] activityPerPart = new long[NUMBER_OF_PARTS];
+		long total = 0;
+		for (Node node : network.getNodes().values()) {
+			activityPerPart[partition.get(node.getId())] += activity.get(node.getId());
+			total += activity.get(node.getId());
+		}
+		for (long a : activityPerPart) {
+			Assert.assertTrue("activity of a runner is too far from the mean: " + a, a < 1.1 * total / NUMBER_OF_PARTS);
+		}
+	}
+
+	private static Network createGridNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x + 1][y], 100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x + 1][y], nodes[x][y], 100, 10, 1000, 1);
+				}
+				if (y + 1 < GRID_SIZE) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x][y + 1], 100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y + 1], nodes[x][y], 100, 10, 1000, 1);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void assertCompleteAndBalanced(Network network, Map<Id<Node>, Integer> partition, double maxImbalance) {
+		long[] weights = new long[NUMBER_OF_PARTS];
+		long total = 0;
+		for (Node node : network.getNodes().values()) {
+			Integer part = partition.get(node.getId());
+			Assert.assertNotNull(part);
+			Assert.assertTrue(part >= 0 && part < NUMBER_OF_PARTS);
+			weights[part] += 1 + node.getOutLinks().size();
+			total += 1 + node.getOutLinks().size();
+		}
+		for (long w : weights) {
+			Assert.assertTrue("unbalanced partition: " + w, w <= maxImbalance * total / NUMBER_OF_PARTS);
+		}
+	}
+
+	/**
+	 * A partition of the grid into compact blocks cuts about 200 of its 3480 links.  (Round robin is no reference, as its
+	 * cut depends on the iteration order of the nodes.)
+	 */
+	private static void assertSmallCut(Network network, Map<Id<Node>, Integer> partition) {
+		int cut = countCutLinks(network, partition);
+		Assert.assertTrue("too many links between runners: " + cut, cut < network.getLinks().size() / 12);
+	}
+
+	private static int countCutLinks(Network network, Map<Id<Node>, Integer> partition) {
+		int cut = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!partition.get(link.getFromNode().getId()).equals(partition.get(link.getToNode().getId()))) {
+				cut++;
+			}
+		}
+		return cut;
+	}
+
+}
@@ -0,0 +1,107 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.RunnerSynchronization;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+/**
+ * Compares the events of the {@link RunnerSynchronization#localClocks} runners with the ones of the
+ * default {@link RunnerSynchronization#globalBarriers} runners.
+ */
+public class RunnerSynchronizationTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSingleRunner_identicalEvents() {
+		List<Event> reference = runQSim(RunnerSynchronization.globalBarriers, 1);
+		List<Event> events = runQSim(RunnerSynchronization.localClocks, 1);
+
+		Assert.assertEquals(reference.size(), events.size());
+		for (int i = 0; i < reference.size(); i++) {
+			Assert.assertEquals("different event at position " + i, reference.get(i).toString(), events.get(i).toString());
+		}
+	}
+
+	@Test
+	public void testMultipleRunners_identicalEventsPerTimeStep() {
+		// with several runners, the order of the events within a time step depends on the thread scheduling in both modes
+		Map<Double, List<String>> reference = sortPerTimeStep(runQSim(RunnerSynchronization.globalBarriers, 4));
+		Map<Double, List<String>> events = sortPerTimeStep(runQSim(RunnerSynchronization.localClocks, 4));
+
+		Assert.assertFalse(reference.isEmpty());
+		Assert.assertEquals(reference, events);
+	}
+
+	private List<Event> runQSim(RunnerSynchronization runnerSynchronization, int numberOfThreads) {
+		Config config = utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans2000.xml.gz");
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setRunnerSynchronization(runnerSynchronization);
+		config.qsim().setFlowCapFactor(0.2);
+		config.qsim().setStorageCapFactor(0.2);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		QSimUtils.createDefaultQSim(scenario, eventsManager).run();
+		return collector.getEvents();
+	}
+
+	private static Map<Double, List<String>> sortPerTimeStep(List<Event> events) {
+		Map<Double, List<String>> perTimeStep = new TreeMap<>();
+		for (Event event : events) {
+			List<String> list = perTimeStep.get(event.getTime());
+			if (list == null) {
+				list = new ArrayList<>();
+				perTimeStep.put(event.getTime(), list);
+			}
+			list.add(event.toString());
+		}
+		for (List<String> list : perTimeStep.values()) {
+			Collections.sort(list);
+		}
+		return perTimeStep;
+	}
+
+}
@@ -0,0 +1,222 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlansConfigGroup.PlansStorage;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class CompactPopulationTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testReadPlans_sameAsObjects() {
+		Population reference = readEquilPopulation(PlansStorage.objects);
+		Population population = readEquilPopulation(PlansStorage.compact);
+
+		Assert.assertTrue(population instanceof CompactPopulationImpl);
+		Assert.assertEquals(reference.getPersons().size(), population.getPersons().size());
+		for (Person referencePerson : reference.getPersons().values()) {
+			Person person = population.getPersons().get(referencePerson.getId());
+			Assert.assertEquals(referencePerson.getPlans().size(), person.getPlans().size());
+			Assert.assertEquals(referencePerson.getPlans().indexOf(referencePerson.getSelectedPlan()), person.getPlans().indexOf(person.getSelectedPlan()));
+			for (int i = 0; i < person.getPlans().size(); i++) {
+				Assert.assertTrue(person.getPlans().get(i) instanceof CompactPlan);
+				Assert.assertSame(person, person.getPlans().get(i).getPerson());
+				assertSamePlan(referencePerson.getPlans().get(i), person.getPlans().get(i));
+			}
+		}
+	}
+
+	@Test
+	public void testModifyPlan_valuesKeptWhenCompacted() {
+		Population population = readEquilPopulation(PlansStorage.compact);
+		Person person = population.getPersons().get(Id.createPersonId(1));
+		Plan plan = person.getSelectedPlan();
+
+		Activity home = (Activity) plan.getPlanElements().get(0);
+		home.setEndTime(7 * 3600 + 30);
+		home.setType("sleep");
+		home.setCoord(new Coord(1.5, -2.5));
+		Leg leg = (Leg) plan.getPlanElements().get(1);
+		leg.setMode("bike");
+		NetworkRoute route = (NetworkRoute) leg.getRoute();
+		route.setLinkIds(route.getStartLinkId(), Arrays.asList(Id.createLinkId(6), Id.createLinkId(15)), route.getEndLinkId());
+		route.setDistance(1234.5);
+		plan.getPlanElements().remove(plan.getPlanElements().size() - 1);
+		plan.getPlanElements().remove(plan.getPlanElements().size() - 1);
+		String expected = plan.getPlanElements().toString();
+
+		PopulationUtils.compactPlans(population);
+
+		Assert.assertSame(plan, person.getSelectedPlan());
+		Assert.assertEquals(expected, plan.getPlanElements().toString());
+		home = (Activity) plan.getPlanElements().get(0);
+		Assert.assertEquals("sleep", home.getType());
+		Assert.assertEquals(7 * 3600 + 30, home.getEndTime(), 0.0);
+		Assert.assertEquals(new Coord(1.5, -2.5), home.getCoord());
+		route = (NetworkRoute) ((Leg) plan.getPlanElements().get(1)).getRoute();
+		Assert.assertEquals(Arrays.asList(Id.createLinkId(6), Id.createLinkId(15)), route.getLinkIds());
+		Assert.assertEquals(1234.5, route.getDistance(), 0.0);
+	}
+
+	@Test
+	public void testNewPlans_packedWhenCompacted() {
+		Population population = readEquilPopulation(PlansStorage.compact);
+		PopulationFactory factory = population.getFactory();
+		Person person = population.getPersons().get(Id.createPersonId(1));
+
+		Plan copy = factory.createPlan();
+		PopulationUtils.copyFromTo(person.getSelectedPlan(), copy);
+		Leg walk = factory.createLeg("walk");
+		Route route = RouteUtils.createGenericRouteImpl(Id.createLinkId(1), Id.createLinkId(20));
+		route.setRouteDescription("by foot");
+		route.setTravelTime(600);
+		walk.setRoute(route);
+		copy.getPlanElements().set(1, walk);
+		person.addPlan(copy);
+		person.setSelectedPlan(copy);
+		String expected = copy.getPlanElements().toString();
+
+		Plan withAttributes = factory.createPlan();
+		Activity activity = factory.createActivityFromLinkId("home", Id.createLinkId(1));
+		activity.getAttributes().putAttribute("visited", true);
+		withAttributes.addActivity(activity);
+		person.addPlan(withAttributes);
+
+		PopulationUtils.compactPlans(population);
+
+		Plan packed = person.getSelectedPlan();
+		Assert.assertTrue(packed instanceof CompactPlan);
+		Assert.assertTrue(person.getPlans().contains(packed));
+		Assert.assertEquals(expected, packed.getPlanElements().toString());
+		Assert.assertEquals("by foot", ((Leg) packed.getPlanElements().get(1)).getRoute().getRouteDescription());
+		Assert.assertSame("plan with attributes must not be packed", withAttributes, person.getPlans().get(person.getPlans().size() - 1));
+	}
+
+	@Test
+	public void testCompact_storeRebuiltWhenMostlyGarbage() {
+		Population reference = readEquilPopulation(PlansStorage.objects);
+		Population population = readEquilPopulation(PlansStorage.compact);
+		for (int i = 0; i < 3; i++) {
+			for (Person person : population.getPersons().values()) {
+				for (Plan plan : person.getPlans()) {
+					// setting the routes leads to packing the plans again
+					for (PlanElement pe : plan.getPlanElements()) {
+						if (pe instanceof Leg) {
+							((Leg) pe).setRoute(((Leg) pe).getRoute());
+						}
+					}
+				}
+			}
+			PopulationUtils.compactPlans(population);
+		}
+		for (Person referencePerson : reference.getPersons().values()) {
+			Person person = population.getPersons().get(referencePerson.getId());
+			assertSamePlan(referencePerson.getSelectedPlan(), person.getSelectedPlan());
+		}
+	}
+
+	@Test
+	public void testCompact_readPlansNotPackedAgain() {
+		Population reference = readEquilPopulation(PlansStorage.objects);
+		CompactPopulationImpl population = (CompactPopulationImpl) readEquilPopulation(PlansStorage.compact);
+		long usedInts = population.getUsedInts();
+		for (Person person : population.getPersons().values()) {
+			for (Plan plan : person.getPlans()) {
+				for (PlanElement pe : plan.getPlanElements()) {
+					pe.toString();
+					if (pe instanceof Leg) {
+						((Leg) pe).getRoute();
+					}
+				}
+			}
+		}
+		Person person = population.getPersons().get(Id.createPersonId(1));
+		Leg leg = (Leg) person.getSelectedPlan().getPlanElements().get(1);
+		leg.setDepartureTime(leg.getDepartureTime() + 60);
+
+		PopulationUtils.compactPlans(population);
+		Assert.assertEquals("plans which were only read or written through must not be packed again", usedInts, population.getUsedInts());
+		Assert.assertEquals(((Leg) reference.getPersons().get(person.getId()).getSelectedPlan().getPlanElements().get(1)).getDepartureTime() + 60,
+				((Leg) person.getSelectedPlan().getPlanElements().get(1)).getDepartureTime(), 0.0);
+
+		NetworkRoute route = (NetworkRoute) ((Leg) person.getSelectedPlan().getPlanElements().get(1)).getRoute();
+		route.setVehicleId(Id.createVehicleId("car1"));
+		PopulationUtils.compactPlans(population);
+		Assert.assertTrue("a changed route must be packed again", population.getUsedInts() > usedInts);
+		route = (NetworkRoute) ((Leg) person.getSelectedPlan().getPlanElements().get(1)).getRoute();
+		Assert.assertEquals(Id.createVehicleId("car1"), route.getVehicleId());
+	}
+
+	private static void assertSamePlan(Plan expected, Plan actual) {
+		Assert.assertEquals(expected.getScore(), actual.getScore());
+		Assert.assertEquals(expected.getType(), actual.getType());
+		Assert.assertEquals(expected.getPlanElements().size(), actual.getPlanElements().size());
+		for (int i = 0; i < expected.getPlanElements().size(); i++) {
+			PlanElement e = expected.getPlanElements().get(i);
+			PlanElement a = actual.getPlanElements().get(i);
+			Assert.assertEquals(e.toString(), a.toString());
+			if (e instanceof Leg && ((Leg) e).getRoute() instanceof NetworkRoute) {
+				List<Id<Link>> linkIds = new ArrayList<>(((NetworkRoute) ((Leg) e).getRoute()).getLinkIds());
+				Assert.assertEquals(linkIds, ((NetworkRoute) ((Leg) a).getRoute()).getLinkIds());
+			}
+		}
+	}
+
+	private Population readEquilPopulation(PlansStorage plansStorage) {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setPlansStorage(plansStorage);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).parse(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "network.xml"));
+		new PopulationReader(scenario).parse(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "plans100.xml"));
+		return scenario.getPopulation();
+	}
+
+}
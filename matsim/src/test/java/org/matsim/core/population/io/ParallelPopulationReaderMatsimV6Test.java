@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.population.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.algorithms.PersonAlgorithm;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelPopulationReaderMatsimV6Test {
+
+	@Rule
+	public final MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameResultAsSequentialReader() {
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		new PopulationWriter(createPopulation(3000)).writeV6(file);
+
+		Population sequential = readPopulation(file, 1);
+		Population parallel = readPopulation(file, 4);
+
+		Assert.assertEquals(3000, parallel.getPersons().size());
+		Assert.assertEquals(new ArrayList<>(sequential.getPersons().keySet()), new ArrayList<>(parallel.getPersons().keySet()));
+		Assert.assertEquals("parallel", parallel.getAttributes().getAttribute("reader"));
+
+		String sequentialFile = this.utils.getOutputDirectory() + "sequential.xml";
+		String parallelFile = this.utils.getOutputDirectory() + "parallel.xml";
+		new PopulationWriter(sequential).writeV6(sequentialFile);
+		new PopulationWriter(parallel).writeV6(parallelFile);
+		Assert.assertEquals(readLines(sequentialFile), readLines(parallelFile));
+	}
+
+	@Test
+	public void testStreaming() {
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		new PopulationWriter(createPopulation(2000)).writeV6(file);
+
+		List<Id<Person>> sequential = streamPopulation(file, 1);
+		List<Id<Person>> parallel = streamPopulation(file, 4);
+
+		Assert.assertEquals(2000, parallel.size());
+		Assert.assertEquals(sequential, parallel);
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testErrorInPerson() throws Throwable {
+		String file = this.utils.getOutputDirectory() + "population.xml";
+		new PopulationWriter(createPopulation(1000)).writeV6(file);
+		List<String> lines = readLines(file);
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(file)) {
+			boolean replaced = false;
+			for (String line : lines) {
+				if (!replaced && line.contains("score=\"500.0\"")) {
+					line = line.replace("score=\"500.0\"", "score=\"five hundred\"");
+					replaced = true;
+				}
+				writer.write(line);
+				writer.newLine();
+			}
+		}
+		try {
+			readPopulation(file, 4);
+		} catch (RuntimeException e) {
+			// the exception from the worker thread is passed on as cause
+			Throwable cause = e;
+			while (cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			throw cause;
+		}
+	}
+
+	private static Population createPopulation(int numberOfPersons) {
+		Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig());
+		population.getAttributes().putAttribute("reader", "parallel");
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = pf.createPerson(Id.createPersonId(Integer.toString(numberOfPersons - i)));
+			person.getAttributes().putAttribute("index", i);
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromCoord("home", new Coord(i, 0));
+			home.setLinkId(Id.createLinkId("1"));
+			home.setEndTime(6 * 3600 + i);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			leg.setRoute(RouteUtils.createLinkNetworkRouteImpl(Id.createLinkId("1"), Collections.singletonList(Id.createLinkId("2")), Id.createLinkId("3")));
+			leg.getRoute().setTravelTime(60);
+			leg.getAttributes().putAttribute("leg", i % 3);
+			plan.addLeg(leg);
+			Activity work = pf.createActivityFromCoord("work", new Coord(0, i));
+			work.setLinkId(Id.createLinkId("3"));
+			plan.addActivity(work);
+			plan.setScore((double) i);
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+		return population;
+	}
+
+	private static Population readPopulation(String file, int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setNumberOfReaderThreads(numberOfThreads);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new PopulationReader(scenario).readFile(file);
+		return scenario.getPopulation();
+	}
+
+	private static List<Id<Person>> streamPopulation(String file, int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.plans().setNumberOfReaderThreads(numberOfThreads);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		StreamingPopulationReader reader = new StreamingPopulationReader(scenario);
+		final List<Id<Person>> streamed = new ArrayList<>();
+		reader.addAlgorithm(new PersonAlgorithm() {
+			@Override
+			public void run(Person person) {
+				Assert.assertEquals(3, person.getSelectedPlan().getPlanElements().size());
+				streamed.add(person.getId());
+			}
+		});
+		reader.readFile(file);
+		Assert.assertTrue(scenario.getPopulation().getPersons().isEmpty());
+		return streamed;
+	}
+
+	private static List<String> readLines(String file) {
+		List<String> lines = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(file)) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				lines.add(line);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return lines;
+	}
+
+}
@@ -0,0 +1,171 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.replanning.PlanStrategyModule;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.ControlerConfigGroup.MobsimType;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.StrategyConfigGroup.StrategySettings;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
+import org.matsim.core.replanning.modules.ReRoute;
+import org.matsim.core.replanning.selectors.RandomPlanSelector;
+import org.matsim.core.router.TripRouter;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.misc.CRCChecksum;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.facilities.ActivityFacilities;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class PipelinedReplanningTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final AtomicBoolean mobsimInitialized = new AtomicBoolean();
+	private static final AtomicBoolean finishedWhileMobsimRunning = new AtomicBoolean();
+
+	@Test
+	public void testSameResultsAsWithoutPipelining() {
+		final int lastIteration = 4;
+		run("normal", false, lastIteration);
+		Assert.assertFalse(finishedWhileMobsimRunning.get());
+		run("pipelined", true, lastIteration);
+		Assert.assertTrue("the strategies were never finished while the mobsim was running.", finishedWhileMobsimRunning.get());
+
+		for (int i = 0; i <= lastIteration; i++) {
+			Assert.assertEquals("different events in iteration " + i,
+					CRCChecksum.getCRCFromFile(utils.getOutputDirectory() + "normal/ITERS/it." + i + "/" + i + ".events.xml.gz"),
+					CRCChecksum.getCRCFromFile(utils.getOutputDirectory() + "pipelined/ITERS/it." + i + "/" + i + ".events.xml.gz"));
+		}
+		Assert.assertEquals("different final plans",
+				CRCChecksum.getCRCFromFile(utils.getOutputDirectory() + "normal/output_plans.xml.gz"),
+				CRCChecksum.getCRCFromFile(utils.getOutputDirectory() + "pipelined/output_plans.xml.gz"));
+	}
+
+	private void run(String name, boolean pipelined, int lastIteration) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setOutputDirectory(utils.getOutputDirectory() + name);
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setLastIteration(lastIteration);
+		config.controler().setWriteEventsInterval(1);
+		config.controler().setMobsim(MobsimType.qsim.toString());
+		config.controler().setCreateGraphs(false);
+		config.travelTimeCalculator().setTravelTimeCalculatorType(TravelTimeCalculatorType.TravelTimeCalculatorConcurrent.toString());
+		config.timeAllocationMutator().setMutationRange(600.0);
+		config.plans().setSubpopulationAttributeName("subpopulation");
+		config.strategy().clearStrategySettings();
+		addStrategy(config, "BestScore", null, 1.0);
+		addStrategy(config, "BestScore", "late", 0.5);
+		addStrategy(config, "SlowReRoute", "late", 0.5);
+		config.strategy().setPipelinedReplanning(pipelined);
+
+		// every other agent leaves home late, and only these agents are rerouted:
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		int i = 0;
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			if (i % 2 == 1) {
+				scenario.getPopulation().getPersonAttributes().putAttribute(person.getId().toString(), "subpopulation", "late");
+				((Activity) person.getSelectedPlan().getPlanElements().get(0)).setEndTime(9 * 3600 + i * 60);
+			}
+			i++;
+		}
+
+		finishedWhileMobsimRunning.set(false);
+		Controler controler = new Controler(scenario);
+		controler.addOverridingModule(new AbstractModule() {
+			@Override
+			public void install() {
+				addPlanStrategyBinding("SlowReRoute").toProvider(SlowReRoute.class);
+				addMobsimListenerBinding().toInstance(new MobsimInitializedListener() {
+					@Override
+					public void notifyMobsimInitialized(MobsimInitializedEvent e) {
+						mobsimInitialized.set(true);
+					}
+				});
+			}
+		});
+		controler.run();
+	}
+
+	private static void addStrategy(Config config, String name, String subpopulation, double weight) {
+		StrategySettings settings = new StrategySettings();
+		settings.setStrategyName(name);
+		settings.setSubpopulation(subpopulation);
+		settings.setWeight(weight);
+		config.strategy().addStrategySettings(settings);
+	}
+
+	private static class SlowReRoute implements Provider<PlanStrategy> {
+
+		@Inject private ActivityFacilities facilities;
+		@Inject private Provider<TripRouter> tripRouterProvider;
+		@Inject private GlobalConfigGroup globalConfigGroup;
+
+		@Override
+		public PlanStrategy get() {
+			return new PlanStrategyImpl.Builder(new RandomPlanSelector<Plan, Person>())
+					.addStrategyModule(new ReRoute(facilities, tripRouterProvider, globalConfigGroup))
+					.addStrategyModule(new PlanStrategyModule() {
+						@Override
+						public void prepareReplanning(ReplanningContext replanningContext) {
+							mobsimInitialized.set(false);
+						}
+
+						@Override
+						public void handlePlan(Plan plan) {
+						}
+
+						@Override
+						public void finishReplanning() {
+							try {
+								Thread.sleep(500);
+							} catch (InterruptedException e) {
+								throw new RuntimeException(e);
+							}
+							if (mobsimInitialized.get()) {
+								finishedWhileMobsimRunning.set(true);
+							}
+						}
+					})
+					.build();
+		}
+	}
+
+}
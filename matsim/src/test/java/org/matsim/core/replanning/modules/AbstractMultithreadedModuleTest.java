@@ -20,12 +20,18 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningScheduling;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +66,54 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testCrashingThread_WorkStealing() {
+		try {
+			DummyCrashingModule testee = new DummyCrashingModule(2, ReplanningScheduling.workStealing);
+			testee.prepareReplanning(null);
+			testee.handlePlan(null);
+			testee.handlePlan(null);
+			testee.handlePlan(null);
+			testee.finishReplanning();
+			Assert.fail("expected exception, got none.");
+		} catch (RuntimeException e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
+	@Test
+	public void testWorkStealing() {
+		CountingModule testee = new CountingModule(3, ReplanningScheduling.workStealing);
+		for (int iteration = 0; iteration < 2; iteration++) {
+			testee.prepareReplanning(null);
+			for (int i = 0; i < 1000; i++) {
+				testee.handlePlan(null);
+			}
+			testee.finishReplanning();
+			Assert.assertEquals(1000 * (iteration + 1), testee.handledPlans.get());
+		}
+		Assert.assertTrue(testee.usedAlgos.size() >= 1);
+		Assert.assertTrue("every thread should use its own instance, and only a few threads should take part.", testee.usedAlgos.size() <= 2 * (3 + 1));
+	}
+
+	private static class CountingModule extends AbstractMultithreadedModule {
+		final AtomicInteger handledPlans = new AtomicInteger();
+		final Set<PlanAlgorithm> usedAlgos = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<PlanAlgorithm, Boolean>()));
+		public CountingModule(final int nOfThreads, ReplanningScheduling scheduling) {
+			super(nOfThreads, scheduling);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			return new PlanAlgorithm() {
+				@Override
+				public void run(Plan plan) {
+					usedAlgos.add(this);
+					handledPlans.incrementAndGet();
+				}
+			};
+		}
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -74,6 +128,9 @@ public class AbstractMultithreadedModuleTest {
 		public DummyCrashingModule(final int nOfThreads) {
 			super(nOfThreads);
 		}
+		public DummyCrashingModule(final int nOfThreads, ReplanningScheduling scheduling) {
+			super(nOfThreads, scheduling);
+		}
 		@Override
 		public PlanAlgorithm getPlanAlgoInstance() {
 			return new CrashingPlanAlgo();
@@ -0,0 +1,142 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.replanning.modules;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.router.TripRouterFactoryBuilderWithDefaults;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+
+public class IncrementalReRouteTest {
+
+	@Test
+	public void testKeepsRoutesWithUnchangedTravelTimes() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Node node3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(2000, 0));
+		Node node4 = NetworkUtils.createAndAddNode(network, Id.create("4", Node.class), new Coord(1500, 500));
+		Node node5 = NetworkUtils.createAndAddNode(network, Id.create("5", Node.class), new Coord(3000, 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), node2, node3, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), node2, node4, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("4", Link.class), node4, node3, 1000, 10, 3600, 1);
+		NetworkUtils.createAndAddLink(network, Id.create("5", Link.class), node3, node5, 1000, 10, 3600, 1);
+
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		Person person = pf.createPerson(Id.create("1", Person.class));
+		Plan plan = pf.createPlan();
+		Activity home = pf.createActivityFromLinkId("h", Id.create("1", Link.class));
+		home.setEndTime(8 * 3600);
+		plan.addActivity(home);
+		plan.addLeg(pf.createLeg(TransportMode.car));
+		plan.addActivity(pf.createActivityFromLinkId("w", Id.create("5", Link.class)));
+		person.addPlan(plan);
+
+		final Map<Id<Link>, Double> factors = new HashMap<>();
+		TravelTime travelTime = new TravelTime() {
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				Double factor = factors.get(link.getId());
+				return link.getLength() / link.getFreespeed() * (factor == null ? 1.0 : factor);
+			}
+		};
+
+		IncrementalReRoute testee = new IncrementalReRoute(scenario.getActivityFacilities(),
+				TripRouterFactoryBuilderWithDefaults.createDefaultTripRouterFactoryImpl(scenario), scenario.getConfig().global(),
+				network, Collections.singletonMap(TransportMode.car, travelTime), scenario.getConfig().travelTimeCalculator(), 0.01);
+
+		// first iteration: everything gets routed
+		runModule(testee, plan);
+		Assert.assertEquals(0, testee.getNumberOfKeptTrips());
+		Assert.assertEquals(1, testee.getNumberOfRoutedTrips());
+		Leg leg = (Leg) plan.getPlanElements().get(1);
+		Assert.assertEquals(Collections.singletonList(Id.create("2", Link.class)), ((NetworkRoute) leg.getRoute()).getLinkIds());
+
+		// nothing changed: the route is kept
+		runModule(testee, plan);
+		Assert.assertEquals(1, testee.getNumberOfKeptTrips());
+		Assert.assertEquals(0, testee.getNumberOfRoutedTrips());
+		Assert.assertSame(leg, plan.getPlanElements().get(1));
+
+		// a link branching off the route becomes faster: the route is recomputed
+		factors.put(Id.create("3", Link.class), 0.5);
+		runModule(testee, plan);
+		Assert.assertEquals(0, testee.getNumberOfKeptTrips());
+		Assert.assertEquals(1, testee.getNumberOfRoutedTrips());
+
+		// a link branching off the route becomes a bit faster twice: the route is recomputed once the changes add up
+		factors.put(Id.create("3", Link.class), 0.5 * 0.994);
+		runModule(testee, plan);
+		Assert.assertEquals(1, testee.getNumberOfKeptTrips());
+		Assert.assertEquals(0, testee.getNumberOfRoutedTrips());
+		factors.put(Id.create("3", Link.class), 0.5 * 0.994 * 0.994);
+		runModule(testee, plan);
+		Assert.assertEquals(0, testee.getNumberOfKeptTrips());
+		Assert.assertEquals(1, testee.getNumberOfRoutedTrips());
+
+		// a small change along the route, within the tolerance: the route is kept
+		factors.put(Id.create("2", Link.class), 1.005);
+		runModule(testee, plan);
+		Assert.assertEquals(1, testee.getNumberOfKeptTrips());
+		Assert.assertEquals(0, testee.getNumberOfRoutedTrips());
+
+		// the route becomes slower: the route is recomputed
+		factors.put(Id.create("2", Link.class), 2.0);
+		runModule(testee, plan);
+		Assert.assertEquals(0, testee.getNumberOfKeptTrips());
+		Assert.assertEquals(1, testee.getNumberOfRoutedTrips());
+
+		// the activity end time changes: the route is recomputed
+		home.setEndTime(9 * 3600);
+		runModule(testee, plan);
+		Assert.assertEquals(0, testee.getNumberOfKeptTrips());
+		Assert.assertEquals(1, testee.getNumberOfRoutedTrips());
+	}
+
+	private static void runModule(IncrementalReRoute module, Plan plan) {
+		module.prepareReplanning(null);
+		module.handlePlan(plan);
+		module.finishReplanning();
+	}
+
+}
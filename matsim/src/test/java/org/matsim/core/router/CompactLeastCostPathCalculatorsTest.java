@@ -0,0 +1,203 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CompactLeastCostPathCalculatorsTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.PreProcessEuclidean;
+import org.matsim.core.router.util.PreProcessLandmarks;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Compares the routes of the {@link CompactDijkstra} variants with the ones of the
+ * corresponding object based routers, using time dependent travel times and a network
+ * with many equally expensive alternatives.
+ */
+public class CompactLeastCostPathCalculatorsTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final int GRID_SIZE = 25;
+	private static final int QUERIES = 300;
+
+	@Test
+	public void testDijkstra_sameRoutes() {
+		Network network = createGridNetwork();
+		TimeDependentTravelTime tt = new TimeDependentTravelTime();
+		compareRoutes(network,
+				new Dijkstra(network, tt, tt),
+				new CompactDijkstra(new CompactRoutingGraph(network), tt, tt));
+	}
+
+	@Test
+	public void testAStarEuclidean_sameRoutes() {
+		Network network = createGridNetwork();
+		TimeDependentTravelTime tt = new TimeDependentTravelTime();
+		PreProcessEuclidean preProcessData = new PreProcessEuclidean(tt);
+		preProcessData.run(network);
+		compareRoutes(network,
+				new AStarEuclidean(network, preProcessData, tt, tt, 1.0),
+				new CompactAStarEuclidean(new CompactRoutingGraph(network), preProcessData.getMinTravelCostPerLength(), tt, tt, 1.0));
+	}
+
+	@Test
+	public void testAStarLandmarks_sameRoutes() {
+		Network network = createGridNetwork();
+		TimeDependentTravelTime tt = new TimeDependentTravelTime();
+		PreProcessLandmarks preProcessData = new PreProcessLandmarks(tt);
+		preProcessData.run(network);
+		CompactRoutingGraph graph = new CompactRoutingGraph(network);
+		compareRoutes(network,
+				new AStarLandmarks(network, preProcessData, tt, tt, 1.0),
+				new CompactAStarLandmarks(graph, new CompactLandmarks(graph, preProcessData), tt, tt, 1.0));
+	}
+
+	@Test
+	public void testFactories_sameRoutesAsDijkstra() {
+		Network network = createGridNetwork();
+		TimeDependentTravelTime tt = new TimeDependentTravelTime();
+		LeastCostPathCalculator reference = new Dijkstra(network, tt, tt);
+		/* A* returns least cost paths only, ties may be resolved differently */
+		compareCosts(network, reference, new CompactDijkstraFactory().createPathCalculator(network, tt, tt));
+		compareCosts(network, reference, new CompactAStarEuclideanFactory().createPathCalculator(network, tt, tt));
+		compareCosts(network, reference, new CompactAStarLandmarksFactory(2).createPathCalculator(network, tt, tt));
+	}
+
+	@Test
+	public void testNodeNotInNetwork() {
+		Network network = createGridNetwork();
+		TimeDependentTravelTime tt = new TimeDependentTravelTime();
+		LeastCostPathCalculator router = new CompactDijkstraFactory().createPathCalculator(network, tt, tt);
+		Node otherNode = NetworkUtils.createNode(Id.create("0_0", Node.class), new Coord(0, 0));
+		try {
+			router.calcLeastCostPath(otherNode, network.getNodes().get(Id.create("1_1", Node.class)), 0, null, null);
+			Assert.fail("expected IllegalArgumentException");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	private static void compareRoutes(Network network, LeastCostPathCalculator reference, LeastCostPathCalculator router) {
+		Random random = new Random(4711);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < QUERIES; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double time = random.nextInt(24 * 3600);
+			Path expected = reference.calcLeastCostPath(from, to, time, null, null);
+			Path path = router.calcLeastCostPath(from, to, time, null, null);
+			Assert.assertEquals("different links from " + from.getId() + " to " + to.getId(), expected.links, path.links);
+			Assert.assertEquals(expected.nodes, path.nodes);
+			Assert.assertEquals(expected.travelCost, path.travelCost, 0.0);
+			Assert.assertEquals(expected.travelTime, path.travelTime, 0.0);
+		}
+	}
+
+	private static void compareCosts(Network network, LeastCostPathCalculator reference, LeastCostPathCalculator router) {
+		Random random = new Random(4711);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < QUERIES; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double time = random.nextInt(24 * 3600);
+			Path expected = reference.calcLeastCostPath(from, to, time, null, null);
+			Path path = router.calcLeastCostPath(from, to, time, null, null);
+			Assert.assertEquals(expected.travelCost, path.travelCost, 1e-6);
+			Assert.assertEquals(from, path.nodes.get(0));
+			Assert.assertEquals(to, path.nodes.get(path.nodes.size() - 1));
+		}
+	}
+
+	/**
+	 * A grid with links of equal length in both directions and a few faster diagonals,
+	 * such that many routes have equally expensive alternatives.
+	 */
+	private static Network createGridNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class), new Coord(x * 100, y * 100));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				if (x + 1 < GRID_SIZE) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x + 1][y], 100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x + 1][y], nodes[x][y], 100, 10, 1000, 1);
+				}
+				if (y + 1 < GRID_SIZE) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x][y + 1], 100, 10, 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y + 1], nodes[x][y], 100, 10, 1000, 1);
+				}
+				if (x + 1 < GRID_SIZE && y + 1 < GRID_SIZE && (x * y) % 7 == 3) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x + 1][y + 1], 150, 15, 2000, 2);
+				}
+			}
+		}
+		return network;
+	}
+
+	/**
+	 * Travel times on some links increase during the peak hours; the disutility equals the travel time.
+	 */
+	private static class TimeDependentTravelTime implements TravelTime, TravelDisutility {
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			double freespeedTravelTime = link.getLength() / link.getFreespeed();
+			boolean peak = (time > 7 * 3600 && time < 9 * 3600) || (time > 16 * 3600 && time < 18 * 3600);
+			if (peak && link.getId().hashCode() % 3 == 0) {
+				return freespeedTravelTime * 2;
+			}
+			return freespeedTravelTime;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+
+	}
+
+}
@@ -161,6 +161,46 @@ public class RoutingIT {
 		});
 	}
 
+	@Test
+	public void testCompactDijkstra() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "CompactDijkstra";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new CompactDijkstraFactory();
+			}
+		});
+	}
+	@Test
+	public void testCompactAStarEuclidean() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "CompactAStarEuclidean";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new CompactAStarEuclideanFactory();
+			}
+		});
+	}
+	@Test
+	public void testCompactAStarLandmarks() {
+		doTest(new RouterProvider() {
+			@Override
+			public String getName() {
+				return "CompactAStarLandmarks";
+			}
+			@Override
+			public LeastCostPathCalculatorFactory getFactory(final Network network, final TravelDisutility costCalc, final TravelTime timeCalc) {
+				return new CompactAStarLandmarksFactory();
+			}
+		});
+	}
+
 	private void doTest(final RouterProvider provider) {
 //		final Config config = loadConfig("test/input/" + this.getClass().getCanonicalName().replace('.', '/') + "/config.xml");
 		final Config config = ConfigUtils.loadConfig( utils.getClassInputDirectory() + "/config.xml" );
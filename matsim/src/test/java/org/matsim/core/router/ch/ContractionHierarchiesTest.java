@@ -0,0 +1,211 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ContractionHierarchiesTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.ch;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.util.CompactRoutingGraph;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Verifies the costs of the paths found with contraction hierarchies against the ones found by Dijkstra.
+ */
+public class ContractionHierarchiesTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private static final int QUERIES = 500;
+
+	@Test
+	public void testStaticCosts_sameAsDijkstra() {
+		Network network = createNetwork(30, 1);
+		HourlyTravelTime tt = new HourlyTravelTime(false);
+		compareWithDijkstra(network, tt, new ContractionHierarchiesFactory(3600, 30 * 3600, 2), false);
+	}
+
+	@Test
+	public void testTimeDependentCosts_sameAsDijkstraWithinTimeBin() {
+		Network network = createNetwork(25, 2);
+		HourlyTravelTime tt = new HourlyTravelTime(true);
+		compareWithDijkstra(network, tt, new ContractionHierarchiesFactory(3600, 30 * 3600, 4), true);
+	}
+
+	@Test
+	public void testCustomization_afterIterationEnds() {
+		Network network = createNetwork(10, 3);
+		HourlyTravelTime tt = new HourlyTravelTime(false);
+		ContractionHierarchiesFactory factory = new ContractionHierarchiesFactory(3600, 30 * 3600, 1);
+		Node from = network.getNodes().get(Id.create("0_0", Node.class));
+		Node to = network.getNodes().get(Id.create("9_9", Node.class));
+
+		Path path = factory.createPathCalculator(network, tt, tt).calcLeastCostPath(from, to, 0, null, null);
+		tt.factor = 2;
+		// the metric of the iteration is re-used, only the reported cost reflects the new travel times
+		Path samePath = factory.createPathCalculator(network, tt, tt).calcLeastCostPath(from, to, 0, null, null);
+		Assert.assertEquals(path.links, samePath.links);
+		Assert.assertEquals(2 * path.travelCost, samePath.travelCost, 1e-9);
+
+		factory.notifyIterationEnds(null);
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, tt, tt);
+		Path newPath = factory.createPathCalculator(network, tt, tt).calcLeastCostPath(from, to, 0, null, null);
+		Assert.assertEquals(dijkstra.calcLeastCostPath(from, to, 0, null, null).travelCost, newPath.travelCost, 1e-6);
+	}
+
+	@Test
+	public void testNoRoute() {
+		Network network = createNetwork(5, 4);
+		Node isolated = NetworkUtils.createAndAddNode(network, Id.create("isolated", Node.class), new Coord(1000, 1000));
+		HourlyTravelTime tt = new HourlyTravelTime(false);
+		LeastCostPathCalculator router = new ContractionHierarchiesFactory(3600, 30 * 3600, 1).createPathCalculator(network, tt, tt);
+		Node from = network.getNodes().get(Id.create("0_0", Node.class));
+		Assert.assertNull(router.calcLeastCostPath(from, isolated, 0, null, null));
+		Assert.assertNull(router.calcLeastCostPath(isolated, from, 0, null, null));
+		Assert.assertNotNull(router.calcLeastCostPath(from, network.getNodes().get(Id.create("4_4", Node.class)), 0, null, null));
+	}
+
+	@Test
+	public void testHierarchy_edgesAreChordal() {
+		ContractionHierarchy ch = new ContractionHierarchy(new CompactRoutingGraph(createNetwork(20, 5)));
+		for (int v = 0; v < ch.getNodeCount(); v++) {
+			for (int e1 = ch.getFirstUpEdge(v); e1 < ch.getFirstUpEdge(v + 1); e1++) {
+				Assert.assertTrue(ch.getUpHead(e1) > v);
+				if (e1 == ch.getFirstUpEdge(v)) {
+					Assert.assertEquals(ch.getUpHead(e1), ch.getParent(v));
+				}
+				for (int e2 = e1 + 1; e2 < ch.getFirstUpEdge(v + 1); e2++) {
+					Assert.assertTrue(ch.getEdge(ch.getUpHead(e1), ch.getUpHead(e2)) >= 0);
+				}
+			}
+		}
+	}
+
+	private static void compareWithDijkstra(Network network, TravelTime tt, ContractionHierarchiesFactory factory, boolean withinTimeBin) {
+		LeastCostPathCalculator dijkstra = new DijkstraFactory().createPathCalculator(network, (TravelDisutility) tt, tt);
+		LeastCostPathCalculator router = factory.createPathCalculator(network, (TravelDisutility) tt, tt);
+		Random random = new Random(4711);
+		Node[] nodes = network.getNodes().values().toArray(new Node[0]);
+		for (int i = 0; i < QUERIES; i++) {
+			Node from = nodes[random.nextInt(nodes.length)];
+			Node to = nodes[random.nextInt(nodes.length)];
+			double time = withinTimeBin ? random.nextInt(24) * 3600 + random.nextInt(600) : random.nextInt(24 * 3600);
+			Path expected = dijkstra.calcLeastCostPath(from, to, time, null, null);
+			Path path = router.calcLeastCostPath(from, to, time, null, null);
+			Assert.assertEquals("different cost from " + from.getId() + " to " + to.getId() + " at " + time, expected.travelCost, path.travelCost, 1e-6);
+			Assert.assertEquals(from, path.nodes.get(0));
+			Assert.assertEquals(to, path.nodes.get(path.nodes.size() - 1));
+			for (int j = 0; j < path.links.size(); j++) {
+				Assert.assertEquals(path.nodes.get(j), path.links.get(j).getFromNode());
+				Assert.assertEquals(path.nodes.get(j + 1), path.links.get(j).getToNode());
+			}
+		}
+	}
+
+	/**
+	 * A grid with links in both directions, random speeds, some one-way diagonals and parallel links.
+	 */
+	private static Network createNetwork(int size, long seed) {
+		Random random = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.create(x + "_" + y, Node.class),
+						new Coord(x * 100 + random.nextInt(30), y * 100 + random.nextInt(30)));
+			}
+		}
+		int linkId = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					createLinks(network, linkId, nodes[x][y], nodes[x + 1][y], random);
+					linkId += 2;
+				}
+				if (y + 1 < size) {
+					createLinks(network, linkId, nodes[x][y], nodes[x][y + 1], random);
+					linkId += 2;
+				}
+				if (x + 1 < size && y + 1 < size && random.nextInt(5) == 0) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x + 1][y + 1], 141, 5 + random.nextInt(20), 1000, 1);
+				}
+				if (x + 1 < size && random.nextInt(10) == 0) {
+					NetworkUtils.createAndAddLink(network, Id.create(linkId++, Link.class), nodes[x][y], nodes[x + 1][y], 100, 5 + random.nextInt(20), 1000, 1);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void createLinks(Network network, int linkId, Node node1, Node node2, Random random) {
+		NetworkUtils.createAndAddLink(network, Id.create(linkId, Link.class), node1, node2, 100, 5 + random.nextInt(20), 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.create(linkId + 1, Link.class), node2, node1, 100, 5 + random.nextInt(20), 1000, 1);
+	}
+
+	/**
+	 * Constant travel times within each hour; the disutility equals the travel time.
+	 */
+	private static class HourlyTravelTime implements TravelTime, TravelDisutility {
+
+		private final boolean timeDependent;
+		private double factor = 1;
+
+		HourlyTravelTime(boolean timeDependent) {
+			this.timeDependent = timeDependent;
+		}
+
+		@Override
+		public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+			double travelTime = this.factor * link.getLength() / link.getFreespeed();
+			if (this.timeDependent) {
+				int hour = (int) (time / 3600);
+				travelTime *= 1 + ((link.getId().hashCode() + hour) % 4) * 0.5;
+			}
+			return travelTime;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			return getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return this.factor * link.getLength() / link.getFreespeed();
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IntMinHeapTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router.priorityqueue;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IntMinHeapTest {
+
+	@Test
+	public void testAddPoll() {
+		IntMinHeap heap = new IntMinHeap(10);
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertEquals(-1, heap.poll());
+		Assert.assertTrue(heap.add(5, 3.0));
+		Assert.assertTrue(heap.add(3, 1.0));
+		Assert.assertTrue(heap.add(7, 2.0));
+		Assert.assertFalse(heap.add(7, 0.5));
+		Assert.assertEquals(3, heap.size());
+		Assert.assertEquals(2.0, heap.getCost(7), 0.0);
+
+		Assert.assertEquals(3, heap.poll());
+		Assert.assertEquals(7, heap.poll());
+		Assert.assertEquals(5, heap.poll());
+		Assert.assertEquals(-1, heap.poll());
+		Assert.assertTrue(Double.isNaN(heap.getCost(5)));
+	}
+
+	@Test
+	public void testEqualCosts_orderedByElement() {
+		IntMinHeap heap = new IntMinHeap(10);
+		heap.add(8, 1.0);
+		heap.add(2, 1.0);
+		heap.add(9, 0.5);
+		heap.add(4, 1.0);
+		heap.add(0, 1.0);
+
+		Assert.assertEquals(9, heap.poll());
+		Assert.assertEquals(0, heap.poll());
+		Assert.assertEquals(2, heap.poll());
+		Assert.assertEquals(4, heap.poll());
+		Assert.assertEquals(8, heap.poll());
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		IntMinHeap heap = new IntMinHeap(10);
+		heap.add(1, 1.0);
+		heap.add(2, 2.0);
+		heap.add(3, 3.0);
+
+		Assert.assertFalse(heap.decreaseKey(1, 4.0));
+		Assert.assertTrue(heap.decreaseKey(3, 0.5));
+		Assert.assertTrue(heap.decreaseKey(4, 1.5)); // not yet part of the heap
+		Assert.assertEquals(3, heap.poll());
+		Assert.assertEquals(1, heap.poll());
+		Assert.assertEquals(4, heap.poll());
+		Assert.assertEquals(2, heap.poll());
+	}
+
+	@Test
+	public void testRemoveAndReset() {
+		IntMinHeap heap = new IntMinHeap(10);
+		for (int i = 0; i < 10; i++) {
+			heap.add(i, 10 - i);
+		}
+		Assert.assertTrue(heap.remove(0));
+		Assert.assertFalse(heap.remove(0));
+		Assert.assertTrue(heap.remove(9));
+		Assert.assertTrue(heap.remove(5));
+		Assert.assertEquals(7, heap.size());
+		Assert.assertEquals(8, heap.poll());
+
+		heap.reset();
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertFalse(heap.contains(7));
+		Assert.assertTrue(heap.add(7, 1.0));
+		Assert.assertEquals(7, heap.poll());
+	}
+
+	@Test
+	public void testRandomOperations_sortedOutput() {
+		Random random = new Random(42);
+		int n = 1000;
+		IntMinHeap heap = new IntMinHeap(n);
+		double[] costs = new double[n];
+		for (int i = 0; i < n; i++) {
+			costs[i] = random.nextInt(100);
+			heap.add(i, costs[i]);
+		}
+		for (int i = 0; i < n; i += 3) {
+			costs[i] = costs[i] - random.nextInt(50);
+			heap.decreaseKey(i, costs[i]);
+		}
+		for (int i = 1; i < n; i += 7) {
+			heap.remove(i);
+		}
+		double lastCost = Double.NEGATIVE_INFINITY;
+		int lastElement = -1;
+		int count = 0;
+		while (!heap.isEmpty()) {
+			int element = heap.poll();
+			Assert.assertTrue(costs[element] > lastCost || (costs[element] == lastCost && element > lastElement));
+			Assert.assertNotEquals(1, element % 7);
+			lastCost = costs[element];
+			lastElement = element;
+			count++;
+		}
+		Assert.assertEquals(n - (n + 5) / 7, count);
+	}
+
+}
@@ -0,0 +1,163 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scoring;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.ControlerListenerManagerImpl;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.qsim.QSimUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.functions.CharyparNagelScoringFunctionFactory;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ScoringFunctionsForPopulationTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testShardedScoringGivesSameScores() throws IOException {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		final List<Event> mobsimEvents = new ArrayList<>();
+		EventsManager mobsimEventsManager = EventsUtils.createEventsManager();
+		mobsimEventsManager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				mobsimEvents.add(event);
+			}
+
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		QSimUtils.createDefaultQSim(scenario, mobsimEventsManager).run();
+		Assert.assertFalse(mobsimEvents.isEmpty());
+
+		ScoringFunctionsForPopulation expected = score(scenario, mobsimEvents, 0, "partialScores0.txt");
+		for (int threads : new int[] { 1, 3 }) {
+			ScoringFunctionsForPopulation actual = score(scenario, mobsimEvents, threads, "partialScores" + threads + ".txt");
+			for (Id<Person> personId : scenario.getPopulation().getPersons().keySet()) {
+				Assert.assertEquals(expected.getScoringFunctionForAgent(personId).getScore(), actual.getScoringFunctionForAgent(personId).getScore(), 0.0);
+			}
+			Assert.assertEquals(
+					new String(Files.readAllBytes(Paths.get(this.utils.getOutputDirectory() + "partialScores0.txt")), StandardCharsets.UTF_8),
+					new String(Files.readAllBytes(Paths.get(this.utils.getOutputDirectory() + "partialScores" + threads + ".txt")), StandardCharsets.UTF_8));
+		}
+	}
+
+	private ScoringFunctionsForPopulation score(Scenario scenario, List<Event> mobsimEvents, int threads, String partialScoresFile) {
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager events = EventsUtils.createEventsManager();
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events,
+				new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events),
+				scenario.getPopulation(), new CharyparNagelScoringFunctionFactory(scenario), threads);
+		scoringFunctionsForPopulation.setPassLinkEventsToPerson(true);
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		events.initProcessing();
+		for (Event event : mobsimEvents) {
+			events.processEvent(event);
+		}
+		events.finishProcessing();
+		scoringFunctionsForPopulation.finishScoringFunctions();
+		scoringFunctionsForPopulation.writePartialScores(this.utils.getOutputDirectory() + partialScoresFile);
+		return scoringFunctionsForPopulation;
+	}
+
+	@Test
+	public void testExceptionInShardPropagates() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		for (int i = 0; i < 10; i++) {
+			scenario.getPopulation().addPerson(scenario.getPopulation().getFactory().createPerson(Id.createPersonId(i)));
+		}
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager events = EventsUtils.createEventsManager();
+		ScoringFunctionsForPopulation scoringFunctionsForPopulation = new ScoringFunctionsForPopulation(controlerListenerManager, events,
+				new EventsToActivities(controlerListenerManager, events), new EventsToLegs(scenario.getNetwork(), events),
+				scenario.getPopulation(), new ScoringFunctionFactory() {
+					@Override
+					public ScoringFunction createNewScoringFunction(Person person) {
+						return new ThrowingScoringFunction();
+					}
+				}, 2);
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+		events.processEvent(new PersonMoneyEvent(3600.0, Id.createPersonId(7), 3.4));
+		try {
+			scoringFunctionsForPopulation.finishScoringFunctions();
+			Assert.fail("expected exception.");
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("money", e.getMessage());
+		}
+	}
+
+	private static class ThrowingScoringFunction implements ScoringFunction {
+		@Override
+		public void handleActivity(Activity activity) {
+		}
+
+		@Override
+		public void handleLeg(Leg leg) {
+		}
+
+		@Override
+		public void agentStuck(double time) {
+		}
+
+		@Override
+		public void addMoney(double amount) {
+			throw new IllegalStateException("money");
+		}
+
+		@Override
+		public void finish() {
+		}
+
+		@Override
+		public double getScore() {
+			return 0;
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup.TravelTimeCalculatorType;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.network.io.MatsimNetworkReader;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.utils.EventsCollector;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Compares the travel times of the {@link ConcurrentTravelTimeCalculator} with the ones of the
+ * {@link TravelTimeCalculator}, using the events of the equil scenario.
+ */
+public class ConcurrentTravelTimeCalculatorTest {
+
+	@Test
+	public void testSingleThread_identicalTravelTimes() {
+		Network network = readNetwork();
+		List<Event> events = readEvents();
+		for (String aggregator : new String[] { "optimistic", "experimental_LastMile" }) {
+			for (String getter : new String[] { "average", "linearinterpolation" }) {
+				TravelTimeCalculatorConfigGroup config = createConfig(aggregator, getter);
+
+				TravelTimeCalculator reference = TravelTimeCalculator.create(network, config);
+				config.setTravelTimeCalculatorType(TravelTimeCalculatorType.TravelTimeCalculatorConcurrent.toString());
+				TravelTimeCalculator calculator = TravelTimeCalculator.create(network, config);
+				Assert.assertTrue(calculator instanceof ConcurrentTravelTimeCalculator);
+
+				handleEvents(events, reference);
+				handleEvents(events, calculator);
+				for (Link link : network.getLinks().values()) {
+					for (double time = 0; time < 30 * 3600; time += 300) {
+						Assert.assertEquals(reference.getLinkTravelTime(link, time), calculator.getLinkTravelTime(link, time), 0.0);
+						for (Link toLink : link.getToNode().getOutLinks().values()) {
+							Assert.assertEquals(reference.getLinkToLinkTravelTime(link.getId(), toLink.getId(), time),
+									calculator.getLinkToLinkTravelTime(link.getId(), toLink.getId(), time), 0.0);
+						}
+					}
+				}
+
+				// the travel times must be the same in the next iteration
+				reference.reset(1);
+				calculator.reset(1);
+				handleEvents(events, reference);
+				handleEvents(events, calculator);
+				for (Link link : network.getLinks().values()) {
+					for (double time = 0; time < 30 * 3600; time += 300) {
+						Assert.assertEquals(reference.getLinkTravelTime(link, time), calculator.getLinkTravelTime(link, time), 0.0);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testMultipleThreads_sameTravelTimes() throws InterruptedException {
+		Network network = readNetwork();
+		List<Event> events = readEvents();
+		TravelTimeCalculatorConfigGroup config = createConfig("optimistic", "average");
+
+		TravelTimeCalculator reference = TravelTimeCalculator.create(network, config);
+		handleEvents(events, reference);
+
+		final ConcurrentTravelTimeCalculator calculator = new ConcurrentTravelTimeCalculator(network, config);
+		int numberOfThreads = 4;
+		final List<List<Event>> partitions = new ArrayList<>();
+		for (int i = 0; i < numberOfThreads; i++) {
+			partitions.add(new ArrayList<Event>());
+		}
+		for (Event event : events) {
+			String vehicleId = event.getAttributes().get("vehicle");
+			if (vehicleId != null) {
+				// all events of a vehicle must be handled by the same thread
+				partitions.get(Math.abs(vehicleId.hashCode() % numberOfThreads)).add(event);
+			}
+		}
+		Thread[] threads = new Thread[numberOfThreads];
+		for (int i = 0; i < numberOfThreads; i++) {
+			final List<Event> partition = partitions.get(i);
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					handleEvents(partition, calculator);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (Link link : network.getLinks().values()) {
+			for (double time = 0; time < 30 * 3600; time += 300) {
+				// the travel times are summed up in a different order
+				Assert.assertEquals(reference.getLinkTravelTime(link, time), calculator.getLinkTravelTime(link, time), 1e-8);
+			}
+		}
+	}
+
+	@Test
+	public void testSnapshot_notAffectedByLaterEvents() {
+		Network network = readNetwork();
+		ConcurrentTravelTimeCalculator calculator = new ConcurrentTravelTimeCalculator(network, createConfig("optimistic", "average"));
+		Link link = network.getLinks().get(Id.create("6", Link.class));
+		Id<Vehicle> vehicleId = Id.create("1", Vehicle.class);
+		double freeSpeedTravelTime = link.getLength() / link.getFreespeed();
+
+		TravelTime snapshot = calculator.createSnapshot();
+		calculator.handleEvent(new LinkEnterEvent(7 * 3600, vehicleId, link.getId()));
+		calculator.handleEvent(new LinkLeaveEvent(7 * 3600 + 1000, vehicleId, link.getId()));
+		TravelTime laterSnapshot = calculator.createSnapshot();
+
+		Assert.assertEquals(freeSpeedTravelTime, snapshot.getLinkTravelTime(link, 7 * 3600, null, null), 1e-8);
+		Assert.assertEquals(1000, laterSnapshot.getLinkTravelTime(link, 7 * 3600, null, null), 1e-8);
+		Assert.assertEquals(1000, calculator.getLinkTravelTime(link, 7 * 3600), 1e-8);
+
+		calculator.reset(1);
+		Assert.assertEquals(1000, laterSnapshot.getLinkTravelTime(link, 7 * 3600, null, null), 1e-8);
+		Assert.assertEquals(freeSpeedTravelTime, calculator.getLinkTravelTime(link, 7 * 3600), 1e-8);
+	}
+
+	private static TravelTimeCalculatorConfigGroup createConfig(String aggregator, String getter) {
+		TravelTimeCalculatorConfigGroup config = new TravelTimeCalculatorConfigGroup();
+		config.setCalculateLinkToLinkTravelTimes(true);
+		config.setTravelTimeAggregatorType(aggregator);
+		config.setTravelTimeGetterType(getter);
+		return config;
+	}
+
+	private static Network readNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		new MatsimNetworkReader(network).parse(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "network.xml"));
+		return network;
+	}
+
+	private static List<Event> readEvents() {
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new MatsimEventsReader(eventsManager).readStream(IOUtils.getInputStream(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "output_events.xml.gz")));
+		return collector.getEvents();
+	}
+
+	private static void handleEvents(List<Event> events, TravelTimeCalculator calculator) {
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler(calculator);
+		for (Event event : events) {
+			eventsManager.processEvent(event);
+		}
+	}
+
+}
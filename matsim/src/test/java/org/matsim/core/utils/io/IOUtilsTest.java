@@ -22,6 +22,7 @@ package org.matsim.core.utils.io;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -30,6 +31,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.file.Paths;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.log4j.Logger;
 import org.junit.Assert;
@@ -218,6 +220,63 @@ public class IOUtilsTest {
 		Assert.assertTrue("compressed file should be less than 50 bytes, but is " + file.length(), file.length() < 50);
 	}
 
+	@Test
+	public void testGetBufferedWriter_lz4() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "test.txt.lz4";
+		BufferedWriter writer = IOUtils.getBufferedWriter(filename);
+		for (int i = 0; i < 1000; i++) {
+			writer.write("12345678901234567890123456789012345678901234567890\n");
+		}
+		writer.close();
+		File file = new File(filename);
+		Assert.assertTrue("compressed file should be less than 1000 bytes, but is " + file.length(), file.length() < 1000);
+		try (InputStream in = new FileInputStream(filename)) {
+			Assert.assertEquals(0x04, in.read());
+			Assert.assertEquals(0x22, in.read());
+			Assert.assertEquals(0x4d, in.read());
+			Assert.assertEquals(0x18, in.read());
+		}
+		BufferedReader reader = IOUtils.getBufferedReader(this.utils.getOutputDirectory() + "test.txt");
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertEquals("12345678901234567890123456789012345678901234567890", reader.readLine());
+		}
+		Assert.assertNull(reader.readLine());
+		reader.close();
+	}
+
+	@Test
+	public void testGetBufferedWriter_useCompression() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "test.txt.lz4";
+		BufferedWriter writer = IOUtils.getBufferedWriter(filename, true);
+		writer.write("aaa");
+		writer.close();
+		Assert.assertTrue(new File(filename).exists());
+		writer = IOUtils.getBufferedWriter(filename, false);
+		writer.write("bbb");
+		writer.close();
+		Assert.assertTrue(new File(this.utils.getOutputDirectory() + "test.txt").exists());
+	}
+
+	@Test
+	public void testGetBufferedReader_detectsCompression() throws IOException {
+		// the content decides about the decompression, not the file ending
+		String filename = this.utils.getOutputDirectory() + "test.txt";
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(filename))) {
+			out.write("gzip".getBytes());
+		}
+		BufferedReader reader = IOUtils.getBufferedReader(filename);
+		Assert.assertEquals("gzip", reader.readLine());
+		reader.close();
+
+		try (OutputStream out = new Lz4FrameOutputStream(new FileOutputStream(filename))) {
+			out.write("lz4".getBytes());
+		}
+		InputStream in = IOUtils.getInputStream(filename);
+		Assert.assertEquals("lz4", new String(new byte[] { (byte) in.read(), (byte) in.read(), (byte) in.read() }));
+		Assert.assertEquals(-1, in.read());
+		in.close();
+	}
+
 	@Test
 	public void testGetInputStream_UTFwithoutBOM() throws IOException {
 		String filename = utils.getOutputDirectory() + "test.txt";
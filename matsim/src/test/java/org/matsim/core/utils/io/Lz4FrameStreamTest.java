@@ -0,0 +1,180 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Lz4FrameStreamTest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		byte[] data = createData(10 * 1024 * 1024);
+		Assert.assertArrayEquals(data, decompress(compress(data, false)));
+
+		StringBuilder events = new StringBuilder();
+		Random random = new Random(4711);
+		for (int i = 0; i < 100000; i++) {
+			events.append("\t<event time=\"").append(i / 10).append(".0\" type=\"entered link\" person=\"")
+					.append(random.nextInt(1000)).append("\" link=\"").append(random.nextInt(5000)).append("\" />\n");
+		}
+		data = events.toString().getBytes();
+		byte[] compressed = compress(data, false);
+		Assert.assertTrue("compressed size " + compressed.length, compressed.length < data.length / 3);
+		Assert.assertArrayEquals(data, decompress(compressed));
+	}
+
+	@Test
+	public void testIncompressibleData() throws IOException {
+		byte[] data = new byte[300000];
+		new Random(4711).nextBytes(data);
+		byte[] compressed = compress(data, false);
+		Assert.assertTrue(compressed.length < data.length + 100);
+		Assert.assertArrayEquals(data, decompress(compressed));
+	}
+
+	@Test
+	public void testEmptyAndSmallStreams() throws IOException {
+		Assert.assertArrayEquals(new byte[0], decompress(compress(new byte[0], false)));
+		for (int length : new int[] { 1, 5, 12, 13, 100 }) {
+			byte[] data = createData(length);
+			Assert.assertArrayEquals(data, decompress(compress(data, false)));
+		}
+		byte[] repeated = new byte[1000];
+		Arrays.fill(repeated, (byte) 'x');
+		Assert.assertArrayEquals(repeated, decompress(compress(repeated, false)));
+	}
+
+	@Test
+	public void testFlush() throws IOException {
+		byte[] data = createData(200000);
+		Assert.assertArrayEquals(data, decompress(compress(data, true)));
+	}
+
+	@Test
+	public void testEmptyFrameOfReferenceImplementation() throws IOException {
+		// empty frame as written by "lz4 -B4" (64 kB blocks, content checksum)
+		byte[] frame = { 0x04, 0x22, 0x4D, 0x18, 0x64, 0x40, (byte) 0xA7, 0, 0, 0, 0, 0x05, 0x5D, (byte) 0xCC, 0x02 };
+		Assert.assertArrayEquals(new byte[0], decompress(frame));
+	}
+
+	@Test
+	public void testLinkedBlocksAndConcatenatedFrames() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		// frame with dependent blocks, no checksums
+		writeHeader(bytes, Lz4FrameOutputStream.FLG_VERSION);
+		bytes.write(new byte[] { 8, 0, 0, (byte) 0x80 }); // uncompressed block of 8 bytes
+		bytes.write("abcdefgh".getBytes());
+		bytes.write(new byte[] { 5, 0, 0, 0 }); // compressed block of 5 bytes
+		bytes.write(new byte[] { 0x04, 8, 0, 0x10, 'X' }); // copy 8 bytes from the previous block, then literal 'X'
+		bytes.write(new byte[] { 0, 0, 0, 0 });
+		// skippable frame
+		bytes.write(new byte[] { 0x5A, 0x2A, 0x4D, 0x18, 3, 0, 0, 0, 1, 2, 3 });
+		// second frame
+		bytes.write(compress("-end".getBytes(), false));
+
+		Assert.assertEquals("abcdefghabcdefghX-end", new String(decompress(bytes.toByteArray())));
+	}
+
+	@Test
+	public void testCorruptData() throws IOException {
+		byte[] data = createData(100000);
+		byte[] compressed = compress(data, false);
+		compressed[compressed.length / 2] ^= 0x55;
+		try {
+			decompress(compressed);
+			Assert.fail("expected exception.");
+		} catch (IOException e) {
+			// expected, either a corrupt block or a checksum mismatch
+		}
+
+		try {
+			decompress(Arrays.copyOf(compress(data, false), 1000));
+			Assert.fail("expected exception.");
+		} catch (IOException e) {
+			// expected, the data ends in the middle of a block
+		}
+	}
+
+	@Test
+	public void testIOUtils() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream in = IOUtils.getDecompressedInputStream(new ByteArrayInputStream(compress("lz4!".getBytes(), false)))) {
+			IOUtils.copyStream(in, bytes);
+		}
+		Assert.assertEquals("lz4!", bytes.toString());
+	}
+
+	private static void writeHeader(final ByteArrayOutputStream bytes, final int flg) {
+		byte[] header = new byte[7];
+		Lz4FrameOutputStream.writeIntLE(header, 0, Lz4FrameOutputStream.MAGIC);
+		header[4] = (byte) flg;
+		header[5] = 0x40;
+		header[6] = (byte) (XXHash32.hash(header, 4, 2, 0) >>> 8);
+		bytes.write(header, 0, header.length);
+	}
+
+	private static byte[] createData(int length) {
+		Random random = new Random(4711);
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			// compressible, but not trivially so
+			data[i] = (byte) ('a' + (int) Math.abs(random.nextGaussian() * 3));
+		}
+		return data;
+	}
+
+	private static byte[] compress(byte[] data, boolean flush) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (Lz4FrameOutputStream out = new Lz4FrameOutputStream(bytes)) {
+			Random random = new Random(42);
+			int offset = 0;
+			while (offset < data.length) {
+				if (random.nextInt(10) == 0) {
+					out.write(data[offset++]);
+				} else {
+					int n = Math.min(random.nextInt(50000), data.length - offset);
+					out.write(data, offset, n);
+					offset += n;
+				}
+				if (flush) {
+					out.flush();
+				}
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] decompress(byte[] compressed) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream in = new Lz4FrameInputStream(new ByteArrayInputStream(compressed))) {
+			IOUtils.copyStream(in, bytes);
+		}
+		return bytes.toByteArray();
+	}
+
+}
@@ -26,16 +26,21 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.apache.log4j.Logger;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.lanes.data.LanesReader;
+import org.matsim.testcases.MatsimTestUtils;
 
 /**
  * @author mrieser
  */
 public class MatsimFileTypeGuesserTest {
 
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
 
 	private final static Logger log = Logger.getLogger(MatsimFileTypeGuesserTest.class);
 
@@ -147,6 +152,20 @@ public class MatsimFileTypeGuesserTest {
 		assertNull(g.getSystemId());
 	}
 
+	@Test
+	public void testCompressedAndUnknownEnding() throws IOException {
+		for (String name : new String[] { "network.xml.lz4", "network.lz4", "network.dat" }) {
+			String filename = this.utils.getOutputDirectory() + name;
+			try (InputStream in = IOUtils.getInputStream("test/scenarios/equil/network.xml");
+					OutputStream out = IOUtils.getOutputStream(filename)) {
+				IOUtils.copyStream(in, out);
+			}
+			MatsimFileTypeGuesser g = new MatsimFileTypeGuesser(filename);
+			assertEquals(name, MatsimFileTypeGuesser.FileType.Network, g.getGuessedFileType());
+			assertEquals("http://www.matsim.org/files/dtd/network_v1.dtd", g.getSystemId());
+		}
+	}
+
 	@Test
 	public void testNotExistant() {
 		try {
@@ -0,0 +1,133 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2017 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.utils.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelGZIPOutputStreamTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testReadableByGZIPInputStream() throws IOException {
+		byte[] data = createData(1000000);
+		byte[] compressed = compress(data, 4, 32 * 1024);
+		Assert.assertArrayEquals(data, decompress(compressed));
+		Assert.assertTrue(compressed.length < data.length / 2);
+	}
+
+	@Test
+	public void testIndependentOfNumberOfThreads() throws IOException {
+		byte[] data = createData(500000);
+		Assert.assertArrayEquals(compress(data, 1, 32 * 1024), compress(data, 3, 32 * 1024));
+		Assert.assertArrayEquals(compress(data, 1, 64 * 1024), compress(data, 8, 64 * 1024));
+	}
+
+	@Test
+	public void testEmptyAndSmallStreams() throws IOException {
+		Assert.assertArrayEquals(new byte[0], decompress(compress(new byte[0], 4, 32 * 1024)));
+		byte[] data = createData(100);
+		Assert.assertArrayEquals(data, decompress(compress(data, 4, 32 * 1024)));
+		data = createData(32 * 1024);
+		Assert.assertArrayEquals(data, decompress(compress(data, 4, 32 * 1024)));
+	}
+
+	@Test
+	public void testMetrics() throws IOException {
+		byte[] data = createData(200000);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ParallelGZIPOutputStream out = new ParallelGZIPOutputStream(bytes, 2, Deflater.DEFAULT_COMPRESSION, 32 * 1024);
+		out.write(data);
+		out.close();
+		Assert.assertEquals(data.length, out.getUncompressedBytes());
+		Assert.assertEquals(bytes.size(), out.getCompressedBytes());
+	}
+
+	@Test
+	public void testIOUtilsWriter() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "test.txt.gz";
+		int threads = IOUtils.getNumberOfCompressionThreads();
+		IOUtils.setNumberOfCompressionThreads(4);
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			for (int i = 0; i < 100000; i++) {
+				writer.write("line " + i + "\n");
+			}
+		} finally {
+			IOUtils.setNumberOfCompressionThreads(threads);
+		}
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			for (int i = 0; i < 100000; i++) {
+				Assert.assertEquals("line " + i, reader.readLine());
+			}
+			Assert.assertNull(reader.readLine());
+		}
+	}
+
+	private static byte[] createData(int length) {
+		Random random = new Random(4711);
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			// compressible, but not trivially so
+			data[i] = (byte) ('a' + (int) Math.abs(random.nextGaussian() * 3));
+		}
+		return data;
+	}
+
+	private static byte[] compress(byte[] data, int threads, int blockSize) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ParallelGZIPOutputStream out = new ParallelGZIPOutputStream(bytes, threads, Deflater.DEFAULT_COMPRESSION, blockSize)) {
+			// write in pieces of different sizes, also across block boundaries
+			Random random = new Random(42);
+			int offset = 0;
+			while (offset < data.length) {
+				if (random.nextInt(10) == 0) {
+					out.write(data[offset++]);
+				} else {
+					int n = Math.min(random.nextInt(50000), data.length - offset);
+					out.write(data, offset, n);
+					offset += n;
+				}
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static byte[] decompress(byte[] compressed) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			IOUtils.copyStream(in, bytes);
+		}
+		return bytes.toByteArray();
+	}
+
+}
@@ -83,8 +83,8 @@ public class TransitRouterImplTest {
 	@Parameters(name = "{index}: TransitRouter == {0}")
 	public static Collection<Object> createRouterTypes() {
 		Object[] router = new Object [] { 
-				"standard"
-//				,TransitRouterType.raptor
+				"standard",
+				"raptor"
 		};
 		return Arrays.asList(router);
 	}
@@ -125,17 +125,12 @@ public class TransitRouterImplTest {
 	protected TransitRouter createTransitRouter(TransitSchedule schedule, TransitRouterConfig trConfig, String routerType) {
 		TransitRouter router = null ;
 		switch( routerType ) { 
-//		case raptor:
-//			double costPerMeterTraveled = 0. ;
-//			double costPerBoarding = 0. ;
-//			RaptorDisutility raptorDisutility = new RaptorDisutility(trConfig, costPerBoarding, costPerMeterTraveled);
-//			TransitRouterQuadTree transitRouterQuadTree = new TransitRouterQuadTree(raptorDisutility);
-//			transitRouterQuadTree.initializeFromSchedule(schedule, trConfig.getBeelineWalkConnectionDistance());
-//			router = new Raptor(transitRouterQuadTree, raptorDisutility, trConfig) ;
-//			break;
 		case "standard":
 			router = new TransitRouterImpl(trConfig, schedule);
 			break;
+		case "raptor":
+			router = new RaptorTransitRouter(trConfig, new RaptorTransitData(schedule, trConfig.getBeelineWalkConnectionDistance()));
+			break;
 		default:
 			break;
 		}
@@ -20,14 +20,26 @@
 
 package org.matsim.withinday.trafficmonitoring;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.QSimConfigGroup;
@@ -36,18 +48,25 @@ import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
 import org.matsim.core.controler.events.StartupEvent;
 import org.matsim.core.controler.listener.StartupListener;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
 import org.matsim.core.mobsim.framework.listeners.FixedOrderSimulationListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
+import org.matsim.core.network.io.MatsimNetworkReader;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
 import org.matsim.testcases.MatsimTestCase;
 import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
 
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
@@ -117,6 +136,89 @@ public class TravelTimeCollectorTest extends MatsimTestCase {
 		controler.run();
 	}
 
+	/**
+	 * Feeds the link events of the equil scenario into one collector from a single thread and into another one
+	 * from several threads, and compares the travel times after every time step.
+	 */
+	@Test
+	public void testConcurrentEvents() throws Exception {
+		Config config = ConfigUtils.createConfig();
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new MatsimNetworkReader(scenario.getNetwork()).parse(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "network.xml"));
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		eventsManager.addHandler(collector);
+		new MatsimEventsReader(eventsManager).readStream(IOUtils.getInputStream(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "output_events.xml.gz")));
+
+		TravelTimeCollector reference = new TravelTimeCollector(scenario, null);
+		TravelTimeCollector travelTime = new TravelTimeCollector(scenario, null);
+		reference.notifyMobsimInitialized(new MobsimInitializedEvent<>(null));
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<>(null));
+
+		final int numberOfThreads = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try {
+			List<Event> events = collector.getEvents();
+			int i = 0;
+			while (i < events.size()) {
+				double time = events.get(i).getTime();
+				final List<List<Event>> partitions = new ArrayList<>();
+				for (int t = 0; t < numberOfThreads; t++) {
+					partitions.add(new ArrayList<Event>());
+				}
+				for (; i < events.size() && events.get(i).getTime() == time; i++) {
+					Event event = events.get(i);
+					handleEvent(event, reference);
+					String vehicleId = event.getAttributes().get("vehicle");
+					if (vehicleId != null) {
+						// all events of a vehicle must be handled by the same thread
+						partitions.get(Math.abs(vehicleId.hashCode() % numberOfThreads)).add(event);
+					}
+				}
+				List<Callable<Void>> tasks = new ArrayList<>();
+				for (final List<Event> partition : partitions) {
+					final TravelTimeCollector collectorForTask = travelTime;
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() {
+							for (Event event : partition) {
+								handleEvent(event, collectorForTask);
+							}
+							return null;
+						}
+					});
+				}
+				for (Future<Void> future : executor.invokeAll(tasks)) {
+					future.get();
+				}
+
+				reference.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, time + 1));
+				travelTime.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, time + 1));
+				for (Link link : scenario.getNetwork().getLinks().values()) {
+					assertEquals(reference.getLinkTravelTime(link, time, null, null), travelTime.getLinkTravelTime(link, time, null, null), 1e-8);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Link link = scenario.getNetwork().getLinks().get(Id.create("6", Link.class));
+		assertEquals(link.getLength() / link.getFreespeed(), travelTime.getLinkTravelTime(link, 30 * 3600, null, null), 1e-8);
+		travelTime.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<>(null));
+		reference.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<>(null));
+	}
+
+	private static void handleEvent(Event event, TravelTimeCollector travelTime) {
+		if (event instanceof LinkEnterEvent) {
+			travelTime.handleEvent((LinkEnterEvent) event);
+		} else if (event instanceof LinkLeaveEvent) {
+			travelTime.handleEvent((LinkLeaveEvent) event);
+		} else if (event instanceof VehicleEntersTrafficEvent) {
+			travelTime.handleEvent((VehicleEntersTrafficEvent) event);
+		} else if (event instanceof VehicleLeavesTrafficEvent) {
+			travelTime.handleEvent((VehicleLeavesTrafficEvent) event);
+		}
+	}
+
 	/**
 	 * Check travel times before and after a time step.
 	 * 